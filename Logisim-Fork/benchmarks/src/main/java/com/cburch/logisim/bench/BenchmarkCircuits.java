@@ -0,0 +1,52 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+
+/**
+ * Resolves the <code>circuit</code> parameter shared by the benchmarks: either
+ * a path to a .circ file, or <i>kind</i>:<i>size</i> naming a circuit for
+ * {@link CircuitGenerator} to write.
+ */
+public class BenchmarkCircuits {
+	public static LogisimFile open(String circuit) throws IOException, LoadFailedException {
+		return CircuitGenerator.load(resolve(circuit));
+	}
+
+	public static File resolve(String circuit) throws IOException {
+		int colon = circuit.lastIndexOf(':');
+		if (circuit.endsWith(".circ") || colon < 0)
+			return new File(circuit);
+		String kind = circuit.substring(0, colon);
+		int size = Integer.parseInt(circuit.substring(colon + 1));
+		return CircuitGenerator.createTempFile(kind, size);
+	}
+
+	/**
+	 * Opens the circuit and lets it settle, as the command-line interface does.
+	 * The project made for it runs simulator threads until passed to stop.
+	 */
+	public static CircuitState start(String circuit) throws IOException, LoadFailedException {
+		LogisimFile file = open(circuit);
+		Project proj = new Project(file);
+		CircuitState ret = new CircuitState(proj, file.getMainCircuit());
+		ret.getPropagator().propagate();
+		return ret;
+	}
+
+	/** Shuts down the simulator threads of a state returned by start. */
+	public static void stop(CircuitState state) {
+		state.getProject().getSimulator().shutDown();
+	}
+
+	private BenchmarkCircuits() {
+	}
+}
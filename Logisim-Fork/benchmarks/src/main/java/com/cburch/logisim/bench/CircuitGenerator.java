@@ -0,0 +1,331 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Writes synthetic circuits of a chosen size for benchmarking. Connections
+ * are made through tunnels, so that there are few wires to lay out, except
+ * for the counter chain's clock; the main circuit is driven by a clock.
+ *
+ * <ul>
+ * <li><b>ripple</b> - an N-bit ripple-carry adder built from one-bit adders,
+ * fed by two 32-bit counters.</li>
+ * <li><b>counters</b> - a chain of N 8-bit counters, each counting the carries
+ * out of the one before it. The clock reaches the counters over wires: a
+ * drop from each counter to a bus between its row and the next, and a trunk
+ * joining the buses, all one wire bundle.</li>
+ * <li><b>cpu</b> - N copies of a subcircuit holding a program counter, a RAM
+ * and an accumulator that adds each word it reads and writes the sum back.</li>
+ * </ul>
+ *
+ * Usage: <code>CircuitGenerator kind size file.circ</code>
+ */
+public class CircuitGenerator {
+	public static final String RIPPLE_ADDER = "ripple";
+	public static final String COUNTER_CHAIN = "counters";
+	public static final String RAM_CPU = "cpu";
+
+	private static final int CELL = 400;
+	private static final int COLUMNS = 40;
+
+	/** Writes the circuit to a temporary file, which is deleted on exit. */
+	public static File createTempFile(String kind, int size) throws IOException {
+		File ret = File.createTempFile("bench-" + kind + size + "-", ".circ");
+		ret.deleteOnExit();
+		write(kind, size, ret);
+		return ret;
+	}
+
+	/** Opens a circuit file the way the command-line interface does. */
+	public static LogisimFile load(File file) throws LoadFailedException {
+		return new Loader(null).openLogisimFile(file);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("usage: CircuitGenerator (" + RIPPLE_ADDER + "|" + COUNTER_CHAIN + "|" + RAM_CPU
+					+ ") size file.circ");
+			System.exit(-1);
+		}
+		write(args[0], Integer.parseInt(args[1]), new File(args[2]));
+	}
+
+	public static void write(String kind, int size, File dest) throws IOException {
+		CircuitGenerator gen = new CircuitGenerator();
+		if (kind.equals(RIPPLE_ADDER)) {
+			gen.createRippleAdder(size);
+		} else if (kind.equals(COUNTER_CHAIN)) {
+			gen.createCounterChain(size);
+		} else if (kind.equals(RAM_CPU)) {
+			gen.createRamCpu(size);
+		} else {
+			throw new IllegalArgumentException("unknown circuit kind: " + kind);
+		}
+		if (!gen.loader.save(gen.file, dest))
+			throw new IOException("could not write " + dest);
+	}
+
+	private Loader loader;
+	private LogisimFile file;
+	private ArrayList<Component> pending = new ArrayList<Component>();
+	private ArrayList<Location> clockEnds = new ArrayList<Location>();
+	private int cell = 0;
+
+	private CircuitGenerator() {
+		loader = new Loader(null);
+		file = LogisimFile.createNew(loader);
+		for (String name : new String[] { "Wiring", "Gates", "Arithmetic", "Memory" }) {
+			file.addLibrary(loader.getBuiltin().getLibrary(name));
+		}
+	}
+
+	private Component add(String lib, String name, Object... attrValues) {
+		return add(getFactory(lib, name), attrValues);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Component add(ComponentFactory factory, Object... attrValues) {
+		AttributeSet attrs = factory.createAttributeSet();
+		for (int i = 0; i < attrValues.length; i += 2) {
+			Object attr = attrValues[i];
+			Object value = attrValues[i + 1];
+			if (attr instanceof String) {
+				// for attributes that aren't public, go by the name it's saved under
+				Attribute<Object> a = (Attribute<Object>) attrs.getAttribute((String) attr);
+				attrs.setValue(a, a.parse(value.toString()));
+			} else {
+				attrs.setValue((Attribute<Object>) attr, value);
+			}
+		}
+		int x = CELL + (cell % COLUMNS) * CELL;
+		int y = CELL + (cell / COLUMNS) * CELL;
+		cell++;
+		Component ret = factory.createComponent(Location.create(x, y), attrs);
+		pending.add(ret);
+		return ret;
+	}
+
+	private Component addConstant(int width, int value) {
+		if (width < 32)
+			value &= (1 << width) - 1;
+		return add(Constant.FACTORY, StdAttr.WIDTH, BitWidth.create(width), Constant.ATTR_VALUE,
+				Long.valueOf(value & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Lays wires joining the clock ends that addCounter left unconnected, and
+	 * a tunnel putting them on the given net.
+	 */
+	private void addClockWires(String net) {
+		int trunkX = CELL / 2;
+		TreeMap<Integer, TreeSet<Integer>> rows = new TreeMap<Integer, TreeSet<Integer>>();
+		for (Location end : clockEnds) {
+			int busY = end.getY() / CELL * CELL + CELL / 2;
+			pending.add(Wire.create(end, Location.create(end.getX(), busY)));
+			TreeSet<Integer> row = rows.get(Integer.valueOf(busY));
+			if (row == null) {
+				row = new TreeSet<Integer>();
+				rows.put(Integer.valueOf(busY), row);
+			}
+			row.add(Integer.valueOf(end.getX()));
+		}
+		clockEnds.clear();
+
+		Location prevBus = null;
+		for (Map.Entry<Integer, TreeSet<Integer>> row : rows.entrySet()) {
+			int busY = row.getKey().intValue();
+			Location bus = Location.create(trunkX, busY);
+			if (prevBus == null)
+				connect(bus, net, 1);
+			else
+				pending.add(Wire.create(prevBus, bus));
+			Location prev = bus;
+			for (Integer x : row.getValue()) {
+				Location next = Location.create(x.intValue(), busY);
+				pending.add(Wire.create(prev, next));
+				prev = next;
+			}
+			prevBus = bus;
+		}
+	}
+
+	/**
+	 * Adds a register and an adder wired as an accumulator; returns the adder.
+	 * If clock is null, the register's clock is left for addClockWires.
+	 */
+	private Component addCounter(String name, int width, String clock) {
+		BitWidth w = BitWidth.create(width);
+		Component reg = add("Memory", "Register", StdAttr.WIDTH, w);
+		Component adder = add("Arithmetic", "Adder", StdAttr.WIDTH, w);
+		connect(reg, 0, name, width);
+		connect(adder, 0, name, width);
+		connect(adder, 2, name + "_next", width);
+		connect(reg, 1, name + "_next", width);
+		if (clock == null)
+			clockEnds.add(reg.getEnd(2).getLocation());
+		else
+			connect(reg, 2, clock, 1);
+		return adder;
+	}
+
+	private Component addPin(boolean output, int width, String net) {
+		Component ret = add(Pin.FACTORY, Pin.ATTR_TYPE, Boolean.valueOf(output), StdAttr.WIDTH, BitWidth.create(width));
+		connect(ret, 0, net, width);
+		return ret;
+	}
+
+	/** Adds a splitter whose combined end is on one net and bit i on net bits[i]. */
+	private void addSplitter(String combined, String[] bits) {
+		Component spl = add("Wiring", "Splitter", "incoming", Integer.valueOf(bits.length), "fanout",
+				Integer.valueOf(bits.length));
+		connect(spl, 0, combined, bits.length);
+		for (int i = 0; i < bits.length; i++)
+			connect(spl, i + 1, bits[i], 1);
+	}
+
+	private void commit(Circuit circ) {
+		CircuitMutation xn = new CircuitMutation(circ);
+		xn.addAll(pending);
+		xn.execute(null);
+		pending.clear();
+		cell = 0;
+	}
+
+	/** Puts a tunnel labeled net on the given end of the component. */
+	private void connect(Component comp, int end, String net, int width) {
+		connect(comp.getEnd(end).getLocation(), net, width);
+	}
+
+	private void connect(Location loc, String net, int width) {
+		ComponentFactory tunnel = getFactory("Wiring", "Tunnel");
+		AttributeSet attrs = tunnel.createAttributeSet();
+		attrs.setValue(StdAttr.LABEL, net);
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+		pending.add(tunnel.createComponent(loc, attrs));
+	}
+
+	private void createCounterChain(int counters) {
+		Circuit main = file.getMainCircuit();
+		connect(add("Wiring", "Clock"), 0, "clk", 1);
+		for (int i = 0; i < counters; i++) {
+			Component adder = addCounter("q" + i, 8, null);
+			connect(addConstant(8, i == 0 ? 1 : 0), 0, "inc" + i, 8);
+			connect(adder, 1, "inc" + i, 8);
+			if (i > 0)
+				connect(adder, 3, "c" + (i - 1), 1);
+			connect(adder, 4, "c" + i, 1);
+		}
+		addPin(true, 8, "q" + (counters - 1));
+		addPin(true, 1, "c" + (counters - 1));
+		addClockWires("clk");
+		commit(main);
+	}
+
+	private void createRamCpu(int cores) {
+		Circuit core = new Circuit("core");
+		file.addCircuit(core);
+		addPin(false, 1, "clk");
+		Component pc = addCounter("pc", 10, "clk");
+		connect(addConstant(10, 1), 0, "one", 10);
+		connect(pc, 1, "one", 10);
+		Component ram = add("Memory", "RAM", "addrWidth", Integer.valueOf(10), "dataWidth", Integer.valueOf(16),
+				"bus", "separate");
+		connect(ram, 0, "word", 16); // data out
+		connect(ram, 1, "pc", 10); // address
+		connect(ram, 5, "clk", 1); // clock
+		connect(ram, 7, "acc", 16); // data in
+		Component acc = addCounter("acc", 16, "clk");
+		connect(acc, 1, "word", 16);
+		connect(addConstant(1, 1), 0, "carry", 1);
+		connect(acc, 3, "carry", 1);
+		addPin(true, 16, "acc");
+		commit(core);
+
+		Circuit main = file.getMainCircuit();
+		connect(add("Wiring", "Clock"), 0, "clk", 1);
+		ComponentFactory coreFactory = core.getSubcircuitFactory();
+		for (int i = 0; i < cores; i++) {
+			Component inst = add(coreFactory);
+			for (int j = 0; j < inst.getEnds().size(); j++) {
+				EndData end = inst.getEnd(j);
+				if (end.isOutput())
+					connect(inst, j, "acc" + i, 16);
+				else
+					connect(inst, j, "clk", 1);
+			}
+			addPin(true, 16, "acc" + i);
+		}
+		commit(main);
+	}
+
+	private void createRippleAdder(int bits) {
+		Circuit main = file.getMainCircuit();
+		connect(add("Wiring", "Clock"), 0, "clk", 1);
+		int width = Math.min(bits, 32);
+		connect(addCounter("a", width, "clk"), 1, "ainc", width);
+		connect(addConstant(width, 1), 0, "ainc", width);
+		connect(addCounter("b", width, "clk"), 1, "binc", width);
+		connect(addConstant(width, 0x55555555), 0, "binc", width);
+		String[] aBits = new String[width];
+		String[] bBits = new String[width];
+		for (int i = 0; i < width; i++) {
+			aBits[i] = "a" + i;
+			bBits[i] = "b" + i;
+		}
+		addSplitter("a", aBits);
+		addSplitter("b", bBits);
+
+		for (int i = 0; i < bits; i++) {
+			Component adder = add("Arithmetic", "Adder", StdAttr.WIDTH, BitWidth.ONE);
+			connect(adder, 0, aBits[i % width], 1);
+			connect(adder, 1, bBits[(i * 7) % width], 1);
+			connect(adder, 2, "s" + i, 1);
+			if (i > 0)
+				connect(adder, 3, "c" + (i - 1), 1);
+			connect(adder, 4, "c" + i, 1);
+		}
+
+		// gather the sum into 32-bit output pins
+		for (int start = 0; start < bits; start += 32) {
+			String[] sum = new String[Math.min(32, bits - start)];
+			for (int i = 0; i < sum.length; i++)
+				sum[i] = "s" + (start + i);
+			addSplitter("sum" + start, sum);
+			addPin(true, sum.length, "sum" + start);
+		}
+		addPin(true, 1, "c" + (bits - 1));
+		commit(main);
+	}
+
+	private ComponentFactory getFactory(String lib, String name) {
+		Library library = loader.getBuiltin().getLibrary(lib);
+		return ((AddTool) library.getTool(name)).getFactory();
+	}
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+
+/**
+ * The latency of a single <code>Propagator.propagate()</code> call after a
+ * clock edge. The edge itself is outside the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropagateBenchmark {
+	@Param({ "ripple:256", "counters:512", "cpu:32" })
+	String circuit;
+
+	private CircuitState state;
+	private Propagator prop;
+
+	@Setup
+	public void setUp() throws Exception {
+		state = BenchmarkCircuits.start(circuit);
+		prop = state.getPropagator();
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkCircuits.stop(state);
+	}
+
+	@Setup(Level.Invocation)
+	public void tick() {
+		prop.tick();
+	}
+
+	@Benchmark
+	public boolean propagate() {
+		prop.propagate();
+		return prop.isOscillating();
+	}
+}
@@ -0,0 +1,65 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cburch.logisim.bench.BenchmarkCircuits;
+import com.cburch.logisim.data.Location;
+
+/**
+ * The time for <code>CircuitWires</code> to bring the bundle map of the main
+ * circuit up to date after an edit: either by updating the part the edit
+ * touched, or, with the map voided first, by computing it afresh. It lives in
+ * this package to reach the wires.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BundleMapBenchmark {
+	@Param({ "ripple:256", "counters:512", "cpu:32" })
+	String circuit;
+
+	@Param({ "incremental", "full" })
+	String update;
+
+	private CircuitWires wires;
+	private Wire edit;
+
+	@Setup
+	public void setUp() throws Exception {
+		wires = BenchmarkCircuits.open(circuit).getMainCircuit().wires;
+		// a wire well away from the rest of the circuit
+		edit = Wire.create(Location.create(-1000, -1000), Location.create(-1000, -900));
+	}
+
+	@Setup(Level.Invocation)
+	public void edit() {
+		wires.add(edit);
+		wires.remove(edit);
+		if (update.equals("full"))
+			wires.voidBundleMap();
+	}
+
+	@Benchmark
+	public Object computeBundleMap() {
+		return wires.getPointIndex();
+	}
+}
@@ -78,7 +78,7 @@ class GrayCounter extends InstanceFactory {
 			CounterData state = CounterData.get(painter, width);
 			Bounds bds = painter.getBounds();
 			GraphicsUtil.drawCenteredText(painter.getGraphics(),
-					StringUtil.toHexString(width.getWidth(), state.getValue().toIntValue()),
+					StringUtil.toHexString(width.getWidth(), state.getValue().toLongValue()),
 					bds.getX() + bds.getWidth() / 2, bds.getY() + bds.getHeight() / 2);
 		}
 	}
@@ -11,19 +11,31 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
+import javax.swing.ProgressMonitor;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
+import com.cburch.logisim.analyze.model.Entry;
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.gui.generic.LFrame;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.LocaleListener;
 import com.cburch.logisim.util.LocaleManager;
 
@@ -90,6 +102,66 @@ public class Analyzer extends LFrame {
 		}
 	}
 
+	private class TableWorker extends SwingWorker<Entry[][], Void> implements Analyze.TableProgress {
+		private CircuitState[] states;
+		private Map<Instance, String> pinNames;
+		private ProgressMonitor monitor;
+		private volatile boolean canceled = false;
+
+		TableWorker(Project proj, Circuit circuit, Map<Instance, String> pinNames) {
+			this.states = Analyze.createTableStates(proj, circuit, pinNames);
+			this.pinNames = pinNames;
+			this.monitor = new ProgressMonitor(Analyzer.this, Strings.get("tableComputeProgress"), null, 0, 100);
+			addPropertyChangeListener(new PropertyChangeListener() {
+				@Override
+				public void propertyChange(PropertyChangeEvent event) {
+					if ("progress".equals(event.getPropertyName())) {
+						if (monitor.isCanceled()) {
+							canceled = true;
+							cancel(false);
+						} else {
+							monitor.setProgress(getProgress());
+						}
+					}
+				}
+			});
+		}
+
+		@Override
+		protected Entry[][] doInBackground() {
+			return Analyze.computeColumns(states, pinNames, this);
+		}
+
+		@Override
+		protected void done() {
+			monitor.close();
+			if (tableWorker == this)
+				tableWorker = null;
+			if (isCancelled())
+				return;
+			try {
+				Entry[][] columns = get();
+				if (columns != null) {
+					Analyze.setTable(model, pinNames, columns);
+					setSelectedTab(TABLE_TAB);
+				}
+			} catch (InterruptedException e) {
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled || isCancelled();
+		}
+
+		@Override
+		public void rowsComputed(int rows, int rowCount) {
+			setProgress((int) (100L * rows / rowCount));
+		}
+	}
+
 	private class MyListener implements LocaleListener {
 		@Override
 		public void localeChanged() {
@@ -151,6 +223,7 @@ public class Analyzer extends LFrame {
 	private MinimizedTab minimizedPanel;
 
 	private BuildCircuitButton buildCircuit;
+	private TableWorker tableWorker = null;
 
 	Analyzer() {
 		inputsPanel = new VariableTab(model.getInputs());
@@ -226,6 +299,18 @@ public class Analyzer extends LFrame {
 		tabbedPane.insertTab("Untitled", null, pane, null, index);
 	}
 
+	/**
+	 * Fills the truth table in from the circuit on background threads, showing
+	 * their progress in a monitor that can cancel them. The table tab is
+	 * selected once the table is complete.
+	 */
+	public void computeTable(Project proj, Circuit circuit, Map<Instance, String> pinNames) {
+		if (tableWorker != null)
+			tableWorker.cancel(false);
+		tableWorker = new TableWorker(proj, circuit, pinNames);
+		tableWorker.execute();
+	}
+
 	public AnalyzerModel getModel() {
 		return model;
 	}
@@ -105,7 +105,8 @@ class MinimizedTab extends AnalyzerTab {
 				minimizedExpr.setExpression(outputExprs.getMinimalExpression(output));
 				MinimizedTab.this.validate();
 			}
-			setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output));
+			setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output)
+					&& !outputExprs.isMinimizing(output));
 			int format = outputExprs.getMinimizedFormat(output);
 			formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
 		}
@@ -181,7 +182,8 @@ class MinimizedTab extends AnalyzerTab {
 		add(buttons);
 
 		String selected = selector.getSelectedOutput();
-		setAsExpr.setEnabled(selected != null && !outputExprs.isExpressionMinimal(selected));
+		setAsExpr.setEnabled(selected != null && !outputExprs.isExpressionMinimal(selected)
+				&& !outputExprs.isMinimizing(selected));
 	}
 
 	private void addRow(GridBagLayout gb, GridBagConstraints gc, JLabel label, JComboBox<?> choice) {
@@ -222,6 +224,7 @@ class MinimizedTab extends AnalyzerTab {
 		int format = outputExprs.getMinimizedFormat(output);
 		formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
 		minimizedExpr.setExpression(outputExprs.getMinimalExpression(output));
-		setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output));
+		setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output)
+				&& !outputExprs.isMinimizing(output));
 	}
 }
@@ -12,6 +12,7 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
+import java.util.Arrays;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollBar;
@@ -131,11 +132,11 @@ class TableTab extends JPanel implements TruthTablePanel, TabInterface {
 			c1 = t;
 		}
 		int inputs = table.getInputColumnCount();
+		Entry[] blank = new Entry[r1 - r0 + 1];
+		Arrays.fill(blank, Entry.DONT_CARE);
 		for (int c = c0; c <= c1; c++) {
 			if (c >= inputs) {
-				for (int r = r0; r <= r1; r++) {
-					table.setOutputEntry(r, c - inputs, Entry.DONT_CARE);
-				}
+				table.setOutputEntries(r0, c - inputs, blank);
 			}
 		}
 	}
@@ -312,11 +313,13 @@ class TableTab extends JPanel implements TruthTablePanel, TabInterface {
 		y += firstRow * cellHeight;
 		if (inputs == 0)
 			left += cellWidth + COLUMN_SEP;
+		int firstCol = Math.max(0, (clip.x - left) / (cellWidth + COLUMN_SEP));
+		int lastCol = Math.min(inputs + outputs, 1 + (clip.x + clip.width - left) / (cellWidth + COLUMN_SEP));
 		boolean provisional = false;
 		for (int i = firstRow; i < lastRow; i++) {
 			g.setColor(colors[i % 10]);
-			x = left;
-			for (int j = 0; j < inputs + outputs; j++) {
+			x = left + firstCol * (cellWidth + COLUMN_SEP);
+			for (int j = firstCol; j < lastCol; j++) {
 				Entry entry = j < inputs ? table.getInputEntry(i, j) : table.getOutputEntry(i, j - inputs);
 				if (provisionalValue != null && i == provisionalY && j - inputs == provisionalX) {
 					provisional = true;
@@ -235,11 +235,14 @@ class TableTabClip implements ClipboardOwner {
 				return;
 			}
 		}
-		for (int r = 0; r < entries.length; r++) {
-			for (int c = 0; c < entries[0].length; c++) {
-				if (c0 + c >= inputs) {
-					model.setOutputEntry(r0 + r, c0 + c - inputs, entries[r][c]);
+		for (int c = 0; c < entries[0].length; c++) {
+			if (c0 + c >= inputs) {
+				Entry[] column = new Entry[entries.length];
+				for (int r = 0; r < entries.length; r++) {
+					Entry entry = entries[r][c];
+					column[r] = entry == null ? Entry.DONT_CARE : entry;
 				}
+				model.setOutputEntries(r0, c0 + c - inputs, column);
 			}
 		}
 	}
@@ -0,0 +1,398 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds a small list of implicants covering one output column. Rows are
+ * handled as bit sets, and a cube is a pair of masks (unknowns, values) over
+ * the row index, exactly as in Implicant.
+ *
+ * Tables with at most EXACT_MAX_INPUTS inputs are minimized by generating
+ * every prime implicant, taking the essential ones and covering the rest
+ * greedily. Larger tables use an Espresso-style heuristic that expands each
+ * uncovered row into a prime, drops redundant cubes and then repeatedly
+ * reduces and re-expands the cover while that makes it cheaper.
+ *
+ * A minimization running on a thread that is interrupted stops with a
+ * CancellationException.
+ */
+class Minimizer {
+	static final int EXACT_MAX_INPUTS = 9;
+
+	private static final int MAX_PASSES = 8;
+
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException();
+	}
+
+	private static boolean get(long[] bits, int i) {
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Returns the implicants for the given column, or null if the column has
+	 * no entry that is known to be 0 or 1.
+	 */
+	static List<Implicant> minimize(int format, int inputs, Entry[] column) {
+		Entry desired = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
+		Entry undesired = desired == Entry.ONE ? Entry.ZERO : Entry.ONE;
+		Minimizer m = new Minimizer(inputs);
+		boolean knownFound = false;
+		for (int i = 0; i < m.rows; i++) {
+			Entry entry = column[i];
+			if (entry == desired) {
+				knownFound = true;
+				set(m.on, i);
+			} else if (entry == undesired) {
+				knownFound = true;
+				set(m.off, i);
+			}
+		}
+		if (!knownFound)
+			return null;
+
+		List<Implicant> ret = inputs <= EXACT_MAX_INPUTS ? m.computeExact() : m.computeHeuristic();
+		Collections.sort(ret);
+		return ret;
+	}
+
+	private static void set(long[] bits, int i) {
+		bits[i >>> 6] |= 1L << i;
+	}
+
+	// returns a bit set whose bit v is a[v] & a[v + shift], or a[v] | a[v + shift]
+	private static long[] shiftCombine(long[] a, int shift, boolean and) {
+		long[] ret = new long[a.length];
+		if (shift >= 64) {
+			int words = shift >>> 6;
+			for (int i = 0; i < a.length; i++) {
+				long hi = i + words < a.length ? a[i + words] : 0;
+				ret[i] = and ? a[i] & hi : a[i] | hi;
+			}
+		} else {
+			for (int i = 0; i < a.length; i++) {
+				long hi = a[i] >>> shift;
+				if (i + 1 < a.length)
+					hi |= a[i + 1] << (64 - shift);
+				ret[i] = and ? a[i] & hi : a[i] | hi;
+			}
+		}
+		return ret;
+	}
+
+	private int inputs;
+	private int rows;
+	private int all;
+	private long[] on;
+	private long[] off;
+
+	private Minimizer(int inputs) {
+		this.inputs = inputs;
+		this.rows = 1 << inputs;
+		this.all = rows - 1;
+		this.on = new long[(rows + 63) >>> 6];
+		this.off = new long[on.length];
+	}
+
+	private List<Implicant> computeExact() {
+		// implicant[u] has bit v set when the cube (u, v) avoids the off set,
+		// and useful[u] when it also meets the on set; both are only
+		// meaningful where v has none of u's bits
+		long[][] implicant = new long[rows][];
+		long[][] useful = new long[rows][];
+		implicant[0] = new long[on.length];
+		for (int i = 0; i < on.length; i++)
+			implicant[0][i] = ~off[i];
+		useful[0] = on.clone();
+		for (int u = 1; u < rows; u++) {
+			int bit = u & -u;
+			implicant[u] = shiftCombine(implicant[u ^ bit], bit, true);
+			useful[u] = shiftCombine(useful[u ^ bit], bit, false);
+		}
+
+		ArrayList<Implicant> primes = new ArrayList<Implicant>();
+		for (int u = 0; u < rows; u++) {
+			checkInterrupted();
+			long[] imp = implicant[u];
+			long[] use = useful[u];
+			for (int v = 0; v < rows; v++) {
+				if ((v & u) != 0 || !get(imp, v) || !get(use, v))
+					continue;
+				boolean prime = true;
+				for (int bit = 1; bit < rows; bit <<= 1) {
+					if ((u & bit) == 0 && get(implicant[u | bit], v & ~bit)) {
+						prime = false;
+						break;
+					}
+				}
+				if (prime)
+					primes.add(new Implicant(u, v));
+			}
+		}
+		return cover(primes);
+	}
+
+	private List<Implicant> computeHeuristic() {
+		ArrayList<Implicant> cubes = new ArrayList<Implicant>();
+		int[] coverCount = new int[rows];
+		for (int row = 0; row < rows; row++) {
+			if (get(on, row) && coverCount[row] == 0) {
+				checkInterrupted();
+				Implicant cube = expand(new Implicant(0, row), coverCount);
+				cubes.add(cube);
+				countCover(cube, coverCount, 1);
+			}
+		}
+		irredundant(cubes, coverCount);
+
+		long cost = cost(cubes);
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			checkInterrupted();
+			ArrayList<Implicant> next = new ArrayList<Implicant>(cubes);
+			int[] nextCount = coverCount.clone();
+			reduce(next, nextCount);
+			for (int i = 0; i < next.size(); i++) {
+				Implicant cube = next.get(i);
+				countCover(cube, nextCount, -1);
+				cube = expand(cube, null);
+				countCover(cube, nextCount, 1);
+				next.set(i, cube);
+			}
+			irredundant(next, nextCount);
+			long nextCost = cost(next);
+			if (nextCost >= cost)
+				break;
+			cubes = next;
+			coverCount = nextCount;
+			cost = nextCost;
+		}
+		return cubes;
+	}
+
+	// orders covers by number of cubes and then by number of literals
+	private long cost(List<Implicant> cubes) {
+		long literals = 0;
+		for (Implicant cube : cubes)
+			literals += inputs - cube.getUnknownCount();
+		return ((long) cubes.size() << 32) + literals;
+	}
+
+	// returns the number of on-set rows in the cube (unknowns, values)
+	private int countOn(int unknowns, int values) {
+		int ret = 0;
+		int sub = 0;
+		do {
+			if (get(on, values | sub))
+				ret++;
+			sub = (sub - unknowns) & unknowns;
+		} while (sub != 0);
+		return ret;
+	}
+
+	private void countCover(Implicant cube, int[] coverCount, int delta) {
+		int sub = 0;
+		do {
+			int row = cube.values | sub;
+			if (get(on, row))
+				coverCount[row] += delta;
+			sub = (sub - cube.unknowns) & cube.unknowns;
+		} while (sub != 0);
+	}
+
+	private List<Implicant> cover(List<Implicant> primes) {
+		// index the primes covering each on-set row
+		int n = primes.size();
+		int[] count = new int[n];
+		int[] start = new int[rows + 1];
+		for (int p = 0; p < n; p++) {
+			Implicant imp = primes.get(p);
+			int sub = 0;
+			do {
+				int row = imp.values | sub;
+				if (get(on, row)) {
+					count[p]++;
+					start[row + 1]++;
+				}
+				sub = (sub - imp.unknowns) & imp.unknowns;
+			} while (sub != 0);
+		}
+		for (int row = 0; row < rows; row++)
+			start[row + 1] += start[row];
+		int[] coveredBy = new int[start[rows]];
+		int[] fill = start.clone();
+		for (int p = 0; p < n; p++) {
+			Implicant imp = primes.get(p);
+			int sub = 0;
+			do {
+				int row = imp.values | sub;
+				if (get(on, row))
+					coveredBy[fill[row]++] = p;
+				sub = (sub - imp.unknowns) & imp.unknowns;
+			} while (sub != 0);
+		}
+
+		// take the essential primes first, then the prime covering the most
+		// remaining rows, preferring larger cubes among equals
+		ArrayList<Implicant> ret = new ArrayList<Implicant>();
+		boolean[] covered = new boolean[rows];
+		boolean[] chosen = new boolean[n];
+		for (int row = 0; row < rows; row++) {
+			if (get(on, row) && !covered[row] && start[row + 1] - start[row] == 1)
+				take(primes, coveredBy[start[row]], ret, chosen, covered, count, start, coveredBy);
+		}
+		while (true) {
+			checkInterrupted();
+			int max = -1;
+			for (int p = 0; p < n; p++) {
+				if (chosen[p] || count[p] == 0)
+					continue;
+				if (max < 0 || count[p] > count[max] || count[p] == count[max]
+						&& primes.get(p).getUnknownCount() > primes.get(max).getUnknownCount())
+					max = p;
+			}
+			if (max < 0)
+				break;
+			take(primes, max, ret, chosen, covered, count, start, coveredBy);
+		}
+
+		int[] coverCount = new int[rows];
+		for (Implicant imp : ret)
+			countCover(imp, coverCount, 1);
+		irredundant(ret, coverCount);
+		return ret;
+	}
+
+	// raises literals of the cube one at a time, taking the literal that brings
+	// in the most on-set rows not yet covered (or the most on-set rows, if
+	// coverCount is null), until no literal can be raised
+	private Implicant expand(Implicant cube, int[] coverCount) {
+		int unknowns = cube.unknowns;
+		int values = cube.values;
+		while (true) {
+			int best = 0;
+			int bestGain = -1;
+			for (int bit = 1; bit < rows; bit <<= 1) {
+				if ((unknowns & bit) != 0)
+					continue;
+				int other = values ^ bit;
+				if (!isImplicant(unknowns, other))
+					continue;
+				int gain;
+				if (coverCount == null) {
+					gain = countOn(unknowns, other);
+				} else {
+					gain = 0;
+					int sub = 0;
+					do {
+						int row = other | sub;
+						if (get(on, row) && coverCount[row] == 0)
+							gain++;
+						sub = (sub - unknowns) & unknowns;
+					} while (sub != 0);
+				}
+				if (gain > bestGain) {
+					best = bit;
+					bestGain = gain;
+				}
+			}
+			if (bestGain < 0)
+				return new Implicant(unknowns, values);
+			unknowns |= best;
+			values &= ~best;
+		}
+	}
+
+	// removes cubes whose on-set rows are all covered by other cubes, trying
+	// the smallest cubes first
+	private void irredundant(List<Implicant> cubes, int[] coverCount) {
+		Collections.sort(cubes, new Comparator<Implicant>() {
+			@Override
+			public int compare(Implicant a, Implicant b) {
+				return a.getUnknownCount() - b.getUnknownCount();
+			}
+		});
+		for (int i = 0; i < cubes.size(); i++) {
+			Implicant cube = cubes.get(i);
+			boolean redundant = true;
+			int sub = 0;
+			do {
+				int row = cube.values | sub;
+				if (get(on, row) && coverCount[row] <= 1) {
+					redundant = false;
+					break;
+				}
+				sub = (sub - cube.unknowns) & cube.unknowns;
+			} while (sub != 0);
+			if (redundant) {
+				countCover(cube, coverCount, -1);
+				cubes.remove(i);
+				i--;
+			}
+		}
+	}
+
+	private boolean isImplicant(int unknowns, int values) {
+		int sub = 0;
+		do {
+			if (get(off, values | sub))
+				return false;
+			sub = (sub - unknowns) & unknowns;
+		} while (sub != 0);
+		return true;
+	}
+
+	// shrinks each cube to the smallest cube holding the on-set rows that
+	// no other cube covers, so the following expansion can move it elsewhere
+	private void reduce(List<Implicant> cubes, int[] coverCount) {
+		for (int i = 0; i < cubes.size(); i++) {
+			Implicant cube = cubes.get(i);
+			int and = all;
+			int or = 0;
+			boolean unique = false;
+			int sub = 0;
+			do {
+				int row = cube.values | sub;
+				if (get(on, row) && coverCount[row] == 1) {
+					unique = true;
+					and &= row;
+					or |= row;
+				}
+				sub = (sub - cube.unknowns) & cube.unknowns;
+			} while (sub != 0);
+			countCover(cube, coverCount, -1);
+			if (!unique) {
+				cubes.remove(i);
+				i--;
+			} else {
+				Implicant reduced = new Implicant(and ^ or, and);
+				countCover(reduced, coverCount, 1);
+				cubes.set(i, reduced);
+			}
+		}
+	}
+
+	private void take(List<Implicant> primes, int p, List<Implicant> ret, boolean[] chosen, boolean[] covered,
+			int[] count, int[] start, int[] coveredBy) {
+		Implicant imp = primes.get(p);
+		chosen[p] = true;
+		ret.add(imp);
+		int sub = 0;
+		do {
+			int row = imp.values | sub;
+			if (get(on, row) && !covered[row]) {
+				covered[row] = true;
+				for (int i = start[row]; i < start[row + 1]; i++)
+					count[coveredBy[i]]--;
+			}
+			sub = (sub - imp.unknowns) & imp.unknowns;
+		} while (sub != 0);
+	}
+}
@@ -0,0 +1,290 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Holds the entries of one truth table output column. A column starts out as
+ * a list of runs of equal entries, which is how a column that is mostly
+ * don't-cares stays small; once it has too many runs it switches to two bits
+ * per row. Errors share one two-bit code, with the rows holding anything other
+ * than a bus error listed separately.
+ */
+class OutputColumn {
+	private static final Entry[] CODES = { Entry.ZERO, Entry.ONE, Entry.DONT_CARE, Entry.BUS_ERROR };
+	private static final int ERROR_CODE = 3;
+
+	// a column switches to packed form when it has more than rows / PACK_RUNS
+	// runs, and back to runs when compacted to at most rows / UNPACK_RUNS
+	private static final int PACK_RUNS = 32;
+	private static final int UNPACK_RUNS = 64;
+
+	private static int codeFor(Entry value) {
+		if (value == Entry.ZERO)
+			return 0;
+		if (value == Entry.ONE)
+			return 1;
+		if (value == Entry.DONT_CARE)
+			return 2;
+		return ERROR_CODE;
+	}
+
+	/** Returns a column of the given entries, in whichever form is smaller. */
+	static OutputColumn create(Entry[] values) {
+		OutputColumn ret = createPacked(values.length, Entry.DONT_CARE);
+		for (int i = 0; i < values.length; i++)
+			ret.setPacked(i, values[i]);
+		ret.compact();
+		return ret;
+	}
+
+	/** Returns a column of don't-cares, which takes no space until edited. */
+	static OutputColumn create(int rows) {
+		OutputColumn ret = new OutputColumn(rows);
+		ret.runStarts = new int[] { 0 };
+		ret.runValues = new Entry[] { Entry.DONT_CARE };
+		ret.runCount = 1;
+		return ret;
+	}
+
+	/**
+	 * Returns a packed column filled with one entry, for filling in row by row
+	 * before calling compact.
+	 */
+	static OutputColumn createPacked(int rows, Entry fill) {
+		OutputColumn ret = new OutputColumn(rows);
+		ret.packed = new long[(rows + 31) >>> 5];
+		int code = codeFor(fill);
+		if (code != 0) {
+			long word = 0;
+			for (int i = 0; i < 32; i++)
+				word |= (long) code << (2 * i);
+			Arrays.fill(ret.packed, word);
+		}
+		if (code == ERROR_CODE && fill != Entry.BUS_ERROR) {
+			for (int i = 0; i < rows; i++)
+				ret.setPacked(i, fill);
+		}
+		return ret;
+	}
+
+	private int rows;
+
+	// packed form: two bits per row, or null when in run form
+	private long[] packed;
+	private HashMap<Integer, Entry> errors;
+
+	// run form: runValues[i] fills the rows from runStarts[i] up to the next
+	// run's start
+	private int[] runStarts;
+	private Entry[] runValues;
+	private int runCount;
+
+	private OutputColumn(int rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Returns a column for one more input, added as the least significant bit
+	 * of the row number, so each row appears twice in a row.
+	 */
+	OutputColumn addInput() {
+		if (packed == null) {
+			OutputColumn ret = new OutputColumn(2 * rows);
+			ret.runStarts = new int[runCount];
+			for (int i = 0; i < runCount; i++)
+				ret.runStarts[i] = 2 * runStarts[i];
+			ret.runValues = Arrays.copyOf(runValues, runCount);
+			ret.runCount = runCount;
+			return ret;
+		}
+		OutputColumn ret = createPacked(2 * rows, Entry.ZERO);
+		for (int i = 0; i < rows; i++) {
+			Entry value = get(i);
+			ret.setPacked(2 * i, value);
+			ret.setPacked(2 * i + 1, value);
+		}
+		return ret;
+	}
+
+	/** Switches to run form if that is sufficiently smaller. */
+	void compact() {
+		if (packed == null)
+			return;
+		int runs = 1;
+		Entry last = get(0);
+		for (int i = 1; i < rows && runs <= rows / UNPACK_RUNS; i++) {
+			Entry value = get(i);
+			if (value != last) {
+				runs++;
+				last = value;
+			}
+		}
+		if (runs > rows / UNPACK_RUNS)
+			return;
+		int[] starts = new int[runs];
+		Entry[] values = new Entry[runs];
+		int count = 0;
+		last = null;
+		for (int i = 0; i < rows; i++) {
+			Entry value = get(i);
+			if (value != last) {
+				starts[count] = i;
+				values[count] = value;
+				count++;
+				last = value;
+			}
+		}
+		runStarts = starts;
+		runValues = values;
+		runCount = count;
+		packed = null;
+		errors = null;
+	}
+
+	boolean contentEquals(OutputColumn other) {
+		if (rows != other.rows)
+			return false;
+		for (int i = 0; i < rows; i++) {
+			if (get(i) != other.get(i))
+				return false;
+		}
+		return true;
+	}
+
+	private int findRun(int row) {
+		int i = Arrays.binarySearch(runStarts, 0, runCount, row);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	Entry get(int row) {
+		if (packed == null)
+			return runValues[findRun(row)];
+		int code = (int) (packed[row >>> 5] >>> (2 * (row & 31))) & 3;
+		if (code == ERROR_CODE && errors != null) {
+			Entry ret = errors.get(Integer.valueOf(row));
+			if (ret != null)
+				return ret;
+		}
+		return CODES[code];
+	}
+
+	int getRowCount() {
+		return rows;
+	}
+
+	private void pack() {
+		long[] words = new long[(rows + 31) >>> 5];
+		int[] starts = runStarts;
+		Entry[] values = runValues;
+		int count = runCount;
+		packed = words;
+		runStarts = null;
+		runValues = null;
+		runCount = 0;
+		for (int i = 0; i < count; i++) {
+			int end = i + 1 < count ? starts[i + 1] : rows;
+			for (int row = starts[i]; row < end; row++)
+				setPacked(row, values[i]);
+		}
+	}
+
+	/** Changes one row, returning whether it held something else before. */
+	boolean set(int row, Entry value) {
+		if (get(row) == value)
+			return false;
+		if (packed != null) {
+			setPacked(row, value);
+			return true;
+		}
+
+		int i = findRun(row);
+		int end = i + 1 < runCount ? runStarts[i + 1] : rows;
+		boolean mergePrev = row == runStarts[i] && i > 0 && runValues[i - 1] == value;
+		boolean mergeNext = row == end - 1 && i + 1 < runCount && runValues[i + 1] == value;
+		if (mergePrev || mergeNext || end - runStarts[i] == 1) {
+			// the row joins a neighboring run, or is a run by itself
+			if (end - runStarts[i] == 1) {
+				runValues[i] = value;
+				if (mergeNext)
+					removeRun(i + 1);
+				if (mergePrev)
+					removeRun(i);
+			} else if (mergePrev) {
+				runStarts[i]++;
+			} else {
+				runStarts[i + 1]--;
+			}
+			return true;
+		}
+
+		// split the run around the row
+		Entry old = runValues[i];
+		int[] starts = new int[runCount + 2];
+		Entry[] values = new Entry[runCount + 2];
+		System.arraycopy(runStarts, 0, starts, 0, i + 1);
+		System.arraycopy(runValues, 0, values, 0, i + 1);
+		int at = i + 1;
+		if (row == runStarts[i]) {
+			values[i] = value;
+			starts[at] = row + 1;
+			values[at] = old;
+			at++;
+		} else {
+			starts[at] = row;
+			values[at] = value;
+			at++;
+			if (row + 1 < end) {
+				starts[at] = row + 1;
+				values[at] = old;
+				at++;
+			}
+		}
+		System.arraycopy(runStarts, i + 1, starts, at, runCount - i - 1);
+		System.arraycopy(runValues, i + 1, values, at, runCount - i - 1);
+		runStarts = starts;
+		runValues = values;
+		runCount = at + runCount - i - 1;
+		if (runCount > rows / PACK_RUNS)
+			pack();
+		return true;
+	}
+
+	private void removeRun(int i) {
+		System.arraycopy(runStarts, i + 1, runStarts, i, runCount - i - 1);
+		System.arraycopy(runValues, i + 1, runValues, i, runCount - i - 1);
+		runCount--;
+		runValues[runCount] = null;
+	}
+
+	// only for use in packed form
+	private void setPacked(int row, Entry value) {
+		int code = codeFor(value);
+		int shift = 2 * (row & 31);
+		packed[row >>> 5] = (packed[row >>> 5] & ~(3L << shift)) | ((long) code << shift);
+		if (code == ERROR_CODE && value != Entry.BUS_ERROR) {
+			if (errors == null)
+				errors = new HashMap<Integer, Entry>();
+			errors.put(Integer.valueOf(row), value);
+		} else if (errors != null) {
+			errors.remove(Integer.valueOf(row));
+		}
+	}
+
+	Entry[] toArray() {
+		Entry[] ret = new Entry[rows];
+		if (packed == null) {
+			for (int i = 0; i < runCount; i++) {
+				int end = i + 1 < runCount ? runStarts[i + 1] : rows;
+				Arrays.fill(ret, runStarts[i], end, runValues[i]);
+			}
+		} else {
+			for (int i = 0; i < rows; i++)
+				ret[i] = get(i);
+		}
+		return ret;
+	}
+}
@@ -5,11 +5,78 @@ package com.cburch.logisim.analyze.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
 
 public class OutputExpressions {
+	/**
+	 * Identifies an output column's contents, for caching minimizations. The
+	 * column must be a copy, as TruthTable.getOutputColumn returns.
+	 */
+	private static class ColumnKey {
+		private int format;
+		private int inputs;
+		private Entry[] column;
+		private int hashCode;
+
+		ColumnKey(int format, int inputs, Entry[] column) {
+			this.format = format;
+			this.inputs = inputs;
+			this.column = column;
+			this.hashCode = 31 * (31 * format + inputs) + Arrays.hashCode(column);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof ColumnKey))
+				return false;
+			ColumnKey o = (ColumnKey) other;
+			return hashCode == o.hashCode && format == o.format && inputs == o.inputs
+					&& Arrays.equals(column, o.column);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	private class MinimizeWorker extends SwingWorker<List<Implicant>, Void> {
+		private OutputData data;
+		private ColumnKey key;
+
+		MinimizeWorker(OutputData data, ColumnKey key) {
+			this.data = data;
+			this.key = key;
+		}
+
+		@Override
+		protected List<Implicant> doInBackground() {
+			return Minimizer.minimize(key.format, key.inputs, key.column);
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled())
+				return;
+			try {
+				List<Implicant> result = get();
+				minimized.put(key, result);
+				data.minimizeDone(this, result);
+			} catch (InterruptedException e) {
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+
 	private class MyListener implements VariableListListener, TruthTableListener {
 		@Override
 		public void cellsChanged(TruthTableEvent event) {
@@ -86,8 +153,10 @@ public class OutputExpressions {
 		String exprString = null;
 		List<Implicant> minimalImplicants = null;
 		Expression minimalExpr = null;
+		MinimizeWorker worker = null;
 
 		private boolean invalidating = false;
+		private boolean pendingFormatChanged = false;
 
 		OutputData(String output) {
 			this.output = output;
@@ -121,14 +190,55 @@ public class OutputExpressions {
 			return format;
 		}
 
+		private ColumnKey getColumnKey() {
+			int index = model.getOutputs().indexOf(output);
+			if (index < 0)
+				return null;
+			TruthTable table = model.getTruthTable();
+			return new ColumnKey(format, table.getInputColumnCount(), table.getOutputColumn(index));
+		}
+
 		private void invalidate(boolean initializing, boolean formatChanged) {
+			if (invalidating)
+				return;
+			ColumnKey key = getColumnKey();
+			if (worker != null) {
+				if (key != null && key.equals(worker.key)) {
+					pendingFormatChanged |= formatChanged;
+					return;
+				}
+				worker.cancel(true);
+				worker = null;
+				formatChanged |= pendingFormatChanged;
+				pendingFormatChanged = false;
+			}
+
+			if (key == null) {
+				setMinimal(Collections.<Implicant>emptyList(), initializing, formatChanged, false);
+			} else if (minimized.containsKey(key)) {
+				setMinimal(minimized.get(key), initializing, formatChanged, false);
+			} else if (key.inputs < BACKGROUND_MIN_INPUTS) {
+				List<Implicant> implicants = Minimizer.minimize(key.format, key.inputs, key.column);
+				minimized.put(key, implicants);
+				setMinimal(implicants, initializing, formatChanged, false);
+			} else {
+				// large tables are minimized off the event thread; the
+				// current results stand until the worker reports back
+				pendingFormatChanged = formatChanged;
+				worker = new MinimizeWorker(this, key);
+				worker.execute();
+			}
+		}
+
+		private void setMinimal(List<Implicant> implicants, boolean initializing, boolean formatChanged,
+				boolean minimizedLater) {
 			if (invalidating)
 				return;
 			invalidating = true;
 			try {
 				List<Implicant> oldImplicants = minimalImplicants;
 				Expression oldMinExpr = minimalExpr;
-				minimalImplicants = Implicant.computeMinimal(format, model, output);
+				minimalImplicants = implicants;
 				minimalExpr = Implicant.toExpression(format, model, minimalImplicants);
 				boolean minChanged = !implicantsSame(oldImplicants, minimalImplicants);
 
@@ -154,7 +264,7 @@ public class OutputExpressions {
 					}
 				}
 
-				if (!initializing && minChanged) {
+				if (!initializing && minChanged || minimizedLater) {
 					fireModelChanged(OutputExpressionsEvent.OUTPUT_MINIMAL, output);
 				}
 			} finally {
@@ -166,6 +276,22 @@ public class OutputExpressions {
 			return expr == minimalExpr;
 		}
 
+		boolean isMinimizing() {
+			return worker != null;
+		}
+
+		private void minimizeDone(MinimizeWorker source, List<Implicant> implicants) {
+			if (source != worker || outputData.get(output) != this)
+				return;
+			worker = null;
+			boolean formatChanged = pendingFormatChanged;
+			pendingFormatChanged = false;
+			if (source.key.equals(getColumnKey()))
+				setMinimal(implicants, false, formatChanged, true);
+			else
+				invalidate(false, formatChanged);
+		}
+
 		private void removeInput(String input) {
 			Expression oldMinExpr = minimalExpr;
 			minimalImplicants = null;
@@ -235,6 +361,12 @@ public class OutputExpressions {
 		}
 	}
 
+	// tables with fewer inputs are minimized immediately
+	private static final int BACKGROUND_MIN_INPUTS = 9;
+
+	// minimizations kept for reuse, across outputs and formats
+	private static final int CACHE_SIZE = 64;
+
 	private static boolean columnsMatch(Entry[] a, Entry[] b) {
 		if (a.length != b.length)
 			return false;
@@ -305,6 +437,16 @@ public class OutputExpressions {
 
 	private boolean updatingTable = false;
 
+	private LinkedHashMap<ColumnKey, List<Implicant>> minimized = new LinkedHashMap<ColumnKey, List<Implicant>>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ColumnKey, List<Implicant>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
 	public OutputExpressions(AnalyzerModel model) {
 		this.model = model;
 		model.getInputs().addVariableListListener(myListener);
@@ -392,6 +534,12 @@ public class OutputExpressions {
 		return data == null ? true : data.isExpressionMinimal();
 	}
 
+	/** Returns whether the output's minimal expression is being recomputed. */
+	public boolean isMinimizing(String output) {
+		OutputData data = getOutputData(output, false);
+		return data != null && data.isMinimizing();
+	}
+
 	public void removeOutputExpressionsListener(OutputExpressionsListener l) {
 		listeners.remove(l);
 	}
@@ -15,32 +15,19 @@ public class TruthTable {
 		private void inputsChanged(VariableListEvent event) {
 			int action = event.getType();
 			if (action == VariableListEvent.ADD) {
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
-					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = new Entry[2 * column.length];
-					for (int i = 0; i < column.length; i++) {
-						newColumn[2 * i] = column[i];
-						newColumn[2 * i + 1] = column[i];
-					}
-					outputColumns.put(output, newColumn);
+				for (Map.Entry<String, OutputColumn> curEntry : outputColumns.entrySet()) {
+					curEntry.setValue(curEntry.getValue().addInput());
 				}
 			} else if (action == VariableListEvent.REMOVE) {
 				int index = ((Integer) event.getData()).intValue();
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
-					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = removeInput(column, index);
-					outputColumns.put(output, newColumn);
+				for (Map.Entry<String, OutputColumn> curEntry : outputColumns.entrySet()) {
+					curEntry.setValue(removeInput(curEntry.getValue(), index));
 				}
 			} else if (action == VariableListEvent.MOVE) {
 				int delta = ((Integer) event.getData()).intValue();
 				int newIndex = model.getInputs().indexOf(event.getVariable());
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
-					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = moveInput(column, newIndex - delta, newIndex);
-					outputColumns.put(output, newColumn);
+				for (Map.Entry<String, OutputColumn> curEntry : outputColumns.entrySet()) {
+					curEntry.setValue(moveInput(curEntry.getValue(), newIndex - delta, newIndex));
 				}
 			}
 		}
@@ -55,30 +42,32 @@ public class TruthTable {
 			fireStructureChanged(event);
 		}
 
-		private Entry[] moveInput(Entry[] old, int oldIndex, int newIndex) {
+		private OutputColumn moveInput(OutputColumn old, int oldIndex, int newIndex) {
 			int inputs = model.getInputs().size();
 			oldIndex = inputs - 1 - oldIndex;
 			newIndex = inputs - 1 - newIndex;
-			Entry[] ret = new Entry[old.length];
-			int sameMask = (old.length - 1) ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
+			int rows = old.getRowCount();
+			OutputColumn ret = OutputColumn.createPacked(rows, DEFAULT_ENTRY);
+			int sameMask = (rows - 1) ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
 					^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that
 																	// don't
 																	// change
 			int moveMask = 1 << oldIndex; // bit that moves
 			int moveDist = Math.abs(newIndex - oldIndex);
 			boolean moveLeft = newIndex > oldIndex;
-			int blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that
+			int blockMask = (rows - 1) ^ sameMask ^ moveMask; // bits that
 																	// move by
 																	// one
-			for (int i = 0; i < old.length; i++) {
+			for (int i = 0; i < rows; i++) {
 				int j; // new index
 				if (moveLeft) {
 					j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
 				} else {
 					j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
 				}
-				ret[j] = old[i];
+				ret.set(j, old.get(i));
 			}
+			ret.compact();
 			return ret;
 		}
 
@@ -89,7 +78,7 @@ public class TruthTable {
 			} else if (action == VariableListEvent.REMOVE) {
 				outputColumns.remove(event.getVariable());
 			} else if (action == VariableListEvent.REPLACE) {
-				Entry[] column = outputColumns.remove(event.getVariable());
+				OutputColumn column = outputColumns.remove(event.getVariable());
 				if (column != null) {
 					int index = ((Integer) event.getData()).intValue();
 					String newVariable = model.getOutputs().get(index);
@@ -98,19 +87,20 @@ public class TruthTable {
 			}
 		}
 
-		private Entry[] removeInput(Entry[] old, int index) {
+		private OutputColumn removeInput(OutputColumn old, int index) {
 			int oldInputCount = model.getInputs().size() + 1;
-			Entry[] ret = new Entry[old.length / 2];
+			OutputColumn ret = OutputColumn.createPacked(old.getRowCount() / 2, DEFAULT_ENTRY);
 			int j = 0;
 			int mask = 1 << (oldInputCount - 1 - index);
-			for (int i = 0; i < old.length; i++) {
+			for (int i = 0; i < old.getRowCount(); i++) {
 				if ((i & mask) == 0) {
-					Entry e0 = old[i];
-					Entry e1 = old[i | mask];
-					ret[j] = (e0 == e1 ? e0 : Entry.DONT_CARE);
+					Entry e0 = old.get(i);
+					Entry e1 = old.get(i | mask);
+					ret.set(j, e0 == e1 ? e0 : Entry.DONT_CARE);
 					j++;
 				}
 			}
+			ret.compact();
 			return ret;
 		}
 	}
@@ -125,7 +115,7 @@ public class TruthTable {
 	private List<TruthTableListener> listeners = new ArrayList<TruthTableListener>();
 	private AnalyzerModel model;
 
-	private HashMap<String, Entry[]> outputColumns = new HashMap<String, Entry[]>();
+	private HashMap<String, OutputColumn> outputColumns = new HashMap<String, OutputColumn>();
 
 	public TruthTable(AnalyzerModel model) {
 		this.model = model;
@@ -176,6 +166,7 @@ public class TruthTable {
 		return model.getInputs().indexOf(input);
 	}
 
+	/** Returns a copy of the entries in an output column. */
 	public Entry[] getOutputColumn(int column) {
 		int outputs = model.getOutputs().size();
 		if (column < 0 || column >= outputs) {
@@ -183,13 +174,13 @@ public class TruthTable {
 		}
 
 		String outputName = model.getOutputs().get(column);
-		Entry[] columnData = outputColumns.get(outputName);
+		OutputColumn columnData = outputColumns.get(outputName);
 		if (columnData == null) {
-			columnData = new Entry[getRowCount()];
-			Arrays.fill(columnData, DEFAULT_ENTRY);
-			outputColumns.put(outputName, columnData);
+			Entry[] ret = new Entry[getRowCount()];
+			Arrays.fill(ret, DEFAULT_ENTRY);
+			return ret;
 		}
-		return columnData;
+		return columnData.toArray();
 	}
 
 	public int getOutputColumnCount() {
@@ -202,12 +193,12 @@ public class TruthTable {
 			return Entry.DONT_CARE;
 		} else {
 			String outputName = model.getOutputs().get(column);
-			Entry[] columnData = outputColumns.get(outputName);
+			OutputColumn columnData = outputColumns.get(outputName);
 			if (columnData == null)
 				return DEFAULT_ENTRY;
-			if (row < 0 || row >= columnData.length)
+			if (row < 0 || row >= columnData.getRowCount())
 				return Entry.DONT_CARE;
-			return columnData[row];
+			return columnData.get(row);
 		}
 	}
 
@@ -239,13 +230,17 @@ public class TruthTable {
 		}
 
 		String outputName = model.getOutputs().get(column);
-		Entry[] oldValues = outputColumns.get(outputName);
-		if (oldValues == values)
-			return;
-		else if (values == null)
+		OutputColumn oldValues = outputColumns.get(outputName);
+		if (values == null) {
+			if (oldValues == null)
+				return;
 			outputColumns.remove(outputName);
-		else
-			outputColumns.put(outputName, values);
+		} else {
+			OutputColumn newValues = OutputColumn.create(values);
+			if (oldValues != null && oldValues.contentEquals(newValues))
+				return;
+			outputColumns.put(outputName, newValues);
+		}
 		fireCellsChanged(column);
 	}
 	
@@ -288,10 +283,8 @@ public class TruthTable {
 		// So we just need to compare the sequence of outputs.
 		
 		for (int c = 0; c < outputs; c++) {
-			Entry[] tableColumn = table.getOutputColumn(c);
-			Entry[] selfColumn = this.getOutputColumn(c);
 			for (int r = 0; r < rows; r++) {
-				if (tableColumn[r] != selfColumn[r]) {
+				if (table.getOutputEntry(r, c) != this.getOutputEntry(r, c)) {
 					return false;
 				}
 			}
@@ -337,6 +330,33 @@ public class TruthTable {
 	}
 	
 	
+	/**
+	 * Sets the entries of an output column starting at the given row, notifying
+	 * listeners once rather than once per row.
+	 */
+	public void setOutputEntries(int row, int column, Entry[] values) {
+		int rows = getRowCount();
+		int outputs = model.getOutputs().size();
+		if (row < 0 || row + values.length > rows) {
+			throw new IllegalArgumentException("row index: " + row + " size: " + rows);
+		}
+		if (column < 0 || column >= outputs) {
+			throw new IllegalArgumentException("column index: " + column + " size: " + outputs);
+		}
+
+		String outputName = model.getOutputs().get(column);
+		OutputColumn columnData = outputColumns.get(outputName);
+		if (columnData == null) {
+			columnData = OutputColumn.create(rows);
+			outputColumns.put(outputName, columnData);
+		}
+		boolean changed = false;
+		for (int i = 0; i < values.length; i++)
+			changed |= columnData.set(row + i, values[i]);
+		if (changed)
+			fireCellsChanged(column);
+	}
+
 	public void setOutputEntry(int row, int column, Entry value) {
 		int rows = getRowCount();
 		int outputs = model.getOutputs().size();
@@ -348,21 +368,12 @@ public class TruthTable {
 		}
 
 		String outputName = model.getOutputs().get(column);
-		Entry[] columnData = outputColumns.get(outputName);
-
+		OutputColumn columnData = outputColumns.get(outputName);
 		if (columnData == null) {
-			if (value == DEFAULT_ENTRY)
-				return;
-			columnData = new Entry[getRowCount()];
+			columnData = OutputColumn.create(rows);
 			outputColumns.put(outputName, columnData);
-			Arrays.fill(columnData, DEFAULT_ENTRY);
-			columnData[row] = value;
-		} else {
-			if (columnData[row] == value)
-				return;
-			columnData[row] = value;
 		}
-
-		fireCellsChanged(column);
+		if (columnData.set(row, value))
+			fireCellsChanged(column);
 	}
 }
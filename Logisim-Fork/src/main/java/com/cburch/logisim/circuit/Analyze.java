@@ -9,10 +9,17 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.TruthTable;
+import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
@@ -23,6 +30,95 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
 
 public class Analyze {
+	/**
+	 * Receives reports as computeColumns fills in the truth table, possibly
+	 * from several threads at once, and can cancel the computation.
+	 */
+	public static interface TableProgress {
+		public boolean isCanceled();
+
+		public void rowsComputed(int rows, int rowCount);
+	}
+
+	/**
+	 * Computes a block of rows at a time on one circuit state, visiting the rows
+	 * of each block in Gray-code order so that only one input changes from one
+	 * row to the next.
+	 */
+	private static class TableWorker implements Callable<Void> {
+		private CircuitState state;
+		private InstanceState[] inputs;
+		private Component[] inputComps;
+		private InstanceState[] outputs;
+		private Entry[][] columns;
+		private AtomicInteger nextBlock;
+		private AtomicInteger rowsDone;
+		private TableProgress progress;
+
+		private TableWorker(CircuitState state, ArrayList<Instance> inputPins, ArrayList<Instance> outputPins,
+				Entry[][] columns, AtomicInteger nextBlock, AtomicInteger rowsDone, TableProgress progress) {
+			this.state = state;
+			this.inputs = new InstanceState[inputPins.size()];
+			this.inputComps = new Component[inputPins.size()];
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = state.getInstanceState(inputPins.get(i));
+				inputComps[i] = Instance.getComponentFor(inputPins.get(i));
+			}
+			this.outputs = new InstanceState[outputPins.size()];
+			for (int i = 0; i < outputs.length; i++)
+				outputs[i] = state.getInstanceState(outputPins.get(i));
+			this.columns = columns;
+			this.nextBlock = nextBlock;
+			this.rowsDone = rowsDone;
+			this.progress = progress;
+		}
+
+		@Override
+		public Void call() {
+			int inputCount = inputs.length;
+			int rowCount = 1 << inputCount;
+			Propagator prop = state.getPropagator();
+			while (progress == null || !progress.isCanceled()) {
+				int start = nextBlock.getAndIncrement() * TABLE_BLOCK_ROWS;
+				if (start >= rowCount)
+					break;
+				int end = Math.min(rowCount, start + TABLE_BLOCK_ROWS);
+				// each block starts over from a clean state, so that a circuit
+				// with memory gives the same table however the blocks are shared
+				prop.reset();
+				int prevRow = -1;
+				for (int k = start; k < end; k++) {
+					int row = k ^ (k >>> 1);
+					for (int j = 0; j < inputCount; j++) {
+						boolean value = TruthTable.isInputSet(row, j, inputCount);
+						if (prevRow < 0 || value != TruthTable.isInputSet(prevRow, j, inputCount)) {
+							Pin.FACTORY.setValue(inputs[j], value ? Value.TRUE : Value.FALSE);
+							state.markComponentAsDirty(inputComps[j]);
+						}
+					}
+
+					prop.propagate();
+					if (prop.isOscillating()) {
+						for (int j = 0; j < columns.length; j++)
+							columns[j][row] = Entry.OSCILLATE_ERROR;
+						// start the next row over from a clean state
+						prop.reset();
+						prevRow = -1;
+					} else {
+						for (int j = 0; j < columns.length; j++)
+							columns[j][row] = toEntry(Pin.FACTORY.getValue(outputs[j]).get(0));
+						prevRow = row;
+					}
+				}
+				int done = rowsDone.addAndGet(end - start);
+				if (progress != null)
+					progress.rowsComputed(done, rowCount);
+			}
+			return null;
+		}
+	}
+
+	private static final int TABLE_BLOCK_ROWS = 256;
 
 	/*
 	 * private static class ExpressionMap extends HashMap<Location, Expression> {
@@ -99,72 +195,83 @@ public class Analyze {
 	//
 	// ComputeTable
 	//
-	/** Returns a truth table corresponding to the circuit. */
-	public static void computeTable(AnalyzerModel model, Project proj, Circuit circuit,
-			Map<Instance, String> pinLabels) {
+	/**
+	 * Computes the output columns of the circuit's truth table, as ordered in
+	 * pinLabels, or returns null if progress cancels the computation. The rows
+	 * are split between one thread per state from createTableStates in blocks,
+	 * each begun from a reset state, so the table doesn't depend on how many
+	 * threads there are.
+	 */
+	public static Entry[][] computeColumns(CircuitState[] states, Map<Instance, String> pinLabels,
+			TableProgress progress) {
 		ArrayList<Instance> inputPins = new ArrayList<Instance>();
-		ArrayList<String> inputNames = new ArrayList<String>();
 		ArrayList<Instance> outputPins = new ArrayList<Instance>();
-		ArrayList<String> outputNames = new ArrayList<String>();
-		for (Map.Entry<Instance, String> entry : pinLabels.entrySet()) {
-			Instance pin = entry.getKey();
-			if (Pin.FACTORY.isInputPin(pin)) {
+		for (Instance pin : pinLabels.keySet()) {
+			if (Pin.FACTORY.isInputPin(pin))
 				inputPins.add(pin);
-				inputNames.add(entry.getValue());
-			} else {
+			else
 				outputPins.add(pin);
-				outputNames.add(entry.getValue());
-			}
 		}
 
-		int inputCount = inputPins.size();
-		int rowCount = 1 << inputCount;
+		int rowCount = 1 << inputPins.size();
 		Entry[][] columns = new Entry[outputPins.size()][rowCount];
+		AtomicInteger nextBlock = new AtomicInteger();
+		AtomicInteger rowsDone = new AtomicInteger();
+		ArrayList<TableWorker> workers = new ArrayList<TableWorker>(states.length);
+		for (CircuitState state : states)
+			workers.add(new TableWorker(state, inputPins, outputPins, columns, nextBlock, rowsDone, progress));
 
-		for (int i = 0; i < rowCount; i++) {
-			CircuitState circuitState = new CircuitState(proj, circuit);
-			for (int j = 0; j < inputCount; j++) {
-				Instance pin = inputPins.get(j);
-				InstanceState pinState = circuitState.getInstanceState(pin);
-				boolean value = TruthTable.isInputSet(i, j, inputCount);
-				Pin.FACTORY.setValue(pinState, value ? Value.TRUE : Value.FALSE);
-			}
-
-			Propagator prop = circuitState.getPropagator();
-			prop.propagate();
-			/*
-			 * TODO for the SimulatorPrototype class do { prop.step(); } while
-			 * (prop.isPending());
-			 */
-			// TODO: Search for circuit state
-
-			if (prop.isOscillating()) {
-				for (int j = 0; j < columns.length; j++) {
-					columns[j][i] = Entry.OSCILLATE_ERROR;
-				}
-			} else {
-				for (int j = 0; j < columns.length; j++) {
-					Instance pin = outputPins.get(j);
-					InstanceState pinState = circuitState.getInstanceState(pin);
-					Entry out;
-					Value outValue = Pin.FACTORY.getValue(pinState).get(0);
-					if (outValue == Value.TRUE)
-						out = Entry.ONE;
-					else if (outValue == Value.FALSE)
-						out = Entry.ZERO;
-					else if (outValue == Value.ERROR)
-						out = Entry.BUS_ERROR;
-					else
-						out = Entry.DONT_CARE;
-					columns[j][i] = out;
-				}
+		if (workers.size() == 1) {
+			workers.get(0).call();
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+			try {
+				for (Future<Void> result : pool.invokeAll(workers))
+					result.get();
+			} catch (InterruptedException e) {
+				return null;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw new IllegalStateException(cause);
+			} finally {
+				pool.shutdown();
 			}
 		}
+		if (progress != null && progress.isCanceled())
+			return null;
+		return columns;
+	}
 
-		model.setVariables(inputNames, outputNames);
-		for (int i = 0; i < columns.length; i++) {
-			model.getTruthTable().setOutputColumn(i, columns[i]);
+	/** Returns a truth table corresponding to the circuit. */
+	public static void computeTable(AnalyzerModel model, Project proj, Circuit circuit,
+			Map<Instance, String> pinLabels) {
+		CircuitState[] states = createTableStates(proj, circuit, pinLabels);
+		setTable(model, pinLabels, computeColumns(states, pinLabels, null));
+	}
+
+	/**
+	 * Creates the circuit states that computeColumns splits the rows between,
+	 * one per thread. This must be called on the event dispatch thread: each
+	 * propagator registers itself as a listener on the project's options, whose
+	 * listener list the GUI also walks.
+	 */
+	public static CircuitState[] createTableStates(Project proj, Circuit circuit, Map<Instance, String> pinLabels) {
+		int inputCount = 0;
+		for (Instance pin : pinLabels.keySet()) {
+			if (Pin.FACTORY.isInputPin(pin))
+				inputCount++;
+		}
+		int rowCount = 1 << inputCount;
+		int blocks = (rowCount + TABLE_BLOCK_ROWS - 1) / TABLE_BLOCK_ROWS;
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), blocks));
+		CircuitState[] states = new CircuitState[threads];
+		for (int i = 0; i < threads; i++) {
+			states[i] = new CircuitState(proj, circuit);
+			states[i].getPropagator();
 		}
+		return states;
 	}
 
 	// computes outputs of affected components
@@ -298,6 +405,37 @@ public class Analyze {
 	 * throw new AnalyzeException.Conflict(); } } expressionMap.put(p2, e); } } } }
 	 */
 
+	/**
+	 * Puts the circuit's pins and the columns that computeColumns returned for
+	 * them into the model.
+	 */
+	public static void setTable(AnalyzerModel model, Map<Instance, String> pinLabels, Entry[][] columns) {
+		ArrayList<String> inputNames = new ArrayList<String>();
+		ArrayList<String> outputNames = new ArrayList<String>();
+		for (Map.Entry<Instance, String> entry : pinLabels.entrySet()) {
+			if (Pin.FACTORY.isInputPin(entry.getKey()))
+				inputNames.add(entry.getValue());
+			else
+				outputNames.add(entry.getValue());
+		}
+
+		model.setVariables(inputNames, outputNames);
+		for (int i = 0; i < columns.length; i++) {
+			model.getTruthTable().setOutputColumn(i, columns[i]);
+		}
+	}
+
+	private static Entry toEntry(Value value) {
+		if (value == Value.TRUE)
+			return Entry.ONE;
+		else if (value == Value.FALSE)
+			return Entry.ZERO;
+		else if (value == Value.ERROR)
+			return Entry.BUS_ERROR;
+		else
+			return Entry.DONT_CARE;
+	}
+
 	private static String toValidLabel(String label) {
 		if (label == null)
 			return null;
@@ -4,6 +4,7 @@
 package com.cburch.logisim.circuit;
 
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,6 +33,7 @@ import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.ProgrammableGenerator;
 import com.cburch.logisim.util.CollectionUtil;
 import com.cburch.logisim.util.EventSourceWeakSupport;
+import com.cburch.logisim.util.GraphicsState;
 
 public class Circuit {
 	private class EndChangedTransaction extends CircuitTransaction {
@@ -71,6 +73,10 @@ public class Circuit {
 	private class MyComponentListener implements ComponentListener {
 		@Override
 		public void componentInvalidated(ComponentEvent e) {
+			index.invalidate(e.getSource());
+			wires.invalidate(e.getSource());
+			if (e.getSource() instanceof Splitter)
+				combinationalSchedule = null;
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
 		}
 
@@ -78,10 +84,12 @@ public class Circuit {
 		public void endChanged(ComponentEvent e) {
 			locker.checkForWritePermission("ends changed");
 			Component comp = e.getSource();
+			index.invalidate(comp);
 			HashMap<Location, EndData> toRemove = toMap(e.getOldData());
 			HashMap<Location, EndData> toAdd = toMap(e.getData());
 			EndChangedTransaction xn = new EndChangedTransaction(comp, toRemove, toAdd);
 			locker.execute(xn);
+			combinationalSchedule = null;
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, comp);
 		}
 
@@ -109,6 +117,9 @@ public class Circuit {
 		return comp.getEnd(0).getType() != EndData.INPUT_ONLY;
 	}
 
+	// how far outside its bounds a component may draw, as with port markers
+	private static final int DRAW_MARGIN = 20;
+
 	private MyComponentListener myComponentListener = new MyComponentListener();
 	private CircuitAppearance appearance;
 	private AttributeSet staticAttrs;
@@ -118,10 +129,13 @@ public class Circuit {
 	// include
 	// wires
 	CircuitWires wires = new CircuitWires();
+	// spatial index over comps and wires, for hit-testing
+	private ComponentIndex index = new ComponentIndex();
 	// wires is package-protected for CircuitState and Analyze only.
 	private CopyOnWriteArrayList<Component> clocks = new CopyOnWriteArrayList<Component>();
 	private CopyOnWriteArrayList<Component> programmablegenerators = new CopyOnWriteArrayList<Component>();
 	private CircuitLocker locker;
+	private volatile CombinationalSchedule combinationalSchedule = null;
 
 	private WeakHashMap<Component, Circuit> circuitsUsingThis;
 
@@ -140,6 +154,11 @@ public class Circuit {
 		listeners.add(what);
 	}
 
+	private static void addEnd(Set<Location> ends, Bounds area, Location loc) {
+		if (area.contains(loc))
+			ends.add(loc);
+	}
+
 	public boolean contains(Component c) {
 		return comps.contains(c) || wires.getWires().contains(c);
 	}
@@ -148,36 +167,70 @@ public class Circuit {
 	// Graphics methods
 	//
 	public void draw(ComponentDrawContext context, Collection<Component> hidden) {
+		draw(context, hidden, null);
+	}
+
+	/**
+	 * Draws the circuit, leaving out the components in layered, which the
+	 * caller draws separately. Unlike hidden components, they still count
+	 * toward the connection dots drawn where wires meet.
+	 */
+	public void draw(ComponentDrawContext context, Collection<Component> hidden, Set<Component> layered) {
 		Graphics g = context.getGraphics();
+
+		// when only part of the circuit is being painted, draw only what may
+		// appear in that part
+		Rectangle clip = g.getClipBounds();
+		Bounds area = null;
+		Collection<Component> visibleComps = comps;
+		ArrayList<Wire> visibleWires = null;
+		HashSet<Location> visibleEnds = null;
+		if (clip != null) {
+			area = Bounds.create(clip).expand(DRAW_MARGIN);
+			visibleComps = new ArrayList<Component>();
+			visibleWires = new ArrayList<Wire>();
+			// a connection dot in view lies at the end of something in view
+			visibleEnds = new HashSet<Location>();
+			for (Component c : index.getAllIntersecting(area, g)) {
+				if (c instanceof Wire) {
+					Wire w = (Wire) c;
+					visibleWires.add(w);
+					addEnd(visibleEnds, area, w.e0);
+					addEnd(visibleEnds, area, w.e1);
+				} else {
+					visibleComps.add(c);
+					for (EndData end : c.getEnds()) {
+						if (end != null)
+							addEnd(visibleEnds, area, end.getLocation());
+					}
+				}
+			}
+		}
+
 		Graphics g_copy = g.create();
 		context.setGraphics(g_copy);
-		wires.draw(context, hidden);
-
-		if (hidden == null || hidden.size() == 0) {
-			for (Component c : comps) {
-				Graphics g_new = g.create();
-				context.setGraphics(g_new);
+		wires.draw(context, hidden, visibleWires, visibleEnds);
+
+		// components share a Graphics until one leaves it changed
+		GraphicsState g_state = null;
+		for (Component c : visibleComps) {
+			if (hidden != null && hidden.contains(c))
+				continue;
+			if (layered != null && layered.contains(c))
+				continue;
+			if (g_state == null || context.getGraphics() != g_copy || !g_state.matches(g_copy)) {
 				g_copy.dispose();
-				g_copy = g_new;
+				g_copy = g.create();
+				context.setGraphics(g_copy);
+				g_state = new GraphicsState(g_copy);
+			}
 
+			try {
 				c.draw(context);
-			}
-		} else {
-			for (Component c : comps) {
-				if (!hidden.contains(c)) {
-					Graphics g_new = g.create();
-					context.setGraphics(g_new);
-					g_copy.dispose();
-					g_copy = g_new;
-
-					try {
-						c.draw(context);
-					} catch (RuntimeException e) {
-						// this is a JAR developer error - display it and move
-						// on
-						e.printStackTrace();
-					}
-				}
+			} catch (RuntimeException e) {
+				// this is a JAR developer error - display it and move
+				// on
+				e.printStackTrace();
 			}
 		}
 		context.setGraphics(g);
@@ -185,6 +238,16 @@ public class Circuit {
 	}
 
 	private void fireEvent(CircuitEvent event) {
+		// components invalidate themselves while simulating, which mustn't
+		// cost the schedule; endChanged drops it itself when the ends move
+		switch (event.getAction()) {
+		case CircuitEvent.ACTION_ADD:
+		case CircuitEvent.ACTION_REMOVE:
+		case CircuitEvent.ACTION_CHANGE:
+		case CircuitEvent.ACTION_CLEAR:
+			combinationalSchedule = null;
+			break;
+		}
 		for (CircuitListener l : listeners) {
 			l.circuitChanged(event);
 		}
@@ -195,39 +258,27 @@ public class Circuit {
 	}
 
 	public Collection<Component> getAllContaining(Location pt) {
-		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
-			if (comp.contains(pt))
-				ret.add(comp);
-		}
-		return ret;
+		return index.getAllContaining(pt, null);
 	}
 
 	public Collection<Component> getAllContaining(Location pt, Graphics g) {
-		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
-			if (comp.contains(pt, g))
-				ret.add(comp);
-		}
-		return ret;
+		return index.getAllContaining(pt, g);
+	}
+
+	/**
+	 * Returns the components and wires that may meet a region, in the order
+	 * they are drawn, using g to include their labels.
+	 */
+	public Collection<Component> getAllIntersecting(Bounds bds, Graphics g) {
+		return index.getAllIntersecting(bds, g);
 	}
 
 	public Collection<Component> getAllWithin(Bounds bds) {
-		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
-			if (bds.contains(comp.getBounds()))
-				ret.add(comp);
-		}
-		return ret;
+		return index.getAllWithin(bds, null);
 	}
 
 	public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
-		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
-			if (bds.contains(comp.getBounds(g)))
-				ret.add(comp);
-		}
-		return ret;
+		return index.getAllWithin(bds, g);
 	}
 
 	public CircuitAppearance getAppearance() {
@@ -310,6 +361,16 @@ public class Circuit {
 		return clocks;
 	}
 
+	CombinationalSchedule getCombinationalSchedule() {
+		PointIndex index = wires.getPointIndex();
+		CombinationalSchedule ret = combinationalSchedule;
+		if (ret == null || ret.getIndex() != index) {
+			ret = new CombinationalSchedule(comps, wires, index);
+			combinationalSchedule = ret;
+		}
+		return ret;
+	}
+
 	public Set<Component> getComponents() {
 		return CollectionUtil.createUnmodifiableSetUnion(new HashSet<Component>(comps),
 				new HashSet<Wire>(wires.getWires()));
@@ -492,6 +553,7 @@ public class Circuit {
 			boolean added = wires.add(w);
 			if (!added)
 				return;
+			index.add(w);
 		} else {
 			// add it into the circuit
 			boolean added = comps.add(c);
@@ -499,6 +561,7 @@ public class Circuit {
 				return;
 
 			wires.add(c);
+			index.add(c);
 			ComponentFactory factory = c.getFactory();
 			if (factory instanceof Clock) {
 				clocks.add(c);
@@ -513,12 +576,53 @@ public class Circuit {
 		fireEvent(CircuitEvent.ACTION_ADD, c);
 	}
 
+	/**
+	 * Adds many components and wires at once, as when a file is loaded or a
+	 * selection dropped, copying the lists of components and wires only once.
+	 */
+	void mutatorAddAll(Collection<? extends Component> toAdd) {
+		locker.checkForWritePermission("add");
+
+		ArrayList<Component> added = new ArrayList<Component>(toAdd.size());
+		ArrayList<Component> newComps = new ArrayList<Component>();
+		ArrayList<Component> newClocks = new ArrayList<Component>();
+		ArrayList<Component> newGenerators = new ArrayList<Component>();
+		for (Component c : toAdd) {
+			if (c instanceof Wire) {
+				Wire w = (Wire) c;
+				if (w.getEnd0().equals(w.getEnd1()))
+					continue;
+			} else {
+				newComps.add(c);
+				ComponentFactory factory = c.getFactory();
+				if (factory instanceof Clock) {
+					newClocks.add(c);
+				} else if (factory instanceof ProgrammableGenerator) {
+					newGenerators.add(c);
+				} else if (factory instanceof SubcircuitFactory) {
+					SubcircuitFactory subcirc = (SubcircuitFactory) factory;
+					subcirc.getSubcircuit().circuitsUsingThis.put(c, this);
+				}
+				c.addComponentListener(myComponentListener);
+			}
+			added.add(c);
+		}
+		comps.addAll(newComps);
+		clocks.addAll(newClocks);
+		programmablegenerators.addAll(newGenerators);
+		wires.addAll(added);
+		index.addAll(added);
+		for (Component c : added)
+			fireEvent(CircuitEvent.ACTION_ADD, c);
+	}
+
 	public void mutatorClear() {
 		locker.checkForWritePermission("clear");
 
 		Set<Component> oldComps = new HashSet<Component>(comps);
 		comps = new CopyOnWriteArrayList<Component>();
 		wires = new CircuitWires();
+		index.clear();
 		clocks.clear();
 		programmablegenerators.clear();
 		for (Component comp : oldComps) {
@@ -533,6 +637,7 @@ public class Circuit {
 	void mutatorRemove(Component c) {
 		locker.checkForWritePermission("remove");
 
+		index.remove(c);
 		if (c instanceof Wire) {
 			wires.remove(c);
 		} else {
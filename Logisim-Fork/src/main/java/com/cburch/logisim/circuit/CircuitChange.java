@@ -130,15 +130,18 @@ class CircuitChange {
 			prevReplacements.add(comp);
 			break;
 		case ADD_ALL:
-			for (Component comp : comps)
-				prevReplacements.add(comp);
+			mutator.replace(circuit, prevReplacements, null);
+			prevReplacements.reset();
+			mutator.addAll(circuit, comps);
 			break;
 		case REMOVE:
 			prevReplacements.remove(comp);
 			break;
 		case REMOVE_ALL:
+			mutator.replace(circuit, prevReplacements, null);
+			prevReplacements.reset();
 			for (Component comp : comps)
-				prevReplacements.remove(comp);
+				mutator.remove(circuit, comp);
 			break;
 		case REPLACE:
 			prevReplacements.append((ReplacementMap) newValue);
@@ -34,7 +34,8 @@ public final class CircuitMutation extends CircuitTransaction {
 	}
 
 	public void addAll(Collection<? extends Component> comps) {
-		changes.add(CircuitChange.addAll(primary, comps));
+		// the caller may go on to change the collection before execution
+		changes.add(CircuitChange.addAll(primary, new ArrayList<Component>(comps)));
 	}
 
 	void change(CircuitChange change) {
@@ -3,6 +3,8 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.Collection;
+
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.proj.Project;
@@ -10,6 +12,12 @@ import com.cburch.logisim.proj.Project;
 public interface CircuitMutator {
 	public void add(Circuit circuit, Component comp);
 
+	/**
+	 * Adds many components and wires at once, as one change rather than one
+	 * per component.
+	 */
+	public void addAll(Circuit circuit, Collection<? extends Component> comps);
+
 	public void clear(Circuit circuit);
 
 	public void remove(Circuit circuit, Component comp);
@@ -38,6 +38,21 @@ class CircuitMutatorImpl implements CircuitMutator {
 		circuit.mutatorAdd(comp);
 	}
 
+	@Override
+	public void addAll(Circuit circuit, Collection<? extends Component> comps) {
+		if (comps.isEmpty())
+			return;
+		modified.add(circuit);
+		log.add(CircuitChange.addAll(circuit, comps));
+
+		ReplacementMap repl = new ReplacementMap();
+		for (Component comp : comps)
+			repl.add(comp);
+		getMap(circuit).append(repl);
+
+		circuit.mutatorAddAll(comps);
+	}
+
 	@Override
 	public void clear(Circuit circuit) {
 		HashSet<Component> comps = new HashSet<Component>(circuit.getNonWires());
@@ -3,8 +3,10 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +36,13 @@ public class CircuitState implements InstanceData {
 	private class MyCircuitListener implements CircuitListener {
 		@Override
 		public void circuitChanged(CircuitEvent event) {
+			// keeps edits from racing with the move to a new PointStorage
+			synchronized (CircuitState.this) {
+				handleCircuitEvent(event);
+			}
+		}
+
+		private void handleCircuitEvent(CircuitEvent event) {
 			int action = event.getAction();
 			if (action == CircuitEvent.ACTION_ADD) {
 				Component comp = (Component) event.getData();
@@ -73,6 +82,8 @@ public class CircuitState implements InstanceData {
 				dirtyComponents.clear();
 				dirtyPoints.clear();
 				causes.clear();
+				if (storage != null)
+					storage.clear();
 			} else if (action == CircuitEvent.ACTION_CHANGE) {
 				Object data = event.getData();
 				if (data instanceof Collection) {
@@ -121,6 +132,43 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	/**
+	 * Values, causes and dirty flags for the points numbered by a PointIndex, kept
+	 * in flat arrays. Points that the index doesn't know about, such as those added
+	 * while the circuit is being edited, are kept in the hash maps instead.
+	 */
+	private static class PointStorage {
+		final PointIndex index;
+		final Value[] values;
+		final SetData[] causes;
+		final BitSet dirty; // synchronize on this before use
+
+		PointStorage(PointIndex index) {
+			this.index = index;
+			this.values = new Value[index.size()];
+			this.causes = new SetData[index.size()];
+			this.dirty = new BitSet(index.size());
+		}
+
+		PointStorage(PointIndex index, PointStorage old) {
+			// for an index that extends old's, whose ids carry over
+			this.index = index;
+			this.values = Arrays.copyOf(old.values, index.size());
+			this.causes = Arrays.copyOf(old.causes, index.size());
+			synchronized (old.dirty) {
+				this.dirty = (BitSet) old.dirty.clone();
+			}
+		}
+
+		void clear() {
+			Arrays.fill(values, null);
+			Arrays.fill(causes, null);
+			synchronized (dirty) {
+				dirty.clear();
+			}
+		}
+	}
+
 	private static int lastId = 0;
 	private MyCircuitListener myCircuitListener = new MyCircuitListener();
 	private Propagator base = null; // base of tree of CircuitStates
@@ -137,8 +185,10 @@ public class CircuitState implements InstanceData {
 	private Map<Location, Value> values = new ConcurrentHashMap<Location, Value>();
 	private CopyOnWriteArrayList<Component> dirtyComponents = new CopyOnWriteArrayList<Component>();
 	private CopyOnWriteArrayList<Location> dirtyPoints = new CopyOnWriteArrayList<Location>();
-
-	Map<Location, SetData> causes = new ConcurrentHashMap<Location, SetData>();
+	private Map<Location, SetData> causes = new ConcurrentHashMap<Location, SetData>();
+	private volatile PointStorage storage = null;
+	private volatile DamageRegion damage = null;
+	private Component immediateCause = null; // see processLevelized
 	private int id = lastId++;
 
 	public CircuitState(Project proj, Circuit circuit) {
@@ -202,6 +252,21 @@ public class CircuitState implements InstanceData {
 		this.values.putAll(src.values);
 		this.dirtyComponents.addAll(src.dirtyComponents);
 		this.dirtyPoints.addAll(src.dirtyPoints);
+
+		PointStorage srcStorage = src.storage;
+		if (srcStorage != null) {
+			PointStorage s = new PointStorage(srcStorage.index);
+			System.arraycopy(srcStorage.values, 0, s.values, 0, s.values.length);
+			for (int i = 0; i < s.causes.length; i++) {
+				SetData oldValue = srcStorage.causes[i];
+				if (oldValue != null)
+					s.causes[i] = oldValue.cloneFor(this);
+			}
+			synchronized (srcStorage.dirty) {
+				s.dirty.or(srcStorage.dirty);
+			}
+			this.storage = s;
+		}
 	}
 
 	public void drawOscillatingPoints(ComponentDrawContext context) {
@@ -216,16 +281,30 @@ public class CircuitState implements InstanceData {
 		return circuit;
 	}
 
+	SetData getCauses(Location p) {
+		PointStorage s = storage;
+		int id = s == null ? -1 : s.index.getId(p);
+		return id >= 0 ? s.causes[id] : causes.get(p);
+	}
+
 	Value getComponentOutputAt(Location p) {
 		// for CircuitWires - to get values, ignoring wires' contributions
-		Propagator.SetData cause_list = causes.get(p);
-		return Propagator.computeValue(cause_list);
+		return Propagator.computeValue(getCauses(p));
+	}
+
+	Value getComponentOutputAt(int id) {
+		// as above, for a point numbered by getPointIndex()
+		return Propagator.computeValue(storage.causes[id]);
 	}
 
 	public Object getData(Component comp) {
 		return componentData.get(comp);
 	}
 
+	Component getImmediateCause() {
+		return immediateCause;
+	}
+
 	public InstanceState getInstanceState(Component comp) {
 		Object factory = comp.getFactory();
 		if (factory instanceof InstanceFactory) {
@@ -244,10 +323,19 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	Component getParentComponent() {
+		return parentComp;
+	}
+
 	public CircuitState getParentState() {
 		return parentState;
 	}
 
+	PointIndex getPointIndex() {
+		PointStorage s = storage;
+		return s == null ? null : s.index;
+	}
+
 	public Project getProject() {
 		return proj;
 	}
@@ -269,7 +357,7 @@ public class CircuitState implements InstanceData {
 	}
 
 	public Value getValue(Location pt) {
-		Value ret = values.get(pt);
+		Value ret = getValueByWire(pt);
 		if (ret != null)
 			return ret;
 
@@ -278,7 +366,9 @@ public class CircuitState implements InstanceData {
 	}
 
 	Value getValueByWire(Location p) {
-		return values.get(p);
+		PointStorage s = storage;
+		int id = s == null ? -1 : s.index.getId(p);
+		return id >= 0 ? s.values[id] : values.get(p);
 	}
 
 	CircuitWires.State getWireData() {
@@ -288,6 +378,21 @@ public class CircuitState implements InstanceData {
 	//
 	// methods for other classes within package
 	//
+	private boolean hasWork(boolean points) {
+		if (!substates.isEmpty())
+			return true;
+		if (!points)
+			return !dirtyComponents.isEmpty();
+		if (!dirtyPoints.isEmpty() || circuit.wires.isMapVoided())
+			return true;
+		PointStorage s = storage;
+		if (s == null || s.index != circuit.wires.getPointIndex())
+			return true;
+		synchronized (s.dirty) {
+			return !s.dirty.isEmpty();
+		}
+	}
+
 	public boolean isSubstate() {
 		return parentState != null;
 	}
@@ -314,74 +419,141 @@ public class CircuitState implements InstanceData {
 	}
 
 	public void markPointAsDirty(Location pt) {
+		PointStorage s = storage;
+		int id = s == null ? -1 : s.index.getId(pt);
+		if (id >= 0) {
+			synchronized (s.dirty) {
+				s.dirty.set(id);
+			}
+			if (storage == s)
+				return;
+		}
 		dirtyPoints.add(pt);
 	}
 
 	void processDirtyComponents() {
 		if (!dirtyComponents.isEmpty()) {
-			// This seeming wasted copy is to avoid ConcurrentModifications
-			// if we used an iterator instead.
-			Object[] toProcess;
-			RuntimeException firstException = null;
-			for (int tries = 4; true; tries--) {
-				try {
-					toProcess = dirtyComponents.toArray();
-					break;
-				} catch (RuntimeException e) {
-					if (firstException == null)
-						firstException = e;
-					if (tries == 0) {
-						toProcess = new Object[0];
-						dirtyComponents = new CopyOnWriteArrayList<Component>();
-						throw firstException;
-					}
+			if (getPropagator().isLevelized()) {
+				processLevelized();
+			} else {
+				for (Object compObj : takeDirtyComponents()) {
+					if (compObj instanceof Component)
+						propagateComponent((Component) compObj);
 				}
 			}
-			dirtyComponents.clear();
-			for (Object compObj : toProcess) {
-				if (compObj instanceof Component) {
-					Component comp = (Component) compObj;
-					comp.propagate(this);
-					if (comp.getFactory() instanceof Pin && parentState != null) {
-						// should be propagated in superstate
-						parentComp.propagate(parentState);
-					}
+		}
+
+		processSubstates(false);
+	}
+
+	void processDirtyPoints() {
+		propagateDirtyPoints();
+
+		processSubstates(true);
+	}
+
+	/**
+	 * Evaluates the dirty components in one sweep over the circuit's
+	 * combinational schedule, settling each level's outputs onto the wires before
+	 * going on to the next level. Components outside the schedule are propagated
+	 * through the event queue as usual.
+	 */
+	private void processLevelized() {
+		CombinationalSchedule sched = circuit.getCombinationalSchedule();
+		BitSet pending = new BitSet(sched.size());
+		takeLevelized(sched, pending);
+		int pos = pending.nextSetBit(0);
+		int backtracks = 0;
+		while (pos >= 0) {
+			int level = sched.getLevel(pos);
+			while (pos >= 0 && sched.getLevel(pos) == level) {
+				pending.clear(pos);
+				Component comp = sched.get(pos);
+				immediateCause = comp;
+				try {
+					propagateProfiled(comp);
+				} finally {
+					immediateCause = null;
 				}
+				pos = pending.nextSetBit(pos + 1);
+			}
+			propagateDirtyPoints();
+			takeLevelized(sched, pending);
+			pos = pending.nextSetBit(0);
+			if (pos >= 0 && sched.getLevel(pos) <= level && ++backtracks > sched.size()) {
+				// the schedule is stale (the circuit is being edited); leave the
+				// rest to the event queue
+				for (; pos >= 0; pos = pending.nextSetBit(pos + 1))
+					propagateComponent(sched.get(pos));
 			}
 		}
+	}
 
+	private void processSubstates(boolean points) {
 		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyComponents();
+		subs = substates.toArray(subs);
+		Propagator prop = getPropagator();
+		if (subs.length > 1 && prop.isParallel()) {
+			// only hand out the substates that have something to do
+			ArrayList<CircuitState> busy = new ArrayList<CircuitState>(subs.length);
+			for (CircuitState substate : subs) {
+				if (substate.hasWork(points))
+					busy.add(substate);
+			}
+			subs = busy.toArray(new CircuitState[busy.size()]);
+		}
+		if (subs.length > 1 && prop.isParallel()) {
+			prop.processInParallel(subs, points);
+		} else {
+			for (CircuitState substate : subs) {
+				if (points)
+					substate.processDirtyPoints();
+				else
+					substate.processDirtyComponents();
+			}
 		}
 	}
 
-	void processDirtyPoints() {
+	private void propagateComponent(Component comp) {
+		propagateProfiled(comp);
+		if (comp.getFactory() instanceof Pin && parentState != null) {
+			// should be propagated in superstate
+			parentComp.propagate(parentState);
+		}
+	}
+
+	private void propagateDirtyPoints() {
+		PointStorage s = updateStorage();
 		HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
 		dirtyPoints.clear();
-		if (circuit.wires.isMapVoided()) {
-			for (int i = 3; i >= 0; i--) {
-				try {
-					dirty.addAll(circuit.wires.points.getSplitLocations());
-					break;
-				} catch (ConcurrentModificationException e) {
-					// try again...
-					try {
-						Thread.sleep(1);
-					} catch (InterruptedException e2) {
-					}
-					if (i == 0)
-						e.printStackTrace();
+		BitSet dirtyIds = null;
+		if (s != null) {
+			synchronized (s.dirty) {
+				if (!s.dirty.isEmpty()) {
+					dirtyIds = (BitSet) s.dirty.clone();
+					s.dirty.clear();
 				}
 			}
 		}
-		if (!dirty.isEmpty()) {
-			circuit.wires.propagate(this, dirty);
+		if (!dirty.isEmpty() || dirtyIds != null) {
+			circuit.wires.propagate(this, dirty, dirtyIds);
 		}
+	}
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyPoints();
+	private void propagateProfiled(Component comp) {
+		DamageRegion d = damage;
+		if (d != null)
+			d.add(comp);
+		SimulationProfiler profiler = base == null ? null : base.getProfiler();
+		if (profiler == null) {
+			comp.propagate(this);
+		} else {
+			long start = System.nanoTime();
+			try {
+				comp.propagate(this);
+			} finally {
+				profiler.countPropagation(this, comp, System.nanoTime() - start);
+			}
 		}
 	}
 
@@ -396,6 +568,10 @@ public class CircuitState implements InstanceData {
 		dirtyComponents.clear();
 		dirtyPoints.clear();
 		causes.clear();
+		if (storage != null)
+			storage.clear();
+		if (damage != null)
+			damage.addAll();
 		markAllComponentsDirty();
 
 		for (CircuitState sub : substates) {
@@ -403,6 +579,27 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	void setCauses(Location p, SetData head) {
+		PointStorage s = storage;
+		int id = s == null ? -1 : s.index.getId(p);
+		if (id >= 0)
+			s.causes[id] = head;
+		else if (head == null)
+			causes.remove(p);
+		else
+			causes.put(p, head);
+	}
+
+	/**
+	 * Sets where to record the parts of the circuit whose drawing
+	 * propagation in this state changes, or null to stop recording.
+	 */
+	public void setDamageRegion(DamageRegion value) {
+		if (value != null)
+			value.addAll();
+		damage = value;
+	}
+
 	public void setData(Component comp, Object data) {
 		if (data instanceof CircuitState) {
 			CircuitState oldState = (CircuitState) componentData.get(comp);
@@ -435,8 +632,24 @@ public class CircuitState implements InstanceData {
 			base.setValue(this, pt, val, cause, delay);
 	}
 
+	void setValueByWire(int id, Value v) {
+		// as below, for a point numbered by getPointIndex()
+		PointStorage s = storage;
+		Value old = s.values[id];
+		s.values[id] = v == Value.NIL ? null : v;
+		if (v == Value.NIL ? old != null && old != Value.NIL : !v.equals(old))
+			valueChanged(s.index.getLocation(id));
+	}
+
 	void setValueByWire(Location p, Value v) {
 		// for CircuitWires - to set value at point
+		PointStorage s = storage;
+		int id = s == null ? -1 : s.index.getId(p);
+		if (id >= 0) {
+			setValueByWire(id, v);
+			return;
+		}
+
 		boolean changed;
 		if (v == Value.NIL) {
 			Object old = values.remove(p);
@@ -445,24 +658,54 @@ public class CircuitState implements InstanceData {
 			Object old = values.put(p, v);
 			changed = !v.equals(old);
 		}
-		if (changed) {
-			boolean found = false;
-			for (Component comp : circuit.getComponents(p)) {
-				if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
-					found = true;
-					markComponentAsDirty(comp);
+		if (changed)
+			valueChanged(p);
+	}
+
+	void setWireData(CircuitWires.State data) {
+		wireData = data;
+	}
+
+	private Object[] takeDirtyComponents() {
+		// This seeming wasted copy is to avoid ConcurrentModifications
+		// if we used an iterator instead.
+		Object[] toProcess;
+		RuntimeException firstException = null;
+		for (int tries = 4; true; tries--) {
+			try {
+				toProcess = dirtyComponents.toArray();
+				break;
+			} catch (RuntimeException e) {
+				if (firstException == null)
+					firstException = e;
+				if (tries == 0) {
+					toProcess = new Object[0];
+					dirtyComponents = new CopyOnWriteArrayList<Component>();
+					throw firstException;
 				}
 			}
-			// NOTE: this will cause a double-propagation on components
-			// whose outputs have just changed.
-
-			if (found && base != null)
-				base.locationTouched(this, p);
 		}
+		dirtyComponents.clear();
+		return toProcess;
 	}
 
-	void setWireData(CircuitWires.State data) {
-		wireData = data;
+	/**
+	 * Moves the dirty components that are in the schedule into pending, and
+	 * propagates the others right away.
+	 */
+	private void takeLevelized(CombinationalSchedule sched, BitSet pending) {
+		while (!dirtyComponents.isEmpty()) {
+			for (Object compObj : takeDirtyComponents()) {
+				if (compObj instanceof Component) {
+					Component comp = (Component) compObj;
+					int pos = sched.getPosition(comp);
+					if (pos >= 0)
+						pending.set(pos);
+					else
+						propagateComponent(comp);
+				}
+			}
+		}
 	}
 
 	boolean tick(int ticks) {
@@ -484,4 +727,92 @@ public class CircuitState implements InstanceData {
 	public String toString() {
 		return "State" + id + "[" + circuit.getName() + "]";
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Moves the point data into storage laid out for the circuit's current point
+	 * index, if it isn't already. Called only from the propagation thread.
+	 */
+	private PointStorage updateStorage() {
+		PointIndex index = circuit.wires.getPointIndex();
+		PointStorage old = storage;
+		if (old != null && old.index == index)
+			return old;
+
+		synchronized (this) {
+			if (old != null && index != null && index.extendsIndex(old.index)) {
+				// only the points new to the index need to move
+				PointStorage s = new PointStorage(index, old);
+				for (int id = old.index.size(); id < index.size(); id++) {
+					Location loc = index.getLocation(id);
+					s.values[id] = values.remove(loc);
+					s.causes[id] = causes.remove(loc);
+				}
+				storage = s;
+				return s;
+			}
+
+			PointStorage s = index == null ? null : new PointStorage(index);
+			if (old != null) {
+				BitSet oldDirty;
+				synchronized (old.dirty) {
+					oldDirty = (BitSet) old.dirty.clone();
+				}
+				for (int i = 0; i < old.values.length; i++) {
+					Location loc = old.index.getLocation(i);
+					int id = s == null ? -1 : index.getId(loc);
+					if (id >= 0) {
+						s.values[id] = old.values[i];
+						s.causes[id] = old.causes[i];
+						if (oldDirty.get(i))
+							s.dirty.set(id);
+					} else {
+						if (old.values[i] != null)
+							values.put(loc, old.values[i]);
+						if (old.causes[i] != null)
+							causes.put(loc, old.causes[i]);
+						if (oldDirty.get(i))
+							dirtyPoints.add(loc);
+					}
+				}
+			}
+			if (s != null) {
+				for (Iterator<Map.Entry<Location, Value>> it = values.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<Location, Value> entry = it.next();
+					int id = index.getId(entry.getKey());
+					if (id >= 0) {
+						s.values[id] = entry.getValue();
+						it.remove();
+					}
+				}
+				for (Iterator<Map.Entry<Location, SetData>> it = causes.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<Location, SetData> entry = it.next();
+					int id = index.getId(entry.getKey());
+					if (id >= 0) {
+						s.causes[id] = entry.getValue();
+						it.remove();
+					}
+				}
+			}
+			storage = s;
+			return s;
+		}
+	}
+
+	private void valueChanged(Location p) {
+		DamageRegion d = damage;
+		if (d != null)
+			d.add(p);
+		boolean found = false;
+		for (Component comp : circuit.getComponents(p)) {
+			if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
+				found = true;
+				markComponentAsDirty(comp);
+			}
+		}
+		// NOTE: this will cause a double-propagation on components
+		// whose outputs have just changed.
+
+		if (found && base != null)
+			base.locationTouched(this, p);
+	}
+}
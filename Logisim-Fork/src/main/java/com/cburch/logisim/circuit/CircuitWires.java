@@ -6,6 +6,8 @@ package com.cburch.logisim.circuit;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,13 +38,23 @@ import com.cburch.logisim.util.SmallSet;
 
 public class CircuitWires {
 	static class BundleMap {
-		boolean computed = false;
+		// for a map updated from another, pointBundles and bundles hold only
+		// the updated region; the point index leads to the rest
 		Map<Location, WireBundle> pointBundles = new ConcurrentHashMap<Location, WireBundle>();
 		HashSet<WireBundle> bundles = new HashSet<WireBundle>();
+		PointIndex pointIndex = null;
+		WireBundle[] bundlesById = null; // indexed by pointIndex id
 		boolean isValid = true;
 		// NOTE: It would make things more efficient if we also had
 		// a set of just the first bundle in each tree.
 		HashSet<WidthIncompatibilityData> incompatibilityData = null;
+		HashSet<WireBundle> invalidBundles = new HashSet<WireBundle>();
+		int appliedEdits = 0; // number of edits to the circuit reflected here
+		// if this map was updated from another rather than computed afresh,
+		// the points whose bundles may differ and the bundles it dropped
+		BundleMap previous = null;
+		Location[] changedPoints = null;
+		WireBundle[] removedBundles = null;
 
 		void addWidthIncompatibilityData(WidthIncompatibilityData e) {
 			if (incompatibilityData == null) {
@@ -63,6 +75,11 @@ public class CircuitWires {
 		}
 
 		WireBundle getBundleAt(Location p) {
+			if (bundlesById != null) {
+				int id = pointIndex.getId(p);
+				if (id >= 0)
+					return bundlesById[id];
+			}
 			return pointBundles.get(p);
 		}
 
@@ -86,30 +103,25 @@ public class CircuitWires {
 			return isValid;
 		}
 
-		synchronized void markComputed() {
-			computed = true;
-			notifyAll();
-		}
-
 		void setBundleAt(Location p, WireBundle b) {
 			pointBundles.put(p, b);
 		}
-
-		synchronized void waitUntilComputed() {
-			while (!computed) {
-				try {
-					wait();
-				} catch (InterruptedException e) {
-				}
-			}
-		}
 	}
 
-	static class SplitterData {
-		WireBundle[] end_bundle; // PointData associated with each end
-
-		SplitterData(int fan_out) {
-			end_bundle = new WireBundle[fan_out + 1];
+	/**
+	 * A component end added to or removed from a point. Unlike the ends of
+	 * wires, splitters, tunnels and pull resistors, such an end often leaves
+	 * the bundle at its point as it was.
+	 */
+	private static class EndEdit {
+		Location loc;
+		BitWidth width;
+		boolean added;
+
+		EndEdit(Location loc, BitWidth width, boolean added) {
+			this.loc = loc;
+			this.width = width;
+			this.added = added;
 		}
 	}
 
@@ -148,11 +160,35 @@ public class CircuitWires {
 		public void attributeValueChanged(AttributeEvent e) {
 			Attribute<?> attr = e.getAttribute();
 			if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-				voidBundleMap();
+				// the old bundle at the component holds all it was connected to
+				Collection<Component> comps = attr == StdAttr.LABEL ? tunnels : new ArrayList<Component>(pulls);
+				Component comp = null;
+				for (Component c : comps) {
+					if (c.getAttributeSet() == e.getSource())
+						comp = c;
+				}
+				if (comp == null) {
+					voidBundleMap();
+				} else {
+					touch(comp.getEnd(0).getLocation());
+					if (attr == StdAttr.LABEL)
+						touch(getTunnelLabel(comp));
+				}
 			}
 		}
 	}
 
+	private static String getTunnelLabel(Component comp) {
+		return comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+	}
+
+	private static boolean isWiring(Component comp) {
+		if (comp instanceof Wire || comp instanceof Splitter)
+			return true;
+		Object factory = comp.getFactory();
+		return factory instanceof Tunnel || factory instanceof PullResistor;
+	}
+
 	private static Value pullValue(Value base, Value pullTo) {
 		if (base.isFullyDefined()) {
 			return base;
@@ -190,7 +226,15 @@ public class CircuitWires {
 	// derived data
 	private Bounds bounds = Bounds.EMPTY_BOUNDS;
 
-	private BundleMap bundleMap = null;
+	private static final int MAX_EDITS = 4096; // beyond which the map is voided
+	private static final int MAX_HISTORY = 8; // maps a state can catch up on
+	private static final int MIN_REGION = 256; // points an update may visit
+
+	private volatile BundleMap bundleMap = null;
+	// edits not yet reflected in the bundle map, the last being edit number
+	// editCount; none are kept while the map is voided
+	private ArrayList<Object> edits = new ArrayList<Object>();
+	private int editCount = 0;
 
 	public CircuitWires() {
 	}
@@ -198,8 +242,6 @@ public class CircuitWires {
 	//
 	// action methods
 	//
-	// NOTE: this could be made much more efficient in most cases to
-	// avoid voiding the bundle map.
 	public boolean add(Component comp) {
 		boolean added = true;
 		if (comp instanceof Wire) {
@@ -218,14 +260,51 @@ public class CircuitWires {
 		}
 		if (added) {
 			points.add(comp);
-			voidBundleMap();
+			touch(comp, true);
 		}
 		return added;
 	}
 
+	/**
+	 * Adds many components at once, copying each list of wires, splitters
+	 * and tunnels only once.
+	 */
+	void addAll(Collection<? extends Component> comps) {
+		ArrayList<Wire> newWires = new ArrayList<Wire>();
+		ArrayList<Splitter> newSplitters = new ArrayList<Splitter>();
+		ArrayList<Component> newTunnels = new ArrayList<Component>();
+		for (Component comp : comps) {
+			if (comp instanceof Wire) {
+				Wire w = (Wire) comp;
+				newWires.add(w);
+				if (bounds != Bounds.EMPTY_BOUNDS) { // update bounds
+					bounds = bounds.add(w.e0).add(w.e1);
+				}
+			} else if (comp instanceof Splitter) {
+				newSplitters.add((Splitter) comp);
+			} else {
+				Object factory = comp.getFactory();
+				if (factory instanceof Tunnel) {
+					newTunnels.add(comp);
+					comp.getAttributeSet().addAttributeListener(tunnelListener);
+				} else if (factory instanceof PullResistor) {
+					pulls.add(comp);
+					comp.getAttributeSet().addAttributeListener(tunnelListener);
+				}
+			}
+		}
+		wires.addAll(newWires);
+		splitters.addAll(newSplitters);
+		tunnels.addAll(newTunnels);
+		for (Component comp : comps) {
+			points.add(comp);
+			touch(comp, true);
+		}
+	}
+
 	void add(Component comp, EndData end) {
 		points.add(comp, end);
-		voidBundleMap();
+		touch(comp, end, true);
 	}
 
 	private boolean addWire(Wire w) {
@@ -240,11 +319,32 @@ public class CircuitWires {
 	}
 
 	// To be called by getBundleMap only
-	private void computeBundleMap(BundleMap ret) {
+	private BundleMap computeBundleMap() {
+		BundleMap ret = null;
+		for (int tries = 4; tries >= 0; tries--) {
+			try {
+				ret = new BundleMap();
+				computeBundles(ret, wires, tunnels, pulls, splitters);
+				computeIncompatibilityData(ret, ret.getBundles());
+				// number the points, so that circuit states can use flat arrays
+				indexPoints(ret);
+				break;
+			} catch (Throwable t) {
+				if (tries == 0) {
+					t.printStackTrace();
+					ret.invalidate();
+				}
+			}
+		}
+		return ret;
+	}
+
+	private void computeBundles(BundleMap ret, Collection<Wire> wires, Collection<Component> tunnels,
+			Collection<Component> pulls, Collection<Splitter> splitters) {
 		// create bundles corresponding to wires and tunnels
-		connectWires(ret);
-		connectTunnels(ret);
-		connectPullResistors(ret);
+		connectWires(ret, wires);
+		connectTunnels(ret, tunnels);
+		connectPullResistors(ret, pulls);
 
 		// merge any WireBundle objects united by previous steps
 		for (Iterator<WireBundle> it = ret.getBundles().iterator(); it.hasNext();) {
@@ -281,8 +381,10 @@ public class CircuitWires {
 		}
 
 		// determine the bundles at the end of each splitter
+		HashMap<Splitter, WireBundle[]> endBundles = new HashMap<Splitter, WireBundle[]>();
 		for (Splitter spl : splitters) {
 			List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
+			WireBundle[] end_bundle = new WireBundle[ends.size()];
 			int index = -1;
 			for (EndData end : ends) {
 				index++;
@@ -290,9 +392,10 @@ public class CircuitWires {
 				WireBundle pb = ret.getBundleAt(p);
 				if (pb != null) {
 					pb.setWidth(end.getWidth(), p);
-					spl.wire_data.end_bundle[index] = pb;
+					end_bundle[index] = pb;
 				}
 			}
+			endBundles.put(spl, end_bundle);
 		}
 
 		// unite threads going through splitters
@@ -300,8 +403,8 @@ public class CircuitWires {
 			synchronized (spl) {
 				SplitterAttributes spl_attrs = (SplitterAttributes) spl.getAttributeSet();
 				byte[] bit_end = spl_attrs.bit_end;
-				SplitterData spl_data = spl.wire_data;
-				WireBundle from_bundle = spl_data.end_bundle[0];
+				WireBundle[] end_bundle = endBundles.get(spl);
+				WireBundle from_bundle = end_bundle[0];
 				if (from_bundle == null || !from_bundle.isValid())
 					continue;
 
@@ -309,7 +412,7 @@ public class CircuitWires {
 					int j = bit_end[i];
 					if (j > 0) {
 						int thr = spl.bit_thread[i];
-						WireBundle to_bundle = spl_data.end_bundle[j];
+						WireBundle to_bundle = end_bundle[j];
 						WireThread[] to_threads = to_bundle.threads;
 						if (to_threads != null && to_bundle.isValid()) {
 							WireThread[] from_threads = from_bundle.threads;
@@ -336,7 +439,9 @@ public class CircuitWires {
 				}
 			}
 		}
+	}
 
+	private void computeIncompatibilityData(BundleMap ret, Collection<WireBundle> bundles) {
 		// All threads are sewn together! Compute the exception set before
 		// leaving
 		Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
@@ -345,14 +450,16 @@ public class CircuitWires {
 				ret.addWidthIncompatibilityData(wid);
 			}
 		}
-		for (WireBundle b : ret.getBundles()) {
-			WidthIncompatibilityData e = b.getWidthIncompatibilityData();
-			if (e != null)
-				ret.addWidthIncompatibilityData(e);
+		for (WireBundle b : bundles) {
+			if (!b.isValid())
+				ret.invalidBundles.add(b);
+		}
+		for (WireBundle b : ret.invalidBundles) {
+			ret.addWidthIncompatibilityData(b.getWidthIncompatibilityData());
 		}
 	}
 
-	private void connectPullResistors(BundleMap ret) {
+	private void connectPullResistors(BundleMap ret, Collection<Component> pulls) {
 		for (Component comp : pulls) {
 			Location loc = comp.getEnd(0).getLocation();
 			WireBundle b = ret.getBundleAt(loc);
@@ -366,27 +473,13 @@ public class CircuitWires {
 		}
 	}
 
-	private void connectTunnels(BundleMap ret) {
-		// determine the sets of tunnels
-		HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
-		for (Component comp : tunnels) {
-			String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
-			label = label.trim();
-			if (!label.equals("")) {
-				ArrayList<Location> tunnelSet = tunnelSets.get(label);
-				if (tunnelSet == null) {
-					tunnelSet = new ArrayList<Location>(3);
-					tunnelSets.put(label, tunnelSet);
-				}
-				tunnelSet.add(comp.getLocation());
-			}
-		}
-
+	private void connectTunnels(BundleMap ret, Collection<Component> tunnels) {
 		// now connect the bundles that are tunnelled together
-		for (ArrayList<Location> tunnelSet : tunnelSets.values()) {
+		for (ArrayList<Component> tunnelSet : getTunnelSets(tunnels).values()) {
 			WireBundle foundBundle = null;
 			Location foundLocation = null;
-			for (Location loc : tunnelSet) {
+			for (Component comp : tunnelSet) {
+				Location loc = comp.getLocation();
 				WireBundle b = ret.getBundleAt(loc);
 				if (b != null) {
 					foundBundle = b;
@@ -395,10 +488,11 @@ public class CircuitWires {
 				}
 			}
 			if (foundBundle == null) {
-				foundLocation = tunnelSet.get(0);
+				foundLocation = tunnelSet.get(0).getLocation();
 				foundBundle = ret.createBundleAt(foundLocation);
 			}
-			for (Location loc : tunnelSet) {
+			for (Component comp : tunnelSet) {
+				Location loc = comp.getLocation();
 				if (loc != foundLocation) {
 					WireBundle b = ret.getBundleAt(loc);
 					if (b == null) {
@@ -412,9 +506,8 @@ public class CircuitWires {
 		}
 	}
 
-	private void connectWires(BundleMap ret) {
+	private void connectWires(BundleMap ret, Collection<Wire> wires) {
 		// make a WireBundle object for each tree of connected wires
-		CopyOnWriteArrayList<Wire> wires = this.wires;
 		for (Wire w : wires) {
 			WireBundle b0 = ret.getBundleAt(w.e0);
 			if (b0 == null) {
@@ -433,7 +526,12 @@ public class CircuitWires {
 		}
 	}
 
-	void draw(ComponentDrawContext context, Collection<Component> hidden) {
+	/**
+	 * Draws the wires, or if visible isn't null only those wires, along with
+	 * the connection dots among ends (or all of them if it is null).
+	 */
+	void draw(ComponentDrawContext context, Collection<Component> hidden, Collection<Wire> visible,
+			Collection<Location> ends) {
 		boolean showState = context.getShowState();
 		CircuitState state = context.getCircuitState();
 		Graphics g = context.getGraphics();
@@ -443,8 +541,10 @@ public class CircuitWires {
 
 		BundleMap bmap = getBundleMap();
 		boolean isValid = bmap.isValid();
+		Collection<Wire> toDraw = visible == null ? wires : visible;
+		Collection<Location> dots = ends == null ? points.getSplitLocations() : ends;
 		if (hidden == null || hidden.size() == 0) {
-			for (Wire w : wires) {
+			for (Wire w : toDraw) {
 				Location s = w.e0;
 				Location t = w.e1;
 				WireBundle wb = bmap.getBundleAt(s);
@@ -469,7 +569,7 @@ public class CircuitWires {
 				}
 			}
 
-			for (Location loc : points.getSplitLocations()) {
+			for (Location loc : dots) {
 				if (points.getComponentCount(loc) > 2) {
 					WireBundle wb = bmap.getBundleAt(loc);
 					if (wb != null) {
@@ -492,7 +592,7 @@ public class CircuitWires {
 				}
 			}
 		} else {
-			for (Wire w : wires) {
+			for (Wire w : toDraw) {
 				if (!hidden.contains(w)) {
 					Location s = w.e0;
 					Location t = w.e1;
@@ -522,7 +622,7 @@ public class CircuitWires {
 			// this is just an approximation, but it's good enough since
 			// the problem is minor, and hidden only exists for a short
 			// while at a time anway.
-			for (Location loc : points.getSplitLocations()) {
+			for (Location loc : dots) {
 				if (points.getComponentCount(loc) > 2) {
 					int icount = 0;
 					for (Component comp : points.getComponents(loc)) {
@@ -559,52 +659,83 @@ public class CircuitWires {
 	}
 
 	private BundleMap getBundleMap() {
-		// Maybe we already have a valid bundle map (or maybe
-		// one is in progress).
-		BundleMap ret = bundleMap;
-		if (ret != null) {
-			ret.waitUntilComputed();
-			return ret;
-		}
-		try {
-			// Ok, we have to create our own.
-			for (int tries = 4; tries >= 0; tries--) {
+		while (true) {
+			// Maybe we already have an up-to-date bundle map, or one that
+			// the edits since can be applied to.
+			BundleMap base;
+			Object[] pending = null;
+			int applied;
+			synchronized (this) {
+				base = bundleMap;
+				applied = editCount;
+				if (base != null) {
+					if (base.appliedEdits == applied)
+						return base;
+					int start = edits.size() - (applied - base.appliedEdits);
+					if (start >= 0)
+						pending = edits.subList(start, edits.size()).toArray();
+				}
+			}
+
+			BundleMap ret = null;
+			if (pending != null) {
 				try {
-					ret = new BundleMap();
-					computeBundleMap(ret);
+					ret = updateBundleMap(base, pending);
+				} catch (RuntimeException e) {
+					ret = null; // the circuit changed under us; start afresh
+				}
+			}
+			if (ret == null)
+				ret = computeBundleMap();
+			ret.appliedEdits = applied;
+
+			// Publish the new map unless another thread beat us to it, in
+			// which case theirs will do.
+			synchronized (this) {
+				if (bundleMap == base) {
 					bundleMap = ret;
-					break;
-				} catch (Throwable t) {
-					if (tries == 0) {
-						t.printStackTrace();
-						bundleMap = ret;
-					}
+					int done = edits.size() - (editCount - applied);
+					if (done > 0)
+						edits.subList(0, done).clear();
+					BundleMap old = ret;
+					for (int i = 0; old != null && i < MAX_HISTORY; i++)
+						old = old.previous;
+					if (old != null)
+						old.previous = null;
+					return ret;
+				} else if (bundleMap != null) {
+					return bundleMap;
 				}
 			}
-		} catch (RuntimeException ex) {
-			ret.invalidate();
-			ret.markComputed();
-			throw ex;
-		} finally {
-			// Mark the BundleMap as computed in case anybody is waiting for the
-			// result.
-			ret.markComputed();
 		}
-		return ret;
 	}
 
 	public Iterator<? extends Component> getComponents() {
 		return IteratorUtil.createJoinedIterator(splitters.iterator(), wires.iterator());
 	}
 
-	private Value getThreadValue(CircuitState state, WireThread t) {
+	PointIndex getPointIndex() {
+		return getBundleMap().pointIndex;
+	}
+
+	private Value getThreadValue(CircuitState state, WireThread t, boolean useIds) {
 		Value ret = Value.UNKNOWN;
 		Value pull = Value.UNKNOWN;
 		for (ThreadBundle tb : t.getBundles()) {
-			for (Location p : tb.b.points) {
-				Value val = state.getComponentOutputAt(p);
-				if (val != null && val != Value.NIL) {
-					ret = ret.combine(val.get(tb.loc));
+			int[] ids = tb.b.pointIds;
+			if (useIds && ids != null) {
+				for (int id : ids) {
+					Value val = state.getComponentOutputAt(id);
+					if (val != Value.NIL) {
+						ret = ret.combine(val.get(tb.loc));
+					}
+				}
+			} else {
+				for (Location p : tb.b.points) {
+					Value val = state.getComponentOutputAt(p);
+					if (val != null && val != Value.NIL) {
+						ret = ret.combine(val.get(tb.loc));
+					}
 				}
 			}
 			Value pullHere = tb.b.getPullValue();
@@ -648,6 +779,23 @@ public class CircuitWires {
 		return getBundleMap().getWidthIncompatibilityData();
 	}
 
+	private HashMap<String, ArrayList<Component>> getTunnelSets(Collection<Component> tunnels) {
+		// determine the sets of tunnels
+		HashMap<String, ArrayList<Component>> tunnelSets = new HashMap<String, ArrayList<Component>>();
+		for (Component comp : tunnels) {
+			String label = getTunnelLabel(comp);
+			if (!label.equals("")) {
+				ArrayList<Component> tunnelSet = tunnelSets.get(label);
+				if (tunnelSet == null) {
+					tunnelSet = new ArrayList<Component>(3);
+					tunnelSets.put(label, tunnelSet);
+				}
+				tunnelSet.add(comp);
+			}
+		}
+		return tunnelSets;
+	}
+
 	Bounds getWireBounds() {
 		Bounds bds = bounds;
 		if (bds == Bounds.EMPTY_BOUNDS) {
@@ -676,6 +824,52 @@ public class CircuitWires {
 		return new WireSet(wires);
 	}
 
+	private void indexPoints(BundleMap ret) {
+		PointIndex index = new PointIndex(points.getSplitLocations());
+		WireBundle[] bundlesById = new WireBundle[index.size()];
+		for (WireBundle b : ret.getBundles()) {
+			indexPoints(b, index, bundlesById);
+		}
+		ret.bundlesById = bundlesById;
+		ret.pointIndex = index;
+	}
+
+	private void indexPoints(WireBundle b, PointIndex index, WireBundle[] bundlesById) {
+		int[] ids = new int[b.points.size()];
+		int n = 0;
+		for (Location p : b.points) {
+			int id = index.getId(p);
+			if (id >= 0) {
+				bundlesById[id] = b;
+				if (n < ids.length)
+					ids[n] = id;
+				n++;
+			}
+		}
+		// leave pointIds null if the circuit changed under us
+		b.pointIds = n == ids.length ? ids : null;
+	}
+
+	void invalidate(Component comp) {
+		// a splitter may have remapped its bits without moving its ends
+		if (comp instanceof Splitter)
+			touch(comp, true);
+	}
+
+	private boolean isBundleChanged(BundleMap map, EndEdit e) {
+		WireBundle b = map.getBundleAt(e.loc);
+		if (b == null || e.width == BitWidth.UNKNOWN)
+			return false;
+		if (!b.isValid() || !e.width.equals(b.getWidth()))
+			return true;
+		// the bundle's width may have come from the removed end, or from
+		// another that disagrees with the added one
+		BitWidth now = points.getWidth(e.loc);
+		if (now != BitWidth.UNKNOWN && !now.equals(b.getWidth()))
+			return true;
+		return !e.added && e.loc.equals(b.getWidthDeterminant());
+	}
+
 	//
 	// query methods
 	//
@@ -686,15 +880,37 @@ public class CircuitWires {
 	//
 	// utility methods
 	//
-	void propagate(CircuitState circState, Set<Location> points) {
+	void propagate(CircuitState circState, Set<Location> points, BitSet dirtyIds) {
 		BundleMap map = getBundleMap();
+		// the ids are only meaningful if the state is laid out for this map
+		boolean useIds = map.pointIndex != null && circState.getPointIndex() == map.pointIndex;
 		SmallSet<WireThread> dirtyThreads = new SmallSet<WireThread>(); // affected
 																		// threads
 
 		// get state, or create a new one if current state is outdated
 		State s = circState.getWireData();
-		if (s == null || s.bundleMap != map) {
-			// if it is outdated, we need to compute for all threads
+		ArrayList<BundleMap> missed = new ArrayList<BundleMap>();
+		for (BundleMap m = map; s != null && m != null && m != s.bundleMap; m = m.previous) {
+			missed.add(m);
+		}
+		if (s != null && s.bundleMap != map && missed.get(missed.size() - 1).previous == s.bundleMap) {
+			// the map was updated from the state's: redo only what changed
+			for (BundleMap m : missed) {
+				for (WireBundle b : m.removedBundles) {
+					if (b.threads != null) {
+						for (WireThread t : b.threads)
+							s.thr_values.remove(t);
+					}
+				}
+			}
+			for (BundleMap m : missed) {
+				for (Location p : m.changedPoints) {
+					propagatePoint(circState, p, map.getBundleAt(p), dirtyThreads);
+				}
+			}
+			s.bundleMap = map;
+		} else if (s == null || s.bundleMap != map) {
+			// if it is outdated, we need to compute for all points and threads
 			s = new State(map);
 			for (WireBundle b : map.getBundles()) {
 				WireThread[] th = b.threads;
@@ -704,31 +920,25 @@ public class CircuitWires {
 					}
 				}
 			}
+			if (map.pointIndex != null) {
+				for (int id = 0; id < map.pointIndex.size(); id++) {
+					Location p = map.pointIndex.getLocation(id);
+					propagatePoint(circState, p, map.getBundleAt(p), dirtyThreads);
+				}
+			}
 			circState.setWireData(s);
 		}
 
 		// determine affected threads, and set values for unwired points
 		for (Location p : points) {
-			WireBundle pb = map.getBundleAt(p);
-			if (pb == null) { // point is not wired
-				circState.setValueByWire(p, circState.getComponentOutputAt(p));
-			} else {
-				WireThread[] th = pb.threads;
-				if (!pb.isValid() || th == null) {
-					// immediately propagate NILs across invalid bundles
-					SmallSet<Location> pbPoints = pb.points;
-					if (pbPoints == null) {
-						circState.setValueByWire(p, Value.NIL);
-					} else {
-						for (Location loc2 : pbPoints) {
-							circState.setValueByWire(loc2, Value.NIL);
-						}
-					}
-				} else {
-					for (WireThread t : th) {
-						dirtyThreads.add(t);
-					}
-				}
+			propagatePoint(circState, p, map.getBundleAt(p), dirtyThreads);
+		}
+		if (dirtyIds != null) {
+			PointIndex index = circState.getPointIndex();
+			for (int id = dirtyIds.nextSetBit(0); id >= 0; id = dirtyIds.nextSetBit(id + 1)) {
+				Location p = index.getLocation(id);
+				WireBundle pb = useIds ? map.bundlesById[id] : map.getBundleAt(p);
+				propagatePoint(circState, p, pb, dirtyThreads);
 			}
 		}
 
@@ -738,7 +948,7 @@ public class CircuitWires {
 		// determine values of affected threads
 		HashSet<ThreadBundle> bundles = new HashSet<ThreadBundle>();
 		for (WireThread t : dirtyThreads) {
-			Value v = getThreadValue(circState, t);
+			Value v = getThreadValue(circState, t, useIds);
 			s.thr_values.put(t, v);
 			bundles.addAll(t.getBundles());
 		}
@@ -768,8 +978,38 @@ public class CircuitWires {
 			}
 
 			if (bv != null) {
-				for (Location p : b.points) {
-					circState.setValueByWire(p, bv);
+				int[] ids = b.pointIds;
+				if (useIds && ids != null) {
+					for (int id : ids) {
+						circState.setValueByWire(id, bv);
+					}
+				} else {
+					for (Location p : b.points) {
+						circState.setValueByWire(p, bv);
+					}
+				}
+			}
+		}
+	}
+
+	private void propagatePoint(CircuitState circState, Location p, WireBundle pb, SmallSet<WireThread> dirtyThreads) {
+		if (pb == null) { // point is not wired
+			circState.setValueByWire(p, circState.getComponentOutputAt(p));
+		} else {
+			WireThread[] th = pb.threads;
+			if (!pb.isValid() || th == null) {
+				// immediately propagate NILs across invalid bundles
+				SmallSet<Location> pbPoints = pb.points;
+				if (pbPoints == null) {
+					circState.setValueByWire(p, Value.NIL);
+				} else {
+					for (Location loc2 : pbPoints) {
+						circState.setValueByWire(loc2, Value.NIL);
+					}
+				}
+			} else {
+				for (WireThread t : th) {
+					dirtyThreads.add(t);
 				}
 			}
 		}
@@ -823,12 +1063,12 @@ public class CircuitWires {
 			}
 		}
 		points.remove(comp);
-		voidBundleMap();
+		touch(comp, false);
 	}
 
 	void remove(Component comp, EndData end) {
 		points.remove(comp, end);
-		voidBundleMap();
+		touch(comp, end, false);
 	}
 
 	private void removeWire(Wire w) {
@@ -848,13 +1088,187 @@ public class CircuitWires {
 	void replace(Component comp, EndData oldEnd, EndData newEnd) {
 		points.remove(comp, oldEnd);
 		points.add(comp, newEnd);
-		voidBundleMap();
+		touch(comp, oldEnd, false);
+		touch(comp, newEnd, true);
 	}
 
 	//
 	// helper methods
 	//
-	private void voidBundleMap() {
+	private void touch(Component comp, boolean added) {
+		if (comp instanceof Wire) {
+			Wire w = (Wire) comp;
+			touch(w.e0);
+			touch(w.e1);
+		} else {
+			for (EndData end : comp.getEnds()) {
+				touch(comp, end, added);
+			}
+			if (added && comp.getFactory() instanceof Tunnel)
+				touch(getTunnelLabel(comp));
+		}
+	}
+
+	private void touch(Component comp, EndData end, boolean added) {
+		if (end == null)
+			return;
+		if (isWiring(comp))
+			touch(end.getLocation());
+		else
+			touch(new EndEdit(end.getLocation(), end.getWidth(), added));
+	}
+
+	/**
+	 * Records an edit for the next update of the bundle map: a point whose
+	 * bundle may have changed, the label of tunnels that may have been
+	 * connected, or an EndEdit.
+	 */
+	private synchronized void touch(Object edit) {
+		editCount++;
+		if (bundleMap == null || edits.size() >= MAX_EDITS)
+			voidBundleMap();
+		else
+			edits.add(edit);
+	}
+
+	/**
+	 * Updates the bundles in the part of the circuit that the given edits may
+	 * have changed, sharing the rest with the base map. Returns null if that
+	 * part is so large that computing the map afresh would be as quick.
+	 */
+	private BundleMap updateBundleMap(BundleMap base, Object[] pending) {
+		PointIndex baseIndex = base.pointIndex;
+		if (baseIndex == null || baseIndex.size() > 2 * points.getSplitLocations().size() + MIN_REGION)
+			return null; // the index is mostly dead points; compact it
+		int limit = Math.max(MIN_REGION, baseIndex.size() / 4);
+
+		// find the region: every point connected to an edited one by the
+		// old bundles, or by the wires, splitters and tunnels there now
+		HashSet<Location> region = new HashSet<Location>();
+		ArrayList<Location> queue = new ArrayList<Location>();
+		ArrayList<String> labelQueue = new ArrayList<String>();
+		ArrayList<Location> unchanged = new ArrayList<Location>(); // to index
+		for (Object edit : pending) {
+			if (edit instanceof Location) {
+				if (region.add((Location) edit))
+					queue.add((Location) edit);
+			} else if (edit instanceof String) {
+				labelQueue.add((String) edit);
+			} else {
+				EndEdit e = (EndEdit) edit;
+				if (!isBundleChanged(base, e)) {
+					unchanged.add(e.loc);
+				} else if (region.add(e.loc)) {
+					queue.add(e.loc);
+				}
+			}
+		}
+		HashSet<WireBundle> oldBundles = new HashSet<WireBundle>();
+		HashSet<Wire> regionWires = new HashSet<Wire>();
+		HashSet<Splitter> regionSplitters = new HashSet<Splitter>();
+		ArrayList<Component> regionTunnels = new ArrayList<Component>();
+		HashSet<Component> regionPulls = new HashSet<Component>();
+		HashMap<String, ArrayList<Component>> tunnelSets = null;
+		HashSet<String> labels = new HashSet<String>();
+		while (!queue.isEmpty() || !labelQueue.isEmpty()) {
+			if (!labelQueue.isEmpty()) {
+				String label = labelQueue.remove(labelQueue.size() - 1);
+				if (label.equals("") || !labels.add(label))
+					continue;
+				if (tunnelSets == null)
+					tunnelSets = getTunnelSets(tunnels);
+				ArrayList<Component> tunnelSet = tunnelSets.get(label);
+				if (tunnelSet != null) {
+					for (Component comp : tunnelSet) {
+						regionTunnels.add(comp);
+						if (region.add(comp.getLocation()))
+							queue.add(comp.getLocation());
+					}
+				}
+				continue;
+			}
+
+			Location p = queue.remove(queue.size() - 1);
+			WireBundle b = base.getBundleAt(p);
+			if (b != null && oldBundles.add(b)) {
+				for (Location q : b.points) {
+					if (region.add(q))
+						queue.add(q);
+				}
+			}
+			for (Component comp : points.getComponents(p)) {
+				if (comp instanceof Wire) {
+					Wire w = (Wire) comp;
+					if (regionWires.add(w)) {
+						Location q = w.e0.equals(p) ? w.e1 : w.e0;
+						if (region.add(q))
+							queue.add(q);
+					}
+				} else if (comp instanceof Splitter) {
+					if (regionSplitters.add((Splitter) comp)) {
+						for (EndData end : comp.getEnds()) {
+							if (region.add(end.getLocation()))
+								queue.add(end.getLocation());
+						}
+					}
+				} else if (comp.getFactory() instanceof Tunnel) {
+					labelQueue.add(getTunnelLabel(comp));
+				} else if (comp.getFactory() instanceof PullResistor) {
+					regionPulls.add(comp);
+				}
+			}
+			if (region.size() > limit)
+				return null;
+		}
+
+		// rebuild the region's bundles; the index will splice them into the
+		// rest
+		BundleMap ret = new BundleMap();
+		computeBundles(ret, regionWires, regionTunnels, regionPulls, regionSplitters);
+		for (WireBundle b : base.invalidBundles) {
+			if (!oldBundles.contains(b))
+				ret.invalidBundles.add(b);
+		}
+		computeIncompatibilityData(ret, ret.getBundles());
+
+		// number any new points after the old ones, so that circuit states
+		// can keep their arrays
+		ArrayList<Location> indexed = new ArrayList<Location>(region.size() + unchanged.size());
+		for (Location p : region) {
+			if (points.getComponentCount(p) > 0)
+				indexed.add(p);
+		}
+		for (Location p : unchanged) {
+			if (points.getComponentCount(p) > 0)
+				indexed.add(p);
+		}
+		PointIndex index = baseIndex.extend(indexed);
+		WireBundle[] bundlesById = Arrays.copyOf(base.bundlesById, index.size());
+		for (Location p : region) {
+			int id = index.getId(p);
+			if (id >= 0)
+				bundlesById[id] = null;
+		}
+		for (Location p : unchanged) {
+			int id = index.getId(p);
+			if (id >= base.bundlesById.length && !region.contains(p))
+				bundlesById[id] = base.getBundleAt(p);
+		}
+		for (WireBundle b : ret.getBundles()) {
+			indexPoints(b, index, bundlesById);
+		}
+		ret.pointIndex = index;
+		ret.bundlesById = bundlesById;
+
+		ret.previous = base;
+		ret.changedPoints = region.toArray(new Location[region.size()]);
+		ret.removedBundles = oldBundles.toArray(new WireBundle[oldBundles.size()]);
+		return ret;
+	}
+
+	/** Drops the bundle map, so that the next one is computed afresh. */
+	synchronized void voidBundleMap() {
 		bundleMap = null;
+		edits.clear();
 	}
 }
@@ -0,0 +1,233 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Location;
+
+/**
+ * The acyclic part of a circuit's combinational logic, sorted into levels so
+ * that each component comes after every component driving its inputs. Used by
+ * the levelized simulation mode, which evaluates these components in a single
+ * ordered sweep instead of through the event queue. Components that are part
+ * of a feedback loop are left out and are simulated by events as usual.
+ */
+class CombinationalSchedule {
+	static boolean isCombinational(Component comp) {
+		Object ret = comp.getFactory().getFeature(ComponentFactory.COMBINATIONAL, comp.getAttributeSet());
+		return Boolean.TRUE.equals(ret);
+	}
+
+	private PointIndex index; // identifies the circuit revision
+	private Component[] order; // sorted by level
+	private int[] levels; // parallel to order
+	private HashMap<Component, Integer> positions = new HashMap<Component, Integer>();
+
+	CombinationalSchedule(Collection<Component> comps, CircuitWires wires, PointIndex index) {
+		this.index = index;
+
+		ArrayList<Component> cands = new ArrayList<Component>();
+		for (Component comp : comps) {
+			if (isCombinational(comp))
+				cands.add(comp);
+		}
+		int n = cands.size();
+
+		// a component feeds another if one of its outputs shares a wire thread
+		// with an input of the other
+		HashMap<Object, List<Integer>> readers = new HashMap<Object, List<Integer>>();
+		for (int i = 0; i < n; i++) {
+			for (EndData end : cands.get(i).getEnds()) {
+				if (end != null && end.isInput()) {
+					for (Object net : getNets(wires, end.getLocation())) {
+						List<Integer> list = readers.get(net);
+						if (list == null) {
+							list = new ArrayList<Integer>(2);
+							readers.put(net, list);
+						}
+						list.add(Integer.valueOf(i));
+					}
+				}
+			}
+		}
+		int[][] succs = new int[n][];
+		boolean[] cyclic = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			LinkedHashSet<Integer> succ = new LinkedHashSet<Integer>();
+			for (EndData end : cands.get(i).getEnds()) {
+				if (end != null && end.isOutput()) {
+					for (Object net : getNets(wires, end.getLocation())) {
+						List<Integer> list = readers.get(net);
+						if (list != null)
+							succ.addAll(list);
+					}
+				}
+			}
+			if (succ.remove(Integer.valueOf(i)))
+				cyclic[i] = true;
+			succs[i] = new int[succ.size()];
+			int k = 0;
+			for (Integer j : succ)
+				succs[i][k++] = j.intValue();
+		}
+
+		markCycles(succs, cyclic);
+		computeLevels(cands, succs, cyclic);
+	}
+
+	private void computeLevels(ArrayList<Component> cands, int[][] succs, boolean[] cyclic) {
+		int n = cands.size();
+		int[] indegree = new int[n];
+		for (int i = 0; i < n; i++) {
+			if (!cyclic[i]) {
+				for (int j : succs[i]) {
+					if (!cyclic[j])
+						indegree[j]++;
+				}
+			}
+		}
+
+		int[] level = new int[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < n; i++) {
+			if (!cyclic[i] && indegree[i] == 0)
+				queue[tail++] = i;
+		}
+		while (head < tail) {
+			int i = queue[head++];
+			for (int j : succs[i]) {
+				if (!cyclic[j]) {
+					if (level[i] + 1 > level[j])
+						level[j] = level[i] + 1;
+					if (--indegree[j] == 0)
+						queue[tail++] = j;
+				}
+			}
+		}
+
+		// sort by level, keeping the circuit's order within a level
+		Integer[] sorted = new Integer[tail];
+		for (int k = 0; k < tail; k++)
+			sorted[k] = Integer.valueOf(queue[k]);
+		final int[] lev = level;
+		Arrays.sort(sorted, new java.util.Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int ret = lev[a.intValue()] - lev[b.intValue()];
+				return ret != 0 ? ret : a.intValue() - b.intValue();
+			}
+		});
+		order = new Component[tail];
+		levels = new int[tail];
+		for (int k = 0; k < tail; k++) {
+			int i = sorted[k].intValue();
+			order[k] = cands.get(i);
+			levels[k] = level[i];
+			positions.put(order[k], Integer.valueOf(k));
+		}
+	}
+
+	private static Collection<?> getNets(CircuitWires wires, Location loc) {
+		WireBundle b = wires.getWireBundle(loc);
+		if (b == null)
+			return Collections.singleton(loc);
+		WireThread[] threads = b.threads;
+		if (!b.isValid() || threads == null)
+			return Collections.singleton(b);
+		return Arrays.asList(threads);
+	}
+
+	/** Marks every component lying on a cycle, using Tarjan's algorithm. */
+	private static void markCycles(int[][] succs, boolean[] cyclic) {
+		int n = succs.length;
+		int[] num = new int[n];
+		int[] low = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int sp = 0;
+		int[] callNode = new int[n];
+		int[] callEdge = new int[n];
+		int next = 1;
+		for (int root = 0; root < n; root++) {
+			if (num[root] != 0)
+				continue;
+			int depth = 0;
+			callNode[0] = root;
+			callEdge[0] = 0;
+			num[root] = low[root] = next++;
+			stack[sp++] = root;
+			onStack[root] = true;
+			while (depth >= 0) {
+				int v = callNode[depth];
+				if (callEdge[depth] < succs[v].length) {
+					int w = succs[v][callEdge[depth]++];
+					if (num[w] == 0) {
+						num[w] = low[w] = next++;
+						stack[sp++] = w;
+						onStack[w] = true;
+						depth++;
+						callNode[depth] = w;
+						callEdge[depth] = 0;
+					} else if (onStack[w] && num[w] < low[v]) {
+						low[v] = num[w];
+					}
+				} else {
+					if (low[v] == num[v]) {
+						int w = stack[--sp];
+						onStack[w] = false;
+						if (w != v) {
+							cyclic[w] = true;
+							cyclic[v] = true;
+							do {
+								w = stack[--sp];
+								onStack[w] = false;
+								cyclic[w] = true;
+							} while (w != v);
+						}
+					}
+					depth--;
+					if (depth >= 0) {
+						int u = callNode[depth];
+						if (low[v] < low[u])
+							low[u] = low[v];
+					}
+				}
+			}
+		}
+	}
+
+	Component get(int position) {
+		return order[position];
+	}
+
+	PointIndex getIndex() {
+		return index;
+	}
+
+	int getLevel(int position) {
+		return levels[position];
+	}
+
+	/** Returns the component's position in the sweep, or -1 if it isn't part of it. */
+	int getPosition(Component comp) {
+		Integer ret = positions.get(comp);
+		return ret == null ? -1 : ret.intValue();
+	}
+
+	int size() {
+		return order.length;
+	}
+}
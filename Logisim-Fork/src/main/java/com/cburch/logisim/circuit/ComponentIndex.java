@@ -0,0 +1,260 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+/**
+ * A uniform grid over a circuit's components and wires, so that finding what
+ * lies at a point or within a region only looks at nearby components. Each
+ * component is listed in every cell its bounds overlap.
+ *
+ * A component's bounds can change after it is added, and the bounds of its
+ * label depend on a Graphics, so components are re-indexed lazily: those
+ * that may have changed are marked dirty, and those not yet measured with a
+ * Graphics are kept as unmeasured; both are brought up to date at the start
+ * of the next query that needs them.
+ */
+class ComponentIndex {
+	// the bounds a component was indexed under; it also watches the
+	// component's attributes, since most changes to bounds come from them
+	private class Entry implements AttributeListener {
+		private Component comp;
+		private long seq;
+		private Bounds bounds;
+
+		private Entry(Component comp, long seq) {
+			this.comp = comp;
+			this.seq = seq;
+		}
+
+		@Override
+		public void attributeListChanged(AttributeEvent e) {
+		}
+
+		@Override
+		public void attributeValueChanged(AttributeEvent e) {
+			invalidate(comp);
+		}
+	}
+
+	private static final Comparator<Entry> BY_SEQ = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			return Long.compare(a.seq, b.seq);
+		}
+	};
+
+	private static final int CELL_BITS = 7;
+
+	// Component.contains allows a point to be a pixel outside the bounds
+	private static final int SLACK = 2;
+
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	private HashMap<Long, ArrayList<Component>> cells = new HashMap<Long, ArrayList<Component>>();
+	private HashMap<Component, Entry> indexed = new HashMap<Component, Entry>();
+	private LinkedHashSet<Component> dirty = new LinkedHashSet<Component>();
+	private LinkedHashSet<Component> unmeasured = new LinkedHashSet<Component>();
+	private long nextSeq = 0;
+
+	public synchronized void add(Component comp) {
+		if (indexed.containsKey(comp))
+			return;
+		Entry entry = new Entry(comp, nextSeq++);
+		indexed.put(comp, entry);
+		insert(entry, comp.getBounds());
+		unmeasured.add(comp);
+		if (!(comp instanceof Wire))
+			comp.getAttributeSet().addAttributeListener(entry);
+	}
+
+	public synchronized void addAll(Collection<? extends Component> comps) {
+		for (Component comp : comps)
+			add(comp);
+	}
+
+	/** Removes everything, including the listeners on the components. */
+	public synchronized void clear() {
+		for (Entry entry : indexed.values()) {
+			if (!(entry.comp instanceof Wire))
+				entry.comp.getAttributeSet().removeAttributeListener(entry);
+		}
+		cells.clear();
+		indexed.clear();
+		dirty.clear();
+		unmeasured.clear();
+	}
+
+	private void flush(Graphics g) {
+		if (g == null) {
+			if (dirty.isEmpty())
+				return;
+			for (Component comp : dirty) {
+				Entry entry = indexed.get(comp);
+				remove(entry);
+				insert(entry, comp.getBounds());
+				unmeasured.add(comp);
+			}
+			dirty.clear();
+		} else {
+			if (dirty.isEmpty() && unmeasured.isEmpty())
+				return;
+			unmeasured.addAll(dirty);
+			for (Component comp : unmeasured) {
+				Entry entry = indexed.get(comp);
+				remove(entry);
+				insert(entry, comp.getBounds(g).add(comp.getBounds()));
+			}
+			dirty.clear();
+			unmeasured.clear();
+		}
+	}
+
+	/** Returns the components containing a point, using g for labels if given. */
+	public synchronized ArrayList<Component> getAllContaining(Location pt, Graphics g) {
+		flush(g);
+		ArrayList<Component> ret = new ArrayList<Component>();
+		ArrayList<Component> cell = cells.get(key(pt.getX() >> CELL_BITS, pt.getY() >> CELL_BITS));
+		if (cell != null) {
+			for (Component comp : cell) {
+				if (g == null ? comp.contains(pt) : comp.contains(pt, g))
+					ret.add(comp);
+			}
+		}
+		return ret;
+	}
+
+	/** Returns the components lying entirely within a region. */
+	public synchronized ArrayList<Component> getAllWithin(Bounds bds, Graphics g) {
+		flush(g);
+		ArrayList<Component> ret = new ArrayList<Component>();
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				ArrayList<Component> cell = cells.get(key(cx, cy));
+				if (cell == null)
+					continue;
+				for (Component comp : cell) {
+					// a component spanning several cells is reported only
+					// from the first of them that the region covers
+					Bounds at = indexed.get(comp).bounds;
+					if (cx != Math.max(x0, at.getX() >> CELL_BITS) || cy != Math.max(y0, at.getY() >> CELL_BITS))
+						continue;
+					if (bds.contains(g == null ? comp.getBounds() : comp.getBounds(g)))
+						ret.add(comp);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the components whose bounds, including any label measured with
+	 * g, may meet a region, in the order they were added, so that drawing
+	 * them in this order layers them as before.
+	 */
+	public synchronized ArrayList<Component> getAllIntersecting(Bounds bds, Graphics g) {
+		flush(g);
+		ArrayList<Entry> found = new ArrayList<Entry>();
+		int bx1 = bds.getX() + bds.getWidth();
+		int by1 = bds.getY() + bds.getHeight();
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = bx1 >> CELL_BITS;
+		int y1 = by1 >> CELL_BITS;
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				ArrayList<Component> cell = cells.get(key(cx, cy));
+				if (cell == null)
+					continue;
+				for (Component comp : cell) {
+					Entry entry = indexed.get(comp);
+					Bounds at = entry.bounds;
+					if (cx != Math.max(x0, at.getX() >> CELL_BITS) || cy != Math.max(y0, at.getY() >> CELL_BITS))
+						continue;
+					if (at.getX() <= bx1 && bds.getX() <= at.getX() + at.getWidth() && at.getY() <= by1
+							&& bds.getY() <= at.getY() + at.getHeight())
+						found.add(entry);
+				}
+			}
+		}
+		Collections.sort(found, BY_SEQ);
+		ArrayList<Component> ret = new ArrayList<Component>(found.size());
+		for (Entry entry : found)
+			ret.add(entry.comp);
+		return ret;
+	}
+
+	private void insert(Entry entry, Bounds bds) {
+		if (bds == null)
+			bds = Bounds.create(entry.comp.getLocation());
+		bds = bds.expand(SLACK);
+		entry.bounds = bds;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int cx = bds.getX() >> CELL_BITS; cx <= x1; cx++) {
+			for (int cy = bds.getY() >> CELL_BITS; cy <= y1; cy++) {
+				Long k = Long.valueOf(key(cx, cy));
+				ArrayList<Component> cell = cells.get(k);
+				if (cell == null) {
+					cell = new ArrayList<Component>(4);
+					cells.put(k, cell);
+				}
+				cell.add(entry.comp);
+			}
+		}
+	}
+
+	/** Notes that a component's bounds may have changed. */
+	public synchronized void invalidate(Component comp) {
+		if (indexed.containsKey(comp))
+			dirty.add(comp);
+	}
+
+	public synchronized void remove(Component comp) {
+		Entry entry = indexed.remove(comp);
+		if (entry == null)
+			return;
+		dirty.remove(comp);
+		unmeasured.remove(comp);
+		remove(entry);
+		if (!(comp instanceof Wire))
+			comp.getAttributeSet().removeAttributeListener(entry);
+	}
+
+	private void remove(Entry entry) {
+		Bounds bds = entry.bounds;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int cx = bds.getX() >> CELL_BITS; cx <= x1; cx++) {
+			for (int cy = bds.getY() >> CELL_BITS; cy <= y1; cy++) {
+				Long k = Long.valueOf(key(cx, cy));
+				ArrayList<Component> cell = cells.get(k);
+				if (cell != null) {
+					cell.remove(entry.comp);
+					if (cell.isEmpty())
+						cells.remove(k);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+/**
+ * Collects the part of a circuit whose drawing propagation in one
+ * CircuitState may have changed: the bounds of the components propagated
+ * and the points whose values changed, which cover the wires of their
+ * bundles. A canvas installs one in the state it shows with
+ * CircuitState.setDamageRegion and takes the region after each propagation,
+ * so as to repaint only that much.
+ */
+public class DamageRegion {
+	// how far drawing for a value may reach past a component's bounds or a
+	// point, for pin markers, bus widths and connection dots
+	private static final int MARGIN = 5;
+
+	private boolean all = true;
+	private int x0 = Integer.MAX_VALUE;
+	private int y0 = Integer.MAX_VALUE;
+	private int x1 = Integer.MIN_VALUE;
+	private int y1 = Integer.MIN_VALUE;
+
+	synchronized void add(Component comp) {
+		if (all)
+			return;
+		Bounds bds = comp.getBounds();
+		if (bds == null || bds == Bounds.EMPTY_BOUNDS) {
+			add(comp.getLocation());
+			return;
+		}
+		x0 = Math.min(x0, bds.getX() - MARGIN);
+		y0 = Math.min(y0, bds.getY() - MARGIN);
+		x1 = Math.max(x1, bds.getX() + bds.getWidth() + MARGIN);
+		y1 = Math.max(y1, bds.getY() + bds.getHeight() + MARGIN);
+	}
+
+	synchronized void add(Location loc) {
+		if (all)
+			return;
+		x0 = Math.min(x0, loc.getX() - MARGIN);
+		y0 = Math.min(y0, loc.getY() - MARGIN);
+		x1 = Math.max(x1, loc.getX() + MARGIN);
+		y1 = Math.max(y1, loc.getY() + MARGIN);
+	}
+
+	/** Notes that anything in the circuit may have changed. */
+	public synchronized void addAll() {
+		all = true;
+	}
+
+	/**
+	 * Returns the region collected since the last call, which is
+	 * EMPTY_BOUNDS if nothing changed and null if anything may have, and
+	 * starts collecting afresh.
+	 */
+	public synchronized Bounds take() {
+		Bounds ret;
+		if (all)
+			ret = null;
+		else if (x0 > x1)
+			ret = Bounds.EMPTY_BOUNDS;
+		else
+			ret = Bounds.create(x0, y0, x1 - x0, y1 - y0);
+		all = false;
+		x0 = Integer.MAX_VALUE;
+		y0 = Integer.MAX_VALUE;
+		x1 = Integer.MIN_VALUE;
+		y1 = Integer.MIN_VALUE;
+		return ret;
+	}
+}
@@ -0,0 +1,42 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.PriorityQueue;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * The original binary heap queue. It makes no assumption about the delays
+ * involved, so it is kept as the reference against which the other queues are
+ * checked.
+ */
+class HeapPropagationQueue implements PropagationQueue {
+	private PriorityQueue<SetData> queue = new PriorityQueue<SetData>();
+
+	@Override
+	public void add(SetData data) {
+		queue.add(data);
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public SetData peek() {
+		return queue.peek();
+	}
+
+	@Override
+	public SetData remove() {
+		return queue.poll();
+	}
+}
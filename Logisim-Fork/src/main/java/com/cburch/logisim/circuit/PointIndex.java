@@ -0,0 +1,126 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.cburch.logisim.data.Location;
+
+/**
+ * Assigns a dense integer id to each point of a circuit, so that per-point
+ * simulation data can be kept in flat arrays. An index describes the circuit
+ * as it was when the wires' bundle map was computed. It is never modified;
+ * when the circuit is edited, it is extended into a new index that keeps the
+ * old ids and numbers the new points after them, so that data laid out for
+ * the old index stays valid as a prefix of the new one.
+ */
+class PointIndex {
+	private static int hash(Location loc) {
+		// Location's own hash code is poorly spread for grid-aligned points
+		int h = loc.getX() * 0x9E3779B1 + loc.getY() * 0x85EBCA77;
+		return h ^ (h >>> 15);
+	}
+
+	private Object lineage; // shared by an index and its extensions
+	private Location[] locations; // indexed by id
+	private Location[] keys; // open-addressed table
+	private int[] ids; // parallel to keys
+	private int mask;
+
+	PointIndex(Collection<Location> points) {
+		Location[] locs = points.toArray(new Location[points.size()]);
+		lineage = new Object();
+		allocate(locs.length);
+		int size = insert(locs, 0);
+		locations = size == locs.length ? locs : Arrays.copyOf(locs, size);
+	}
+
+	private PointIndex(PointIndex base, Location[] added) {
+		lineage = base.lineage;
+		int size = base.size();
+		Location[] locs = Arrays.copyOf(base.locations, size + added.length);
+		System.arraycopy(added, 0, locs, size, added.length);
+		if (2 * locs.length <= base.keys.length) {
+			keys = base.keys.clone();
+			ids = base.ids.clone();
+			mask = base.mask;
+			size = insert(locs, size);
+		} else {
+			allocate(locs.length);
+			size = insert(locs, 0);
+		}
+		locations = size == locs.length ? locs : Arrays.copyOf(locs, size);
+	}
+
+	private void allocate(int size) {
+		int cap = 16;
+		while (cap < 2 * size)
+			cap <<= 1;
+		keys = new Location[cap];
+		ids = new int[cap];
+		mask = cap - 1;
+	}
+
+	/**
+	 * Returns an index that numbers the given points after those of this one,
+	 * or this index if it already knows them all.
+	 */
+	PointIndex extend(Collection<Location> points) {
+		Location[] added = new Location[points.size()];
+		int n = 0;
+		for (Location loc : points) {
+			if (getId(loc) < 0)
+				added[n++] = loc;
+		}
+		return n == 0 ? this : new PointIndex(this, Arrays.copyOf(added, n));
+	}
+
+	/**
+	 * Returns true if this index is an extension of the given one, so that ids
+	 * assigned by the other index mean the same here.
+	 */
+	boolean extendsIndex(PointIndex other) {
+		return other.lineage == lineage && other.size() <= size();
+	}
+
+	/** Returns the id of the given point, or -1 if it is not indexed. */
+	int getId(Location loc) {
+		int slot = hash(loc) & mask;
+		while (true) {
+			Location key = keys[slot];
+			if (key == null)
+				return -1;
+			if (key.equals(loc))
+				return ids[slot];
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	Location getLocation(int id) {
+		return locations[id];
+	}
+
+	private int insert(Location[] locs, int start) {
+		// numbers locs[start..] from start on, compacting out duplicates
+		int size = start;
+		for (int i = start; i < locs.length; i++) {
+			Location loc = locs[i];
+			int slot = hash(loc) & mask;
+			while (keys[slot] != null && !keys[slot].equals(loc))
+				slot = (slot + 1) & mask;
+			if (keys[slot] == null) {
+				keys[slot] = loc;
+				ids[slot] = size;
+				locs[size] = loc;
+				size++;
+			}
+		}
+		return size;
+	}
+
+	int size() {
+		return locations.length;
+	}
+}
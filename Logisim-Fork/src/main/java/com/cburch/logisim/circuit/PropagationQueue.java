@@ -0,0 +1,23 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * The queue of pending value changes for a {@link Propagator}. Entries must be
+ * handed back ordered by time, and entries sharing the same time must come back
+ * in the order of their serial numbers.
+ */
+interface PropagationQueue {
+	void add(SetData data);
+
+	void clear();
+
+	boolean isEmpty();
+
+	SetData peek();
+
+	SetData remove();
+}
@@ -4,11 +4,13 @@
 package com.cburch.logisim.circuit;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -61,10 +63,32 @@ public class Propagator {
 				e.getSource().removeAttributeListener(this);
 			} else if (e.getAttribute().equals(Options.sim_rand_attr)) {
 				p.updateRandomness();
+			} else if (e.getAttribute().equals(Options.sim_queue_attr)) {
+				p.updateQueueType();
+			} else if (e.getAttribute().equals(Options.sim_mode_attr)) {
+				p.updateMode();
+			} else if (e.getAttribute().equals(Options.sim_threads_attr)) {
+				p.updateThreads();
 			}
 		}
 	}
 
+	private static class PendingValue {
+		CircuitState state;
+		Location loc;
+		Value val;
+		Component cause;
+		int delay;
+
+		PendingValue(CircuitState state, Location loc, Value val, Component cause, int delay) {
+			this.state = state;
+			this.loc = loc;
+			this.val = val;
+			this.cause = cause;
+			this.delay = delay;
+		}
+	}
+
 	static class SetData implements Comparable<SetData> {
 		int time;
 		int serialNumber;
@@ -73,8 +97,12 @@ public class Propagator {
 		Location loc; // the location at which value is emitted
 		Value val; // value being emitted
 		SetData next = null;
+		SetData queueNext = null; // used by WheelPropagationQueue
 
-		private SetData(int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
+		private SetData() {
+		}
+
+		private void init(int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
 			this.time = time;
 			this.serialNumber = serialNumber;
 			this.state = state;
@@ -86,8 +114,7 @@ public class Propagator {
 		public SetData cloneFor(CircuitState newState) {
 			Propagator newProp = newState.getPropagator();
 			int dtime = newProp.clock - state.getPropagator().clock;
-			SetData ret = new SetData(time + dtime, newProp.setDataSerialNumber, newState, loc, cause, val);
-			newProp.setDataSerialNumber++;
+			SetData ret = newProp.obtainSetData(time + dtime, newState, loc, cause, val);
 			if (this.next != null)
 				ret.next = this.next.cloneFor(newState);
 			return ret;
@@ -109,8 +136,42 @@ public class Propagator {
 		}
 	}
 
+	/**
+	 * Processes one substate (and those below it) on the fork/join pool,
+	 * holding back the values it sets so they can be queued in order later.
+	 */
+	private class SubstateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private CircuitState state;
+		private boolean points;
+		private ArrayList<PendingValue> pending = new ArrayList<PendingValue>();
+
+		SubstateTask(CircuitState state, boolean points) {
+			this.state = state;
+			this.points = points;
+		}
+
+		@Override
+		protected void compute() {
+			SubstateTask saved = currentTask.get();
+			currentTask.set(this);
+			try {
+				if (points)
+					state.processDirtyPoints();
+				else
+					state.processDirtyComponents();
+			} finally {
+				currentTask.set(saved);
+			}
+		}
+	}
+
 	static int lastId = 0;
 
+	/** The most SetData records kept around for reuse by each propagator. */
+	private static final int MAX_FREE_SET_DATA = 1024;
+
 	//
 	// static methods
 	//
@@ -138,7 +199,14 @@ public class Propagator {
 	 * Logisim (though they wouldn't oscillate in practice).
 	 */
 	private volatile int simRandomShift;
-	private PriorityQueue<SetData> toProcess = new PriorityQueue<SetData>();
+	private volatile boolean useWheel;
+	private volatile boolean levelized;
+	private volatile boolean parallel;
+	private volatile SimulationProfiler profiler = null;
+	/** True while substates are being processed on other threads. */
+	private volatile boolean forked = false;
+	private ThreadLocal<SubstateTask> currentTask = new ThreadLocal<SubstateTask>();
+	private PropagationQueue toProcess;
 	private int clock = 0;
 	private boolean isOscillating = false;
 	private boolean oscAdding = false;
@@ -148,6 +216,8 @@ public class Propagator {
 
 	private int noiseCount = 0;
 	private int setDataSerialNumber = 0;
+	private SetData freeSetData = null; // recycled records, linked through next
+	private int freeSetDataCount = 0;
 
 	int id = lastId++;
 
@@ -156,21 +226,26 @@ public class Propagator {
 		Listener l = new Listener(this);
 		root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
 		updateRandomness();
+		updateQueueType();
+		updateMode();
+		updateThreads();
+		toProcess = useWheel ? new WheelPropagationQueue() : new HeapPropagationQueue();
 	}
 
 	private SetData addCause(CircuitState state, SetData head, SetData data) {
 		if (data.val == null) { // actually, it should be removed
-			return removeCause(state, head, data.loc, data.cause);
+			SetData ret = removeCause(state, head, data.loc, data.cause);
+			recycleSetData(data);
+			return ret;
 		}
 
-		Map<Location, SetData> causes = state.causes;
-
 		// first check whether this is change of previous info.
 		boolean replaced = false;
 		for (SetData n = head; n != null; n = n.next) {
 			if (n.cause == data.cause) {
 				n.val = data.val;
 				replaced = true;
+				recycleSetData(data);
 				break;
 			}
 		}
@@ -178,7 +253,7 @@ public class Propagator {
 		// otherwise, insert to list of causes
 		if (!replaced) {
 			if (head == null) {
-				causes.put(data.loc, data);
+				state.setCauses(data.loc, data);
 				head = data;
 			} else {
 				data.next = head.next;
@@ -189,13 +264,28 @@ public class Propagator {
 		return head;
 	}
 
+	private void applyValue(CircuitState state, SetData data) {
+		Location loc = data.loc;
+
+		// change the information about value (data may be recycled here)
+		SetData oldHead = state.getCauses(loc);
+		Value oldVal = computeValue(oldHead);
+		SetData newHead = addCause(state, oldHead, data);
+		Value newVal = computeValue(newHead);
+
+		// if the value at point has changed, propagate it
+		if (!newVal.equals(oldVal)) {
+			state.markPointAsDirty(loc);
+		}
+	}
+
 	//
 	// private methods
 	//
 	void checkComponentEnds(CircuitState state, Component comp) {
 		for (EndData end : comp.getEnds()) {
 			Location loc = end.getLocation();
-			SetData oldHead = state.causes.get(loc);
+			SetData oldHead = state.getCauses(loc);
 			Value oldVal = computeValue(oldHead);
 			SetData newHead = removeCause(state, oldHead, loc, comp);
 			Value newVal = computeValue(newHead);
@@ -209,6 +299,16 @@ public class Propagator {
 		}
 	}
 
+	private void checkQueueType() {
+		boolean wheel = useWheel;
+		if ((toProcess instanceof WheelPropagationQueue) != wheel) {
+			PropagationQueue old = toProcess;
+			toProcess = wheel ? new WheelPropagationQueue() : new HeapPropagationQueue();
+			while (!old.isEmpty())
+				toProcess.add(old.remove());
+		}
+	}
+
 	private void clearDirtyComponents() {
 		root.processDirtyComponents();
 	}
@@ -225,6 +325,11 @@ public class Propagator {
 	//
 	// public methods
 	//
+	/** Returns the profiler this propagator reports to, or null if none. */
+	public SimulationProfiler getProfiler() {
+		return profiler;
+	}
+
 	CircuitState getRootState() {
 		return root;
 	}
@@ -233,6 +338,14 @@ public class Propagator {
 		return ticks;
 	}
 
+	boolean isLevelized() {
+		return levelized;
+	}
+
+	boolean isParallel() {
+		return parallel && ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+
 	public boolean isOscillating() {
 		return isOscillating;
 	}
@@ -269,11 +382,52 @@ public class Propagator {
 	 */
 
 	void locationTouched(CircuitState state, Location loc) {
-		if (oscAdding)
-			oscPoints.add(state, loc);
+		if (oscAdding) {
+			synchronized (oscPoints) {
+				oscPoints.add(state, loc);
+			}
+		}
+	}
+
+	private SetData obtainSetData(int time, CircuitState state, Location loc, Component cause, Value val) {
+		SetData ret = freeSetData;
+		if (ret == null) {
+			ret = new SetData();
+		} else {
+			freeSetData = ret.next;
+			freeSetDataCount--;
+			ret.next = null;
+		}
+		ret.init(time, setDataSerialNumber, state, loc, cause, val);
+		setDataSerialNumber++;
+		return ret;
+	}
+
+	/**
+	 * Processes sibling substates in parallel. The values that each one sets are
+	 * queued afterwards in sibling order, so the event queue ends up exactly as
+	 * it would if the substates had been processed one after another.
+	 */
+	void processInParallel(CircuitState[] substates, boolean points) {
+		ArrayList<SubstateTask> tasks = new ArrayList<SubstateTask>(substates.length);
+		for (CircuitState substate : substates)
+			tasks.add(new SubstateTask(substate, points));
+		boolean outermost = !forked;
+		forked = true;
+		try {
+			ForkJoinTask.invokeAll(tasks);
+		} finally {
+			if (outermost)
+				forked = false;
+		}
+		for (SubstateTask task : tasks) {
+			for (PendingValue v : task.pending)
+				setValue(v.state, v.loc, v.val, v.cause, v.delay);
+		}
 	}
 
 	public void propagate() {
+		checkQueueType();
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -300,16 +454,21 @@ public class Propagator {
 		oscPoints.clear();
 	}
 
+	private void recycleSetData(SetData data) {
+		if (!forked && freeSetDataCount < MAX_FREE_SET_DATA) {
+			data.init(0, 0, null, null, null, null);
+			data.next = freeSetData;
+			freeSetData = data;
+			freeSetDataCount++;
+		}
+	}
+
 	private SetData removeCause(CircuitState state, SetData head, Location loc, Component cause) {
-		Map<Location, SetData> causes = state.causes;
 		if (head == null) {
 			;
 		} else if (head.cause == cause) {
 			head = head.next;
-			if (head == null)
-				causes.remove(loc);
-			else
-				causes.put(loc, head);
+			state.setCauses(loc, head);
 		} else {
 			SetData prev = head;
 			SetData cur = head.next;
@@ -331,12 +490,38 @@ public class Propagator {
 		isOscillating = false;
 	}
 
+	/** Installs a profiler to report to, or removes it if value is null. */
+	public void setProfiler(SimulationProfiler value) {
+		profiler = value;
+	}
+
 	//
 	// package-protected helper methods
 	//
 	void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
 		if (cause instanceof Wire || cause instanceof Splitter)
 			return;
+		SimulationProfiler prof = profiler;
+		if (prof != null && cause != null)
+			prof.countEvent(state, cause);
+		if (cause == state.getImmediateCause() && cause != null) {
+			SetData data;
+			if (forked) {
+				data = new SetData();
+				data.init(clock, 0, state, pt, cause, val);
+			} else {
+				data = obtainSetData(clock, state, pt, cause, val);
+			}
+			applyValue(state, data);
+			return;
+		}
+		if (forked) {
+			SubstateTask task = currentTask.get();
+			if (task != null) {
+				task.pending.add(new PendingValue(state, pt, val, cause, delay));
+				return;
+			}
+		}
 		if (delay <= 0) {
 			delay = 1;
 		}
@@ -354,16 +539,15 @@ public class Propagator {
 				}
 			}
 		}
-		toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+		toProcess.add(obtainSetData(clock + delay, state, pt, cause, val));
 		/*
 		 * DEBUGGING - comment out Simulator.log(clock + ": set " + pt + " in " + state
 		 * + " to " + val + " by " + cause + " after " + delay); //
 		 */
-
-		setDataSerialNumber++;
 	}
 
 	void step(PropagationPoints changedPoints) {
+		checkQueueType();
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -382,6 +566,9 @@ public class Propagator {
 
 		// update clock
 		clock = toProcess.peek().time;
+		SimulationProfiler prof = profiler;
+		if (prof != null)
+			prof.countStep();
 
 		// propagate all values for this clock tick
 		HashMap<CircuitState, HashSet<ComponentPoint>> visited = new HashMap<CircuitState, HashSet<ComponentPoint>>();
@@ -395,8 +582,10 @@ public class Propagator {
 			// if it's already handled for this clock tick, continue
 			HashSet<ComponentPoint> handled = visited.get(state);
 			if (handled != null) {
-				if (!handled.add(new ComponentPoint(data.cause, data.loc)))
+				if (!handled.add(new ComponentPoint(data.cause, data.loc))) {
+					recycleSetData(data);
 					continue;
+				}
 			} else {
 				handled = new HashSet<ComponentPoint>();
 				visited.put(state, handled);
@@ -410,17 +599,7 @@ public class Propagator {
 
 			if (changedPoints != null)
 				changedPoints.add(state, data.loc);
-
-			// change the information about value
-			SetData oldHead = state.causes.get(data.loc);
-			Value oldVal = computeValue(oldHead);
-			SetData newHead = addCause(state, oldHead, data);
-			Value newVal = computeValue(newHead);
-
-			// if the value at point has changed, propagate it
-			if (!newVal.equals(oldVal)) {
-				state.markPointAsDirty(data.loc);
-			}
+			applyValue(state, data);
 		}
 
 		clearDirtyPoints();
@@ -447,4 +626,22 @@ public class Propagator {
 		simRandomShift = logVal;
 	}
 
+	private void updateMode() {
+		Options opts = root.getProject().getOptions();
+		Object mode = opts.getAttributeSet().getValue(Options.sim_mode_attr);
+		levelized = mode == Options.SIM_MODE_LEVELIZED;
+	}
+
+	private void updateThreads() {
+		Options opts = root.getProject().getOptions();
+		Object threads = opts.getAttributeSet().getValue(Options.sim_threads_attr);
+		parallel = threads == Options.SIM_THREADS_PARALLEL;
+	}
+
+	private void updateQueueType() {
+		Options opts = root.getProject().getOptions();
+		Object queue = opts.getAttributeSet().getValue(Options.sim_queue_attr);
+		useWheel = queue != Options.SIM_QUEUE_HEAP;
+	}
+
 }
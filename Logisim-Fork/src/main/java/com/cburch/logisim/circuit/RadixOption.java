@@ -61,6 +61,8 @@ public abstract class RadixOption extends AttributeOption {
 			case 32:
 				return 11; // 1G..2G
 			default:
+				if (width.getWidth() > 32) // digits of -2^(w-1), with its sign
+					return (int) ((width.getWidth() - 1) * LOG10_2) + 2;
 				return 1;
 			}
 		}
@@ -118,6 +120,8 @@ public abstract class RadixOption extends AttributeOption {
 			case 32:
 				return 10;
 			default:
+				if (width.getWidth() > 32) // digits of 2^w - 1
+					return (int) (width.getWidth() * LOG10_2) + 1;
 				return 1;
 			}
 		}
@@ -202,6 +206,8 @@ public abstract class RadixOption extends AttributeOption {
 	public static final Attribute<RadixOption> ATTRIBUTE = Attributes.forOption("radix", Strings.getter("radixAttr"),
 			OPTIONS);
 
+	private static final double LOG10_2 = Math.log10(2);
+
 	public static RadixOption decode(String value) {
 		for (RadixOption opt : OPTIONS) {
 			if (value.equals(opt.saveName)) {
@@ -0,0 +1,179 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.instance.StdAttr;
+
+/**
+ * Counts the events that components generate and the time spent propagating
+ * them, per component type, per component and per circuit state. A propagator
+ * only reports to a profiler while one is installed with
+ * {@link Propagator#setProfiler}, so profiling costs nothing otherwise.
+ *
+ * An event is a value that a component sends to one of its ends; a
+ * propagation is one call to the component's propagate method. The counts
+ * hold onto the components and states they mention until they are reset.
+ */
+public class SimulationProfiler {
+	public static class Entry {
+		private final Object key;
+		private final AtomicLong events = new AtomicLong();
+		private final AtomicLong propagations = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+
+		private Entry(Object key) {
+			this.key = key;
+		}
+
+		public long getEvents() {
+			return events.get();
+		}
+
+		public Object getKey() {
+			return key;
+		}
+
+		public String getName() {
+			if (key instanceof ComponentFactory) {
+				return ((ComponentFactory) key).getDisplayName();
+			} else if (key instanceof Component) {
+				return getComponentName((Component) key);
+			} else if (key instanceof CircuitState) {
+				return getStateName((CircuitState) key);
+			} else {
+				return String.valueOf(key);
+			}
+		}
+
+		public long getNanos() {
+			return nanos.get();
+		}
+
+		public long getPropagations() {
+			return propagations.get();
+		}
+
+		@Override
+		public String toString() {
+			return getName();
+		}
+	}
+
+	private static final Comparator<Entry> BY_TIME = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			int ret = Long.compare(b.getNanos(), a.getNanos());
+			return ret != 0 ? ret : Long.compare(b.getEvents(), a.getEvents());
+		}
+	};
+
+	private static String getComponentName(Component comp) {
+		StringBuilder ret = new StringBuilder(comp.getFactory().getDisplayName());
+		AttributeSet attrs = comp.getAttributeSet();
+		if (attrs.containsAttribute(StdAttr.LABEL)) {
+			String label = attrs.getValue(StdAttr.LABEL);
+			if (label != null && !label.equals(""))
+				ret.append(" \"").append(label).append('"');
+		}
+		ret.append(' ').append(comp.getLocation());
+		return ret.toString();
+	}
+
+	private static String getStateName(CircuitState state) {
+		String name = state.getCircuit().getName();
+		Component parentComp = state.getParentComponent();
+		CircuitState parent = state.getParentState();
+		if (parent == null || parentComp == null)
+			return name;
+		return getStateName(parent) + "/" + name + parentComp.getLocation();
+	}
+
+	private static List<Entry> sorted(ConcurrentHashMap<?, Entry> map) {
+		ArrayList<Entry> ret = new ArrayList<Entry>(map.values());
+		Collections.sort(ret, BY_TIME);
+		return ret;
+	}
+
+	private ConcurrentHashMap<ComponentFactory, Entry> factories = new ConcurrentHashMap<ComponentFactory, Entry>();
+	private ConcurrentHashMap<Component, Entry> components = new ConcurrentHashMap<Component, Entry>();
+	private ConcurrentHashMap<CircuitState, Entry> states = new ConcurrentHashMap<CircuitState, Entry>();
+	private AtomicLong steps = new AtomicLong();
+	private volatile long startTime = System.nanoTime();
+
+	void countEvent(CircuitState state, Component cause) {
+		entry(factories, cause.getFactory()).events.incrementAndGet();
+		entry(components, cause).events.incrementAndGet();
+		entry(states, state).events.incrementAndGet();
+	}
+
+	void countPropagation(CircuitState state, Component comp, long nanos) {
+		Entry e = entry(factories, comp.getFactory());
+		e.propagations.incrementAndGet();
+		e.nanos.addAndGet(nanos);
+		e = entry(components, comp);
+		e.propagations.incrementAndGet();
+		e.nanos.addAndGet(nanos);
+		e = entry(states, state);
+		e.propagations.incrementAndGet();
+		e.nanos.addAndGet(nanos);
+	}
+
+	void countStep() {
+		steps.incrementAndGet();
+	}
+
+	private <K> Entry entry(ConcurrentHashMap<K, Entry> map, K key) {
+		Entry ret = map.get(key);
+		if (ret == null) {
+			Entry e = new Entry(key);
+			ret = map.putIfAbsent(key, e);
+			if (ret == null)
+				ret = e;
+		}
+		return ret;
+	}
+
+	/** Returns the entries for each component, most time-consuming first. */
+	public List<Entry> getComponentEntries() {
+		return sorted(components);
+	}
+
+	/** Returns the time since the profiler was created or last reset. */
+	public long getElapsedNanos() {
+		return System.nanoTime() - startTime;
+	}
+
+	/** Returns the entries for each component type, most time-consuming first. */
+	public List<Entry> getFactoryEntries() {
+		return sorted(factories);
+	}
+
+	/** Returns the entries for each circuit state, most time-consuming first. */
+	public List<Entry> getStateEntries() {
+		return sorted(states);
+	}
+
+	/** Returns the number of simulation time steps processed. */
+	public long getStepCount() {
+		return steps.get();
+	}
+
+	public void reset() {
+		factories.clear();
+		components.clear();
+		states.clear();
+		steps.set(0);
+		startTime = System.nanoTime();
+	}
+}
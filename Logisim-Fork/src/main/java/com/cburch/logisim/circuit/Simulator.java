@@ -30,15 +30,33 @@ public class Simulator {
 		private volatile boolean propagateRequested = false;
 		private volatile boolean complete = false;
 
-		// These variables apply only if PRINT_TICK_RATE is set
-		int tickRateTicks = 0;
-		long tickRateStart = System.currentTimeMillis();
+		// for measuring the achieved tick frequency
+		private long tickRateTicks = 0;
+		private long tickRateStart = 0;
+		private volatile double tickRate = 0.0;
 
-		private void doTick() {
+		private boolean doTick() {
+			// requestTicks may have trimmed the count since it was last read
 			synchronized (this) {
+				if (ticksRequested <= 0)
+					return false;
 				ticksRequested--;
 			}
 			propagator.tick();
+			tickRateTicks++;
+			return true;
+		}
+
+		private void measureTickRate() {
+			long now = System.nanoTime();
+			if (tickRateStart == 0) {
+				tickRateStart = now;
+				tickRateTicks = 0;
+			} else if (now - tickRateStart >= TICK_RATE_NANOS) {
+				tickRate = 1e9 * tickRateTicks / (now - tickRateStart);
+				tickRateStart = now;
+				tickRateTicks = 0;
+			}
 		}
 
 		public Propagator getPropagator() {
@@ -59,13 +77,18 @@ public class Simulator {
 			}
 		}
 
-		public synchronized void requestTick() {
-			if (ticksRequested < 16) {
-				ticksRequested++;
-			}
+		public synchronized void requestTicks(int count) {
+			// the ticker drops ticks once we fall behind, so we needn't keep
+			// many more than a batch pending
+			ticksRequested = Math.min(ticksRequested + count, Math.max(MAX_TICKS_PENDING, count));
 			notifyAll();
 		}
 
+		synchronized void resetTickRate() {
+			tickRateStart = 0;
+			tickRate = 0.0;
+		}
+
 		@Override
 		public void run() {
 			while (!complete) {
@@ -96,25 +119,34 @@ public class Simulator {
 						if (propagator == null) {
 							ticksRequested = 0;
 						} else {
-							ticked = ticksRequested > 0;
-							if (ticked)
-								doTick();
+							// run the ticks handed over since the last pass as
+							// one batch, repainting only after the last; the
+							// batch ends early if requestTicks trims the count
+							int batch = ticksRequested;
 							do {
-								propagateRequested = false;
-								try {
-									exceptionEncountered = false;
-									propagator.propagate();
-								} catch (Throwable thr) {
-									thr.printStackTrace();
-									exceptionEncountered = true;
+								boolean tick = batch > 0 && doTick();
+								if (tick)
+									ticked = true;
+								batch = tick ? batch - 1 : 0;
+								do {
+									propagateRequested = false;
+									try {
+										exceptionEncountered = false;
+										propagator.propagate();
+									} catch (Throwable thr) {
+										thr.printStackTrace();
+										exceptionEncountered = true;
+										setIsRunning(false);
+									}
+								} while (propagateRequested);
+								if (isOscillating()) {
 									setIsRunning(false);
+									ticksRequested = 0;
+									propagateRequested = false;
 								}
-							} while (propagateRequested);
-							if (isOscillating()) {
-								setIsRunning(false);
-								ticksRequested = 0;
-								propagateRequested = false;
-							}
+							} while (batch > 0 && isRunning && !resetRequested && !complete);
+							if (ticked)
+								measureTickRate();
 						}
 					} else {
 						if (stepsRequested > 0) {
@@ -139,6 +171,9 @@ public class Simulator {
 					if (ticked)
 						fireTickCompleted();
 					firePropagationCompleted();
+					synchronized (this) {
+						notifyAll(); // for waitForTicks
+					}
 				}
 			}
 		}
@@ -151,12 +186,35 @@ public class Simulator {
 			complete = true;
 			notifyAll();
 		}
+
+		synchronized void waitForTicks() {
+			// for the ticker: returns once the ticks requested are done, or
+			// after a while regardless so the ticker can look around
+			long deadline = System.currentTimeMillis() + 100;
+			while (ticksRequested > 0 && !complete) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0)
+					break;
+				try {
+					wait(left);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
 	}
 
+	/** The tick frequency that asks for ticks as fast as they can be run. */
+	public static final double MAX_TICK_FREQUENCY = Double.POSITIVE_INFINITY;
+
+	private static final int MAX_TICKS_PENDING = 16;
+	private static final long TICK_RATE_NANOS = 500000000L;
+
 	private boolean isRunning = true;
 	private boolean isTicking = false;
 	private boolean exceptionEncountered = false;
 	private double tickFrequency = 1.0;
+	private SimulationProfiler profiler = new SimulationProfiler();
+	private volatile boolean profiling = false;
 
 	private PropagationManager manager;
 	private SimulatorTicker ticker;
@@ -212,6 +270,20 @@ public class Simulator {
 		return prop == null ? null : prop.getRootState();
 	}
 
+	/**
+	 * Returns the tick frequency achieved over the last half second or so, which
+	 * may fall short of the requested one if the circuit is slow to propagate.
+	 * Returns 0 if that isn't known yet.
+	 */
+	public double getActualTickFrequency() {
+		return manager.tickRate;
+	}
+
+	/** Returns the profiler that collects counts while profiling is on. */
+	public SimulationProfiler getProfiler() {
+		return profiler;
+	}
+
 	public double getTickFrequency() {
 		return tickFrequency;
 	}
@@ -225,6 +297,10 @@ public class Simulator {
 		return prop != null && prop.isOscillating();
 	}
 
+	public boolean isProfiling() {
+		return profiling;
+	}
+
 	public boolean isRunning() {
 		return isRunning;
 	}
@@ -238,7 +314,10 @@ public class Simulator {
 	}
 
 	private void renewTickerAwake() {
-		ticker.setAwake(isRunning && isTicking && tickFrequency > 0);
+		boolean awake = isRunning && isTicking && tickFrequency > 0;
+		if (!awake)
+			manager.resetTickRate();
+		ticker.setAwake(awake);
 	}
 
 	public void requestPropagate() {
@@ -250,10 +329,25 @@ public class Simulator {
 	}
 
 	public void setCircuitState(CircuitState state) {
-		manager.setPropagator(state.getPropagator());
+		Propagator old = manager.getPropagator();
+		if (old != null)
+			old.setProfiler(null);
+		Propagator prop = state.getPropagator();
+		prop.setProfiler(profiling ? profiler : null);
+		manager.setPropagator(prop);
 		renewTickerAwake();
 	}
 
+	public void setIsProfiling(boolean value) {
+		if (profiling != value) {
+			profiling = value;
+			Propagator prop = manager.getPropagator();
+			if (prop != null)
+				prop.setProfiler(value ? profiler : null);
+			fireSimulatorStateChanged();
+		}
+	}
+
 	public void setIsRunning(boolean value) {
 		if (isRunning != value) {
 			isRunning = value;
@@ -275,17 +369,10 @@ public class Simulator {
 
 	public void setTickFrequency(double freq) {
 		if (tickFrequency != freq) {
-			int millis = (int) Math.round(1000 / freq);
-			int ticks;
-			if (millis > 0) {
-				ticks = 1;
-			} else {
-				millis = 1;
-				ticks = (int) Math.round(freq / 1000);
-			}
-
 			tickFrequency = freq;
-			ticker.setTickFrequency(millis, ticks);
+			if (freq > 0)
+				ticker.setTickFrequency(freq);
+			manager.resetTickRate();
 			renewTickerAwake();
 			fireSimulatorStateChanged();
 		}
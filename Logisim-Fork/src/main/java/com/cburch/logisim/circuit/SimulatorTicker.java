@@ -3,10 +3,26 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands clock ticks to the propagation thread on a schedule kept in
+ * nanoseconds. Each wakeup passes along every tick that has come due as one
+ * batch, so the requested frequency can be higher than the rate at which this
+ * thread can be woken. Ticks that would put the propagation thread more than
+ * MAX_LAG_NANOS behind schedule are dropped, which the achieved frequency
+ * reported by the simulator reflects.
+ */
 class SimulatorTicker extends Thread {
+	private static final long MAX_LAG_NANOS = 50000000L;
+	// waits shorter than this are spun out, since parking overshoots them
+	private static final long SPIN_NANOS = 100000L;
+	// batch lengths in "as fast as possible" mode aim between these
+	private static final long MIN_BATCH_NANOS = 10000000L;
+	private static final long MAX_BATCH_NANOS = 40000000L;
+
 	private Simulator.PropagationManager manager;
-	private int ticksPerTickPhase;
-	private int millisPerTickPhase;
+	private long nanosPerTick; // 0 to tick as fast as possible
 
 	private boolean shouldTick;
 	private int ticksPending;
@@ -14,69 +30,82 @@ class SimulatorTicker extends Thread {
 
 	public SimulatorTicker(Simulator.PropagationManager manager) {
 		this.manager = manager;
-		ticksPerTickPhase = 1;
-		millisPerTickPhase = 1000;
+		nanosPerTick = 1000000000L;
 		shouldTick = false;
 		ticksPending = 0;
 		complete = false;
 	}
 
+	private synchronized boolean isChanged(boolean curShouldTick, long period) {
+		return complete || ticksPending > 0 || shouldTick != curShouldTick || nanosPerTick != period;
+	}
+
 	@Override
 	public void run() {
-		long lastTick = System.currentTimeMillis();
+		long nextTick = System.nanoTime();
+		int batch = 1; // for "as fast as possible" mode
 		while (true) {
-			boolean curShouldTick = shouldTick;
-			int millis = millisPerTickPhase;
-			int ticks = ticksPerTickPhase;
+			boolean curShouldTick;
+			long period;
+			int toTick;
 			try {
 				synchronized (this) {
-					curShouldTick = shouldTick;
-					millis = millisPerTickPhase;
-					ticks = ticksPerTickPhase;
-					while (!curShouldTick && ticksPending == 0 && !complete) {
+					while (!shouldTick && ticksPending == 0 && !complete) {
 						wait();
-						curShouldTick = shouldTick;
-						millis = millisPerTickPhase;
-						ticks = ticksPerTickPhase;
+						// don't try to make up for the time asleep
+						nextTick = System.nanoTime();
 					}
+					curShouldTick = shouldTick;
+					period = nanosPerTick;
+					toTick = ticksPending;
+					ticksPending = 0;
 				}
 			} catch (InterruptedException e) {
+				continue;
 			}
 
 			if (complete)
 				break;
 
-			int toTick;
-			long now = System.currentTimeMillis();
-			if (curShouldTick && now - lastTick >= millis) {
-				toTick = ticks;
-			} else {
-				toTick = ticksPending;
+			long now = System.nanoTime();
+			if (curShouldTick && period == 0) {
+				// keep the propagation thread busy with batches that last
+				// long enough to amortize the repaint after each
+				toTick += batch;
+				manager.requestTicks(toTick);
+				manager.waitForTicks();
+				long elapsed = System.nanoTime() - now;
+				if (elapsed < MIN_BATCH_NANOS && batch < (1 << 24))
+					batch *= 2;
+				else if (elapsed > MAX_BATCH_NANOS && batch > 1)
+					batch /= 2;
+				continue;
 			}
 
-			if (toTick > 0) {
-				lastTick = now;
-				for (int i = 0; i < toTick; i++) {
-					manager.requestTick();
-				}
-				synchronized (this) {
-					if (ticksPending > toTick)
-						ticksPending -= toTick;
-					else
-						ticksPending = 0;
+			if (curShouldTick && now - nextTick >= 0) {
+				long due = (now - nextTick) / period + 1;
+				long maxDue = Math.max(1, MAX_LAG_NANOS / period);
+				if (due > maxDue) {
+					due = maxDue;
+					nextTick = now + period;
+				} else {
+					nextTick += due * period;
 				}
-				// we fire tickCompleted in this thread so that other
-				// objects (in particular the repaint process) can slow
-				// the thread down.
+				toTick += (int) due;
 			}
+			if (toTick > 0)
+				manager.requestTicks(toTick);
 
-			try {
-				long nextTick = lastTick + millis;
-				int wait = (int) (nextTick - System.currentTimeMillis());
-				if (wait < 1)
-					wait = 0;
-				Thread.sleep(wait / 2); // this is shit and this way can go like 4KHz don't know why
-			} catch (InterruptedException e) {
+			// sleep until the next tick comes due, waking early if the
+			// schedule changes
+			while (curShouldTick && !isChanged(curShouldTick, period)) {
+				long left = nextTick - System.nanoTime();
+				if (left <= 0)
+					break;
+				if (left > SPIN_NANOS)
+					LockSupport.parkNanos(this, left - SPIN_NANOS);
+				else
+					Thread.yield();
 			}
 		}
 	}
@@ -85,20 +114,23 @@ class SimulatorTicker extends Thread {
 		shouldTick = value;
 		if (shouldTick)
 			notifyAll();
+		LockSupport.unpark(this);
 	}
 
-	public synchronized void setTickFrequency(int millis, int ticks) {
-		millisPerTickPhase = millis;
-		ticksPerTickPhase = ticks;
+	public synchronized void setTickFrequency(double freq) {
+		nanosPerTick = Double.isInfinite(freq) ? 0 : Math.max(1, Math.round(1e9 / freq));
+		LockSupport.unpark(this);
 	}
 
 	public synchronized void shutDown() {
 		complete = true;
 		notifyAll();
+		LockSupport.unpark(this);
 	}
 
 	public synchronized void tickOnce() {
 		ticksPending++;
 		notifyAll();
+		LockSupport.unpark(this);
 	}
-}
\ No newline at end of file
+}
@@ -39,9 +39,6 @@ public class Splitter extends ManagedComponent implements WireRepair, ToolTipMak
 	// basic data
 	byte[] bit_thread; // how each bit maps to thread within end
 
-	// derived data
-	CircuitWires.SplitterData wire_data;
-
 	public Splitter(Location loc, AttributeSet attrs) {
 		super(loc, attrs, 3);
 		configureComponent();
@@ -94,7 +91,6 @@ public class Splitter extends ManagedComponent implements WireRepair, ToolTipMak
 			x += dx;
 			y += dy;
 		}
-		wire_data = new CircuitWires.SplitterData(fanout);
 		setEnds(ends);
 		recomputeBounds();
 		fireComponentInvalidated(new ComponentEvent(this));
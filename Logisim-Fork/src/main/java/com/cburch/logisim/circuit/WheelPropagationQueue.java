@@ -0,0 +1,137 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * A timing wheel: one bucket per clock value, indexed by the time modulo the
+ * wheel size. Component delays are small integers, so the wheel only needs to
+ * span the largest pending delay, and adding or removing an entry is constant
+ * time. The wheel grows whenever the pending times would no longer fit, which
+ * guarantees each bucket holds entries for a single time only.
+ */
+class WheelPropagationQueue implements PropagationQueue {
+	private static final int INITIAL_SIZE = 64;
+
+	private SetData[] heads = new SetData[INITIAL_SIZE];
+	private SetData[] tails = new SetData[INITIAL_SIZE];
+	private int mask = INITIAL_SIZE - 1;
+	private int size = 0;
+	private int minTime; // no pending entry is earlier than this
+	private int maxTime; // no pending entry is later than this
+
+	@Override
+	public void add(SetData data) {
+		int time = data.time;
+		if (size == 0) {
+			minTime = time;
+			maxTime = time;
+		} else {
+			// subtractions so that wraparound of the clock is harmless
+			if (time - minTime < 0)
+				minTime = time;
+			if (time - maxTime > 0)
+				maxTime = time;
+			if (maxTime - minTime > mask)
+				grow(maxTime - minTime);
+		}
+
+		int slot = time & mask;
+		SetData tail = tails[slot];
+		data.queueNext = null;
+		if (tail == null) {
+			heads[slot] = data;
+			tails[slot] = data;
+		} else if (data.serialNumber - tail.serialNumber > 0) {
+			tail.queueNext = data;
+			tails[slot] = data;
+		} else {
+			insertSorted(slot, data);
+		}
+		size++;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heads, null);
+		Arrays.fill(tails, null);
+		size = 0;
+	}
+
+	private void grow(int span) {
+		int newSize = heads.length;
+		while (newSize <= span)
+			newSize <<= 1;
+		SetData[] oldHeads = heads;
+		int oldMask = mask;
+		heads = new SetData[newSize];
+		tails = new SetData[newSize];
+		mask = newSize - 1;
+
+		// Each old bucket holds a single time, so its list can be moved as a
+		// whole into the new bucket for that time.
+		for (int i = 0; i <= oldMask; i++) {
+			SetData head = oldHeads[i];
+			if (head != null) {
+				SetData tail = head;
+				while (tail.queueNext != null)
+					tail = tail.queueNext;
+				int slot = head.time & mask;
+				heads[slot] = head;
+				tails[slot] = tail;
+			}
+		}
+	}
+
+	private void insertSorted(int slot, SetData data) {
+		SetData prev = null;
+		SetData cur = heads[slot];
+		while (cur != null && cur.serialNumber - data.serialNumber < 0) {
+			prev = cur;
+			cur = cur.queueNext;
+		}
+		data.queueNext = cur;
+		if (prev == null)
+			heads[slot] = data;
+		else
+			prev.queueNext = data;
+		if (cur == null)
+			tails[slot] = data;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public SetData peek() {
+		if (size == 0)
+			return null;
+		SetData ret = heads[minTime & mask];
+		while (ret == null) {
+			minTime++;
+			ret = heads[minTime & mask];
+		}
+		return ret;
+	}
+
+	@Override
+	public SetData remove() {
+		SetData ret = peek();
+		if (ret != null) {
+			int slot = minTime & mask;
+			SetData next = ret.queueNext;
+			heads[slot] = next;
+			if (next == null)
+				tails[slot] = null;
+			ret.queueNext = null;
+			size--;
+		}
+		return ret;
+	}
+}
@@ -15,6 +15,7 @@ class WireBundle {
 	private Location widthDeterminant = null;
 	WireThread[] threads = null;
 	SmallSet<Location> points = new SmallSet<Location>(); // points bundle hits
+	int[] pointIds = null; // ids of points in BundleMap's index, if all known
 	private WidthIncompatibilityData incompatibilityData = null;
 
 	WireBundle() {
@@ -11,6 +11,7 @@ import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import com.cburch.logisim.comp.Component;
@@ -205,17 +206,36 @@ class WireRepair extends CircuitTransaction {
 	}
 
 	private void doSplits(CircuitMutator mutator) {
-		Set<Location> splitLocs = circuit.wires.points.getSplitLocations();
+		// index the split locations by row and by column, so that each wire
+		// looks only along its own line rather than at every location
+		HashMap<Integer, TreeMap<Integer, Location>> rows = new HashMap<Integer, TreeMap<Integer, Location>>();
+		HashMap<Integer, TreeMap<Integer, Location>> cols = new HashMap<Integer, TreeMap<Integer, Location>>();
+		for (Location loc : circuit.wires.points.getSplitLocations()) {
+			putLine(rows, loc.getY(), loc.getX(), loc);
+			putLine(cols, loc.getX(), loc.getY(), loc);
+		}
+
 		ReplacementMap repl = new ReplacementMap();
 		for (Wire w : circuit.getWires()) {
 			Location w0 = w.getEnd0();
 			Location w1 = w.getEnd1();
+			boolean vertical = w.isVertical();
+			HashMap<Integer, TreeMap<Integer, Location>> lines = vertical ? cols : rows;
+			int across = vertical ? w0.getX() : w0.getY();
+			int from = vertical ? w0.getY() : w0.getX();
+			int to = vertical ? w1.getY() : w1.getX();
 			ArrayList<Location> splits = null;
-			for (Location loc : splitLocs) {
-				if (w.contains(loc) && !loc.equals(w0) && !loc.equals(w1)) {
-					if (splits == null)
-						splits = new ArrayList<Location>();
-					splits.add(loc);
+			// Wire.contains allows locations up to 2 off the line
+			for (int d = -2; d <= 2; d++) {
+				TreeMap<Integer, Location> line = lines.get(Integer.valueOf(across + d));
+				if (line == null)
+					continue;
+				for (Location loc : line.subMap(Integer.valueOf(from), true, Integer.valueOf(to), true).values()) {
+					if (!loc.equals(w0) && !loc.equals(w1)) {
+						if (splits == null)
+							splits = new ArrayList<Location>();
+						splits.add(loc);
+					}
 				}
 			}
 			if (splits != null) {
@@ -238,6 +258,16 @@ class WireRepair extends CircuitTransaction {
 		return Collections.singletonMap(circuit, READ_WRITE);
 	}
 
+	private static void putLine(HashMap<Integer, TreeMap<Integer, Location>> lines, int across, int along,
+			Location loc) {
+		TreeMap<Integer, Location> line = lines.get(Integer.valueOf(across));
+		if (line == null) {
+			line = new TreeMap<Integer, Location>();
+			lines.put(Integer.valueOf(across), line);
+		}
+		line.put(Integer.valueOf(along), loc);
+	}
+
 	@Override
 	protected void run(CircuitMutator mutator, Project proj) {
 		doMerges(mutator);
@@ -6,6 +6,8 @@ package com.cburch.logisim.comp;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.util.Collection;
+import java.util.List;
 
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
@@ -32,6 +34,8 @@ public class ComponentDrawContext {
 	private boolean printView;
 	private WireSet highlightedWires;
 	private InstancePainter instancePainter;
+	private boolean stateRead = false;
+	private List<EndData> deferredPins = null;
 
 	public ComponentDrawContext(java.awt.Component dest, Circuit circuit, CircuitState circuitState, Graphics base,
 			Graphics g) {
@@ -128,36 +132,38 @@ public class ComponentDrawContext {
 	}
 
 	public void drawPin(Component comp, int i) {
+		drawPinMarker(comp.getEnd(i));
+	}
+
+	public void drawPin(Component comp, int i, String label, Direction dir) {
+		if (i < 0 || i >= comp.getEnds().size())
+			return;
 		EndData e = comp.getEnd(i);
 		Location pt = e.getLocation();
-		Color curColor = g.getColor();
-		Color pinColor = Color.BLACK;
 		int x = pt.getX();
 		int y = pt.getY();
-		byte endType = e.getType();
-		if (getShowState()) {
-			CircuitState state = getCircuitState();
-			pinColor = state.getValue(pt).getColor();
+		drawPinMarker(e);
+		if (dir == Direction.EAST) {
+			GraphicsUtil.drawText(g, label, x + 4, y, GraphicsUtil.H_LEFT, GraphicsUtil.V_CENTER_OVERALL);
+		} else if (dir == Direction.WEST) {
+			GraphicsUtil.drawText(g, label, x - 4, y, GraphicsUtil.H_RIGHT, GraphicsUtil.V_CENTER_OVERALL);
+		} else if (dir == Direction.SOUTH) {
+			GraphicsUtil.drawText(g, label, x, y - 4, GraphicsUtil.H_CENTER, GraphicsUtil.V_BASELINE);
+		} else if (dir == Direction.NORTH) {
+			GraphicsUtil.drawText(g, label, x, y + 4, GraphicsUtil.H_CENTER, GraphicsUtil.V_TOP);
 		}
-		// pin
-		g.setColor(pinColor);
-		if (endType == 1)// input
-			g.fillRect(x - PIN_OFFS, y - PIN_OFFS, PIN_SIZE, PIN_SIZE);
-		else if (endType == 2)// output
-			g.fillOval(x - PIN_OFFS, y - PIN_OFFS, PIN_SIZE, PIN_SIZE);
-		else// input-output
-			g.fillPolygon(new int[] { x, x - PIN_OFFS - 1, x, x + PIN_OFFS + 1 },
-					new int[] { y - PIN_OFFS - 1, y, y + PIN_OFFS + 1, y }, 4);
-		g.setColor(curColor);
 	}
 
-	public void drawPin(Component comp, int i, String label, Direction dir) {
-		Color curColor = g.getColor();
-		Color pinColor = Color.BLACK;
-		if (i < 0 || i >= comp.getEnds().size())
+	// draws the marker for an end, in the color of its value if the state
+	// is shown; while pins are deferred, those markers are only collected
+	private void drawPinMarker(EndData e) {
+		if (getShowState() && deferredPins != null) {
+			deferredPins.add(e);
 			return;
-		EndData e = comp.getEnd(i);
+		}
 		Location pt = e.getLocation();
+		Color curColor = g.getColor();
+		Color pinColor = Color.BLACK;
 		int x = pt.getX();
 		int y = pt.getY();
 		byte endType = e.getType();
@@ -175,40 +181,17 @@ public class ComponentDrawContext {
 			g.fillPolygon(new int[] { x, x - PIN_OFFS - 1, x, x + PIN_OFFS + 1 },
 					new int[] { y - PIN_OFFS - 1, y, y + PIN_OFFS + 1, y }, 4);
 		g.setColor(curColor);
-		if (dir == Direction.EAST) {
-			GraphicsUtil.drawText(g, label, x + 4, y, GraphicsUtil.H_LEFT, GraphicsUtil.V_CENTER_OVERALL);
-		} else if (dir == Direction.WEST) {
-			GraphicsUtil.drawText(g, label, x - 4, y, GraphicsUtil.H_RIGHT, GraphicsUtil.V_CENTER_OVERALL);
-		} else if (dir == Direction.SOUTH) {
-			GraphicsUtil.drawText(g, label, x, y - 4, GraphicsUtil.H_CENTER, GraphicsUtil.V_BASELINE);
-		} else if (dir == Direction.NORTH) {
-			GraphicsUtil.drawText(g, label, x, y + 4, GraphicsUtil.H_CENTER, GraphicsUtil.V_TOP);
-		}
+	}
+
+	/** Draws the markers for the given ends, as drawPins would. */
+	public void drawPinMarkers(Collection<EndData> ends) {
+		for (EndData e : ends)
+			drawPinMarker(e);
 	}
 
 	public void drawPins(Component comp) {
-		Color curColor = g.getColor();
-		Color pinColor = Color.BLACK;
-		for (EndData e : comp.getEnds()) {
-			byte endType = e.getType();
-			Location pt = e.getLocation();
-			int x = pt.getX();
-			int y = pt.getY();
-			if (getShowState()) {
-				CircuitState state = getCircuitState();
-				pinColor = state.getValue(pt).getColor();
-			}
-			// pin
-			g.setColor(pinColor);
-			if (endType == 1)// input
-				g.fillRect(x - PIN_OFFS, y - PIN_OFFS, PIN_SIZE, PIN_SIZE);
-			else if (endType == 2)// output
-				g.fillOval(x - PIN_OFFS, y - PIN_OFFS, PIN_SIZE, PIN_SIZE);
-			else// input-output
-				g.fillPolygon(new int[] { x, x - PIN_OFFS - 1, x, x + PIN_OFFS + 1 },
-						new int[] { y - PIN_OFFS - 1, y, y + PIN_OFFS + 1, y }, 4);
-		}
-		g.setColor(curColor);
+		for (EndData e : comp.getEnds())
+			drawPinMarker(e);
 	}
 
 	public void drawRectangle(Component comp) {
@@ -284,6 +267,7 @@ public class ComponentDrawContext {
 	}
 
 	public CircuitState getCircuitState() {
+		stateRead = true;
 		return circuitState;
 	}
 
@@ -315,6 +299,26 @@ public class ComponentDrawContext {
 		return printView;
 	}
 
+	/**
+	 * Returns whether the circuit state has been asked for since the last
+	 * call, which tells whether what was drawn may change as the simulation
+	 * runs.
+	 */
+	public boolean resetStateRead() {
+		boolean ret = stateRead;
+		stateRead = false;
+		return ret;
+	}
+
+	/**
+	 * Makes the pin markers that would show values be added to a list
+	 * instead of drawn, so that they can be drawn separately with
+	 * drawPinMarkers; a null list makes them be drawn again.
+	 */
+	public void setDeferredPins(List<EndData> list) {
+		deferredPins = list;
+	}
+
 	public void setGraphics(Graphics g) {
 		this.g = g;
 	}
@@ -23,6 +23,7 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 	public static final Object SHOULD_SNAP = new Object();
 	public static final Object TOOL_TIP = new Object();
 	public static final Object FACING_ATTRIBUTE_KEY = new Object();
+	public static final Object COMBINATIONAL = new Object();
 
 	public AttributeSet createAttributeSet();
 
@@ -47,8 +48,11 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 	 * interface if it supports the feature.
 	 * 
 	 * As of this writing, possible values for <code>key</code> include:
-	 * <code>TOOL_TIP</code> (return a <code>String</code>) and
-	 * <code>SHOULD_SNAP</code> (return a <code>Boolean</code>).
+	 * <code>TOOL_TIP</code> (return a <code>String</code>),
+	 * <code>SHOULD_SNAP</code> (return a <code>Boolean</code>) and
+	 * <code>COMBINATIONAL</code> (return <code>Boolean.TRUE</code> if the
+	 * component's outputs depend only on its current inputs, with no state of
+	 * its own).
 	 * 
 	 * @param key an object representing a feature.
 	 * @return an object representing information about how the component supports
@@ -238,6 +238,38 @@ public class Attributes {
 		}
 	}
 
+	private static class HexLongAttribute extends Attribute<Long> {
+		private HexLongAttribute(String name, StringGetter disp) {
+			super(name, disp);
+		}
+
+		@Override
+		public Long parse(String value) {
+			value = value.toLowerCase();
+			if (value.startsWith("0x")) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(2), 16));
+			} else if (value.startsWith("0b")) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(2), 2));
+			} else if (value.startsWith("0o")) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(2), 8));
+			} else if (value.startsWith("-")) {
+				return Long.valueOf(Long.parseLong(value, 10));
+			} else {
+				return Long.valueOf(Long.parseUnsignedLong(value, 10));
+			}
+		}
+
+		@Override
+		public String toDisplayString(Long value) {
+			return "0x" + Long.toHexString(value.longValue());
+		}
+
+		@Override
+		public String toStandardString(Long value) {
+			return toDisplayString(value);
+		}
+	}
+
 	private static class IntegerAttribute extends Attribute<Integer> {
 		private IntegerAttribute(String name, StringGetter disp) {
 			super(name, disp);
@@ -439,6 +471,14 @@ public class Attributes {
 		return new HexIntegerAttribute(name, disp);
 	}
 
+	public static Attribute<Long> forHexLong(String name) {
+		return forHexLong(name, getter(name));
+	}
+
+	public static Attribute<Long> forHexLong(String name, StringGetter disp) {
+		return new HexLongAttribute(name, disp);
+	}
+
 	public static Attribute<Integer> forInteger(String name) {
 		return forInteger(name, getter(name));
 	}
@@ -3,7 +3,7 @@
 
 package com.cburch.logisim.data;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.InternTable;
 
 /**
  * Represents an immutable rectangular bounding box. This is analogous to
@@ -11,12 +11,14 @@ import com.cburch.logisim.util.Cache;
  * immutable.
  */
 public class Location implements Comparable<Location> {
-	private static final Cache cache = new Cache();
+	private static final InternTable cache = new InternTable(8, 18);
 
 	public static Location create(int x, int y) {
 		int hashCode = 31 * x + y;
-		Object ret = cache.get(hashCode);
-		if (ret != null) {
+		for (int probe = 0;; probe++) {
+			Object ret = cache.get(hashCode, probe);
+			if (ret == null)
+				break;
 			Location loc = (Location) ret;
 			if (loc.x == x && loc.y == y)
 				return loc;
@@ -26,6 +28,11 @@ public class Location implements Comparable<Location> {
 		return loc;
 	}
 
+	/** Returns the table of interned locations, for statistics. */
+	public static InternTable getCache() {
+		return cache;
+	}
+
 	public static Location parse(String value) {
 		String base = value;
 
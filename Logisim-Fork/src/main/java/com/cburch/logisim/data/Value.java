@@ -4,9 +4,10 @@
 package com.cburch.logisim.data;
 
 import java.awt.Color;
+import java.math.BigInteger;
 import java.util.Arrays;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.InternTable;
 
 public class Value {
 	public static final Value FALSE = new Value(1, 0, 0, 0);
@@ -15,7 +16,7 @@ public class Value {
 	public static final Value ERROR = new Value(1, 1, 0, 0);
 	public static final Value NIL = new Value(0, 0, 0, 0);
 
-	public static final int MAX_WIDTH = 32;
+	public static final int MAX_WIDTH = 64;
 
 	public static final Color NIL_COLOR = Color.GRAY;
 	public static final Color FALSE_COLOR = new Color(0, 110, 0);
@@ -25,9 +26,13 @@ public class Value {
 	public static final Color WIDTH_ERROR_COLOR = new Color(255, 123, 0);
 	public static final Color MULTI_COLOR = Color.BLACK;
 
-	private static final Cache cache = new Cache();
+	private static final InternTable cache = new InternTable(8, 16);
 
-	private static Value create(int width, int error, int unknown, int value) {
+	/**
+	 * Returns the value with the given bits, as reported by getErrorBits,
+	 * getUnknownBits and getValueBits; bits beyond the width are ignored.
+	 */
+	public static Value create(int width, long error, long unknown, long value) {
 		if (width == 0) {
 			return Value.NIL;
 		} else if (width == 1) {
@@ -40,14 +45,16 @@ public class Value {
 			else
 				return Value.FALSE;
 		} else {
-			int mask = (width == 32 ? -1 : ~(-1 << width));
+			long mask = (width == 64 ? -1L : ~(-1L << width));
 			error = error & mask;
 			unknown = unknown & mask & ~error;
 			value = value & mask & ~unknown & ~error;
 
-			int hashCode = 31 * (31 * (31 * width + error) + unknown) + value;
-			Object cached = cache.get(hashCode);
-			if (cached != null) {
+			int hashCode = hashCode(width, error, unknown, value);
+			for (int probe = 0;; probe++) {
+				Object cached = cache.get(hashCode, probe);
+				if (cached == null)
+					break;
 				Value val = (Value) cached;
 				if (val.value == value && val.width == width && val.error == error && val.unknown == unknown)
 					return val;
@@ -67,11 +74,11 @@ public class Value {
 			throw new RuntimeException("Cannot have more than " + MAX_WIDTH + " bits in a value");
 
 		int width = values.length;
-		int value = 0;
-		int unknown = 0;
-		int error = 0;
+		long value = 0;
+		long unknown = 0;
+		long error = 0;
 		for (int i = 0; i < values.length; i++) {
-			int mask = 1 << i;
+			long mask = 1L << i;
 			if (values[i] == TRUE)
 				value |= mask;
 			else if (values[i] == FALSE)
@@ -92,6 +99,10 @@ public class Value {
 	}
 
 	public static Value createKnown(BitWidth bits, int value) {
+		return Value.create(bits.getWidth(), 0, 0, value & 0xFFFFFFFFL);
+	}
+
+	public static Value createKnown(BitWidth bits, long value) {
 		return Value.create(bits.getWidth(), 0, 0, value);
 	}
 
@@ -99,6 +110,19 @@ public class Value {
 		return Value.create(bits.getWidth(), 0, -1, 0);
 	}
 
+	/** Returns the table of interned multi-bit values, for statistics. */
+	public static InternTable getCache() {
+		return cache;
+	}
+
+	private static int hashCode(int width, long error, long unknown, long value) {
+		int ret = width;
+		ret = 31 * ret + (int) (error ^ (error >>> 32));
+		ret = 31 * ret + (int) (unknown ^ (unknown >>> 32));
+		ret = 31 * ret + (int) (value ^ (value >>> 32));
+		return ret;
+	}
+
 	public static Value repeat(Value base, int bits) {
 		if (base.getWidth() != 1) {
 			throw new IllegalArgumentException("first parameter must be one bit");
@@ -113,11 +137,11 @@ public class Value {
 	}
 
 	private final int width;
-	private final int error;
-	private final int unknown;
-	private final int value;
+	private final long error;
+	private final long unknown;
+	private final long value;
 
-	private Value(int width, int error, int unknown, int value) {
+	private Value(int width, long error, long unknown, long value) {
 		// To ensure that the one-bit values are unique, this should be called
 		// only
 		// for the one-bit values and by the private create method
@@ -136,10 +160,12 @@ public class Value {
 			if (this == TRUE && other == TRUE)
 				return TRUE;
 			return ERROR;
+		} else if (this.error == 0 && this.unknown == 0 && other.error == 0 && other.unknown == 0) {
+			return createDefined(this.value & other.value, other);
 		} else {
-			int false0 = ~this.value & ~this.error & ~this.unknown;
-			int false1 = ~other.value & ~other.error & ~other.unknown;
-			int falses = false0 | false1;
+			long false0 = ~this.value & ~this.error & ~this.unknown;
+			long false1 = ~other.value & ~other.error & ~other.unknown;
+			long falses = false0 | false1;
 			return Value.create(Math.max(this.width, other.width),
 					(this.error | other.error | this.unknown | other.unknown) & ~falses, 0, this.value & other.value);
 		}
@@ -160,13 +186,32 @@ public class Value {
 			if (other == UNKNOWN)
 				return this;
 			return ERROR;
+		} else if (this.width == other.width && this.error == 0 && this.unknown == 0 && other.error == 0
+				&& other.unknown == 0) {
+			if (this.value == other.value)
+				return this;
+			return Value.create(this.width, this.value ^ other.value, 0, this.value | other.value);
 		} else {
-			int disagree = (this.value ^ other.value) & ~(this.unknown | other.unknown);
+			long disagree = (this.value ^ other.value) & ~(this.unknown | other.unknown);
 			return Value.create(Math.max(this.width, other.width), this.error | other.error | disagree,
 					this.unknown & other.unknown, (this.value & ~this.unknown) | (other.value & ~other.unknown));
 		}
 	}
 
+	/**
+	 * Returns a fully defined value as wide as the wider of this and other,
+	 * reusing either operand when it already holds the requested bits.
+	 */
+	private Value createDefined(long bits, Value other) {
+		Value wider = this.width >= other.width ? this : other;
+		if (wider.value == bits && wider.error == 0 && wider.unknown == 0)
+			return wider;
+		Value narrower = wider == this ? other : this;
+		if (narrower.width == wider.width && narrower.value == bits && narrower.error == 0 && narrower.unknown == 0)
+			return narrower;
+		return Value.create(wider.width, 0, 0, bits);
+	}
+
 	@Override
 	public boolean equals(Object other_obj) {
 		if (!(other_obj instanceof Value))
@@ -180,7 +225,7 @@ public class Value {
 	public Value extendWidth(int newWidth, Value others) {
 		if (width == newWidth)
 			return this;
-		int maskInverse = (width == 32 ? 0 : (-1 << width));
+		long maskInverse = (width == 64 ? 0 : (-1L << width));
 		if (others == Value.ERROR) {
 			return Value.create(newWidth, error | maskInverse, unknown, value);
 		} else if (others == Value.FALSE) {
@@ -195,7 +240,7 @@ public class Value {
 	public Value get(int which) {
 		if (which < 0 || which >= width)
 			return ERROR;
-		int mask = 1 << which;
+		long mask = 1L << which;
 		if ((error & mask) != 0)
 			return ERROR;
 		else if ((unknown & mask) != 0)
@@ -235,17 +280,25 @@ public class Value {
 		}
 	}
 
+	public long getErrorBits() {
+		return error;
+	}
+
+	public long getUnknownBits() {
+		return unknown;
+	}
+
+	public long getValueBits() {
+		return value;
+	}
+
 	public int getWidth() {
 		return width;
 	}
 
 	@Override
 	public int hashCode() {
-		int ret = width;
-		ret = 31 * ret + error;
-		ret = 31 * ret + unknown;
-		ret = 31 * ret + value;
-		return ret;
+		return hashCode(width, error, unknown, value);
 	}
 
 	public boolean isErrorValue() {
@@ -257,10 +310,10 @@ public class Value {
 	}
 
 	public boolean isUnknown() {
-		if (width == 32) {
-			return error == 0 && unknown == -1;
+		if (width == 64) {
+			return error == 0 && unknown == -1L;
 		} else {
-			return error == 0 && unknown == ((1 << width) - 1);
+			return error == 0 && unknown == ((1L << width) - 1);
 		}
 	}
 
@@ -271,6 +324,8 @@ public class Value {
 			if (this == FALSE)
 				return TRUE;
 			return ERROR;
+		} else if (this.error == 0 && this.unknown == 0) {
+			return Value.create(this.width, 0, 0, ~this.value);
 		} else {
 			return Value.create(this.width, this.error | this.unknown, 0, ~this.value);
 		}
@@ -285,10 +340,12 @@ public class Value {
 			if (this == FALSE && other == FALSE)
 				return FALSE;
 			return ERROR;
+		} else if (this.error == 0 && this.unknown == 0 && other.error == 0 && other.unknown == 0) {
+			return createDefined(this.value | other.value, other);
 		} else {
-			int true0 = this.value & ~this.error & ~this.unknown;
-			int true1 = other.value & ~other.error & ~other.unknown;
-			int trues = true0 | true1;
+			long true0 = this.value & ~this.error & ~this.unknown;
+			long true1 = other.value & ~other.error & ~other.unknown;
+			long trues = true0 | true1;
 			return Value.create(Math.max(this.width, other.width),
 					(this.error | other.error | this.unknown | other.unknown) & ~trues, 0, this.value | other.value);
 		}
@@ -302,7 +359,7 @@ public class Value {
 		} else if (width == 1) {
 			return val;
 		} else {
-			int mask = ~(1 << which);
+			long mask = ~(1L << which);
 			return Value.create(this.width, (this.error & mask) | (val.error << which),
 					(this.unknown & mask) | (val.unknown << which), (this.value & mask) | (val.value << which));
 		}
@@ -316,14 +373,16 @@ public class Value {
 		if (!isFullyDefined())
 			return Strings.get("valueUnknown");
 
-		int value = toIntValue();
+		long value = toLongValue();
 		if (signed) {
-			if (width < 32 && (value >> (width - 1)) != 0) {
-				value |= (-1) << width;
+			if (width < 64 && (value >> (width - 1)) != 0) {
+				value |= (-1L) << width;
 			}
 			return "" + value;
+		} else if (value >= 0) {
+			return "" + value;
 		} else {
-			return "" + (value & 0xFFFFFFFFL);
+			return BigInteger.valueOf(value).add(BigInteger.ONE.shiftLeft(64)).toString();
 		}
 	}
 
@@ -366,7 +425,7 @@ public class Value {
 				return Strings.get("valueError");
 			if (!isFullyDefined())
 				return Strings.get("valueUnknown");
-			return Integer.toString(toIntValue(), radix);
+			return Long.toUnsignedString(toLongValue(), radix);
 		}
 	}
 
@@ -402,7 +461,16 @@ public class Value {
 		}
 	}
 
+	/** Returns the low 32 bits of the value, or -1 if any bit is undefined. */
 	public int toIntValue() {
+		if (error != 0)
+			return -1;
+		if (unknown != 0)
+			return -1;
+		return (int) value;
+	}
+
+	public long toLongValue() {
 		if (error != 0)
 			return -1;
 		if (unknown != 0)
@@ -480,6 +548,8 @@ public class Value {
 			if ((this == TRUE) == (other == TRUE))
 				return FALSE;
 			return TRUE;
+		} else if (this.error == 0 && this.unknown == 0 && other.error == 0 && other.unknown == 0) {
+			return createDefined(this.value ^ other.value, other);
 		} else {
 			return Value.create(Math.max(this.width, other.width),
 					this.error | other.error | this.unknown | other.unknown, 0, this.value ^ other.value);
@@ -0,0 +1,15 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import java.io.File;
+
+/** Follows how much of each file a Loader has read while loading it. */
+public interface LoadProgressListener {
+	/**
+	 * Called from time to time while a file is read, with the fraction of it
+	 * read so far, from the thread doing the loading.
+	 */
+	public void loadProgress(File file, double fraction);
+}
@@ -95,6 +95,8 @@ public class Loader implements LibraryLoader {
 
 	private Map<File, File> substitutions = new HashMap<File, File>();
 
+	private LoadProgressListener progressListener = null;
+
 	public Loader(Component parent) {
 		this.parent = parent;
 		clear();
@@ -171,6 +173,10 @@ public class Loader implements LibraryLoader {
 		return mainFile;
 	}
 
+	LoadProgressListener getProgressListener() {
+		return progressListener;
+	}
+
 	private File getSubstitution(File source) {
 		File ret = substitutions.get(source);
 		return ret == null ? source : ret;
@@ -387,6 +393,11 @@ public class Loader implements LibraryLoader {
 		parent = value;
 	}
 
+	/** Sets the listener told how far each file has been read, or null. */
+	public void setProgressListener(LoadProgressListener value) {
+		progressListener = value;
+	}
+
 	@Override
 	public void showError(String description) {
 		if (!filesOpening.empty()) {
@@ -7,6 +7,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +37,60 @@ import com.cburch.logisim.util.ListUtil;
 import com.cburch.logisim.util.StringUtil;
 
 public class LogisimFile extends Library implements LibraryEventSource {
+	// tells a listener how much of a file has been read, each time another
+	// hundredth of it has been
+	private static class ProgressInputStream extends FilterInputStream {
+		private File file;
+		private LoadProgressListener listener;
+		private long length;
+		private long count = 0;
+		private long nextReport = 0;
+
+		ProgressInputStream(InputStream in, File file, LoadProgressListener listener) {
+			super(in);
+			this.file = file;
+			this.listener = listener;
+			this.length = Math.max(1, file.length());
+		}
+
+		private void advance(long n) {
+			if (n <= 0)
+				return;
+			count += n;
+			if (count >= nextReport) {
+				nextReport = count + length / 100;
+				listener.loadProgress(file, Math.min(1.0, (double) count / length));
+			}
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int ret = super.read();
+			if (ret >= 0)
+				advance(1);
+			return ret;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int ret = super.read(b, off, len);
+			advance(ret);
+			return ret;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long ret = super.skip(n);
+			advance(ret);
+			return ret;
+		}
+	}
+
 	private static class WritingThread extends Thread {
 		OutputStream out;
 		LogisimFile file;
@@ -88,6 +143,9 @@ public class LogisimFile extends Library implements LibraryEventSource {
 
 	public static LogisimFile load(File file, Loader loader) throws IOException {
 		InputStream in = new FileInputStream(file);
+		LoadProgressListener listener = loader.getProgressListener();
+		if (listener != null)
+			in = new ProgressInputStream(in, file, listener);
 		SAXException firstExcept = null;
 		try {
 			return loadSub(in, loader);
@@ -14,6 +14,16 @@ public class Options {
 			Strings.getter("gateUndefinedIgnore"));
 	public static final AttributeOption GATE_UNDEFINED_ERROR = new AttributeOption("error",
 			Strings.getter("gateUndefinedError"));
+	public static final AttributeOption SIM_QUEUE_HEAP = new AttributeOption("heap", Strings.getter("simQueueHeap"));
+	public static final AttributeOption SIM_QUEUE_WHEEL = new AttributeOption("wheel",
+			Strings.getter("simQueueWheel"));
+	public static final AttributeOption SIM_MODE_EVENT = new AttributeOption("event", Strings.getter("simModeEvent"));
+	public static final AttributeOption SIM_MODE_LEVELIZED = new AttributeOption("levelized",
+			Strings.getter("simModeLevelized"));
+	public static final AttributeOption SIM_THREADS_SINGLE = new AttributeOption("single",
+			Strings.getter("simThreadsSingle"));
+	public static final AttributeOption SIM_THREADS_PARALLEL = new AttributeOption("parallel",
+			Strings.getter("simThreadsParallel"));
 
 	public static final Attribute<Integer> sim_limit_attr = Attributes.forInteger("simlimit",
 			Strings.getter("simLimitOption"));
@@ -22,11 +32,19 @@ public class Options {
 	public static final Attribute<AttributeOption> ATTR_GATE_UNDEFINED = Attributes.forOption("gateUndefined",
 			Strings.getter("gateUndefinedOption"),
 			new AttributeOption[] { GATE_UNDEFINED_IGNORE, GATE_UNDEFINED_ERROR });
+	public static final Attribute<AttributeOption> sim_queue_attr = Attributes.forOption("simqueue",
+			Strings.getter("simQueueOption"), new AttributeOption[] { SIM_QUEUE_WHEEL, SIM_QUEUE_HEAP });
+	public static final Attribute<AttributeOption> sim_mode_attr = Attributes.forOption("simmode",
+			Strings.getter("simModeOption"), new AttributeOption[] { SIM_MODE_EVENT, SIM_MODE_LEVELIZED });
+	public static final Attribute<AttributeOption> sim_threads_attr = Attributes.forOption("simthreads",
+			Strings.getter("simThreadsOption"), new AttributeOption[] { SIM_THREADS_SINGLE, SIM_THREADS_PARALLEL });
 
 	public static final Integer sim_rand_dflt = Integer.valueOf(32);
 
-	private static final Attribute<?>[] ATTRIBUTES = { ATTR_GATE_UNDEFINED, sim_limit_attr, sim_rand_attr, };
-	private static final Object[] DEFAULTS = { GATE_UNDEFINED_IGNORE, Integer.valueOf(1000), Integer.valueOf(0), };
+	private static final Attribute<?>[] ATTRIBUTES = { ATTR_GATE_UNDEFINED, sim_limit_attr, sim_rand_attr,
+			sim_queue_attr, sim_mode_attr, sim_threads_attr, };
+	private static final Object[] DEFAULTS = { GATE_UNDEFINED_IGNORE, Integer.valueOf(1000), Integer.valueOf(0),
+			SIM_QUEUE_WHEEL, SIM_MODE_EVENT, SIM_THREADS_SINGLE, };
 
 	private AttributeSet attrs;
 	private MouseMappings mmappings;
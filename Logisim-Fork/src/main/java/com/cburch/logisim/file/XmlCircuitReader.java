@@ -3,6 +3,7 @@
 
 package com.cburch.logisim.file;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -26,13 +27,23 @@ import com.cburch.logisim.tools.Tool;
 
 public class XmlCircuitReader extends CircuitTransaction {
 	static Component getComponent(Element elt, XmlReader.ReadContext reader) throws XmlReaderException {
+		ArrayList<String> messages = new ArrayList<String>();
+		return getComponent(elt.getAttribute("name"), elt.getAttribute("lib"), elt.getAttribute("loc"),
+				reader.readAttributes(elt, messages), messages, reader);
+	}
+
+	/**
+	 * Creates the component described by a "comp" element's attributes and
+	 * the values of its "a" children, with the messages found while reading
+	 * those.
+	 */
+	static Component getComponent(String name, String libName, String loc_str, Map<String, String> attrsDefined,
+			List<String> attrMessages, XmlReader.ReadContext reader) throws XmlReaderException {
 		// Determine the factory that creates this element
-		String name = elt.getAttribute("name");
 		if (name == null || name.equals("")) {
 			throw new XmlReaderException(Strings.get("compNameMissingError"));
 		}
 
-		String libName = elt.getAttribute("lib");
 		Library lib = reader.findLibrary(libName);
 		if (lib == null) {
 			throw new XmlReaderException(Strings.get("compUnknownError", "no-lib"));
@@ -49,9 +60,8 @@ public class XmlCircuitReader extends CircuitTransaction {
 		ComponentFactory source = ((AddTool) tool).getFactory();
 
 		// Determine attributes
-		String loc_str = elt.getAttribute("loc");
 		AttributeSet attrs = source.createAttributeSet();
-		reader.initAttributeSet(elt, attrs, source);
+		reader.initAttributeSet(attrsDefined, attrMessages, attrs, source);
 
 		// Create component if location known
 		if (loc_str == null || loc_str.equals("")) {
@@ -75,30 +85,37 @@ public class XmlCircuitReader extends CircuitTransaction {
 		this.circuitsData = circDatas;
 	}
 
-	void addWire(Circuit dest, CircuitMutator mutator, Element elt) throws XmlReaderException {
+	/** Creates the wire described by a "wire" element's attributes. */
+	static Wire getWire(String from, String to) throws XmlReaderException {
 		Location pt0;
 		try {
-			String str = elt.getAttribute("from");
-			if (str == null || str.equals("")) {
+			if (from == null || from.equals("")) {
 				throw new XmlReaderException(Strings.get("wireStartMissingError"));
 			}
-			pt0 = Location.parse(str);
+			pt0 = Location.parse(from);
 		} catch (NumberFormatException e) {
 			throw new XmlReaderException(Strings.get("wireStartInvalidError"));
 		}
 
 		Location pt1;
 		try {
-			String str = elt.getAttribute("to");
-			if (str == null || str.equals("")) {
+			if (to == null || to.equals("")) {
 				throw new XmlReaderException(Strings.get("wireEndMissingError"));
 			}
-			pt1 = Location.parse(str);
+			pt1 = Location.parse(to);
 		} catch (NumberFormatException e) {
 			throw new XmlReaderException(Strings.get("wireEndInvalidError"));
 		}
 
-		mutator.add(dest, Wire.create(pt0, pt1));
+		return Wire.create(pt0, pt1);
+	}
+
+	static String toComponentString(String name, String loc) {
+		return name + "(" + loc + ")";
+	}
+
+	static String toWireString(String from, String to) {
+		return "w" + from + "-" + to;
 	}
 
 	private void buildCircuit(XmlReader.CircuitData circData, CircuitMutator mutator) {
@@ -113,6 +130,7 @@ public class XmlCircuitReader extends CircuitTransaction {
 			reader.addErrors(e, circData.circuit.getName() + ".static");
 		}
 
+		ArrayList<Component> comps = new ArrayList<Component>();
 		for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 			String sub_elt_name = sub_elt.getTagName();
 			if (sub_elt_name.equals("comp")) {
@@ -121,18 +139,19 @@ public class XmlCircuitReader extends CircuitTransaction {
 					if (comp == null) {
 						comp = getComponent(sub_elt, reader);
 					}
-					mutator.add(dest, comp);
+					comps.add(comp);
 				} catch (XmlReaderException e) {
 					reader.addErrors(e, circData.circuit.getName() + "." + toComponentString(sub_elt));
 				}
 			} else if (sub_elt_name.equals("wire")) {
 				try {
-					addWire(dest, mutator, sub_elt);
+					comps.add(getWire(sub_elt.getAttribute("from"), sub_elt.getAttribute("to")));
 				} catch (XmlReaderException e) {
 					reader.addErrors(e, circData.circuit.getName() + "." + toWireString(sub_elt));
 				}
 			}
 		}
+		mutator.addAll(dest, comps);
 
 		List<AbstractCanvasObject> appearance = circData.appearance;
 		if (appearance != null && !appearance.isEmpty()) {
@@ -158,14 +177,10 @@ public class XmlCircuitReader extends CircuitTransaction {
 	}
 
 	private String toComponentString(Element elt) {
-		String name = elt.getAttribute("name");
-		String loc = elt.getAttribute("loc");
-		return name + "(" + loc + ")";
+		return toComponentString(elt.getAttribute("name"), elt.getAttribute("loc"));
 	}
 
 	private String toWireString(Element elt) {
-		String from = elt.getAttribute("from");
-		String to = elt.getAttribute("to");
-		return "w" + from + "-" + to;
+		return toWireString(elt.getAttribute("from"), elt.getAttribute("to"));
 	}
 }
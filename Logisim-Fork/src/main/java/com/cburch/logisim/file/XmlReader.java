@@ -84,26 +84,17 @@ class XmlReader {
 
 		void initAttributeSet(Element parentElt, AttributeSet attrs, AttributeDefaultProvider defaults)
 				throws XmlReaderException {
-			ArrayList<String> messages = null;
-
-			HashMap<String, String> attrsDefined = new HashMap<String, String>();
-			for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
-				if (!attrElt.hasAttribute("name")) {
-					if (messages == null)
-						messages = new ArrayList<String>();
-					messages.add(Strings.get("attrNameMissingError"));
-				} else {
-					String attrName = attrElt.getAttribute("name");
-					String attrVal;
-					if (attrElt.hasAttribute("val")) {
-						attrVal = attrElt.getAttribute("val");
-					} else {
-						attrVal = attrElt.getTextContent();
-					}
-					attrsDefined.put(attrName, attrVal);
-				}
-			}
+			ArrayList<String> messages = new ArrayList<String>();
+			initAttributeSet(readAttributes(parentElt, messages), messages, attrs, defaults);
+		}
 
+		/**
+		 * Sets attrs from the values given for them by name, adding to the
+		 * messages found while reading those values any for values that don't
+		 * parse, and throws them all if there are any.
+		 */
+		void initAttributeSet(Map<String, String> attrsDefined, List<String> messages, AttributeSet attrs,
+				AttributeDefaultProvider defaults) throws XmlReaderException {
 			if (attrs == null)
 				return;
 
@@ -131,13 +122,11 @@ class XmlReader {
 						Object val = attr.parse(attrVal);
 						attrs.setValue(attr, val);
 					} catch (NumberFormatException e) {
-						if (messages == null)
-							messages = new ArrayList<String>();
 						messages.add(StringUtil.format(Strings.get("attrValueInvalidError"), attrVal, attrName));
 					}
 				}
 			}
-			if (messages != null) {
+			if (!messages.isEmpty()) {
 				throw new XmlReaderException(messages);
 			}
 		}
@@ -212,8 +201,16 @@ class XmlReader {
 				}
 			}
 
+			List<Element> shapeElts = new ArrayList<Element>();
+			for (Element sub : XmlIterator.forChildElements(appearElt))
+				shapeElts.add(sub);
+			loadAppearance(shapeElts, pins, circData, context);
+		}
+
+		void loadAppearance(List<Element> shapeElts, Map<Location, Instance> pins, CircuitData circData,
+				String context) {
 			List<AbstractCanvasObject> shapes = new ArrayList<AbstractCanvasObject>();
-			for (Element sub : XmlIterator.forChildElements(appearElt)) {
+			for (Element sub : shapeElts) {
 				try {
 					AbstractCanvasObject m = AppearanceSvgReader.createShape(sub, pins);
 					if (m == null) {
@@ -247,7 +244,68 @@ class XmlReader {
 			return known;
 		}
 
-		private Library toLibrary(Element elt) {
+		/**
+		 * Handles a child of the project element other than a library or a
+		 * circuit, which is read once the circuits exist.
+		 */
+		void loadTopElement(Element sub_elt) {
+			String name = sub_elt.getTagName();
+			if (name.equals("options")) {
+				try {
+					initAttributeSet(sub_elt, file.getOptions().getAttributeSet(), null);
+				} catch (XmlReaderException e) {
+					addErrors(e, "options");
+				}
+			} else if (name.equals("mappings")) {
+				initMouseMappings(sub_elt);
+			} else if (name.equals("toolbar")) {
+				initToolbarData(sub_elt);
+			} else if (name.equals("main")) {
+				String main = sub_elt.getAttribute("name");
+				Circuit circ = file.getCircuit(main);
+				if (circ != null) {
+					file.setMainCircuit(circ);
+				}
+			} else if (name.equals("message")) {
+				file.addMessage(sub_elt.getAttribute("value"));
+			}
+		}
+
+		/**
+		 * Returns the values given by an element's "a" children by attribute
+		 * name, adding a message to messages for each without a name.
+		 */
+		HashMap<String, String> readAttributes(Element parentElt, List<String> messages) {
+			HashMap<String, String> attrsDefined = new HashMap<String, String>();
+			for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
+				if (!attrElt.hasAttribute("name")) {
+					messages.add(Strings.get("attrNameMissingError"));
+				} else {
+					String attrName = attrElt.getAttribute("name");
+					String attrVal;
+					if (attrElt.hasAttribute("val")) {
+						attrVal = attrElt.getAttribute("val");
+					} else {
+						attrVal = attrElt.getTextContent();
+					}
+					attrsDefined.put(attrName, attrVal);
+				}
+			}
+			return attrsDefined;
+		}
+
+		void showMessages() {
+			if (messages.size() > 0) {
+				StringBuilder all = new StringBuilder();
+				for (String msg : messages) {
+					all.append(msg);
+					all.append("\n");
+				}
+				loader.showError(all.substring(0, all.length() - 1));
+			}
+		}
+
+		Library toLibrary(Element elt) {
 			if (!elt.hasAttribute("name")) {
 				loader.showError(Strings.get("libNameMissingError"));
 				return null;
@@ -315,27 +373,8 @@ class XmlReader {
 			// third, process the other child elements
 			for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 				String name = sub_elt.getTagName();
-				if (name.equals("circuit") || name.equals("lib")) {
-					; // Nothing to do: Done earlier.
-				} else if (name.equals("options")) {
-					try {
-						initAttributeSet(sub_elt, file.getOptions().getAttributeSet(), null);
-					} catch (XmlReaderException e) {
-						addErrors(e, "options");
-					}
-				} else if (name.equals("mappings")) {
-					initMouseMappings(sub_elt);
-				} else if (name.equals("toolbar")) {
-					initToolbarData(sub_elt);
-				} else if (name.equals("main")) {
-					String main = sub_elt.getAttribute("name");
-					Circuit circ = file.getCircuit(main);
-					if (circ != null) {
-						file.setMainCircuit(circ);
-					}
-				} else if (name.equals("message")) {
-					file.addMessage(sub_elt.getAttribute("value"));
-				}
+				if (!name.equals("circuit") && !name.equals("lib")) // done earlier
+					loadTopElement(sub_elt);
 			}
 
 			// fourth, execute a transaction that initializes all the circuits
@@ -358,6 +397,15 @@ class XmlReader {
 		}
 	}
 
+	// files saved by this version or later need none of the repairs made by
+	// considerRepairs, so they are read by XmlStreamingReader instead; it
+	// must be moved past any version tested there
+	static final LogisimVersion REPAIRS_END = LogisimVersion.get(2, 16, 1, 4);
+
+	// how much of a file may be read to find its version before it is
+	// reread for the DOM
+	private static final int VERSION_READ_LIMIT = 1 << 20;
+
 	private static void findLibraryUses(ArrayList<Element> dest, String label, Iterable<Element> candidates) {
 		for (Element elt : candidates) {
 			String lib = elt.getAttribute("lib");
@@ -676,23 +724,29 @@ class XmlReader {
 	}
 
 	LogisimFile readLibrary(InputStream is) throws IOException, SAXException {
-		Document doc = loadXmlFrom(is);
-		Element elt = doc.getDocumentElement();
-		considerRepairs(doc, elt);
 		LogisimFile file = new LogisimFile((Loader) loader);
 		ReadContext context = new ReadContext(file);
-		context.toLogisimFile(elt);
+		boolean streamed = false;
+		if (is.markSupported()) {
+			is.mark(VERSION_READ_LIMIT);
+			XmlStreamingReader streaming = new XmlStreamingReader(is);
+			if (streaming.isCurrent()) {
+				streaming.read(context);
+				streamed = true;
+			} else {
+				is.reset();
+			}
+		}
+		if (!streamed) {
+			Document doc = loadXmlFrom(is);
+			Element elt = doc.getDocumentElement();
+			considerRepairs(doc, elt);
+			context.toLogisimFile(elt);
+		}
 		if (file.getCircuitCount() == 0) {
 			file.addCircuit(new Circuit("main"));
 		}
-		if (context.messages.size() > 0) {
-			StringBuilder all = new StringBuilder();
-			for (String msg : context.messages) {
-				all.append(msg);
-				all.append("\n");
-			}
-			loader.showError(all.substring(0, all.length() - 1));
-		}
+		context.showMessages();
 		return file;
 	}
 
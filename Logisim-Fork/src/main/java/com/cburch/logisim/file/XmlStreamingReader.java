@@ -0,0 +1,351 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import com.cburch.draw.model.AbstractCanvasObject;
+import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutator;
+import com.cburch.logisim.circuit.CircuitTransaction;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Reads a project file as it is parsed, creating the components of each
+ * circuit as its element is read, rather than reading the whole file into a
+ * DOM tree and then walking it several times as XmlReader does. Reading a
+ * large file thus takes memory in proportion to the circuits it holds rather
+ * than to its text. The
+ * small elements - libraries, options, mappings, the toolbar, and the shapes
+ * of circuit appearances - are still read into DOM elements, so that the code
+ * for them is shared with XmlReader.
+ *
+ * Only files that need none of the repairs XmlReader makes for older versions
+ * are read this way. A component may refer to a circuit defined further on,
+ * so such a circuit is created when first referred to and put in its place
+ * among the others at the end.
+ */
+class XmlStreamingReader {
+	// what the file gives for a circuit, kept until all are read
+	private static class CircuitContents {
+		private Circuit circuit;
+		private Map<String, String> attrsDefined;
+		private List<String> attrMessages;
+		private List<Component> comps;
+		private List<AbstractCanvasObject> appearance;
+
+		private CircuitContents(Circuit circuit, Map<String, String> attrsDefined, List<String> attrMessages,
+				List<Component> comps, List<AbstractCanvasObject> appearance) {
+			this.circuit = circuit;
+			this.attrsDefined = attrsDefined;
+			this.attrMessages = attrMessages;
+			this.comps = comps;
+			this.appearance = appearance;
+		}
+	}
+
+	// fills in all the circuits at once, since filling in one changes the
+	// ports of its instances in the others
+	private class CircuitBuilder extends CircuitTransaction {
+		@Override
+		protected Map<Circuit, Integer> getAccessedCircuits() {
+			HashMap<Circuit, Integer> access = new HashMap<Circuit, Integer>();
+			for (CircuitContents contents : circuits)
+				access.put(contents.circuit, READ_WRITE);
+			return access;
+		}
+
+		@Override
+		protected void run(CircuitMutator mutator, Project proj) {
+			for (CircuitContents contents : circuits) {
+				Circuit circuit = contents.circuit;
+				try {
+					context.initAttributeSet(contents.attrsDefined, contents.attrMessages,
+							circuit.getStaticAttributes(), null);
+				} catch (XmlReaderException e) {
+					context.addErrors(e, circuit.getName() + ".static");
+				}
+				mutator.addAll(circuit, contents.comps);
+				List<AbstractCanvasObject> appearance = contents.appearance;
+				if (appearance != null && !appearance.isEmpty()) {
+					circuit.getAppearance().setObjectsForce(appearance);
+					circuit.getAppearance().setDefaultAppearance(false);
+				}
+			}
+		}
+	}
+
+	private XMLStreamReader in;
+	private LogisimVersion version;
+	private XmlReader.ReadContext context;
+	private LogisimFile file;
+	private Document doc;
+
+	// the circuits in the order the file defines them
+	private ArrayList<CircuitContents> circuits = new ArrayList<CircuitContents>();
+
+	// circuits referred to by components but not defined yet
+	private HashMap<String, Circuit> undefined = new HashMap<String, Circuit>();
+
+	// the children of the project element read once the circuits exist
+	private ArrayList<Element> deferred = new ArrayList<Element>();
+
+	/** Reads the start of a file, up to its project element. */
+	XmlStreamingReader(InputStream is) throws SAXException {
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			in = factory.createXMLStreamReader(is);
+			while (in.next() != XMLStreamConstants.START_ELEMENT) {
+			}
+		} catch (XMLStreamException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
+		version = LogisimVersion.parse(getAttribute("source"));
+	}
+
+	private String getAttribute(String name) {
+		String ret = in.getAttributeValue(null, name);
+		return ret == null ? "" : ret;
+	}
+
+	private String getName() {
+		String prefix = in.getPrefix();
+		String local = in.getLocalName();
+		return prefix == null || prefix.equals("") ? local : prefix + ":" + local;
+	}
+
+	/**
+	 * Returns whether the file was saved by a version needing none of the
+	 * repairs XmlReader makes, so that it can be read by this class.
+	 */
+	boolean isCurrent() {
+		return !getAttribute("source").equals("") && version.compareTo(XmlReader.REPAIRS_END) >= 0;
+	}
+
+	// moves to the next start or end tag, skipping text and comments
+	private int nextTag() throws XMLStreamException {
+		while (true) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT
+					|| event == XMLStreamConstants.END_DOCUMENT)
+				return event;
+		}
+	}
+
+	/** Reads the file into context's file, which should be empty. */
+	void read(XmlReader.ReadContext context) throws SAXException {
+		this.context = context;
+		this.file = context.file;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		Main.FILE_VERSION = version;
+
+		try {
+			for (int event = nextTag(); event == XMLStreamConstants.START_ELEMENT; event = nextTag()) {
+				String name = in.getLocalName();
+				if (name.equals("lib")) {
+					Library lib = context.toLibrary(readElement());
+					if (lib != null)
+						file.addLibrary(lib);
+				} else if (name.equals("circuit")) {
+					readCircuit();
+				} else {
+					deferred.add(readElement());
+				}
+			}
+			in.close();
+		} catch (XMLStreamException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
+
+		removeUndefined();
+		for (int i = 0; i < circuits.size(); i++)
+			file.moveCircuit(file.getAddTool(circuits.get(i).circuit), i);
+		if (!circuits.isEmpty())
+			file.setMainCircuit(circuits.get(0).circuit);
+		for (Element elt : deferred)
+			context.loadTopElement(elt);
+		new CircuitBuilder().execute(null);
+	}
+
+	// reads an "a" element into attrsDefined, as XmlReader.readAttributes does
+	private void readAttribute(Map<String, String> attrsDefined, List<String> messages) throws XMLStreamException {
+		String attrName = in.getAttributeValue(null, "name");
+		String attrVal = in.getAttributeValue(null, "val");
+		if (attrVal == null)
+			attrVal = in.getElementText();
+		else
+			skipElement();
+		if (attrName == null)
+			messages.add(Strings.get("attrNameMissingError"));
+		else
+			attrsDefined.put(attrName, attrVal);
+	}
+
+	private void readCircuit() throws XMLStreamException {
+		String name = getAttribute("name");
+		if (name.equals("")) {
+			context.addError(Strings.get("circNameMissingError"), "C??");
+		}
+		Circuit circuit = undefined.remove(name);
+		if (circuit == null) {
+			circuit = new Circuit(name);
+			file.addCircuit(circuit);
+		}
+
+		HashMap<String, String> attrsDefined = new HashMap<String, String>();
+		ArrayList<String> attrMessages = new ArrayList<String>();
+		ArrayList<Element> shapes = new ArrayList<Element>();
+		ArrayList<Component> comps = new ArrayList<Component>();
+		HashMap<Location, Instance> pins = new HashMap<Location, Instance>();
+		for (int event = nextTag(); event == XMLStreamConstants.START_ELEMENT; event = nextTag()) {
+			String eltName = in.getLocalName();
+			if (eltName.equals("comp")) {
+				Component comp = readComponent(name);
+				if (comp != null) {
+					comps.add(comp);
+					if (comp.getFactory() == Pin.FACTORY)
+						pins.put(comp.getLocation(), Instance.getInstanceFor(comp));
+				}
+			} else if (eltName.equals("wire")) {
+				String from = getAttribute("from");
+				String to = getAttribute("to");
+				skipElement();
+				try {
+					comps.add(XmlCircuitReader.getWire(from, to));
+				} catch (XmlReaderException e) {
+					context.addErrors(e, name + "." + XmlCircuitReader.toWireString(from, to));
+				}
+			} else if (eltName.equals("a")) {
+				readAttribute(attrsDefined, attrMessages);
+			} else if (eltName.equals("appear")) {
+				for (int sub = nextTag(); sub == XMLStreamConstants.START_ELEMENT; sub = nextTag())
+					shapes.add(readElement());
+			} else {
+				skipElement();
+			}
+		}
+
+		XmlReader.CircuitData circData = new XmlReader.CircuitData(null, circuit);
+		context.loadAppearance(shapes, pins, circData, name + ".appear");
+		circuits.add(new CircuitContents(circuit, attrsDefined, attrMessages, comps, circData.appearance));
+	}
+
+	// reads a "comp" element, returning null if it can't be created
+	private Component readComponent(String circuitName) throws XMLStreamException {
+		String name = getAttribute("name");
+		String libName = getAttribute("lib");
+		String loc = getAttribute("loc");
+		HashMap<String, String> attrsDefined = new HashMap<String, String>();
+		ArrayList<String> messages = new ArrayList<String>();
+		for (int event = nextTag(); event == XMLStreamConstants.START_ELEMENT; event = nextTag()) {
+			if (in.getLocalName().equals("a"))
+				readAttribute(attrsDefined, messages);
+			else
+				skipElement();
+		}
+
+		// a subcircuit may be defined further on
+		if (libName.equals("") && !name.equals("") && file.getTool(name) == null) {
+			Circuit circuit = new Circuit(name);
+			undefined.put(name, circuit);
+			file.addCircuit(circuit);
+		}
+		try {
+			return XmlCircuitReader.getComponent(name, libName, loc, attrsDefined, messages, context);
+		} catch (XmlReaderException e) {
+			context.addErrors(e, circuitName + "." + XmlCircuitReader.toComponentString(name, loc));
+			return null;
+		}
+	}
+
+	// reads the current element and its content into a DOM element
+	private Element readElement() throws XMLStreamException {
+		Element ret = doc.createElement(getName());
+		for (int i = 0; i < in.getAttributeCount(); i++) {
+			String prefix = in.getAttributePrefix(i);
+			String local = in.getAttributeLocalName(i);
+			String name = prefix == null || prefix.equals("") ? local : prefix + ":" + local;
+			ret.setAttribute(name, in.getAttributeValue(i));
+		}
+		while (true) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				ret.appendChild(readElement());
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				ret.appendChild(doc.createTextNode(in.getText()));
+			} else if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+				return ret;
+			}
+		}
+	}
+
+	/**
+	 * Drops the circuits referred to but never defined, along with the
+	 * components referring to them, reporting those as XmlReader would.
+	 */
+	private void removeUndefined() {
+		if (undefined.isEmpty())
+			return;
+		for (CircuitContents contents : circuits) {
+			for (Iterator<Component> it = contents.comps.iterator(); it.hasNext();) {
+				Component comp = it.next();
+				if (!(comp.getFactory() instanceof SubcircuitFactory))
+					continue;
+				Circuit sub = ((SubcircuitFactory) comp.getFactory()).getSubcircuit();
+				if (undefined.get(sub.getName()) != sub)
+					continue;
+				it.remove();
+				context.addError(Strings.get("compUnknownError", sub.getName()), contents.circuit.getName() + "."
+						+ XmlCircuitReader.toComponentString(sub.getName(), comp.getLocation().toString()));
+			}
+		}
+		for (Circuit circuit : undefined.values())
+			file.removeCircuit(circuit);
+		undefined.clear();
+	}
+
+	// skips the current element and its content
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if (event == XMLStreamConstants.END_DOCUMENT)
+				return;
+		}
+	}
+}
@@ -4,12 +4,18 @@
 package com.cburch.logisim.gui.hex;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.StringTokenizer;
 
@@ -120,10 +126,208 @@ public class HexFile {
 		}
 	}
 
-	private static final String RAW_IMAGE_HEADER = "v2.0 raw";
+	static final String RAW_IMAGE_HEADER = "v2.0 raw";
 	private static final String COMMENT_MARKER = "#";
 
+	// values are handed to the model this many at a time, matching the pages
+	// of MemContents
+	private static final int CHUNK_SIZE = 4096;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// bytes per Intel HEX data record
+	private static final int RECORD_BYTES = 16;
+
+	private static void appendHexByte(StringBuilder buf, int value) {
+		buf.append(Character.toUpperCase(Character.forDigit((value >>> 4) & 0xF, 16)));
+		buf.append(Character.toUpperCase(Character.forDigit(value & 0xF, 16)));
+	}
+
+	private static ByteOrder getByteOrder(HexFormat format) {
+		return format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+
+	// returns the last address holding a nonzero value, or one before the
+	// first address if there is none
+	private static long getLastNonzero(HexModel src) {
+		long first = src.getFirstOffset();
+		long last = src.getLastOffset();
+		while (last >= first && src.get(last) == 0)
+			last--;
+		return last;
+	}
+
+	private static int hexByte(String line, int pos) throws IOException {
+		int hi = Character.digit(line.charAt(pos), 16);
+		int lo = Character.digit(line.charAt(pos + 1), 16);
+		if (hi < 0 || lo < 0)
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		return (hi << 4) | lo;
+	}
+
+	/** Loads a file in Logisim's format or Intel HEX, whichever it is in. */
 	public static void open(HexModel dst, File src) throws IOException {
+		HexFormat format;
+		try {
+			format = HexFormat.detect(src);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		open(dst, src, format == null ? HexFormat.DEFAULT : format);
+	}
+
+	/** Loads a file in the given format, or as open(dst, src) if it is null. */
+	public static void open(HexModel dst, File src, HexFormat format) throws IOException {
+		if (format == null) {
+			open(dst, src);
+		} else if (format.getType() == HexFormat.INTEL_HEX) {
+			openIntelHex(dst, src, format);
+		} else if (format.getType() != HexFormat.LOGISIM) {
+			openBinary(dst, src, format);
+		} else {
+			openLogisim(dst, src);
+		}
+	}
+
+	private static void openBinary(HexModel dst, File src, HexFormat format) throws IOException {
+		FileInputStream in;
+		try {
+			in = new FileInputStream(src);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		int wordBytes = format.getWordBytes(dst.getValueWidth());
+		long offs = dst.getFirstOffset();
+		long last = dst.getLastOffset();
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(getByteOrder(format));
+			int[] words = new int[CHUNK_SIZE];
+			int count = 0;
+			boolean eof = false;
+			while (!eof) {
+				try {
+					eof = channel.read(buf) < 0;
+				} catch (IOException e) {
+					throw new IOException(Strings.get("hexFileReadError"));
+				}
+				buf.flip();
+				while (buf.remaining() >= wordBytes || (eof && buf.hasRemaining())) {
+					int word;
+					if (buf.remaining() < wordBytes) {
+						// a partial word at the end of the file, padded with zeroes
+						word = 0;
+						for (int i = 0, n = buf.remaining(); i < n; i++) {
+							int shift = format.isBigEndian() ? 8 * (wordBytes - 1 - i) : 8 * i;
+							word |= (buf.get() & 0xFF) << shift;
+						}
+					} else if (wordBytes == 1) {
+						word = buf.get() & 0xFF;
+					} else if (wordBytes == 2) {
+						word = buf.getShort() & 0xFFFF;
+					} else {
+						word = buf.getInt();
+					}
+					words[count++] = word;
+					if (count == words.length) {
+						if (offs + count - 1 > last)
+							throw new IOException(Strings.get("hexFileSizeError"));
+						dst.set(offs, words);
+						offs += count;
+						count = 0;
+					}
+				}
+				buf.compact();
+			}
+			if (count > 0) {
+				if (offs + count - 1 > last)
+					throw new IOException(Strings.get("hexFileSizeError"));
+				dst.set(offs, Arrays.copyOf(words, count));
+				offs += count;
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+		dst.fill(offs, last - offs + 1, 0);
+	}
+
+	private static void openIntelHex(HexModel dst, File src, HexFormat format) throws IOException {
+		BufferedReader in;
+		try {
+			in = new BufferedReader(new FileReader(src), BUFFER_SIZE);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		int wordBytes = format.getWordBytes(dst.getValueWidth());
+		long first = dst.getFirstOffset();
+		long last = dst.getLastOffset();
+		dst.fill(first, last - first + 1, 0);
+
+		// records are collected a chunk at a time, starting from the current
+		// contents in case a file returns to an earlier chunk
+		int[] chunk = new int[CHUNK_SIZE];
+		long chunkStart = -1;
+		int chunkLength = 0;
+		try {
+			long base = 0;
+			for (String line = readLine(in); line != null; line = readLine(in)) {
+				line = line.trim();
+				if (line.length() == 0)
+					continue;
+				if (line.charAt(0) != ':' || line.length() < 11 || (line.length() - 1) % 2 != 0)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				int len = hexByte(line, 1);
+				if (line.length() != 11 + 2 * len)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				int sum = 0;
+				for (int i = 1; i < line.length(); i += 2)
+					sum += hexByte(line, i);
+				if ((sum & 0xFF) != 0)
+					throw new IOException(Strings.get("hexChecksumError"));
+				int addr = (hexByte(line, 3) << 8) | hexByte(line, 5);
+				int type = hexByte(line, 7);
+				if (type == 0) {
+					for (int i = 0; i < len; i++) {
+						long byteAddr = base + addr + i;
+						long word = first + byteAddr / wordBytes;
+						if (word > last)
+							throw new IOException(Strings.get("hexFileSizeError"));
+						if (word < chunkStart || word >= chunkStart + chunkLength) {
+							if (chunkStart >= 0)
+								dst.set(chunkStart, chunkLength == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk,
+										chunkLength));
+							chunkStart = word - (word - first) % CHUNK_SIZE;
+							chunkLength = (int) Math.min(CHUNK_SIZE, last - chunkStart + 1);
+							for (int j = 0; j < chunkLength; j++)
+								chunk[j] = dst.get(chunkStart + j);
+						}
+						int shift = 8 * (int) (byteAddr % wordBytes);
+						int index = (int) (word - chunkStart);
+						chunk[index] = (chunk[index] & ~(0xFF << shift)) | (hexByte(line, 9 + 2 * i) << shift);
+					}
+				} else if (type == 1) {
+					break;
+				} else if (type == 2 && len == 2) {
+					base = (long) ((hexByte(line, 9) << 8) | hexByte(line, 11)) << 4;
+				} else if (type == 4 && len == 2) {
+					base = (long) ((hexByte(line, 9) << 8) | hexByte(line, 11)) << 16;
+				} else if (type != 3 && type != 5) {
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				}
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+		if (chunkStart >= 0)
+			dst.set(chunkStart, chunkLength == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, chunkLength));
+	}
+
+	private static void openLogisim(HexModel dst, File src) throws IOException {
 		BufferedReader in;
 		try {
 			in = new BufferedReader(new FileReader(src));
@@ -132,7 +336,7 @@ public class HexFile {
 		}
 		try {
 			String header = in.readLine();
-			if (!header.equals(RAW_IMAGE_HEADER)) {
+			if (header == null || !header.equals(RAW_IMAGE_HEADER)) {
 				throw new IOException(Strings.get("hexHeaderFormatError"));
 			}
 			open(dst, in);
@@ -188,7 +392,115 @@ public class HexFile {
 		return data;
 	}
 
+	/** Reads a line, reporting a failure in the user's language. */
+	private static String readLine(BufferedReader in) throws IOException {
+		try {
+			return in.readLine();
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileReadError"));
+		}
+	}
+
+	/** Saves in Logisim's format. */
 	public static void save(File dst, HexModel src) throws IOException {
+		save(dst, src, HexFormat.DEFAULT);
+	}
+
+	/** Saves in the given format. */
+	public static void save(File dst, HexModel src, HexFormat format) throws IOException {
+		if (format.getType() == HexFormat.INTEL_HEX) {
+			saveIntelHex(dst, src, format);
+		} else if (format.getType() != HexFormat.LOGISIM) {
+			saveBinary(dst, src, format);
+		} else {
+			saveLogisim(dst, src);
+		}
+	}
+
+	private static void saveBinary(File dst, HexModel src, HexFormat format) throws IOException {
+		FileOutputStream out;
+		try {
+			out = new FileOutputStream(dst);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		int wordBytes = format.getWordBytes(src.getValueWidth());
+		long last = getLastNonzero(src);
+		try {
+			FileChannel channel = out.getChannel();
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(getByteOrder(format));
+			for (long addr = src.getFirstOffset(); addr <= last; addr++) {
+				if (buf.remaining() < wordBytes) {
+					buf.flip();
+					while (buf.hasRemaining())
+						channel.write(buf);
+					buf.clear();
+				}
+				int word = src.get(addr);
+				if (wordBytes == 1)
+					buf.put((byte) word);
+				else if (wordBytes == 2)
+					buf.putShort((short) word);
+				else
+					buf.putInt(word);
+			}
+			buf.flip();
+			while (buf.hasRemaining())
+				channel.write(buf);
+			out.close();
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileWriteError"));
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private static void saveIntelHex(File dst, HexModel src, HexFormat format) throws IOException {
+		Writer out;
+		try {
+			out = new BufferedWriter(new FileWriter(dst), BUFFER_SIZE);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		int wordBytes = format.getWordBytes(src.getValueWidth());
+		long first = src.getFirstOffset();
+		long end = (getLastNonzero(src) - first + 1) * wordBytes;
+		try {
+			int[] data = new int[RECORD_BYTES];
+			long upper = 0;
+			for (long start = 0; start < end; start += RECORD_BYTES) {
+				int len = (int) Math.min(RECORD_BYTES, end - start);
+				boolean zero = true;
+				for (int i = 0; i < len; i++) {
+					long byteAddr = start + i;
+					int word = src.get(first + byteAddr / wordBytes);
+					data[i] = (word >>> (8 * (int) (byteAddr % wordBytes))) & 0xFF;
+					zero = zero && data[i] == 0;
+				}
+				if (zero)
+					continue; // loading clears the memory first
+				if ((start >>> 16) != upper) {
+					upper = start >>> 16;
+					writeRecord(out, 4, 0, new int[] { (int) (upper >>> 8) & 0xFF, (int) upper & 0xFF }, 2);
+				}
+				writeRecord(out, 0, (int) start & 0xFFFF, data, len);
+			}
+			writeRecord(out, 1, 0, data, 0);
+			out.close();
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileWriteError"));
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private static void saveLogisim(File dst, HexModel src) throws IOException {
 		FileWriter out;
 		try {
 			out = new FileWriter(dst);
@@ -244,6 +556,23 @@ public class HexFile {
 			out.write('\n');
 	}
 
+	private static void writeRecord(Writer out, int type, int addr, int[] data, int len) throws IOException {
+		StringBuilder buf = new StringBuilder(11 + 2 * len);
+		buf.append(':');
+		int sum = len + (addr >>> 8) + (addr & 0xFF) + type;
+		appendHexByte(buf, len);
+		appendHexByte(buf, addr >>> 8);
+		appendHexByte(buf, addr & 0xFF);
+		appendHexByte(buf, type);
+		for (int i = 0; i < len; i++) {
+			appendHexByte(buf, data[i]);
+			sum += data[i];
+		}
+		appendHexByte(buf, -sum & 0xFF);
+		buf.append('\n');
+		out.write(buf.toString());
+	}
+
 	private HexFile() {
 	}
 }
@@ -0,0 +1,156 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.hex;
+
+import java.awt.Component;
+import java.awt.GridLayout;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+
+/**
+ * Describes how a memory image is stored in a file: as Logisim's own text
+ * format, as Intel HEX records, or as raw binary words in either byte order.
+ * Intel HEX and binary files hold bytes, which are grouped into words of
+ * getWordBytes bytes; a word size of 0 means as many bytes as the memory's
+ * values need. Words in Intel HEX files are little-endian.
+ */
+public class HexFormat {
+	public static final int LOGISIM = 0;
+	public static final int INTEL_HEX = 1;
+	public static final int BINARY_LITTLE = 2;
+	public static final int BINARY_BIG = 3;
+
+	public static final HexFormat DEFAULT = new HexFormat(LOGISIM, 0);
+
+	private static final String[] NAMES = { "logisim", "ihex", "binle", "binbe" };
+	private static final String[] LABELS = { "hexFormatLogisim", "hexFormatIntelHex", "hexFormatBinaryLittle",
+			"hexFormatBinaryBig" };
+	private static final int[] WORD_BYTES = { 0, 1, 2, 4 };
+
+	/**
+	 * Asks the user for a format, starting from the given one, and returns
+	 * null if the user cancels.
+	 */
+	public static HexFormat ask(Component parent, HexFormat initial, String title) {
+		String[] types = new String[LABELS.length];
+		for (int i = 0; i < types.length; i++)
+			types[i] = Strings.get(LABELS[i]);
+		String[] sizes = new String[WORD_BYTES.length];
+		sizes[0] = Strings.get("hexWordSizeAuto");
+		for (int i = 1; i < sizes.length; i++)
+			sizes[i] = String.valueOf(8 * WORD_BYTES[i]);
+		JComboBox<String> typeCombo = new JComboBox<String>(types);
+		JComboBox<String> sizeCombo = new JComboBox<String>(sizes);
+		if (initial != null) {
+			typeCombo.setSelectedIndex(initial.type);
+			for (int i = 0; i < WORD_BYTES.length; i++) {
+				if (WORD_BYTES[i] == initial.wordBytes)
+					sizeCombo.setSelectedIndex(i);
+			}
+		}
+
+		JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+		panel.add(new JLabel(Strings.get("hexFormatLabel")));
+		panel.add(typeCombo);
+		panel.add(new JLabel(Strings.get("hexWordSizeLabel")));
+		panel.add(sizeCombo);
+		int choice = JOptionPane.showConfirmDialog(parent, panel, title, JOptionPane.OK_CANCEL_OPTION,
+				JOptionPane.QUESTION_MESSAGE);
+		if (choice != JOptionPane.OK_OPTION)
+			return null;
+		return new HexFormat(typeCombo.getSelectedIndex(), WORD_BYTES[sizeCombo.getSelectedIndex()]);
+	}
+
+	/**
+	 * Guesses a file's format from its first bytes. Binary files can't be
+	 * recognized, so this returns null for anything that isn't text in
+	 * Logisim's format or Intel HEX.
+	 */
+	public static HexFormat detect(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] start = new byte[HexFile.RAW_IMAGE_HEADER.length()];
+			int n = 0;
+			while (n < start.length) {
+				int k = in.read(start, n, start.length - n);
+				if (k < 0)
+					break;
+				n += k;
+			}
+			if (new String(start, 0, n, "US-ASCII").equals(HexFile.RAW_IMAGE_HEADER))
+				return DEFAULT;
+			if (n > 0 && start[0] == ':')
+				return new HexFormat(INTEL_HEX, 0);
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Parses a format as given on the command line: one of logisim, ihex,
+	 * binle and binbe, optionally followed by a colon and a word size in
+	 * bits. Returns null if the string is not a format.
+	 */
+	public static HexFormat parse(String spec) {
+		String name = spec;
+		int wordBytes = 0;
+		int colon = spec.indexOf(':');
+		if (colon >= 0) {
+			name = spec.substring(0, colon);
+			try {
+				int bits = Integer.parseInt(spec.substring(colon + 1));
+				if (bits != 8 && bits != 16 && bits != 32)
+					return null;
+				wordBytes = bits / 8;
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name))
+				return new HexFormat(i, wordBytes);
+		}
+		return null;
+	}
+
+	private int type;
+	private int wordBytes;
+
+	public HexFormat(int type, int wordBytes) {
+		this.type = type;
+		this.wordBytes = wordBytes;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public int getWordBytes() {
+		return wordBytes;
+	}
+
+	/** Returns the bytes per word for a memory with values of this width. */
+	public int getWordBytes(int valueWidth) {
+		if (wordBytes > 0)
+			return wordBytes;
+		return valueWidth <= 8 ? 1 : valueWidth <= 16 ? 2 : 4;
+	}
+
+	public boolean isBigEndian() {
+		return type == BINARY_BIG;
+	}
+
+	@Override
+	public String toString() {
+		return wordBytes == 0 ? NAMES[type] : NAMES[type] + ":" + (8 * wordBytes);
+	}
+}
@@ -97,7 +97,10 @@ public class HexFrame extends LFrame {
 				if (choice == JFileChooser.APPROVE_OPTION) {
 					File f = chooser.getSelectedFile();
 					try {
-						HexFile.open(model, f);
+						HexFormat format = HexFormat.ask(HexFrame.this, HexFormat.detect(f), chooser.getDialogTitle());
+						if (format == null)
+							return;
+						HexFile.open(model, f, format);
 						lastFile = f;
 					} catch (IOException e) {
 						JOptionPane.showMessageDialog(HexFrame.this, e.getMessage(), Strings.get("hexOpenErrorTitle"),
@@ -110,8 +113,11 @@ public class HexFrame extends LFrame {
 				int choice = chooser.showSaveDialog(HexFrame.this);
 				if (choice == JFileChooser.APPROVE_OPTION) {
 					File f = chooser.getSelectedFile();
+					HexFormat format = HexFormat.ask(HexFrame.this, HexFormat.DEFAULT, chooser.getDialogTitle());
+					if (format == null)
+						return;
 					try {
-						HexFile.save(f, model);
+						HexFile.save(f, model, format);
 						lastFile = f;
 					} catch (IOException e) {
 						JOptionPane.showMessageDialog(HexFrame.this, e.getMessage(), Strings.get("hexSaveErrorTitle"),
@@ -13,6 +13,7 @@ import java.io.IOException;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
@@ -43,8 +44,12 @@ class FilePanel extends LogPanel {
 					return;
 				}
 				if (file.exists() && file.length() > 0) {
-					String[] options = { Strings.get("fileOverwriteOption"), Strings.get("fileAppendOption"),
-							Strings.get("fileCancelOption"), };
+					// a value change dump can't be continued by another
+					boolean canAppend = getModel().getFileFormat() != LogWriter.FORMAT_VCD;
+					String[] options = canAppend
+							? new String[] { Strings.get("fileOverwriteOption"), Strings.get("fileAppendOption"),
+									Strings.get("fileCancelOption"), }
+							: new String[] { Strings.get("fileOverwriteOption"), Strings.get("fileCancelOption"), };
 					int option = JOptionPane.showOptionDialog(getLogFrame(),
 							StringUtil.format(Strings.get("fileExistsMessage"), file.getName()),
 							Strings.get("fileExistsTitle"), 0, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
@@ -55,7 +60,7 @@ class FilePanel extends LogPanel {
 							delete.close();
 						} catch (IOException e) {
 						}
-					} else if (option == 1) {
+					} else if (option == 1 && canAppend) {
 						// do nothing
 					} else {
 						return;
@@ -64,6 +69,10 @@ class FilePanel extends LogPanel {
 				getModel().setFile(file);
 			} else if (src == headerCheckBox) {
 				getModel().setFileHeader(headerCheckBox.isSelected());
+			} else if (src == formatCombo) {
+				int format = formatCombo.getSelectedIndex();
+				if (format >= 0)
+					getModel().setFileFormat(format);
 			}
 		}
 
@@ -91,6 +100,10 @@ class FilePanel extends LogPanel {
 			enableButton.setEnabled(file != null);
 
 			headerCheckBox.setSelected(model.getFileHeader());
+			headerCheckBox.setEnabled(model.getFileFormat() == LogWriter.FORMAT_TEXT);
+			if (formatCombo.getItemCount() > model.getFileFormat()
+					&& formatCombo.getSelectedIndex() != model.getFileFormat())
+				formatCombo.setSelectedIndex(model.getFileFormat());
 		}
 
 		@Override
@@ -109,6 +122,8 @@ class FilePanel extends LogPanel {
 	private JLabel fileLabel = new JLabel();
 	private JTextField fileField = new JTextField();
 	private JButton selectButton = new JButton();
+	private JLabel formatLabel = new JLabel();
+	private JComboBox<String> formatCombo = new JComboBox<String>();
 	private JCheckBox headerCheckBox = new JCheckBox();
 	private JFileChooser chooser = JFileChoosers.create();
 
@@ -130,6 +145,10 @@ class FilePanel extends LogPanel {
 		fileField.setEditable(false);
 		fileField.setEnabled(false);
 
+		JPanel formatPanel = new JPanel();
+		formatPanel.add(formatLabel);
+		formatPanel.add(formatCombo);
+
 		setLayout(new GridBagLayout());
 		gb = (GridBagLayout) getLayout();
 		gc = new GridBagConstraints();
@@ -160,6 +179,8 @@ class FilePanel extends LogPanel {
 		gb.setConstraints(glue, gc);
 		add(glue);
 		gc.weighty = 0.0;
+		gb.setConstraints(formatPanel, gc);
+		add(formatPanel);
 		gb.setConstraints(headerCheckBox, gc);
 		add(headerCheckBox);
 		glue = new JPanel();
@@ -171,6 +192,7 @@ class FilePanel extends LogPanel {
 		enableButton.addActionListener(listener);
 		selectButton.addActionListener(listener);
 		headerCheckBox.addActionListener(listener);
+		formatCombo.addActionListener(listener);
 		modelChanged(null, getModel());
 		localeChanged();
 	}
@@ -191,6 +213,16 @@ class FilePanel extends LogPanel {
 		fileLabel.setText(Strings.get("fileLabel") + " ");
 		selectButton.setText(Strings.get("fileSelectButton"));
 		headerCheckBox.setText(Strings.get("fileHeaderCheck"));
+		formatLabel.setText(Strings.get("fileFormatLabel") + " ");
+
+		// the items' order matches the format numbers in LogWriter
+		formatCombo.removeActionListener(listener);
+		formatCombo.removeAllItems();
+		formatCombo.addItem(Strings.get("fileFormatText"));
+		formatCombo.addItem(Strings.get("fileFormatVcd"));
+		formatCombo.addItem(Strings.get("fileFormatBinary"));
+		formatCombo.setSelectedIndex(getModel() == null ? 0 : getModel().getFileFormat());
+		formatCombo.addActionListener(listener);
 	}
 
 	@Override
@@ -0,0 +1,98 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.cburch.logisim.data.Value;
+
+/**
+ * Carries log entries from the threads that produce them to the thread that
+ * writes the log file, without locking. Each slot keeps its own value array,
+ * which is reused from one entry to the next, so adding an entry allocates
+ * nothing once the slots have grown to the selection's size.
+ *
+ * Any number of threads may add entries, but only one may take them. A slot's
+ * sequence number tells whose turn it is: it equals the claiming position when
+ * the slot is free and that position plus one once the entry is in place.
+ */
+class LogBuffer {
+	private static final int CAPACITY = 4096;
+	private static final int MASK = CAPACITY - 1;
+
+	private AtomicLongArray sequence = new AtomicLongArray(CAPACITY);
+	private AtomicLong tail = new AtomicLong();
+	private long head = 0; // only used by the consumer
+
+	private LogWriter.Header[] headers = new LogWriter.Header[CAPACITY];
+	private long[] ticks = new long[CAPACITY];
+	private Value[][] values = new Value[CAPACITY][];
+	private int[] counts = new int[CAPACITY];
+
+	public LogBuffer() {
+		for (int i = 0; i < CAPACITY; i++)
+			sequence.set(i, i);
+	}
+
+	/**
+	 * Adds an entry, waiting for the consumer if the buffer is full so that
+	 * no entry is lost.
+	 */
+	public void add(LogWriter.Header header, long tick, Value[] vals) {
+		long pos;
+		int slot;
+		while (true) {
+			pos = tail.get();
+			slot = (int) pos & MASK;
+			long seq = sequence.get(slot);
+			if (seq == pos) {
+				if (tail.compareAndSet(pos, pos + 1))
+					break;
+			} else if (seq < pos) {
+				Thread.yield(); // full
+			}
+		}
+		Value[] dest = values[slot];
+		if (dest == null || dest.length < vals.length) {
+			dest = new Value[vals.length];
+			values[slot] = dest;
+		}
+		System.arraycopy(vals, 0, dest, 0, vals.length);
+		counts[slot] = vals.length;
+		headers[slot] = header;
+		ticks[slot] = tick;
+		sequence.lazySet(slot, pos + 1);
+	}
+
+	public int getCount() {
+		return counts[(int) head & MASK];
+	}
+
+	public LogWriter.Header getHeader() {
+		return headers[(int) head & MASK];
+	}
+
+	public long getTick() {
+		return ticks[(int) head & MASK];
+	}
+
+	/** Returns the values of the current entry; only getCount of them apply. */
+	public Value[] getValues() {
+		return values[(int) head & MASK];
+	}
+
+	/** Returns whether an entry is ready for the consumer. */
+	public boolean hasNext() {
+		return sequence.get((int) head & MASK) == head + 1;
+	}
+
+	/** Hands the current entry's slot back to the producers. */
+	public void release() {
+		int slot = (int) head & MASK;
+		headers[slot] = null;
+		sequence.lazySet(slot, head + CAPACITY);
+		head++;
+	}
+}
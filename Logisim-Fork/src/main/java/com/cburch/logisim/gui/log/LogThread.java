@@ -3,12 +3,18 @@
 
 package com.cburch.logisim.gui.log;
 
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.concurrent.locks.LockSupport;
 
+import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.Value;
 
+/**
+ * Writes the model's entries to its file. The simulator's thread only copies
+ * each entry's values into a LogBuffer; this thread formats and writes them,
+ * so the simulation doesn't wait on the file unless the buffer fills.
+ */
 class LogThread extends Thread implements ModelListener {
 	// file will be flushed with at least this frequency
 	private static final int FLUSH_FREQUENCY = 500;
@@ -16,117 +22,79 @@ class LogThread extends Thread implements ModelListener {
 	// file will be closed after waiting this many milliseconds between writes
 	private static final int IDLE_UNTIL_CLOSE = 10000;
 
+	// how long to wait for entries when the buffer is empty
+	private static final long POLL_NANOS = 5000000L;
+
 	private Model model;
-	private boolean canceled = false;
-	private Object lock = new Object();
-	private PrintWriter writer = null;
-	private boolean headerDirty = true;
+	private LogBuffer buffer = new LogBuffer();
+	private volatile LogWriter.Header header;
+	private volatile boolean canceled = false;
+	private volatile boolean closeRequested = false;
+	private volatile boolean fileOpen = false;
+
+	// used only by this thread
+	private LogWriter writer = null;
 	private long lastWrite = 0;
+	private long lastFlush = 0;
 
 	public LogThread(Model model) {
 		this.model = model;
+		this.header = new LogWriter.Header(model.getSelection());
 		model.addModelListener(this);
 	}
 
-	// Should hold lock and have verified that isFileEnabled() before
-	// entering this method.
 	private void addEntry(Value[] values) {
-		if (writer == null) {
-			if (model.getFile().length() == 0)
-				headerDirty = true;
-			try {
-				writer = new PrintWriter(new FileWriter(model.getFile(), true));
-			} catch (IOException e) {
-				model.setFile(null);
-				return;
-			}
-		}
-		Selection sel = model.getSelection();
-		if (headerDirty) {
-			if (model.getFileHeader()) {
-				StringBuilder buf = new StringBuilder();
-				for (int i = 0; i < sel.size(); i++) {
-					if (i > 0) {
-						buf.append("  ");
-						int l = (sel.get(i - 1).toString() + "  ").length()
-								- values[i - 1].toDisplayString(sel.get(i - 1).getRadix()).length();
-						if (l < 2)
-							for (int j = 0; j < (-l + 2); j++)
-								buf.append(" ");
-					}
-					buf.append(sel.get(i).toString());
-				}
-				writer.println(buf.toString());
-			}
-			headerDirty = false;
-		}
-		StringBuilder buf = new StringBuilder();
-		for (int i = 0; i < values.length; i++) {
-			if (i > 0) {
-				int l = (sel.get(i - 1).toString() + "  ").length()
-						- values[i - 1].toDisplayString(sel.get(i - 1).getRadix()).length();
-				if (l > 2)
-					for (int j = 0; j < l; j++)
-						buf.append(" ");
-				else
-					buf.append("  ");
-			}
-			if (values[i] != null) {
-				int radix = sel.get(i).getRadix();
-				buf.append(values[i].toDisplayString(radix));
-			}
-		}
-		writer.println(buf.toString());
-		lastWrite = System.currentTimeMillis();
+		CircuitState state = model.getCircuitState();
+		long tick = state == null ? 0 : state.getPropagator().getTickCount();
+		buffer.add(header, tick, values);
 	}
 
 	public void cancel() {
-		synchronized (lock) {
-			canceled = true;
-			if (writer != null) {
+		canceled = true;
+		LockSupport.unpark(this);
+	}
+
+	// a writer that is closed but kept reopens its file for the next entry,
+	// continuing where it left off
+	private void closeWriter(boolean keep) {
+		if (writer != null) {
+			try {
 				writer.close();
-				writer = null;
+			} catch (IOException e) {
 			}
+			if (!keep)
+				writer = null;
+			fileOpen = false;
 		}
 	}
 
 	@Override
 	public void entryAdded(ModelEvent event, Value[] values) {
-		synchronized (lock) {
-			if (isFileEnabled())
-				addEntry(values);
-		}
+		if (isFileEnabled())
+			addEntry(values);
 	}
 
 	public void fileChanged() {
-		if (writer != null) {
-			writer.close();
-			writer = null;
-		}
+		closeRequested = true;
 	}
 
 	@Override
 	public void filePropertyChanged(ModelEvent event) {
-		synchronized (lock) {
-			if (isFileEnabled()) {
-				if (writer == null) {
-					Selection sel = model.getSelection();
-					Value[] values = new Value[sel.size()];
-					boolean found = false;
-					for (int i = 0; i < values.length; i++) {
-						values[i] = model.getValueLog(sel.get(i)).getLast();
-						if (values[i] != null)
-							found = true;
-					}
-					if (found)
-						addEntry(values);
-				}
-			} else {
-				if (writer != null) {
-					writer.close();
-					writer = null;
+		if (isFileEnabled()) {
+			if (!fileOpen) {
+				Selection sel = model.getSelection();
+				Value[] values = new Value[sel.size()];
+				boolean found = false;
+				for (int i = 0; i < values.length; i++) {
+					values[i] = model.getValueLog(sel.get(i)).getLast();
+					if (values[i] != null)
+						found = true;
 				}
+				if (found)
+					addEntry(values);
 			}
+		} else {
+			closeRequested = true;
 		}
 	}
 
@@ -136,32 +104,65 @@ class LogThread extends Thread implements ModelListener {
 
 	@Override
 	public void run() {
-		while (!canceled) {
-			synchronized (lock) {
-				if (writer != null) {
-					if (System.currentTimeMillis() - lastWrite > IDLE_UNTIL_CLOSE) {
-						writer.close();
-						writer = null;
-					} else {
+		while (true) {
+			boolean stopping = canceled;
+			if (closeRequested) {
+				closeRequested = false;
+				closeWriter(false);
+			}
+			boolean wrote = false;
+			while (buffer.hasNext()) {
+				writeEntry();
+				buffer.release();
+				wrote = true;
+			}
+
+			long now = System.currentTimeMillis();
+			if (wrote)
+				lastWrite = now;
+			if (writer != null && writer.isOpen()) {
+				if (stopping || now - lastWrite > IDLE_UNTIL_CLOSE) {
+					closeWriter(true);
+				} else if (now - lastFlush >= FLUSH_FREQUENCY) {
+					try {
 						writer.flush();
+					} catch (IOException e) {
 					}
+					lastFlush = now;
 				}
 			}
-			try {
-				Thread.sleep(FLUSH_FREQUENCY);
-			} catch (InterruptedException e) {
-			}
-		}
-		synchronized (lock) {
-			if (writer != null) {
-				writer.close();
-				writer = null;
-			}
+			if (stopping)
+				break;
+			if (!wrote)
+				LockSupport.parkNanos(this, POLL_NANOS);
 		}
 	}
 
 	@Override
 	public void selectionChanged(ModelEvent event) {
-		headerDirty = true;
+		header = new LogWriter.Header(model.getSelection());
+	}
+
+	private void writeEntry() {
+		LogWriter.Header entryHeader = buffer.getHeader();
+		if (entryHeader.getColumnCount() != buffer.getCount())
+			return; // logged while the selection was changing
+		if (writer == null) {
+			File file = model.getFile();
+			if (file == null)
+				return;
+			writer = LogWriter.create(model.getFileFormat(), file, model.getFileHeader());
+		}
+		try {
+			writer.write(entryHeader, buffer.getTick(), buffer.getValues(), buffer.getCount());
+			fileOpen = true;
+		} catch (IOException e) {
+			if (!writer.isOpen()) {
+				writer = null;
+				model.setFile(null);
+			} else {
+				closeWriter(false);
+			}
+		}
 	}
 }
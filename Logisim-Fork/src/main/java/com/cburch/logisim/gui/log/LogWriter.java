@@ -0,0 +1,394 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.HashMap;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Writes log entries to a file in one of the formats offered by the File tab.
+ * Entries arrive with the header describing the selection at the time, and a
+ * writer notices when that header changes.
+ */
+abstract class LogWriter {
+	/**
+	 * Emits the compact binary format. The file begins with the bytes
+	 * "LGSMLOG" and a version byte of 1, followed by blocks that each start
+	 * with a tag byte. An 'H' block names the columns for the entries that
+	 * follow: a varint count, then for each column its name in modified UTF-8
+	 * (as DataOutput.writeUTF) and its width as a varint. An 'E' block is one
+	 * entry: the change in tick count since the previous entry as a zigzag
+	 * varint, then a byte per column. That byte is 0 if the column is as in
+	 * the previous entry, 1 if a fully defined value follows as a varint, and
+	 * 2 if the value, its unknown bits and its error bits follow as three
+	 * varints. Varints hold seven bits per byte, least significant first.
+	 */
+	private static class BinaryWriter extends LogWriter {
+		private DataOutputStream out = null;
+		private Header header = null;
+		private Value[] last = new Value[0];
+		private long lastTick = 0;
+
+		BinaryWriter(File file) {
+			super(file);
+		}
+
+		@Override
+		protected void closeFile() throws IOException {
+			out.close();
+			out = null;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (out != null)
+				out.flush();
+		}
+
+		@Override
+		protected void openFile(File file) throws IOException {
+			boolean empty = file.length() == 0;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+			if (empty) {
+				out.writeBytes("LGSMLOG");
+				out.writeByte(1);
+			}
+		}
+
+		@Override
+		protected void writeEntry(Header newHeader, long tick, Value[] values, int count) throws IOException {
+			if (newHeader != header) {
+				header = newHeader;
+				last = new Value[count];
+				out.writeByte('H');
+				writeVarint(count);
+				for (int i = 0; i < count; i++) {
+					out.writeUTF(header.names[i]);
+					writeVarint(values[i] == null ? 0 : values[i].getWidth());
+				}
+			}
+			out.writeByte('E');
+			long delta = tick - lastTick;
+			writeVarint((delta << 1) ^ (delta >> 63));
+			lastTick = tick;
+			for (int i = 0; i < count; i++) {
+				Value v = values[i];
+				if (v == null || v.equals(last[i])) {
+					out.writeByte(0);
+				} else if (v.isFullyDefined()) {
+					out.writeByte(1);
+					writeVarint(v.toLongValue());
+				} else {
+					long bits = 0;
+					long unknown = 0;
+					long error = 0;
+					for (int j = 0; j < v.getWidth(); j++) {
+						Value b = v.get(j);
+						if (b == Value.TRUE)
+							bits |= 1L << j;
+						else if (b == Value.UNKNOWN)
+							unknown |= 1L << j;
+						else if (b == Value.ERROR)
+							error |= 1L << j;
+					}
+					out.writeByte(2);
+					writeVarint(bits);
+					writeVarint(unknown);
+					writeVarint(error);
+				}
+				if (v != null)
+					last[i] = v;
+			}
+		}
+
+		private void writeVarint(long value) throws IOException {
+			while ((value & ~0x7FL) != 0) {
+				out.writeByte((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte((int) value);
+		}
+	}
+
+	/**
+	 * Describes the selection that entries were logged from. Headers are
+	 * immutable, so a writer can tell whether the selection has changed by
+	 * comparing references.
+	 */
+	static class Header {
+		private String[] names;
+		private int[] radixes;
+
+		Header(Selection sel) {
+			names = new String[sel.size()];
+			radixes = new int[sel.size()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = sel.get(i).toString();
+				radixes[i] = sel.get(i).getRadix();
+			}
+		}
+
+		int getColumnCount() {
+			return names.length;
+		}
+	}
+
+	/**
+	 * Emits the padded text format, with values in each column's radix and a
+	 * header line whenever the selection changes, if headers are wanted.
+	 */
+	private static class TextWriter extends LogWriter {
+		private PrintWriter out = null;
+		private boolean includeHeader;
+		private Header header = null;
+
+		TextWriter(File file, boolean includeHeader) {
+			super(file);
+			this.includeHeader = includeHeader;
+		}
+
+		@Override
+		protected void closeFile() {
+			out.close();
+			out = null;
+		}
+
+		@Override
+		public void flush() {
+			if (out != null)
+				out.flush();
+		}
+
+		@Override
+		protected void openFile(File file) throws IOException {
+			out = new PrintWriter(new BufferedWriter(new FileWriter(file, true)));
+		}
+
+		@Override
+		protected void writeEntry(Header newHeader, long tick, Value[] values, int count) throws IOException {
+			String[] strings = new String[count];
+			for (int i = 0; i < count; i++)
+				strings[i] = values[i] == null ? "" : values[i].toDisplayString(newHeader.radixes[i]);
+			String[] names = newHeader.names;
+			if (newHeader != header) {
+				header = newHeader;
+				if (includeHeader) {
+					StringBuilder buf = new StringBuilder();
+					for (int i = 0; i < count; i++) {
+						if (i > 0) {
+							buf.append("  ");
+							int l = (names[i - 1] + "  ").length() - strings[i - 1].length();
+							if (l < 2)
+								for (int j = 0; j < (-l + 2); j++)
+									buf.append(" ");
+						}
+						buf.append(names[i]);
+					}
+					out.println(buf.toString());
+				}
+			}
+			StringBuilder buf = new StringBuilder();
+			for (int i = 0; i < count; i++) {
+				if (i > 0) {
+					int l = (names[i - 1] + "  ").length() - strings[i - 1].length();
+					if (l > 2)
+						for (int j = 0; j < l; j++)
+							buf.append(" ");
+					else
+						buf.append("  ");
+				}
+				buf.append(strings[i]);
+			}
+			out.println(buf.toString());
+		}
+	}
+
+	/**
+	 * Emits a value change dump, as read by waveform viewers, with time
+	 * counted in clock ticks. The variables are those selected when the file
+	 * was begun; a later selection change only affects the columns that
+	 * share a name with one of them. Each writer begins the file anew.
+	 */
+	private static class VcdWriter extends LogWriter {
+		private PrintWriter out = null;
+		private Header header = null;
+		private HashMap<String, Integer> ids = null;
+		private int[] columnIds = new int[0]; // -1 for columns not in the file
+		private String[] lastBits;
+		private long lastTick = -1;
+		private long tickOffset = 0;
+
+		VcdWriter(File file) {
+			super(file);
+		}
+
+		private static String getId(int index) {
+			StringBuilder ret = new StringBuilder();
+			do {
+				ret.append((char) ('!' + index % 94));
+				index = index / 94;
+			} while (index > 0);
+			return ret.toString();
+		}
+
+		private static String toBits(Value v) {
+			char[] ret = new char[v.getWidth()];
+			for (int i = 0; i < ret.length; i++) {
+				Value b = v.get(ret.length - 1 - i);
+				ret[i] = b == Value.TRUE ? '1' : b == Value.FALSE ? '0' : b == Value.UNKNOWN ? 'z' : 'x';
+			}
+			return new String(ret);
+		}
+
+		@Override
+		protected void closeFile() {
+			out.close();
+			out = null;
+		}
+
+		@Override
+		public void flush() {
+			if (out != null)
+				out.flush();
+		}
+
+		@Override
+		protected void openFile(File file) throws IOException {
+			// a dump has only one set of definitions, so a new one replaces
+			// the file rather than following whatever is there
+			boolean append = ids != null;
+			out = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file, append)),
+					"US-ASCII"));
+		}
+
+		@Override
+		protected void writeEntry(Header newHeader, long tick, Value[] values, int count) throws IOException {
+			boolean first = ids == null;
+			if (first) {
+				ids = new HashMap<String, Integer>();
+				lastBits = new String[count];
+				out.println("$date " + new Date() + " $end");
+				out.println("$version Logisim " + Main.VERSION_NAME + " $end");
+				out.println("$comment time is counted in clock ticks $end");
+				out.println("$timescale 1 ns $end");
+				out.println("$scope module logisim $end");
+				for (int i = 0; i < count; i++) {
+					String name = newHeader.names[i].replaceAll("\\s", "_");
+					int width = values[i] == null ? 1 : Math.max(1, values[i].getWidth());
+					out.println("$var wire " + width + " " + getId(i) + " " + name + " $end");
+					ids.put(newHeader.names[i], Integer.valueOf(i));
+				}
+				out.println("$upscope $end");
+				out.println("$enddefinitions $end");
+			}
+			if (newHeader != header) {
+				header = newHeader;
+				columnIds = new int[count];
+				for (int i = 0; i < count; i++) {
+					Integer id = ids.get(newHeader.names[i]);
+					columnIds[i] = id == null ? -1 : id.intValue();
+				}
+			}
+
+			// time may not run backwards, as it does when the simulation is
+			// reset
+			if (tick + tickOffset < lastTick)
+				tickOffset = lastTick - tick;
+			long time = tick + tickOffset;
+			boolean timeWritten = false;
+			for (int i = 0; i < count; i++) {
+				int id = columnIds[i];
+				if (id < 0 || values[i] == null)
+					continue;
+				String bits = toBits(values[i]);
+				if (bits.length() == 0 || bits.equals(lastBits[id]))
+					continue;
+				if (!timeWritten && time != lastTick) {
+					out.println("#" + time);
+					if (first)
+						out.println("$dumpvars");
+				}
+				timeWritten = true;
+				lastBits[id] = bits;
+				if (bits.length() == 1)
+					out.println(bits + getId(id));
+				else
+					out.println("b" + bits + " " + getId(id));
+			}
+			if (first && timeWritten)
+				out.println("$end");
+			if (timeWritten)
+				lastTick = time;
+		}
+	}
+
+	static final int FORMAT_TEXT = 0;
+	static final int FORMAT_VCD = 1;
+	static final int FORMAT_BINARY = 2;
+
+	static LogWriter create(int format, File file, boolean includeHeader) {
+		switch (format) {
+		case FORMAT_VCD:
+			return new VcdWriter(file);
+		case FORMAT_BINARY:
+			return new BinaryWriter(file);
+		default:
+			return new TextWriter(file, includeHeader);
+		}
+	}
+
+	private File file;
+	private boolean open = false;
+
+	LogWriter(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Closes the file, which is reopened for appending by the next write, so
+	 * that the log continues as if it had stayed open.
+	 */
+	public void close() throws IOException {
+		if (open) {
+			open = false;
+			closeFile();
+		}
+	}
+
+	protected abstract void closeFile() throws IOException;
+
+	public abstract void flush() throws IOException;
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	protected abstract void openFile(File file) throws IOException;
+
+	/**
+	 * Writes one entry; only the first count values apply, and a null value
+	 * is one that could not be fetched.
+	 */
+	public void write(Header header, long tick, Value[] values, int count) throws IOException {
+		if (!open) {
+			openFile(file);
+			open = true;
+		}
+		writeEntry(header, tick, values, count);
+	}
+
+	protected abstract void writeEntry(Header header, long tick, Value[] values, int count) throws IOException;
+}
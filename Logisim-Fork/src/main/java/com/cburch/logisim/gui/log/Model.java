@@ -20,8 +20,10 @@ class Model {
 	private boolean fileEnabled = false;
 	private File file = null;
 	private boolean fileHeader = true;
+	private int fileFormat = LogWriter.FORMAT_TEXT;
 	private boolean selected = false;
 	private LogThread logger = null;
+	private Value[] fetched = new Value[0]; // reused by propagationCompleted
 
 	public Model(CircuitState circuitState) {
 		listeners = new EventSourceWeakSupport<ModelListener>();
@@ -34,12 +36,17 @@ class Model {
 	}
 
 	public void clearAllLogs() {
+		for (ValueLog l : log.values())
+			l.dispose();
 		log.clear();
 	}
 
 	public void clearValueLog(SelectionItem item) {
-		if (selection.indexOf(item) >= 0)
-			log.put(item, new ValueLog());
+		if (selection.indexOf(item) >= 0) {
+			ValueLog old = log.put(item, new ValueLog());
+			if (old != null)
+				old.dispose();
+		}
 	}
 
 	private void fireEntryAdded(ModelEvent e, Value[] values) {
@@ -58,6 +65,7 @@ class Model {
 		for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext();) {
 			SelectionItem i = it.next();
 			if (selection.indexOf(i) < 0) {
+				log.get(i).dispose();
 				it.remove();
 			}
 		}
@@ -75,6 +83,10 @@ class Model {
 		return file;
 	}
 
+	public int getFileFormat() {
+		return fileFormat;
+	}
+
 	public boolean getFileHeader() {
 		return fileHeader;
 	}
@@ -102,7 +114,9 @@ class Model {
 
 	public void propagationCompleted() {
 		CircuitState circuitState = getCircuitState();
-		Value[] vals = new Value[selection.size()];
+		if (fetched.length != selection.size())
+			fetched = new Value[selection.size()];
+		Value[] vals = fetched;
 		boolean changed = false;
 		for (int i = selection.size() - 1; i >= 0; i--) {
 			SelectionItem item = selection.get(i);
@@ -129,7 +143,8 @@ class Model {
 		file = value;
 		fileEnabled = file != null;
 		fireFilePropertyChanged(new ModelEvent());
-		logger.fileChanged();
+		if (logger != null)
+			logger.fileChanged();
 	}
 
 	public void setFileEnabled(boolean value) {
@@ -139,11 +154,22 @@ class Model {
 		fireFilePropertyChanged(new ModelEvent());
 	}
 
+	public void setFileFormat(int value) {
+		if (fileFormat == value)
+			return;
+		fileFormat = value;
+		fireFilePropertyChanged(new ModelEvent());
+		if (logger != null)
+			logger.fileChanged();
+	}
+
 	public void setFileHeader(boolean value) {
 		if (fileHeader == value)
 			return;
 		fileHeader = value;
 		fireFilePropertyChanged(new ModelEvent());
+		if (logger != null)
+			logger.fileChanged();
 	}
 
 	public void setSelected(JFrame frame, boolean value) {
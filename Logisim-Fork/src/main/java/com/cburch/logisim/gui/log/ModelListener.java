@@ -6,6 +6,7 @@ package com.cburch.logisim.gui.log;
 import com.cburch.logisim.data.Value;
 
 interface ModelListener {
+	/** Reports a new entry; the values array is only valid during the call. */
 	public void entryAdded(ModelEvent event, Value[] values);
 
 	public void filePropertyChanged(ModelEvent event);
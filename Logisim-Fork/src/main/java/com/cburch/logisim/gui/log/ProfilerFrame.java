@@ -0,0 +1,255 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import com.cburch.logisim.circuit.SimulationProfiler;
+import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.file.LibraryEvent;
+import com.cburch.logisim.file.LibraryListener;
+import com.cburch.logisim.gui.generic.LFrame;
+import com.cburch.logisim.gui.menu.LogisimMenuBar;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.proj.ProjectEvent;
+import com.cburch.logisim.proj.ProjectListener;
+import com.cburch.logisim.util.LocaleListener;
+import com.cburch.logisim.util.LocaleManager;
+import com.cburch.logisim.util.StringUtil;
+import com.cburch.logisim.util.WindowMenuItemManager;
+
+/**
+ * Shows the counts that the simulator's profiler has collected, per component
+ * type, per component and per circuit, refreshing them once a second while
+ * profiling is on.
+ */
+public class ProfilerFrame extends LFrame {
+	private static class EntryTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+
+		private List<SimulationProfiler.Entry> entries = Collections.emptyList();
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			return column == 0 ? String.class : column == 3 ? Double.class : Long.class;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return 4;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			switch (column) {
+			case 0:
+				return Strings.get("profilerNameColumn");
+			case 1:
+				return Strings.get("profilerEventsColumn");
+			case 2:
+				return Strings.get("profilerPropagationsColumn");
+			default:
+				return Strings.get("profilerTimeColumn");
+			}
+		}
+
+		@Override
+		public int getRowCount() {
+			return entries.size();
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			SimulationProfiler.Entry e = entries.get(row);
+			switch (column) {
+			case 0:
+				return e.getName();
+			case 1:
+				return Long.valueOf(e.getEvents());
+			case 2:
+				return Long.valueOf(e.getPropagations());
+			default:
+				return Double.valueOf(Math.round(e.getNanos() / 1000.0) / 1000.0);
+			}
+		}
+
+		void setEntries(List<SimulationProfiler.Entry> value) {
+			entries = value;
+			fireTableDataChanged();
+		}
+	}
+
+	private class MyListener implements ActionListener, ProjectListener, LibraryListener, LocaleListener {
+		@Override
+		public void actionPerformed(ActionEvent event) {
+			Object src = event.getSource();
+			Simulator sim = project.getSimulator();
+			if (src == enable) {
+				sim.setIsProfiling(enable.isSelected());
+				refresh();
+			} else if (src == reset) {
+				sim.getProfiler().reset();
+				refresh();
+			} else if (src == timer) {
+				if (isVisible() && sim.isProfiling())
+					refresh();
+			}
+		}
+
+		@Override
+		public void libraryChanged(LibraryEvent event) {
+			if (event.getAction() == LibraryEvent.SET_NAME) {
+				setTitle(computeTitle(project));
+			}
+		}
+
+		@Override
+		public void localeChanged() {
+			setTitle(computeTitle(project));
+			tabbedPane.setTitleAt(0, Strings.get("profilerFactoryTab"));
+			tabbedPane.setTitleAt(1, Strings.get("profilerComponentTab"));
+			tabbedPane.setTitleAt(2, Strings.get("profilerCircuitTab"));
+			for (EntryTableModel model : models)
+				model.fireTableStructureChanged();
+			enable.setText(Strings.get("profilerEnableBox"));
+			reset.setText(Strings.get("profilerResetButton"));
+			refresh();
+			windowManager.localeChanged();
+		}
+
+		@Override
+		public void projectChanged(ProjectEvent event) {
+			if (event.getAction() == ProjectEvent.ACTION_SET_FILE) {
+				setTitle(computeTitle(project));
+			}
+		}
+	}
+
+	private class WindowMenuManager extends WindowMenuItemManager
+			implements LocaleListener, ProjectListener, LibraryListener {
+		WindowMenuManager() {
+			super(Strings.get("profilerFrameMenuItem"), false);
+			project.addProjectListener(this);
+			project.addLibraryListener(this);
+		}
+
+		@Override
+		public JFrame getJFrame(boolean create) {
+			return ProfilerFrame.this;
+		}
+
+		@Override
+		public void libraryChanged(LibraryEvent event) {
+			if (event.getAction() == LibraryEvent.SET_NAME) {
+				localeChanged();
+			}
+		}
+
+		@Override
+		public void localeChanged() {
+			String title = project.getLogisimFile().getDisplayName();
+			setText(StringUtil.format(Strings.get("profilerFrameMenuItem"), title));
+		}
+
+		@Override
+		public void projectChanged(ProjectEvent event) {
+			if (event.getAction() == ProjectEvent.ACTION_SET_FILE) {
+				localeChanged();
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int REFRESH_MILLIS = 1000;
+
+	private static String computeTitle(Project proj) {
+		return StringUtil.format(Strings.get("profilerFrameTitle"), proj.getLogisimFile().getDisplayName());
+	}
+
+	private Project project;
+	private MyListener myListener = new MyListener();
+	private WindowMenuManager windowManager;
+	private EntryTableModel[] models = { new EntryTableModel(), new EntryTableModel(), new EntryTableModel() };
+	private JTabbedPane tabbedPane = new JTabbedPane();
+	private JCheckBox enable = new JCheckBox();
+	private JButton reset = new JButton();
+	private JLabel summary = new JLabel();
+	private Timer timer = new Timer(REFRESH_MILLIS, myListener);
+
+	public ProfilerFrame(Project project) {
+		this.project = project;
+		this.windowManager = new WindowMenuManager();
+		project.addProjectListener(myListener);
+		project.addLibraryListener(myListener);
+		setDefaultCloseOperation(HIDE_ON_CLOSE);
+		setJMenuBar(new LogisimMenuBar(this, project));
+
+		for (EntryTableModel model : models) {
+			JTable table = new JTable(model);
+			table.setAutoCreateRowSorter(true);
+			tabbedPane.addTab("", new JScrollPane(table));
+		}
+
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(enable);
+		buttonPanel.add(reset);
+		enable.setSelected(project.getSimulator().isProfiling());
+		enable.addActionListener(myListener);
+		reset.addActionListener(myListener);
+
+		Container contents = getContentPane();
+		tabbedPane.setPreferredSize(new Dimension(550, 350));
+		contents.add(summary, BorderLayout.NORTH);
+		contents.add(tabbedPane, BorderLayout.CENTER);
+		contents.add(buttonPanel, BorderLayout.SOUTH);
+
+		LocaleManager.addLocaleListener(myListener);
+		myListener.localeChanged();
+		pack();
+		setLocationRelativeTo(null);
+		timer.start();
+	}
+
+	public Project getProject() {
+		return project;
+	}
+
+	private void refresh() {
+		SimulationProfiler profiler = project.getSimulator().getProfiler();
+		models[0].setEntries(profiler.getFactoryEntries());
+		models[1].setEntries(profiler.getComponentEntries());
+		models[2].setEntries(profiler.getStateEntries());
+		double seconds = Math.round(profiler.getElapsedNanos() / 1e8) / 10.0;
+		summary.setText(StringUtil.format(Strings.get("profilerSummary"), "" + profiler.getStepCount(),
+				"" + seconds));
+	}
+
+	@Override
+	public void setVisible(boolean value) {
+		if (value) {
+			windowManager.frameOpened(this);
+			enable.setSelected(project.getSimulator().isProfiling());
+			refresh();
+		}
+		super.setVisible(value);
+	}
+}
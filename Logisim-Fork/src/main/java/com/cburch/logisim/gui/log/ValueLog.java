@@ -3,50 +3,190 @@
 
 package com.cburch.logisim.gui.log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
 import com.cburch.logisim.data.Value;
 
+/**
+ * Holds the history of one selected item's values. Entries are kept as bits
+ * rather than Value objects, in chunks of CHUNK entries. The most recent
+ * RECENT_CHUNKS chunks are in memory; older chunks are written to a temporary
+ * file that is mapped into memory a segment at a time, so the history can
+ * grow far beyond what the heap would hold while any entry can still be
+ * fetched by its index.
+ *
+ * The simulator appends while the table reads, so the public methods are
+ * synchronized.
+ */
 class ValueLog {
-	private static final int LOG_SIZE = 400;
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int RECENT_CHUNKS = 8;
+
+	// the file holds at most MAX_CHUNKS chunks, with chunk n in slot
+	// n % MAX_CHUNKS, so the oldest entries are dropped once it is full
+	private static final int MAX_CHUNKS = 1 << 16;
+	private static final int SEGMENT_CHUNKS = 256;
+
+	// a width byte followed by the error, unknown and value bits; a width of
+	// -1 stands for a null entry
+	private static final int RECORD = 25;
+	private static final int CHUNK_BYTES = CHUNK * RECORD;
+	private static final int SEGMENT_BYTES = SEGMENT_CHUNKS * CHUNK_BYTES;
 
-	private Value[] log;
-	private short curSize;
-	private short firstIndex;
+	private byte[][] widths = new byte[RECENT_CHUNKS][];
+	private long[][] errors = new long[RECENT_CHUNKS][];
+	private long[][] unknowns = new long[RECENT_CHUNKS][];
+	private long[][] values = new long[RECENT_CHUNKS][];
+	private long count = 0; // entries ever appended
+	private long firstChunk = 0; // oldest chunk that can still be read
+	private Value last = null;
+
+	private File spillFile = null;
+	private RandomAccessFile spill = null;
+	private MappedByteBuffer[] segments = null;
+	private boolean spillFailed = false;
 
 	public ValueLog() {
-		log = new Value[LOG_SIZE];
-		curSize = 0;
-		firstIndex = 0;
 	}
 
-	public void append(Value val) {
-		if (curSize < LOG_SIZE) {
-			log[curSize] = val;
-			curSize++;
+	public synchronized void append(Value val) {
+		int offs = (int) (count & (CHUNK - 1));
+		long chunk = count >>> CHUNK_BITS;
+		int slot = (int) (chunk % RECENT_CHUNKS);
+		if (offs == 0) {
+			if (chunk >= RECENT_CHUNKS)
+				spillChunk(chunk - RECENT_CHUNKS);
+			if (widths[slot] == null) {
+				widths[slot] = new byte[CHUNK];
+				errors[slot] = new long[CHUNK];
+				unknowns[slot] = new long[CHUNK];
+				values[slot] = new long[CHUNK];
+			}
+		}
+		if (val == null) {
+			widths[slot][offs] = -1;
 		} else {
-			log[firstIndex] = val;
-			firstIndex++;
-			if (firstIndex >= LOG_SIZE)
-				firstIndex = 0;
+			widths[slot][offs] = (byte) val.getWidth();
+			errors[slot][offs] = val.getErrorBits();
+			unknowns[slot][offs] = val.getUnknownBits();
+			values[slot][offs] = val.getValueBits();
+		}
+		count++;
+		last = val;
+	}
+
+	/** Deletes the file holding older entries; the log is unusable afterward. */
+	public synchronized void dispose() {
+		closeSpill();
+		widths = new byte[RECENT_CHUNKS][];
+		errors = new long[RECENT_CHUNKS][];
+		unknowns = new long[RECENT_CHUNKS][];
+		values = new long[RECENT_CHUNKS][];
+		count = 0;
+		firstChunk = 0;
+		last = null;
+	}
+
+	private void closeSpill() {
+		segments = null;
+		if (spill != null) {
+			try {
+				spill.close();
+			} catch (IOException e) {
+			}
+			spill = null;
+		}
+		if (spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
 		}
 	}
 
-	public short firstIndex() {
-		return firstIndex;
+	/** Returns the number of entries that have been dropped from the start. */
+	public synchronized long firstIndex() {
+		return firstChunk << CHUNK_BITS;
+	}
+
+	/** Returns an entry, where 0 is the oldest one still available. */
+	public synchronized Value get(int index) {
+		long entry = (firstChunk << CHUNK_BITS) + index;
+		if (index < 0 || entry >= count)
+			return null;
+		long chunk = entry >>> CHUNK_BITS;
+		int offs = (int) (entry & (CHUNK - 1));
+		if (chunk > ((count - 1) >>> CHUNK_BITS) - RECENT_CHUNKS) {
+			int slot = (int) (chunk % RECENT_CHUNKS);
+			int width = widths[slot][offs];
+			if (width < 0)
+				return null;
+			return Value.create(width, errors[slot][offs], unknowns[slot][offs], values[slot][offs]);
+		}
+		int pos = (int) (chunk % MAX_CHUNKS);
+		MappedByteBuffer segment = segments[pos / SEGMENT_CHUNKS];
+		int at = (pos % SEGMENT_CHUNKS) * CHUNK_BYTES + offs * RECORD;
+		int width = segment.get(at);
+		if (width < 0)
+			return null;
+		return Value.create(width, segment.getLong(at + 1), segment.getLong(at + 9), segment.getLong(at + 17));
 	}
 
-	public Value get(int index) {
-		int i = firstIndex + index;
-		if (i >= LOG_SIZE)
-			i -= LOG_SIZE;
-		return log[i];
+	public synchronized Value getLast() {
+		return last;
 	}
 
-	public Value getLast() {
-		return curSize < LOG_SIZE ? (curSize == 0 ? null : log[curSize - 1])
-				: (firstIndex == 0 ? log[curSize - 1] : log[firstIndex - 1]);
+	public synchronized int size() {
+		return (int) (count - (firstChunk << CHUNK_BITS));
 	}
 
-	public int size() {
-		return curSize;
+	// writes a chunk that is about to leave memory to the file, or drops it
+	// if the file can't be used
+	private void spillChunk(long chunk) {
+		if (spillFailed || chunk < firstChunk) {
+			firstChunk = Math.max(firstChunk, chunk + 1);
+			return;
+		}
+		int pos = (int) (chunk % MAX_CHUNKS);
+		MappedByteBuffer segment;
+		try {
+			if (spill == null) {
+				spillFile = File.createTempFile("logisim-log", ".tmp");
+				spillFile.deleteOnExit();
+				spill = new RandomAccessFile(spillFile, "rw");
+				segments = new MappedByteBuffer[MAX_CHUNKS / SEGMENT_CHUNKS];
+			}
+			int index = pos / SEGMENT_CHUNKS;
+			segment = segments[index];
+			if (segment == null) {
+				segment = spill.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) index * SEGMENT_BYTES,
+						SEGMENT_BYTES);
+				segments[index] = segment;
+			}
+		} catch (IOException e) {
+			spillFailed = true;
+			closeSpill();
+			firstChunk = chunk + 1;
+			return;
+		}
+
+		int slot = (int) (chunk % RECENT_CHUNKS);
+		byte[] w = widths[slot];
+		long[] e = errors[slot];
+		long[] u = unknowns[slot];
+		long[] v = values[slot];
+		int at = (pos % SEGMENT_CHUNKS) * CHUNK_BYTES;
+		for (int i = 0; i < CHUNK; i++) {
+			segment.put(at, w[i]);
+			segment.putLong(at + 1, e[i]);
+			segment.putLong(at + 9, u[i]);
+			segment.putLong(at + 17, v[i]);
+			at += RECORD;
+		}
+		if (chunk >= MAX_CHUNKS)
+			firstChunk = chunk - MAX_CHUNKS + 1;
 	}
 }
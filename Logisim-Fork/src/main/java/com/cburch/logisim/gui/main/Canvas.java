@@ -38,6 +38,7 @@ import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.DamageRegion;
 import com.cburch.logisim.circuit.Propagator;
 import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
@@ -276,6 +277,7 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 			if (AppPreferences.GATE_SHAPE.isSource(event) || AppPreferences.SHOW_TICK_RATE.isSource(event)
 					|| AppPreferences.ANTI_ALIASING.isSource(event)
 					|| AppPreferences.FILL_COMPONENT_BACKGROUND.isSource(event)) {
+				painter.invalidateStaticLayer(true);
 				paintThread.requestRepaint();
 			} else if (AppPreferences.REFRESH_RATE.isSource(event)) {
 				paintThread.setRefreshRate(Integer.parseInt(AppPreferences.REFRESH_RATE.get()));
@@ -322,6 +324,10 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 		@Override
 		public void circuitChanged(CircuitEvent event) {
 			int act = event.getAction();
+			if (act == CircuitEvent.ACTION_INVALIDATE)
+				painter.invalidateStaticComponent((Component) event.getData());
+			else
+				painter.invalidateStaticLayer(true);
 			if (act == CircuitEvent.ACTION_REMOVE) {
 				Component c = (Component) event.getData();
 				if (c == painter.getHaloedComponent()) {
@@ -437,7 +443,7 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 			 * Math.random()); // repaintDuration is for jittering the repaints to // reduce
 			 * aliasing effects repaint(); }
 			 */
-			paintThread.requestRepaint();
+			repaintPropagated();
 		}
 
 		@Override
@@ -679,6 +685,8 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 	public static final Color TICK_RATE_COLOR = Color.GRAY;
 
 	private static final Font TICK_RATE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 14);
+	private static final int TICK_RATE_WIDTH = 160;
+	private static final int TICK_RATE_HEIGHT = 30;
 
 	public static final byte zoomButtonSize = 52, zoomButtonMargin = 30;
 
@@ -775,6 +783,11 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 
 	private boolean paintDirty = false; // only for within paintComponent
 
+	// where propagation changes what is shown; only for repaintPropagated
+	private CircuitState damageState = null;
+	private DamageRegion damage = null;
+	private boolean wasOscillating = false;
+
 	private boolean inPaint = false; // only for within paintComponent
 
 	private Object repaintLock = new Object(); // for waitForRepaintDone
@@ -1050,6 +1063,7 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 
 	@Override
 	public void localeChanged() {
+		painter.invalidateStaticLayer(true);
 		paintThread.requestRepaint();
 	}
 
@@ -1095,14 +1109,15 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 
 	@Override
 	public void repaint() {
-		if (inPaint)
-			paintDirty = true;
-		else
-			super.repaint();
+		if (painter != null)
+			painter.invalidateStaticLayer(false);
+		repaintState();
 	}
 
 	@Override
 	public void repaint(int x, int y, int width, int height) {
+		if (painter != null)
+			painter.invalidateStaticLayer(false);
 		double zoom = getZoomFactor();
 		if (zoom < 1.0) {
 			int newX = (int) Math.floor(x * zoom);
@@ -1124,12 +1139,71 @@ public class Canvas extends JPanel implements LocaleListener, CanvasPaneContents
 	public void repaint(Rectangle r) {
 		double zoom = getZoomFactor();
 		if (zoom == 1.0) {
+			if (painter != null)
+				painter.invalidateStaticLayer(false);
 			super.repaint(r);
 		} else {
 			this.repaint(r.x, r.y, r.width, r.height);
 		}
 	}
 
+	/**
+	 * Asks for a repaint after a propagation, covering only what it changed
+	 * in the state shown. Everything is repainted when that isn't known,
+	 * when the circuit oscillates or has just stopped, and when propagation
+	 * is being stepped, since those draw markers over the circuit.
+	 */
+	private void repaintPropagated() {
+		CircuitState state = proj.getCircuitState();
+		if (state != damageState) {
+			if (damageState != null)
+				damageState.setDamageRegion(null);
+			damageState = state;
+			damage = state == null ? null : new DamageRegion();
+			if (state != null)
+				state.setDamageRegion(damage);
+		}
+		Bounds bds = damage == null ? null : damage.take();
+		boolean oscillating = proj.getSimulator().isOscillating();
+		boolean whole = bds == null || oscillating || wasOscillating || !proj.getSimulator().isRunning();
+		wasOscillating = oscillating;
+		if (whole) {
+			paintThread.requestRepaint();
+			return;
+		}
+
+		if (bds != Bounds.EMPTY_BOUNDS) {
+			double zoom = getZoomFactor();
+			int x0 = (int) Math.floor(bds.getX() * zoom);
+			int y0 = (int) Math.floor(bds.getY() * zoom);
+			int x1 = (int) Math.ceil((bds.getX() + bds.getWidth()) * zoom) + 1;
+			int y1 = (int) Math.ceil((bds.getY() + bds.getHeight()) * zoom) + 1;
+			paintThread.requestRepaint(new Rectangle(x0, y0, x1 - x0, y1 - y0));
+		}
+		if (AppPreferences.SHOW_TICK_RATE.getBoolean() && proj.getSimulator().isTicking()) {
+			// the tick rate is shown at the top right of the view
+			Rectangle visible = getVisibleRect();
+			int w = Math.min(visible.width, TICK_RATE_WIDTH);
+			paintThread.requestRepaint(new Rectangle(visible.x + visible.width - w, visible.y, w, TICK_RATE_HEIGHT));
+		}
+	}
+
+	/**
+	 * Repaints for a change in the simulation's values only, which lets the
+	 * painter keep the components that don't show them as they are.
+	 */
+	void repaintState() {
+		if (inPaint)
+			paintDirty = true;
+		else
+			super.repaint();
+	}
+
+	/** Repaints part of the canvas, in its own coordinates, as repaintState does. */
+	void repaintState(Rectangle rect) {
+		super.repaint(rect);
+	}
+
 	private void repairMouseEvent(MouseEvent e) {
 		double zoom = getZoomFactor();
 		if (zoom != 1.0)
@@ -26,25 +26,29 @@ class CanvasPaintThread extends Thread {
 		nextRepaint = System.currentTimeMillis();
 	}
 
-	public void requentRepaint(Rectangle rect) {
+	public void requestRepaint() {
 		synchronized (lock) {
-			if (repaintRequested) {
-				if (repaintRectangle != null) {
-					repaintRectangle.add(rect);
-				}
-			} else {
+			if (!repaintRequested) {
 				repaintRequested = true;
-				repaintRectangle = rect;
 				lock.notifyAll();
 			}
+			repaintRectangle = null;
 		}
 	}
 
-	public void requestRepaint() {
+	/**
+	 * Asks for part of the canvas to be repainted for the simulation. Requests
+	 * made before the next repaint are combined into one.
+	 */
+	public void requestRepaint(Rectangle rect) {
 		synchronized (lock) {
-			if (!repaintRequested) {
+			if (repaintRequested) {
+				if (repaintRectangle != null) {
+					repaintRectangle.add(rect);
+				}
+			} else {
 				repaintRequested = true;
-				repaintRectangle = null;
+				repaintRectangle = new Rectangle(rect);
 				lock.notifyAll();
 			}
 		}
@@ -60,6 +64,7 @@ class CanvasPaintThread extends Thread {
 	@Override
 	public void run() {
 		while (alive) {
+			Rectangle rect;
 			long now = System.currentTimeMillis();
 			synchronized (lock) {
 				long wait = nextRepaint - now;
@@ -78,9 +83,14 @@ class CanvasPaintThread extends Thread {
 				if (!alive)
 					break;
 				repaintRequested = false;
+				rect = repaintRectangle;
+				repaintRectangle = null;
 				nextRepaint = Math.round(now + REPAINT_TIMESPAN);
 			}
-			canvas.repaint();
+			if (rect == null)
+				canvas.repaintState();
+			else
+				canvas.repaintState(rect);
 		}
 	}
 
@@ -35,6 +35,7 @@ class CanvasPainter implements PropertyChangeListener {
 
 	private Canvas canvas;
 	private GridPainter grid;
+	private StaticLayer staticLayer;
 	private Component haloedComponent = null;
 	private Circuit haloedCircuit = null;
 	private WireSet highlightedWires = WireSet.EMPTY;
@@ -42,6 +43,7 @@ class CanvasPainter implements PropertyChangeListener {
 	CanvasPainter(Canvas canvas) {
 		this.canvas = canvas;
 		this.grid = new GridPainter(canvas);
+		this.staticLayer = new StaticLayer(canvas, grid);
 
 		AppPreferences.PRINTER_VIEW.addPropertyChangeListener(this);
 		AppPreferences.ATTRIBUTE_HALO.addPropertyChangeListener(this);
@@ -88,18 +90,11 @@ class CanvasPainter implements PropertyChangeListener {
 		GraphicsUtil.switchToWidth(g, 1);
 	}
 
-	private void drawWithUserState(Graphics base, Graphics g, Project proj) {
+	private void drawWithUserState(Graphics base, Graphics g, Project proj, Set<Component> hidden,
+			Set<Component> layered) {
 		Circuit circ = proj.getCurrentCircuit();
 		Selection sel = proj.getSelection();
-		Set<Component> hidden;
 		Tool dragTool = canvas.getDragTool();
-		if (dragTool == null) {
-			hidden = NO_COMPONENTS;
-		} else {
-			hidden = dragTool.getHiddenComponents(canvas);
-			if (hidden == null)
-				hidden = NO_COMPONENTS;
-		}
 
 		// draw halo around component whose attributes we are viewing
 		boolean showHalo = AppPreferences.ATTRIBUTE_HALO.getBoolean();
@@ -122,7 +117,9 @@ class CanvasPainter implements PropertyChangeListener {
 		boolean printerView = AppPreferences.PRINTER_VIEW.getBoolean();
 		ComponentDrawContext context = new ComponentDrawContext(canvas, circ, circState, base, g, printerView);
 		context.setHighlightedWires(highlightedWires);
-		circ.draw(context, hidden);
+		circ.draw(context, hidden, layered);
+		if (layered != null)
+			staticLayer.paintPins(context);
 		sel.draw(context, hidden);
 
 		// draw tool
@@ -162,6 +159,29 @@ class CanvasPainter implements PropertyChangeListener {
 	//
 	// painting methods
 	//
+	private Set<Component> getHiddenComponents() {
+		Tool dragTool = canvas.getDragTool();
+		if (dragTool == null)
+			return NO_COMPONENTS;
+		Set<Component> hidden = dragTool.getHiddenComponents(canvas);
+		return hidden == null ? NO_COMPONENTS : hidden;
+	}
+
+	/**
+	 * Notes that the canvas must be drawn afresh rather than only updated for
+	 * the simulation; circuitChanged tells whether the circuit was edited.
+	 */
+	void invalidateStaticLayer(boolean circuitChanged) {
+		if (circuitChanged)
+			staticLayer.invalidateCircuit();
+		else
+			staticLayer.invalidate();
+	}
+
+	void invalidateStaticComponent(Component comp) {
+		staticLayer.invalidateComponent(comp);
+	}
+
 	void paintContents(Graphics g, Project proj) {
 		Rectangle clip = g.getClipBounds();
 		Dimension size = canvas.getSize();
@@ -169,21 +189,32 @@ class CanvasPainter implements PropertyChangeListener {
 		if (canvas.ifPaintDirtyReset() || clip == null) {
 			clip = new Rectangle(0, 0, size.width, size.height);
 		}
-		g.setColor(Color.white);
-		g.fillRect(clip.x, clip.y, clip.width, clip.height);
-
-		grid.paintGrid(g);
+		Circuit circ = proj.getCurrentCircuit();
+		CircuitState circState = proj.getCircuitState();
+		Set<Component> hidden = getHiddenComponents();
+
+		// while nothing is being dragged, the background, the grid and the
+		// components that don't show the circuit's state come from the static
+		// layer
+		Set<Component> layered = null;
+		if (hidden.isEmpty() && g instanceof Graphics2D)
+			layered = staticLayer.update(g, circ, circState, zoomFactor, AppPreferences.PRINTER_VIEW.getBoolean());
+		if (layered == null) {
+			g.setColor(Color.white);
+			g.fillRect(clip.x, clip.y, clip.width, clip.height);
+			grid.paintGrid(g);
+		} else {
+			staticLayer.paint(g);
+		}
 		g.setColor(Color.black);
 
 		Graphics gScaled = g.create();
 		if (zoomFactor != 1.0 && gScaled instanceof Graphics2D) {
 			((Graphics2D) gScaled).scale(zoomFactor, zoomFactor);
 		}
-		drawWithUserState(g, gScaled, proj);
+		drawWithUserState(g, gScaled, proj, hidden, layered);
 		drawWidthIncompatibilityData(g, gScaled, proj);
-		Circuit circ = proj.getCurrentCircuit();
 
-		CircuitState circState = proj.getCircuitState();
 		ComponentDrawContext ptContext = new ComponentDrawContext(canvas, circ, circState, g, gScaled);
 		ptContext.setHighlightedWires(highlightedWires);
 		gScaled.setColor(Color.RED);
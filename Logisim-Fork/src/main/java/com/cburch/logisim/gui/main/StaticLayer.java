@@ -0,0 +1,231 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.main;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.gui.generic.GridPainter;
+import com.cburch.logisim.util.GraphicsState;
+
+/**
+ * Holds an image of the visible part of the canvas as far as it doesn't
+ * depend on the simulation: the background, the grid, and the components
+ * whose drawing doesn't show values. Repaints made only because values
+ * changed copy it and draw the wires and the other components over it,
+ * rather than drawing everything again. The pin markers of the components in
+ * the image show values, so they are left out of it and drawn afterward,
+ * which also puts them over the wire ends as before.
+ *
+ * A component counts as static if, apart from its pin markers, it never asks
+ * for the circuit state while drawing; that is found by drawing it once into
+ * a scratch image. The image is kept until the canvas is repainted for any
+ * other reason, the circuit changes, a component in the image is
+ * invalidated, or the visible area or zoom changes.
+ *
+ * Invalidations may come from the simulator thread while the image is being
+ * built, so they count up a generation, and the image is valid only for the
+ * generation it was built in.
+ */
+class StaticLayer {
+	// how far outside its bounds a component may draw
+	private static final int MARGIN = 20;
+
+	private Canvas canvas;
+	private GridPainter grid;
+	private AtomicInteger generation = new AtomicInteger();
+	private int builtGeneration = -1;
+	private volatile boolean building = false;
+	private volatile boolean circuitChanged = false;
+	private BufferedImage image = null;
+	private Rectangle area = null;
+	private Circuit circuit = null;
+	private double zoom = 0.0;
+	private boolean printerView = false;
+	// replaced rather than changed, since other threads look into it
+	private volatile Set<Component> drawn = Collections.emptySet();
+	private ArrayList<EndData> pins = new ArrayList<EndData>();
+
+	// whether each component asked for the state when last drawn
+	private WeakHashMap<Component, Boolean> readsState = new WeakHashMap<Component, Boolean>();
+	// invalidated components, whose entries above are dropped on the next build
+	private Set<Component> recheck = Collections.newSetFromMap(new ConcurrentHashMap<Component, Boolean>());
+	private BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+	private ArrayList<EndData> scratchPins = new ArrayList<EndData>();
+
+	StaticLayer(Canvas canvas, GridPainter grid) {
+		this.canvas = canvas;
+		this.grid = grid;
+	}
+
+	private void build(Graphics g, Circuit circ, CircuitState circState, Rectangle visible, double zoomFactor,
+			boolean printer) {
+		if (image == null || image.getWidth() < visible.width || image.getHeight() < visible.height) {
+			GraphicsConfiguration config = canvas.getGraphicsConfiguration();
+			if (config != null)
+				image = config.createCompatibleImage(visible.width, visible.height);
+			else
+				image = new BufferedImage(visible.width, visible.height, BufferedImage.TYPE_INT_RGB);
+		}
+		building = true;
+		builtGeneration = generation.get();
+		if (circuitChanged || circ != circuit || printer != printerView) {
+			circuitChanged = false;
+			readsState.clear();
+			recheck.clear();
+		} else if (!recheck.isEmpty()) {
+			for (Iterator<Component> it = recheck.iterator(); it.hasNext();) {
+				readsState.remove(it.next());
+				it.remove();
+			}
+		}
+		area = visible;
+		circuit = circ;
+		zoom = zoomFactor;
+		printerView = printer;
+		HashSet<Component> newDrawn = new HashSet<Component>();
+		pins.clear();
+
+		Graphics2D base = image.createGraphics();
+		if (g instanceof Graphics2D)
+			base.setRenderingHints(((Graphics2D) g).getRenderingHints());
+		base.setFont(g.getFont());
+		base.translate(-visible.x, -visible.y);
+		base.setClip(visible);
+		base.setColor(Color.WHITE);
+		base.fillRect(visible.x, visible.y, visible.width, visible.height);
+		grid.paintGrid(base);
+		base.setColor(Color.BLACK);
+		Graphics2D scaled = (Graphics2D) base.create();
+		scaled.scale(zoomFactor, zoomFactor);
+
+		Graphics2D test = scratch.createGraphics();
+		test.setRenderingHints(scaled.getRenderingHints());
+		test.setFont(scaled.getFont());
+		test.setTransform(scaled.getTransform());
+		ComponentDrawContext testContext = new ComponentDrawContext(canvas, circ, circState, test, test, printer);
+		testContext.setDeferredPins(scratchPins);
+
+		ComponentDrawContext context = new ComponentDrawContext(canvas, circ, circState, base, scaled, printer);
+		context.setDeferredPins(pins);
+		Bounds bds = Bounds.create((int) Math.floor(visible.x / zoomFactor), (int) Math.floor(visible.y / zoomFactor),
+				(int) Math.ceil(visible.width / zoomFactor) + 1, (int) Math.ceil(visible.height / zoomFactor) + 1)
+				.expand(MARGIN);
+		Graphics copy = null;
+		GraphicsState copyState = null;
+		for (Component c : circ.getAllIntersecting(bds, scaled)) {
+			if (c instanceof Wire || readsState(c, testContext, test))
+				continue;
+			if (copy == null || context.getGraphics() != copy || !copyState.matches(copy)) {
+				if (copy != null)
+					copy.dispose();
+				copy = scaled.create();
+				context.setGraphics(copy);
+				copyState = new GraphicsState(copy);
+			}
+			try {
+				c.draw(context);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			newDrawn.add(c);
+		}
+		drawn = newDrawn;
+		building = false;
+		if (copy != null)
+			copy.dispose();
+		test.dispose();
+		scaled.dispose();
+		base.dispose();
+	}
+
+	void invalidate() {
+		generation.incrementAndGet();
+	}
+
+	/** Notes a change to the current circuit, which may change what is static. */
+	void invalidateCircuit() {
+		circuitChanged = true;
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Notes that a component's drawing may have changed, which matters only
+	 * if it is in the image; components showing values are invalidated
+	 * whenever their values change, as probes are.
+	 */
+	void invalidateComponent(Component comp) {
+		recheck.add(comp);
+		if (building || drawn.contains(comp))
+			generation.incrementAndGet();
+	}
+
+	/** Paints the image with g, the canvas's unscaled Graphics. */
+	void paint(Graphics g) {
+		g.drawImage(image, area.x, area.y, area.x + area.width, area.y + area.height, 0, 0, area.width, area.height,
+				null);
+	}
+
+	/** Paints the pin markers of the components in the image. */
+	void paintPins(ComponentDrawContext context) {
+		context.drawPinMarkers(pins);
+	}
+
+	private boolean readsState(Component c, ComponentDrawContext testContext, Graphics2D test) {
+		Boolean known = readsState.get(c);
+		if (known != null)
+			return known.booleanValue();
+		Graphics copy = test.create();
+		testContext.setGraphics(copy);
+		testContext.resetStateRead();
+		boolean ret;
+		try {
+			c.draw(testContext);
+			ret = testContext.resetStateRead();
+		} catch (RuntimeException e) {
+			ret = true;
+		}
+		scratchPins.clear();
+		copy.dispose();
+		readsState.put(c, Boolean.valueOf(ret));
+		return ret;
+	}
+
+	/**
+	 * Brings the image up to date for painting the visible part of the canvas
+	 * and returns the components drawn in it, which the caller should then
+	 * leave out.
+	 */
+	Set<Component> update(Graphics g, Circuit circ, CircuitState circState, double zoomFactor, boolean printer) {
+		Rectangle visible = canvas.getVisibleRect();
+		if (visible.isEmpty())
+			return null;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null && !visible.contains(clip))
+			return null;
+		if (builtGeneration != generation.get() || circ != circuit || !visible.equals(area) || zoomFactor != zoom
+				|| printer != printerView)
+			build(g, circ, circState, visible, zoomFactor, printer);
+		return drawn;
+	}
+}
@@ -10,14 +10,12 @@ import com.cburch.logisim.circuit.SimulatorListener;
 class TickCounter implements SimulatorListener {
 	private static final int QUEUE_LENGTH = 1000;
 
-	private long[] queueTimes;
 	private double[] queueRates;
 	private int queueStart;
 	private int queueSize;
 	private double tickFrequency;
 
 	public TickCounter() {
-		queueTimes = new long[QUEUE_LENGTH];
 		queueRates = new double[QUEUE_LENGTH];
 		queueSize = 0;
 	}
@@ -31,7 +29,7 @@ class TickCounter implements SimulatorListener {
 		if (size <= 1) {
 			return "";
 		} else {
-			int maxSize = queueTimes.length;
+			int maxSize = queueRates.length;
 			int start = queueStart;
 			int end = start + size - 1;
 			if (end >= maxSize) {
@@ -73,11 +71,12 @@ class TickCounter implements SimulatorListener {
 				if (min < 0.9 * rate)
 					min = rate;
 
-				if (min >= 1000.0) {
-					return Strings.get("tickRateKHz", roundString(rate / 1000.0, min / 1000.0));
-				} else {
-					return Strings.get("tickRateHz", roundString(rate, min));
+				String ret = toRateString(rate, min);
+				if (rate < 0.95 * tickFrequency && !Double.isInfinite(tickFrequency)) {
+					// say what we're falling short of
+					ret = Strings.get("tickRateRequested", ret, toRateString(tickFrequency, tickFrequency));
 				}
+				return ret;
 			}
 		}
 	}
@@ -123,6 +122,14 @@ class TickCounter implements SimulatorListener {
 		}
 	}
 
+	private String toRateString(double rate, double min) {
+		if (min >= 1000.0) {
+			return Strings.get("tickRateKHz", roundString(rate / 1000.0, min / 1000.0));
+		} else {
+			return Strings.get("tickRateHz", roundString(rate, min));
+		}
+	}
+
 	@Override
 	public void simulatorStateChanged(SimulatorEvent e) {
 		propagationCompleted(e);
@@ -140,8 +147,13 @@ class TickCounter implements SimulatorListener {
 				tickFrequency = freq;
 			}
 
+			// the simulator measures the rate, since ticks come in batches
+			double rate = sim.getActualTickFrequency();
+			if (rate <= 0)
+				return;
+
 			int curSize = queueSize;
-			int maxSize = queueTimes.length;
+			int maxSize = queueRates.length;
 			int start = queueStart;
 			int end;
 			if (curSize < maxSize) { // new sample is added into queue
@@ -159,15 +171,6 @@ class TickCounter implements SimulatorListener {
 					queueStart = end + 1;
 				}
 			}
-			long startTime = queueTimes[start];
-			long endTime = System.currentTimeMillis();
-			double rate;
-			if (startTime == endTime || curSize <= 1) {
-				rate = Double.MAX_VALUE;
-			} else {
-				rate = 1000.0 * (curSize - 1) / (endTime - startTime);
-			}
-			queueTimes[end] = endTime;
 			queueRates[end] = rate;
 		}
 	}
@@ -26,6 +26,7 @@ import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
 import com.cburch.logisim.gui.log.LogFrame;
+import com.cburch.logisim.gui.log.ProfilerFrame;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.StringUtil;
 
@@ -90,6 +91,9 @@ class MenuSimulate extends Menu {
 			} else if (src == log) {
 				LogFrame frame = menubar.getProject().getLogFrame(true);
 				frame.setVisible(true);
+			} else if (src == profile) {
+				ProfilerFrame frame = menubar.getProject().getProfilerFrame(true);
+				frame.setVisible(true);
 			}
 		}
 
@@ -143,14 +147,14 @@ class MenuSimulate extends Menu {
 				currentSim.setTickFrequency(freq);
 			if (isChoice) {
 				String Freq = (String) JOptionPane.showInputDialog(null,
-						Strings.get("EnterTickFrequency") + " (0.25 - 4096 Hz)", Strings.get("CustomFrequency"),
+						Strings.get("EnterTickFrequency") + " (0.25 - " + MAX_CUSTOM_FREQUENCY + " Hz)", Strings.get("CustomFrequency"),
 						JOptionPane.PLAIN_MESSAGE, null, null, (this.freq != -1 ? this.freq : ""));
 
 				if (Freq != null) {// not cancelled
 					try {
 						double convert = Math.round(Double.parseDouble(Freq) * 1000.0) / 1000.0;
 						// save only if it's in the range
-						if (convert >= 0.25 && convert <= 4096) {
+						if (convert >= 0.25 && convert <= MAX_CUSTOM_FREQUENCY) {
 							this.freq = convert;
 							if (currentSim != null)
 								currentSim.setTickFrequency(freq);
@@ -168,7 +172,9 @@ class MenuSimulate extends Menu {
 
 		public void localeChanged() {
 			double f = freq;
-			if (f < 1000 && f > 0) {
+			if (Double.isInfinite(f)) {
+				setText(Strings.get("simulateTickFreqMax"));
+			} else if (f < 1000 && f > 0) {
 				String hzStr;
 				if (Math.abs(f - Math.round(f)) < 0.0001) {
 					hzStr = "" + (int) Math.round(f);
@@ -203,6 +209,8 @@ class MenuSimulate extends Menu {
 	 */
 	private static final long serialVersionUID = -8099735759353154681L;
 
+	private static final int MAX_CUSTOM_FREQUENCY = 1000000;
+
 	private LogisimMenuBar menubar;
 	private MyListener myListener = new MyListener();
 	private CircuitState currentState = null;
@@ -215,7 +223,8 @@ class MenuSimulate extends Menu {
 	private MenuItemCheckImpl ticksEnabled;
 	private MenuItemImpl tickOnce;
 	private JMenu tickFreq = new JMenu();
-	private TickFrequencyChoice[] tickFreqs = { new TickFrequencyChoice(4096, false),
+	private TickFrequencyChoice[] tickFreqs = {
+			new TickFrequencyChoice(Simulator.MAX_TICK_FREQUENCY, false), new TickFrequencyChoice(4096, false),
 			new TickFrequencyChoice(2048, false), new TickFrequencyChoice(1024, false),
 			new TickFrequencyChoice(512, false), new TickFrequencyChoice(256, false),
 			new TickFrequencyChoice(128, false), new TickFrequencyChoice(64, false), new TickFrequencyChoice(32, false),
@@ -227,6 +236,7 @@ class MenuSimulate extends Menu {
 	private JMenu upStateMenu = new JMenu();
 	private ArrayList<CircuitStateMenuItem> upStateItems = new ArrayList<CircuitStateMenuItem>();
 	private JMenuItem log = new JMenuItem();
+	private JMenuItem profile = new JMenuItem();
 
 	public MenuSimulate(LogisimMenuBar menubar) {
 		this.menubar = menubar;
@@ -266,6 +276,7 @@ class MenuSimulate extends Menu {
 		add(tickFreq);
 		addSeparator();
 		add(log);
+		add(profile);
 
 		setEnabled(false);
 		run.setEnabled(false);
@@ -288,6 +299,7 @@ class MenuSimulate extends Menu {
 		// tickOnce.addActionListener(myListener);
 		// ticksEnabled.addActionListener(myListener);
 		log.addActionListener(myListener);
+		profile.addActionListener(myListener);
 
 		computeEnabled();
 	}
@@ -330,6 +342,7 @@ class MenuSimulate extends Menu {
 		downStateMenu.setText(Strings.get("simulateDownStateMenu"));
 		upStateMenu.setText(Strings.get("simulateUpStateMenu"));
 		log.setText(Strings.get("simulateLogItem"));
+		profile.setText(Strings.get("simulateProfileItem"));
 	}
 
 	private void recreateStateMenu(JMenu menu, ArrayList<CircuitStateMenuItem> items, int code) {
@@ -383,7 +396,7 @@ class MenuSimulate extends Menu {
 		if (currentSim != oldSim) {
 			double freq = currentSim == null ? 1.0 : currentSim.getTickFrequency();
 			for (int i = 0; i < tickFreqs.length; i++) {
-				tickFreqs[i].setSelected(Math.abs(tickFreqs[i].freq - freq) < 0.001);
+				tickFreqs[i].setSelected(tickFreqs[i].freq == freq || Math.abs(tickFreqs[i].freq - freq) < 0.001);
 			}
 
 			if (oldSim != null)
@@ -56,8 +56,7 @@ public class ProjectCircuitActions {
 		}
 
 		// Attempt to show the corresponding expression
-		Analyze.computeTable(analyzer.getModel(), proj, circuit, pinNames);
-		analyzer.setSelectedTab(Analyzer.TABLE_TAB);
+		analyzer.computeTable(proj, circuit, pinNames);
 		// nothing to do, stupid useless code
 		/*
 		 * try { Analyze.computeExpression(analyzer.getModel(), circuit, pinNames); }
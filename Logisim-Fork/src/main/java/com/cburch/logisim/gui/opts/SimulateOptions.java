@@ -41,6 +41,25 @@ class SimulateOptions extends OptionsPanel {
 					getProject()
 							.doAction(OptionsActions.setAttribute(attrs, Options.ATTR_GATE_UNDEFINED, opt.getValue()));
 				}
+			} else if (source == simMode) {
+				ComboOption opt = (ComboOption) simMode.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject().doAction(OptionsActions.setAttribute(attrs, Options.sim_mode_attr, opt.getValue()));
+				}
+			} else if (source == simQueue) {
+				ComboOption opt = (ComboOption) simQueue.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject().doAction(OptionsActions.setAttribute(attrs, Options.sim_queue_attr, opt.getValue()));
+				}
+			} else if (source == simThreads) {
+				ComboOption opt = (ComboOption) simThreads.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject()
+							.doAction(OptionsActions.setAttribute(attrs, Options.sim_threads_attr, opt.getValue()));
+				}
 			}
 		}
 
@@ -56,6 +75,12 @@ class SimulateOptions extends OptionsPanel {
 				loadSimLimit((Integer) val);
 			} else if (attr == Options.sim_rand_attr) {
 				loadSimRandomness((Integer) val);
+			} else if (attr == Options.sim_queue_attr) {
+				loadSimQueue(val);
+			} else if (attr == Options.sim_mode_attr) {
+				loadSimMode(val);
+			} else if (attr == Options.sim_threads_attr) {
+				loadSimThreads(val);
 			}
 		}
 
@@ -74,9 +99,21 @@ class SimulateOptions extends OptionsPanel {
 			}
 		}
 
+		private void loadSimMode(Object val) {
+			ComboOption.setSelected(simMode, val);
+		}
+
+		private void loadSimQueue(Object val) {
+			ComboOption.setSelected(simQueue, val);
+		}
+
 		private void loadSimRandomness(Integer val) {
 			simRandomness.setSelected(val.intValue() > 0);
 		}
+
+		private void loadSimThreads(Object val) {
+			ComboOption.setSelected(simThreads, val);
+		}
 	}
 
 	/**
@@ -94,6 +131,15 @@ class SimulateOptions extends OptionsPanel {
 	private JLabel gateUndefinedLabel = new JLabel();
 	private JComboBox<Object> gateUndefined = new JComboBox<Object>(new Object[] {
 			new ComboOption(Options.GATE_UNDEFINED_IGNORE), new ComboOption(Options.GATE_UNDEFINED_ERROR) });
+	private JLabel simModeLabel = new JLabel();
+	private JComboBox<Object> simMode = new JComboBox<Object>(
+			new Object[] { new ComboOption(Options.SIM_MODE_EVENT), new ComboOption(Options.SIM_MODE_LEVELIZED) });
+	private JLabel simQueueLabel = new JLabel();
+	private JComboBox<Object> simQueue = new JComboBox<Object>(
+			new Object[] { new ComboOption(Options.SIM_QUEUE_WHEEL), new ComboOption(Options.SIM_QUEUE_HEAP) });
+	private JLabel simThreadsLabel = new JLabel();
+	private JComboBox<Object> simThreads = new JComboBox<Object>(new Object[] {
+			new ComboOption(Options.SIM_THREADS_SINGLE), new ComboOption(Options.SIM_THREADS_PARALLEL) });
 
 	public SimulateOptions(OptionsFrame window) {
 		super(window);
@@ -108,18 +154,39 @@ class SimulateOptions extends OptionsPanel {
 		gateUndefinedPanel.add(gateUndefined);
 		gateUndefined.addActionListener(myListener);
 
+		JPanel simModePanel = new JPanel();
+		simModePanel.add(simModeLabel);
+		simModePanel.add(simMode);
+		simMode.addActionListener(myListener);
+
+		JPanel simQueuePanel = new JPanel();
+		simQueuePanel.add(simQueueLabel);
+		simQueuePanel.add(simQueue);
+		simQueue.addActionListener(myListener);
+
+		JPanel simThreadsPanel = new JPanel();
+		simThreadsPanel.add(simThreadsLabel);
+		simThreadsPanel.add(simThreads);
+		simThreads.addActionListener(myListener);
+
 		simRandomness.addActionListener(myListener);
 
 		setLayout(new TableLayout(1));
 		add(simLimitPanel);
 		add(gateUndefinedPanel);
+		add(simModePanel);
+		add(simQueuePanel);
+		add(simThreadsPanel);
 		add(simRandomness);
 
 		window.getOptions().getAttributeSet().addAttributeListener(myListener);
 		AttributeSet attrs = getOptions().getAttributeSet();
 		myListener.loadSimLimit(attrs.getValue(Options.sim_limit_attr));
 		myListener.loadGateUndefined(attrs.getValue(Options.ATTR_GATE_UNDEFINED));
+		myListener.loadSimMode(attrs.getValue(Options.sim_mode_attr));
+		myListener.loadSimQueue(attrs.getValue(Options.sim_queue_attr));
 		myListener.loadSimRandomness(attrs.getValue(Options.sim_rand_attr));
+		myListener.loadSimThreads(attrs.getValue(Options.sim_threads_attr));
 	}
 
 	@Override
@@ -136,6 +203,9 @@ class SimulateOptions extends OptionsPanel {
 	public void localeChanged() {
 		simLimitLabel.setText(Strings.get("simulateLimit"));
 		gateUndefinedLabel.setText(Strings.get("gateUndefined"));
+		simModeLabel.setText(Strings.get("simulateMode"));
+		simQueueLabel.setText(Strings.get("simulateQueue"));
 		simRandomness.setText(Strings.get("simulateRandomness"));
+		simThreadsLabel.setText(Strings.get("simulateThreads"));
 	}
 }
@@ -75,6 +75,7 @@ class ForkOptions extends OptionsPanel {
 		checks = new PrefBoolean[] { new PrefBoolean(AppPreferences.ANTI_ALIASING, Strings.getter("AntiAliasing")),
 				new PrefBoolean(AppPreferences.FILL_COMPONENT_BACKGROUND, Strings.getter("FillComponentBackground")),
 				new PrefBoolean(AppPreferences.NEW_TOOLBAR, Strings.getter("UseSimpleToolbar")),
+				new PrefBoolean(AppPreferences.COMPRESS_ROM_CONTENTS, Strings.getter("CompressRomContents")),
 				loadLibrariesFolderAtStartup };
 
 		updates = new PrefOptionList(AppPreferences.AUTO_UPDATES, Strings.getter("AutoUpdates"),
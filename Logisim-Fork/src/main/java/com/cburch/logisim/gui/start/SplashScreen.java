@@ -133,6 +133,24 @@ public class SplashScreen extends JWindow implements ActionListener {
 		}
 	}
 
+	/**
+	 * Shows progress within a stage, as the fraction of the way from its
+	 * marker to the next one.
+	 */
+	public void setProgress(int markerId, double fraction) {
+		Marker[] ms = markers;
+		if (ms == null || markerId + 1 >= ms.length)
+			return;
+		final int count = ms[markerId].count
+				+ (int) Math.round(fraction * (ms[markerId + 1].count - ms[markerId].count));
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				progress.setValue(count);
+			}
+		});
+	}
+
 	@Override
 	public void setVisible(boolean value) {
 		if (value) {
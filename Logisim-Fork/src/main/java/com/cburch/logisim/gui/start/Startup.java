@@ -29,6 +29,7 @@ import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.gui.hex.HexFormat;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.gui.main.Print;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
@@ -98,7 +99,7 @@ public class Startup {
 		boolean isTty = false;
 		boolean isClearPreferences = false;
 		for (int i = 0; i < args.length; i++) {
-			if (args[i].equals("-tty")) {
+			if (args[i].equals("-tty") || args[i].equals("-vectors")) {
 				isTty = true;
 			} else if (args[i].equals("-clearprefs") || args[i].equals("-clearprops")) {
 				isClearPreferences = true;
@@ -146,6 +147,8 @@ public class Startup {
 							ret.ttyFormat |= TtyInterface.FORMAT_HALT;
 						} else if (fmt.equals("stats")) {
 							ret.ttyFormat |= TtyInterface.FORMAT_STATISTICS;
+						} else if (fmt.equals("profile")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_PROFILE;
 						} else {
 							System.err.println(Strings.get("ttyFormatError")); // OK
 						}
@@ -181,6 +184,26 @@ public class Startup {
 					System.err.println(Strings.get("loadNeedsFileError")); // OK
 					return null;
 				}
+			} else if (arg.equals("-loadformat")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.loadFormat = HexFormat.parse(args[i]);
+					if (ret.loadFormat == null) {
+						System.err.println(Strings.get("loadFormatError")); // OK
+						return null;
+					}
+				} else {
+					System.err.println(Strings.get("loadFormatError")); // OK
+					return null;
+				}
+			} else if (arg.equals("-vectors")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.vectorFile = new File(args[i]);
+				} else {
+					System.err.println(Strings.get("vectorsNeedsFileError")); // OK
+					return null;
+				}
 			} else if (arg.equals("-empty")) {
 				if (ret.templFile != null || ret.templEmpty || ret.templPlain) {
 					System.err.println(Strings.get("argOneTemplateError")); // OK
@@ -275,12 +298,14 @@ public class Startup {
 		System.err.println("   " + Strings.get("argGatesOption")); // OK
 		System.err.println("   " + Strings.get("argHelpOption")); // OK
 		System.err.println("   " + Strings.get("argLoadOption")); // OK
+		System.err.println("   " + Strings.get("argLoadFormatOption")); // OK
 		System.err.println("   " + Strings.get("argLocaleOption")); // OK
 		System.err.println("   " + Strings.get("argNoSplashOption")); // OK
 		System.err.println("   " + Strings.get("argPlainOption")); // OK
 		System.err.println("   " + Strings.get("argSubOption")); // OK
 		System.err.println("   " + Strings.get("argTemplateOption")); // OK
 		System.err.println("   " + Strings.get("argTtyOption")); // OK
+		System.err.println("   " + Strings.get("argVectorsOption")); // OK
 		System.err.println("   " + Strings.get("argVersionOption")); // OK
 		System.exit(-1);
 	}
@@ -360,8 +385,10 @@ public class Startup {
 	private UpdateScreen updatescreen = null;
 
 	private File loadFile;
+	private HexFormat loadFormat = null;
 	private HashMap<File, File> substitutions = new HashMap<File, File>();
 	private int ttyFormat = 0;
+	private File vectorFile = null;
 
 	// from other sources
 	private boolean initialized = false;
@@ -629,6 +656,10 @@ public class Startup {
 		return loadFile;
 	}
 
+	HexFormat getLoadFormat() {
+		return loadFormat;
+	}
+
 	Map<File, File> getSubstitutions() {
 		return Collections.unmodifiableMap(substitutions);
 	}
@@ -637,6 +668,10 @@ public class Startup {
 		return ttyFormat;
 	}
 
+	File getVectorFile() {
+		return vectorFile;
+	}
+
 	public boolean isTty() {
 		return this.isTty;
 	}
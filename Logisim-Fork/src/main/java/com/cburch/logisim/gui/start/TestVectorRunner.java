@@ -0,0 +1,309 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.start;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.StringUtil;
+
+/**
+ * Checks the main circuit against a file of test vectors. The first line of
+ * the file names the pins, as labeled by Analyze.getPinLabels, each optionally
+ * followed by its width in brackets; every later line gives a value per pin.
+ * Values are in binary unless prefixed with 0x (hex), 0o (octal) or 0d
+ * (decimal), and an x bit in an output's value matches anything. Blank lines
+ * and anything after a # are ignored.
+ *
+ * The vectors are split into contiguous shards, each checked on its own
+ * thread with its own circuit state, so the rows should not depend on the
+ * state left by the rows before them. Results go to standard output one
+ * record per line: a "mismatch" or "oscillation" line per failing vector and
+ * then a summary line, all as tab-separated key=value fields.
+ */
+class TestVectorRunner {
+	private static class Failure {
+		private Vector vector;
+		private int column; // -1 for oscillation
+		private Value actual;
+
+		private Failure(Vector vector, int column, Value actual) {
+			this.vector = vector;
+			this.column = column;
+			this.actual = actual;
+		}
+	}
+
+	private static class Vector {
+		private int index;
+		private int line;
+		private Value[] values;
+
+		private Vector(int index, int line, Value[] values) {
+			this.index = index;
+			this.line = line;
+			this.values = values;
+		}
+	}
+
+	private static class Worker implements Callable<ArrayList<Failure>> {
+		private CircuitState state;
+		private Instance[] pins;
+		private boolean[] isInput;
+		private List<Vector> vectors;
+
+		private Worker(CircuitState state, Instance[] pins, boolean[] isInput, List<Vector> vectors) {
+			this.state = state;
+			this.pins = pins;
+			this.isInput = isInput;
+			this.vectors = vectors;
+		}
+
+		@Override
+		public ArrayList<Failure> call() {
+			ArrayList<Failure> failures = new ArrayList<Failure>();
+			InstanceState[] pinStates = new InstanceState[pins.length];
+			for (int i = 0; i < pins.length; i++)
+				pinStates[i] = state.getInstanceState(pins[i]);
+			Propagator prop = state.getPropagator();
+			for (Vector vector : vectors) {
+				for (int i = 0; i < pins.length; i++) {
+					if (isInput[i]) {
+						Pin.FACTORY.setValue(pinStates[i], vector.values[i]);
+						state.markComponentAsDirty(Instance.getComponentFor(pins[i]));
+					}
+				}
+				prop.propagate();
+				if (prop.isOscillating()) {
+					failures.add(new Failure(vector, -1, null));
+					continue;
+				}
+				for (int i = 0; i < pins.length; i++) {
+					if (!isInput[i]) {
+						Value actual = Pin.FACTORY.getValue(pinStates[i]);
+						if (!matches(vector.values[i], actual))
+							failures.add(new Failure(vector, i, actual));
+					}
+				}
+			}
+			return failures;
+		}
+	}
+
+	private static final int MIN_SHARD = 64;
+
+	private static boolean matches(Value expected, Value actual) {
+		if (actual.getWidth() != expected.getWidth())
+			return false;
+		for (int i = 0; i < expected.getWidth(); i++) {
+			Value want = expected.get(i);
+			if (want != Value.UNKNOWN && want != actual.get(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static Value parseValue(String token, BitWidth width) {
+		String lower = token.toLowerCase();
+		int radix = 0;
+		if (lower.startsWith("0x"))
+			radix = 16;
+		else if (lower.startsWith("0o"))
+			radix = 8;
+		else if (lower.startsWith("0d"))
+			radix = 10;
+		if (radix != 0) {
+			String digits = lower.substring(2);
+			long value;
+			if (digits.startsWith("-"))
+				value = Long.parseLong(digits, radix);
+			else
+				value = Long.parseUnsignedLong(digits, radix);
+			int w = width.getWidth();
+			if (w < 64 && (value >> w) != 0 && (value >> (w - 1)) != -1)
+				throw new NumberFormatException(token);
+			return Value.createKnown(width, value);
+		}
+
+		int w = width.getWidth();
+		if (lower.length() > w)
+			throw new NumberFormatException(token);
+		Value[] bits = new Value[w];
+		for (int i = 0; i < w; i++) {
+			int pos = lower.length() - 1 - i;
+			char c = pos >= 0 ? lower.charAt(pos) : '0';
+			if (c == '0')
+				bits[i] = Value.FALSE;
+			else if (c == '1')
+				bits[i] = Value.TRUE;
+			else if (c == 'x')
+				bits[i] = Value.UNKNOWN;
+			else
+				throw new NumberFormatException(token);
+		}
+		return Value.create(bits);
+	}
+
+	private static String[] readTokens(LineNumberReader in) throws IOException {
+		while (true) {
+			String line = in.readLine();
+			if (line == null)
+				return null;
+			int comment = line.indexOf('#');
+			if (comment >= 0)
+				line = line.substring(0, comment);
+			line = line.trim();
+			if (line.length() > 0)
+				return line.split("\\s+");
+		}
+	}
+
+	static int run(Project proj, Circuit circuit, Map<Instance, String> pinNames, File file) {
+		Map<String, Instance> pinsByName = new HashMap<String, Instance>();
+		for (Map.Entry<Instance, String> entry : pinNames.entrySet())
+			pinsByName.put(entry.getValue(), entry.getKey());
+
+		Instance[] pins;
+		boolean[] isInput;
+		BitWidth[] widths;
+		ArrayList<Vector> vectors = new ArrayList<Vector>();
+		LineNumberReader in = null;
+		int lineNumber = 0;
+		try {
+			in = new LineNumberReader(new FileReader(file));
+			String[] header = readTokens(in);
+			if (header == null)
+				throw new IOException(Strings.get("vectorsEmptyError"));
+			lineNumber = in.getLineNumber();
+			pins = new Instance[header.length];
+			isInput = new boolean[header.length];
+			widths = new BitWidth[header.length];
+			for (int i = 0; i < header.length; i++) {
+				String name = header[i];
+				int bracket = name.indexOf('[');
+				int declared = -1;
+				if (bracket >= 0 && name.endsWith("]")) {
+					declared = Integer.parseInt(name.substring(bracket + 1, name.length() - 1));
+					name = name.substring(0, bracket);
+				}
+				Instance pin = pinsByName.get(name);
+				if (pin == null)
+					throw new IOException(StringUtil.format(Strings.get("vectorsPinError"), name));
+				pins[i] = pin;
+				isInput[i] = Pin.FACTORY.isInputPin(pin);
+				widths[i] = Pin.FACTORY.getWidth(pin);
+				if (declared >= 0 && declared != widths[i].getWidth())
+					throw new IOException(StringUtil.format(Strings.get("vectorsWidthError"), name,
+							"" + widths[i].getWidth()));
+			}
+
+			for (String[] row = readTokens(in); row != null; row = readTokens(in)) {
+				lineNumber = in.getLineNumber();
+				if (row.length != pins.length)
+					throw new IOException(StringUtil.format(Strings.get("vectorsColumnsError"),
+							"" + pins.length));
+				Value[] values = new Value[row.length];
+				for (int i = 0; i < row.length; i++)
+					values[i] = parseValue(row[i], widths[i]);
+				vectors.add(new Vector(vectors.size(), lineNumber, values));
+			}
+		} catch (NumberFormatException e) {
+			System.err.println(StringUtil.format(Strings.get("vectorsLoadError"), // OK
+					file.getName() + ":" + lineNumber, StringUtil.format(Strings.get("vectorsValueError"),
+							e.getMessage())));
+			return -1;
+		} catch (IOException e) {
+			System.err.println(StringUtil.format(Strings.get("vectorsLoadError"), // OK
+					file.getName() + ":" + lineNumber, e.getMessage()));
+			return -1;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		// the states are created here, since creating a propagator registers
+		// it with the project's options, which isn't safe to do concurrently
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+				vectors.size() / MIN_SHARD));
+		ArrayList<Worker> workers = new ArrayList<Worker>(threads);
+		for (int i = 0; i < threads; i++) {
+			int from = (int) ((long) vectors.size() * i / threads);
+			int to = (int) ((long) vectors.size() * (i + 1) / threads);
+			CircuitState state = new CircuitState(proj, circuit);
+			state.getPropagator().propagate();
+			workers.add(new Worker(state, pins, isInput, vectors.subList(from, to)));
+		}
+
+		long start = System.nanoTime();
+		ArrayList<Failure> failures = new ArrayList<Failure>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<ArrayList<Failure>> result : pool.invokeAll(workers))
+				failures.addAll(result.get());
+		} catch (InterruptedException e) {
+			return -1;
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			return -1;
+		} finally {
+			pool.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		int failed = 0;
+		Vector last = null;
+		for (Failure f : failures) {
+			if (f.vector != last) {
+				failed++;
+				last = f.vector;
+			}
+			if (f.column < 0) {
+				System.out.println("oscillation\tvector=" + f.vector.index + "\tline=" + f.vector.line); // OK
+			} else {
+				System.out.println("mismatch\tvector=" + f.vector.index + "\tline=" + f.vector.line // OK
+						+ "\tpin=" + pinNames.get(pins[f.column]) + "\texpected="
+						+ toBitString(f.vector.values[f.column]) + "\tactual=" + toBitString(f.actual));
+			}
+		}
+		double seconds = elapsed / 1e9;
+		System.out.println("vectors=" + vectors.size() + "\tpassed=" + (vectors.size() - failed) // OK
+				+ "\tfailed=" + failed + "\tthreads=" + threads + "\tmillis=" + elapsed / 1000000
+				+ "\tvectors_per_second=" + (seconds > 0 ? Math.round(vectors.size() / seconds) : 0));
+		return failed == 0 ? 0 : 1;
+	}
+
+	private static String toBitString(Value value) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = value.getWidth() - 1; i >= 0; i--)
+			ret.append(value.get(i).toString());
+		return ret.toString();
+	}
+
+	private TestVectorRunner() {
+	}
+}
@@ -8,18 +8,22 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import com.cburch.logisim.circuit.Analyze;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SimulationProfiler;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.hex.HexFormat;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
@@ -78,6 +82,9 @@ public class TtyInterface {
 	public static final int FORMAT_HALT = 8;
 
 	public static final int FORMAT_STATISTICS = 16;
+	public static final int FORMAT_PROFILE = 32;
+
+	private static final int PROFILE_ROWS = 20;
 
 	private static boolean lastIsNewline = true;
 
@@ -91,6 +98,34 @@ public class TtyInterface {
 		return digits;
 	}
 
+	private static void displayProfile(SimulationProfiler profiler) {
+		System.out.println(StringUtil.format(Strings.get("ttyProfileMsg"), // OK
+				"" + profiler.getStepCount(), "" + profiler.getElapsedNanos() / 1000000));
+		displayProfileEntries(Strings.get("ttyProfileFactories"), profiler.getFactoryEntries());
+		displayProfileEntries(Strings.get("ttyProfileComponents"), profiler.getComponentEntries());
+		displayProfileEntries(Strings.get("ttyProfileCircuits"), profiler.getStateEntries());
+		System.out.println(); // OK
+		System.out.println(StringUtil.format(Strings.get("ttyInternMsg"), // OK
+				Value.getCache().toString(), Location.getCache().toString()));
+	}
+
+	private static void displayProfileEntries(String title, List<SimulationProfiler.Entry> entries) {
+		System.out.println(); // OK
+		System.out.println(title); // OK
+		System.out.println(Strings.get("ttyProfileHeader")); // OK
+		int rows = Math.min(entries.size(), PROFILE_ROWS);
+		for (int i = 0; i < rows; i++) {
+			SimulationProfiler.Entry e = entries.get(i);
+			System.out.printf("%d\t%d\t%.3f\t%s\n", // OK
+					Long.valueOf(e.getEvents()), Long.valueOf(e.getPropagations()),
+					Double.valueOf(e.getNanos() / 1e6), e.getName());
+		}
+		if (rows < entries.size()) {
+			System.out.println(StringUtil.format(Strings.get("ttyProfileMore"), // OK
+					"" + (entries.size() - rows)));
+		}
+	}
+
 	private static void displaySpeed(long tickCount, long elapse) {
 		double hertz = (double) tickCount / elapse * 1000.0;
 		double precision;
@@ -169,7 +204,7 @@ public class TtyInterface {
 		}
 	}
 
-	private static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
+	private static boolean loadRam(CircuitState circState, File loadFile, HexFormat format) throws IOException {
 		if (loadFile == null)
 			return false;
 
@@ -178,13 +213,13 @@ public class TtyInterface {
 			if (comp.getFactory() instanceof Ram) {
 				Ram ramFactory = (Ram) comp.getFactory();
 				InstanceState ramState = circState.getInstanceState(comp);
-				ramFactory.loadImage(ramState, loadFile);
+				ramFactory.loadImage(ramState, loadFile, format);
 				found = true;
 			}
 		}
 
 		for (CircuitState sub : circState.getSubstates()) {
-			found |= loadRam(sub, loadFile);
+			found |= loadRam(sub, loadFile, format);
 		}
 		return found;
 	}
@@ -227,13 +262,17 @@ public class TtyInterface {
 			format &= ~FORMAT_STATISTICS;
 			displayStatistics(file);
 		}
-		if (format == 0) { // no simulation remaining to perform, so just exit
+		if (format == 0 && args.getVectorFile() == null) {
+			// no simulation remaining to perform, so just exit
 			System.exit(0);
 		}
 
 		Project proj = new Project(file);
 		Circuit circuit = file.getMainCircuit();
 		Map<Instance, String> pinNames = Analyze.getPinLabels(circuit);
+		if (args.getVectorFile() != null) {
+			System.exit(TestVectorRunner.run(proj, circuit, pinNames, args.getVectorFile()));
+		}
 		ArrayList<Instance> outputPins = new ArrayList<Instance>();
 		Instance haltPin = null;
 		for (Map.Entry<Instance, String> entry : pinNames.entrySet()) {
@@ -248,12 +287,17 @@ public class TtyInterface {
 		}
 
 		CircuitState circState = new CircuitState(proj, circuit);
+		SimulationProfiler profiler = null;
+		if ((format & FORMAT_PROFILE) != 0) {
+			profiler = new SimulationProfiler();
+			circState.getPropagator().setProfiler(profiler);
+		}
 		// we have to do our initial propagation before the simulation starts -
 		// it's necessary to populate the circuit with substates.
 		circState.getPropagator().propagate();
 		if (args.getLoadFile() != null) {
 			try {
-				boolean loaded = loadRam(circState, args.getLoadFile());
+				boolean loaded = loadRam(circState, args.getLoadFile(), args.getLoadFormat());
 				if (!loaded) {
 					System.err.println(Strings.get("loadNoRamError")); // OK
 					System.exit(-1);
@@ -265,6 +309,10 @@ public class TtyInterface {
 		}
 		int ttyFormat = args.getTtyFormat();
 		int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+		if (profiler != null) {
+			circState.getPropagator().setProfiler(null);
+			displayProfile(profiler);
+		}
 		System.exit(simCode);
 	}
 
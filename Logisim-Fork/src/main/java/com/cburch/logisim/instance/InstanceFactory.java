@@ -48,6 +48,7 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 	private List<Port> portList;
 	private Attribute<Direction> facingAttribute;
 	private Boolean shouldSnap;
+	private Boolean combinational;
 	private KeyConfigurator keyConfigurator;
 	private Class<? extends InstancePoker> pokerClass;
 	private Class<? extends InstanceLogger> loggerClass;
@@ -68,6 +69,7 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		this.keyConfigurator = null;
 		this.facingAttribute = null;
 		this.shouldSnap = Boolean.TRUE;
+		this.combinational = Boolean.FALSE;
 	}
 
 	// event methods
@@ -163,6 +165,8 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 			return keyConfigurator;
 		if (key == SHOULD_SNAP)
 			return shouldSnap;
+		if (key == COMBINATIONAL)
+			return combinational;
 		return super.getFeature(key, attrs);
 	}
 
@@ -262,6 +266,10 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		this.defaults = defaults;
 	}
 
+	public void setCombinational(boolean value) {
+		combinational = Boolean.valueOf(value);
+	}
+
 	public void setDefaultToolTip(StringGetter value) {
 		defaultToolTip = value;
 	}
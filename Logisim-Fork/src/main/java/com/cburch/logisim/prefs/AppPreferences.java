@@ -211,6 +211,8 @@ public class AppPreferences {
 	public static final PrefMonitor<Boolean> NEW_TOOLBAR = create(new PrefMonitorBoolean("UseSimpleToolbar", true));
 	public static final PrefMonitor<Boolean> LOAD_LIBRARIES_FOLDER_AT_STARTUP = create(
 			new PrefMonitorBoolean("LoadLibrariesAtStartup", false));
+	public static final PrefMonitor<Boolean> COMPRESS_ROM_CONTENTS = create(
+			new PrefMonitorBoolean("CompressRomContents", false));
 	public static final String LIBRARIES_FOLDER_PATH = "LibrariesFolderPath";
 	private static File LibrariesFolder = null;
 	public static final String ALWAYS = "Always";
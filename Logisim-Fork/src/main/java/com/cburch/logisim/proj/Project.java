@@ -21,6 +21,7 @@ import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.file.Options;
 import com.cburch.logisim.gui.log.LogFrame;
+import com.cburch.logisim.gui.log.ProfilerFrame;
 import com.cburch.logisim.gui.main.Canvas;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.gui.main.Selection;
@@ -81,6 +82,7 @@ public class Project {
 	private Frame frame = null;
 	private OptionsFrame optionsFrame = null;
 	private LogFrame logFrame = null;
+	private ProfilerFrame profilerFrame = null;
 	private Tool tool = null;
 	private LinkedList<ActionData> undoLog = new LinkedList<ActionData>();
 	private int undoMods = 0;
@@ -242,6 +244,14 @@ public class Project {
 		return optionsFrame;
 	}
 
+	public ProfilerFrame getProfilerFrame(boolean create) {
+		if (profilerFrame == null) {
+			if (create)
+				profilerFrame = new ProfilerFrame(this);
+		}
+		return profilerFrame;
+	}
+
 	public Selection getSelection() {
 		if (frame == null)
 			return null;
@@ -17,6 +17,7 @@ import javax.swing.SwingUtilities;
 
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.LoadProgressListener;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.gui.main.Frame;
@@ -244,6 +245,15 @@ public class ProjectActions {
 		if (monitor != null)
 			monitor.setProgress(SplashScreen.FILE_LOAD);
 		Loader loader = new Loader(monitor);
+		if (monitor != null) {
+			final SplashScreen splash = monitor;
+			loader.setProgressListener(new LoadProgressListener() {
+				@Override
+				public void loadProgress(File file, double fraction) {
+					splash.setProgress(SplashScreen.FILE_LOAD, fraction);
+				}
+			});
+		}
 		LogisimFile file = loader.openLogisimFile(source, substitutions);
 		AppPreferences.updateRecentFile(source);
 
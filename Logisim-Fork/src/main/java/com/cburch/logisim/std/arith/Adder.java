@@ -34,18 +34,12 @@ public class Adder extends InstanceFactory {
 		if (c_in == Value.UNKNOWN || c_in == Value.NIL)
 			c_in = Value.FALSE;
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-			if (w >= 32) {
-				long mask = (1L << w) - 1;
-				long ax = a.toIntValue() & mask;
-				long bx = b.toIntValue() & mask;
-				long cx = c_in.toIntValue() & mask;
-				long sum = ax + bx + cx;
-				return new Value[] { Value.createKnown(width, (int) sum),
-						((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
-			} else {
-				int sum = a.toIntValue() + b.toIntValue() + c_in.toIntValue();
-				return new Value[] { Value.createKnown(width, sum), ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
-			}
+			long ax = a.toLongValue();
+			long bx = b.toLongValue();
+			long sum = ax + bx + c_in.toLongValue();
+			// carry out of the top bit, which also works when w is 64
+			long carry = ((ax & bx) | ((ax | bx) & ~sum)) >>> (w - 1);
+			return new Value[] { Value.createKnown(width, sum), (carry & 1) == 0 ? Value.FALSE : Value.TRUE };
 		} else {
 			Value[] bits = new Value[w];
 			Value carry = c_in;
@@ -77,6 +71,7 @@ public class Adder extends InstanceFactory {
 
 	public Adder() {
 		super("Adder", Strings.getter("adderComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH }, new Object[] { BitWidth.create(8) });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
@@ -87,7 +82,7 @@ public class Adder extends InstanceFactory {
 		ps[IN1] = new Port(-40, 10, Port.INPUT, StdAttr.WIDTH);
 		ps[OUT] = new Port(0, 0, Port.OUTPUT, StdAttr.WIDTH);
 		ps[C_IN] = new Port(-20, -20, Port.INPUT, 1);
-		ps[C_OUT] = new Port(-20, 20, Port.INPUT, 1);
+		ps[C_OUT] = new Port(-20, 20, Port.OUTPUT, 1);
 		ps[IN0].setToolTip(Strings.getter("adderInputTip"));
 		ps[IN1].setToolTip(Strings.getter("adderInputTip"));
 		ps[OUT].setToolTip(Strings.getter("adderOutputTip"));
@@ -30,6 +30,7 @@ public class BitAdder extends InstanceFactory {
 
 	public BitAdder() {
 		super("BitAdder", Strings.getter("bitAdderComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH, NUM_INPUTS },
 				new Object[] { BitWidth.create(8), Integer.valueOf(1) });
 		setKeyConfigurator(JoinedConfigurator.create(new IntegerConfigurator(NUM_INPUTS, 1, 32, 0),
@@ -32,6 +32,7 @@ public class BitFinder extends InstanceFactory {
 
 	public BitFinder() {
 		super("BitFinder", Strings.getter("bitFinderComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH, TYPE }, new Object[] { BitWidth.create(8), LOW_ONE });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setIconName("bitfindr.gif");
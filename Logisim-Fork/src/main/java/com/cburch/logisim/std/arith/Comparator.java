@@ -36,6 +36,7 @@ public class Comparator extends InstanceFactory {
 
 	public Comparator() {
 		super("Comparator", Strings.getter("comparatorComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH, MODE_ATTRIBUTE },
 				new Object[] { BitWidth.create(8), SIGNED_OPTION });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
@@ -5,6 +5,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -33,9 +34,18 @@ public class Divider extends InstanceFactory {
 		int w = width.getWidth();
 		if (upper == Value.NIL || upper.isUnknown())
 			upper = Value.createKnown(width, 0);
-		if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
-			long num = ((long) upper.toIntValue() << w) | (a.toIntValue() & 0xFFFFFFFFL);
-			long den = b.toIntValue() & 0xFFFFFFFFL;
+		if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined() && w > 32) {
+			BigInteger num = Multiplier.toUnsigned(upper.toLongValue()).shiftLeft(w)
+					.or(Multiplier.toUnsigned(a.toLongValue()));
+			BigInteger den = Multiplier.toUnsigned(b.toLongValue());
+			if (den.signum() == 0)
+				den = BigInteger.ONE;
+			BigInteger[] result = num.divideAndRemainder(den);
+			return new Value[] { Value.createKnown(width, result[0].longValue()),
+					Value.createKnown(width, result[1].longValue()) };
+		} else if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
+			long num = (upper.toLongValue() << w) | a.toLongValue();
+			long den = b.toLongValue();
 			if (den == 0)
 				den = 1;
 			long result = num / den;
@@ -49,7 +59,7 @@ public class Divider extends InstanceFactory {
 					result++;
 				}
 			}
-			return new Value[] { Value.createKnown(width, (int) result), Value.createKnown(width, (int) rem) };
+			return new Value[] { Value.createKnown(width, result), Value.createKnown(width, rem) };
 		} else if (a.isErrorValue() || b.isErrorValue() || upper.isErrorValue()) {
 			return new Value[] { Value.createError(width), Value.createError(width) };
 		} else {
@@ -59,6 +69,7 @@ public class Divider extends InstanceFactory {
 
 	public Divider() {
 		super("Divider", Strings.getter("dividerComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH }, new Object[] { BitWidth.create(8) });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
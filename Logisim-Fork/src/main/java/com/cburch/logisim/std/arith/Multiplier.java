@@ -5,6 +5,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -34,36 +35,38 @@ public class Multiplier extends InstanceFactory {
 		if (c_in == Value.NIL || c_in.isUnknown())
 			c_in = Value.createKnown(width, 0);
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-			long sum = 0;
-			// pseudo-unsigned long cast if w = 32-bit
-			if (w < 32)
-				sum = (long) a.toIntValue() * (long) b.toIntValue() + c_in.toIntValue();
-			else
-				sum = (a.toIntValue() & 0xffffffffL) * (b.toIntValue() & 0xffffffffL)
-						+ (c_in.toIntValue() & 0xffffffffL);
-			return new Value[] { Value.createKnown(width, (int) sum), Value.createKnown(width, (int) (sum >> w)) };
+			if (w > 32) {
+				// the full product needs up to 128 bits
+				BigInteger sum = toUnsigned(a.toLongValue()).multiply(toUnsigned(b.toLongValue()))
+						.add(toUnsigned(c_in.toLongValue()));
+				return new Value[] { Value.createKnown(width, sum.longValue()),
+						Value.createKnown(width, sum.shiftRight(w).longValue()) };
+			}
+			// unsigned overflow of the long is harmless since only 2 * w <= 64 bits are kept
+			long sum = a.toLongValue() * b.toLongValue() + c_in.toLongValue();
+			return new Value[] { Value.createKnown(width, sum), Value.createKnown(width, sum >>> w) };
 		} else {
 			Value[] avals = a.getAll();
 			int aOk = findUnknown(avals);
 			int aErr = findError(avals);
-			int ax = getKnown(avals);
+			long ax = getKnown(avals);
 			Value[] bvals = b.getAll();
 			int bOk = findUnknown(bvals);
 			int bErr = findError(bvals);
-			int bx = getKnown(bvals);
+			long bx = getKnown(bvals);
 			Value[] cvals = c_in.getAll();
 			int cOk = findUnknown(cvals);
 			int cErr = findError(cvals);
-			int cx = getKnown(cvals);
+			long cx = getKnown(cvals);
 
 			int known = Math.min(Math.min(aOk, bOk), cOk);
 			int error = Math.min(Math.min(aErr, bErr), cErr);
-			int ret = ax * bx + cx;
+			long ret = ax * bx + cx;
 
 			Value[] bits = new Value[w];
 			for (int i = 0; i < w; i++) {
 				if (i < known) {
-					bits[i] = ((ret & (1 << i)) != 0 ? Value.TRUE : Value.FALSE);
+					bits[i] = ((ret & (1L << i)) != 0 ? Value.TRUE : Value.FALSE);
 				} else if (i < error) {
 					bits[i] = Value.UNKNOWN;
 				} else {
@@ -91,10 +94,10 @@ public class Multiplier extends InstanceFactory {
 		return vals.length;
 	}
 
-	private static int getKnown(Value[] vals) {
-		int ret = 0;
+	private static long getKnown(Value[] vals) {
+		long ret = 0;
 		for (int i = 0; i < vals.length; i++) {
-			int val = vals[i].toIntValue();
+			long val = vals[i].toLongValue();
 			if (val < 0)
 				return ret;
 			ret |= val << i;
@@ -102,8 +105,14 @@ public class Multiplier extends InstanceFactory {
 		return ret;
 	}
 
+	static BigInteger toUnsigned(long value) {
+		BigInteger ret = BigInteger.valueOf(value);
+		return value >= 0 ? ret : ret.add(BigInteger.ONE.shiftLeft(64));
+	}
+
 	public Multiplier() {
 		super("Multiplier", Strings.getter("multiplierComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH }, new Object[] { BitWidth.create(8) });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
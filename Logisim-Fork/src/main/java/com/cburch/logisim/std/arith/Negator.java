@@ -23,6 +23,7 @@ public class Negator extends InstanceFactory {
 
 	public Negator() {
 		super("Negator", Strings.getter("negatorComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH }, new Object[] { BitWidth.create(8) });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
@@ -52,7 +53,7 @@ public class Negator extends InstanceFactory {
 		Value in = state.getPort(IN);
 		Value out;
 		if (in.isFullyDefined()) {
-			out = Value.createKnown(in.getBitWidth(), -in.toIntValue());
+			out = Value.createKnown(in.getBitWidth(), -in.toLongValue());
 		} else {
 			Value[] bits = in.getAll();
 			Value fill = Value.FALSE;
@@ -39,6 +39,7 @@ public class Shifter extends InstanceFactory {
 
 	public Shifter() {
 		super("Shifter", Strings.getter("shifterComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH, ATTR_SHIFT },
 				new Object[] { BitWidth.create(8), SHIFT_LOGICAL_LEFT });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
@@ -133,14 +134,14 @@ public class Shifter extends InstanceFactory {
 			if (d == 0) {
 				vy = vx;
 			} else if (vx.isFullyDefined()) {
-				int x = vx.toIntValue();
-				int y;
+				long x = vx.toLongValue();
+				long y;
 				if (shift == SHIFT_LOGICAL_RIGHT) {
 					y = x >>> d;
 				} else if (shift == SHIFT_ARITHMETIC_RIGHT) {
 					if (d >= bits)
 						d = bits - 1;
-					y = x >> d | ((x << (32 - bits)) >> (32 - bits + d));
+					y = x >> d | ((x << (64 - bits)) >> (64 - bits + d));
 				} else if (shift == SHIFT_ROLL_RIGHT) {
 					if (d >= bits)
 						d -= bits;
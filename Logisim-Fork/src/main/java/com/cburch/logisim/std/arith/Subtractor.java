@@ -29,6 +29,7 @@ public class Subtractor extends InstanceFactory {
 
 	public Subtractor() {
 		super("Subtractor", Strings.getter("subtractorComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.WIDTH }, new Object[] { BitWidth.create(8) });
 		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
@@ -74,6 +74,7 @@ abstract class AbstractGate extends InstanceFactory {
 
 	protected AbstractGate(String name, StringGetter desc, boolean isXor) {
 		super(name, desc);
+		setCombinational(true);
 		this.isXor = isXor;
 		setFacingAttribute(StdAttr.FACING);
 		setKeyConfigurator(JoinedConfigurator.create(
@@ -61,6 +61,7 @@ class Buffer extends InstanceFactory {
 
 	private Buffer() {
 		super("Buffer", Strings.getter("bufferComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, StdAttr.WIDTH, GateAttributes.ATTR_OUTPUT, StdAttr.LABEL,
 						StdAttr.LABEL_FONT, StdAttr.ATTR_LABEL_COLOR },
@@ -4,9 +4,11 @@
 package com.cburch.logisim.std.gates;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Expression;
@@ -100,8 +102,8 @@ public class CircuitBuilder {
 	}
 
 	public static CircuitMutation build(Circuit destCirc, AnalyzerModel model, boolean twoInputs, boolean useNands) {
-		CircuitMutation result = new CircuitMutation(destCirc);
-		result.clear();
+		// gathered so as to be added at once
+		LinkedHashSet<Component> comps = new LinkedHashSet<Component>();
 
 		Layout[] layouts = new Layout[model.getOutputs().size()];
 		int maxWidth = 0;
@@ -140,12 +142,16 @@ public class CircuitBuilder {
 					dy = 20 - layout.outputY;
 				height = Math.max(dy + layout.height, 40);
 				output = Location.create(outputX, y + dy + layout.outputY);
-				placeComponents(result, layouts[i], x, y + dy, inputData, output);
+				placeComponents(comps, layouts[i], x, y + dy, inputData, output);
 			}
-			placeOutput(result, output, outputName);
+			placeOutput(comps, output, outputName);
 			y += height + 10;
 		}
-		placeInputs(result, inputData);
+		placeInputs(comps, inputData);
+
+		CircuitMutation result = new CircuitMutation(destCirc);
+		result.clear();
+		result.addAll(comps);
 		return result;
 	}
 
@@ -182,7 +188,7 @@ public class CircuitBuilder {
 			CircuitDetermination.Value value = (CircuitDetermination.Value) det;
 			ComponentFactory factory = Constant.FACTORY;
 			AttributeSet attrs = factory.createAttributeSet();
-			attrs.setValue(Constant.ATTR_VALUE, Integer.valueOf(value.getValue()));
+			attrs.setValue(Constant.ATTR_VALUE, Long.valueOf(value.getValue()));
 			Bounds bds = factory.getOffsetBounds(attrs);
 			return new Layout(bds.getWidth(), bds.getHeight(), -bds.getY(), factory, attrs, new Layout[0], 0);
 		}
@@ -310,7 +316,7 @@ public class CircuitBuilder {
 	 * @param inputData information about how to reach inputs.
 	 * @param output    a point to which the output should be connected.
 	 */
-	private static void placeComponents(CircuitMutation result, Layout layout, int x, int y, InputData inputData,
+	private static void placeComponents(Collection<Component> result, Layout layout, int x, int y, InputData inputData,
 			Location output) {
 		if (layout.inputName != null) {
 			int inputX = inputData.getSpineX(layout.inputName);
@@ -354,10 +360,10 @@ public class CircuitBuilder {
 			Object factory = parent.getFactory();
 			if (factory instanceof AbstractGate) {
 				Value val = ((AbstractGate) factory).getIdentity();
-				Integer valInt = Integer.valueOf(val.toIntValue());
+				Long valLong = Long.valueOf(val.toLongValue());
 				Location loc = parent.getEnd(index).getLocation();
 				AttributeSet attrs = Constant.FACTORY.createAttributeSet();
-				attrs.setValue(Constant.ATTR_VALUE, valInt);
+				attrs.setValue(Constant.ATTR_VALUE, valLong);
 				result.add(Constant.FACTORY.createComponent(loc, attrs));
 			}
 		}
@@ -411,7 +417,7 @@ public class CircuitBuilder {
 	//
 	// placeInputs
 	//
-	private static void placeInputs(CircuitMutation result, InputData inputData) {
+	private static void placeInputs(Collection<Component> result, InputData inputData) {
 		ArrayList<Location> forbiddenYs = new ArrayList<Location>();
 		Comparator<Location> compareYs = new CompareYs();
 		int curX = 40;
@@ -482,7 +488,7 @@ public class CircuitBuilder {
 	//
 	// placeOutput
 	//
-	private static void placeOutput(CircuitMutation result, Location loc, String name) {
+	private static void placeOutput(Collection<Component> result, Location loc, String name) {
 		ComponentFactory factory = Pin.FACTORY;
 		AttributeSet attrs = factory.createAttributeSet();
 		attrs.setValue(StdAttr.FACING, Direction.WEST);
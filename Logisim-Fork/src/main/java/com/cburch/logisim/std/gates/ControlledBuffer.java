@@ -54,6 +54,7 @@ class ControlledBuffer extends InstanceFactory {
 		super(isInverter ? "Controlled Inverter" : "Controlled Buffer",
 				isInverter ? Strings.getter("controlledInverterComponent")
 						: Strings.getter("controlledBufferComponent"));
+		setCombinational(true);
 		this.isInverter = isInverter;
 		if (isInverter) {
 			setAttributes(
@@ -76,6 +76,7 @@ class NotGate extends InstanceFactory {
 
 	private NotGate() {
 		super("NOT Gate", Strings.getter("notGateComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, StdAttr.WIDTH, ATTR_SIZE, GateAttributes.ATTR_OUTPUT, StdAttr.LABEL,
 						StdAttr.LABEL_FONT, StdAttr.ATTR_LABEL_COLOR },
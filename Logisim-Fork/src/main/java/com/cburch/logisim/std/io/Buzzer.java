@@ -85,7 +85,7 @@ public class Buzzer extends InstanceFactory {
 	private static final byte ENABLE = 1;
 	private static final byte VOL = 2;
 	private static final Attribute<BitWidth> VOLUME_WIDTH = Attributes.forBitWidth("vol_width",
-			Strings.getter("buzzerVolumeBitWidth"));
+			Strings.getter("buzzerVolumeBitWidth"), 1, 32);
 
 	private static final AttributeOption Hz = new AttributeOption("Hz", Strings.getter("Hz"));
 	private static final AttributeOption dHz = new AttributeOption("dHz", Strings.getter("dHz (0.1Hz)"));
@@ -31,7 +31,7 @@ public class Counter extends InstanceFactory {
 			Strings.getter("counterGoalContinue"));
 	static final AttributeOption ON_GOAL_LOAD = new AttributeOption("load", "load", Strings.getter("counterGoalLoad"));
 
-	static final Attribute<Integer> ATTR_MAX = Attributes.forHexInteger("max", Strings.getter("counterMaxAttr"));
+	static final Attribute<Long> ATTR_MAX = Attributes.forHexLong("max", Strings.getter("counterMaxAttr"));
 	static final Attribute<AttributeOption> ATTR_ON_GOAL = Attributes.forOption("ongoal",
 			Strings.getter("counterGoalAttr"),
 			new AttributeOption[] { ON_GOAL_WRAP, ON_GOAL_STAY, ON_GOAL_CONT, ON_GOAL_LOAD });
@@ -94,7 +94,7 @@ public class Counter extends InstanceFactory {
 		String a;
 		String b = null;
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				a = str;
@@ -150,7 +150,7 @@ public class Counter extends InstanceFactory {
 
 		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
 		Object triggerType = state.getAttributeValue(StdAttr.EDGE_TRIGGER);
-		int max = state.getAttributeValue(ATTR_MAX).intValue();
+		long max = state.getAttributeValue(ATTR_MAX).longValue() & dataWidth.getLongMask();
 		Value clock = state.getPort(CK);
 		boolean triggered = data.updateClock(clock, triggerType);
 		boolean newbehavior = state.getAttributeValue(BEHAVIOR) == NEW_BEHAVIOR;
@@ -160,7 +160,7 @@ public class Counter extends InstanceFactory {
 			newValue = Value.createKnown(dataWidth, 0);
 			carry = false;
 		} else if (state.getPort(PRE) == Value.TRUE) {
-			newValue = Value.createKnown(dataWidth, -1);
+			newValue = Value.createKnown(dataWidth, -1L);
 			carry = false;
 		} else {
 			if (newbehavior) {
@@ -170,12 +170,12 @@ public class Counter extends InstanceFactory {
 			} else
 				ct = state.getPort(CT) != Value.FALSE;
 			ld = state.getPort(LD) == Value.TRUE;
-			int oldVal = data.value;
-			int newVal;
+			long oldVal = data.value;
+			long newVal;
 			if (!triggered) {
 				newVal = oldVal;
 			} else if (!newbehavior && ct) { // trigger, enable = 1, old behavior: should increment or decrement
-				int goal = ld ? 0 : max;
+				long goal = ld ? 0 : max;
 				if (oldVal == goal) {
 					Object onGoal = state.getAttributeValue(ATTR_ON_GOAL);
 					if (onGoal == ON_GOAL_WRAP) {
@@ -184,8 +184,8 @@ public class Counter extends InstanceFactory {
 						newVal = oldVal;
 					} else if (onGoal == ON_GOAL_LOAD) {
 						Value in = state.getPort(IN);
-						newVal = in.isFullyDefined() ? in.toIntValue() : 0;
-						if (newVal > max)
+						newVal = in.isFullyDefined() ? in.toLongValue() : 0;
+						if (Long.compareUnsigned(newVal, max) > 0)
 							newVal &= max;
 					} else if (onGoal == ON_GOAL_CONT) { // decrement or increment
 						newVal = ld ? oldVal - 1 : oldVal + 1;
@@ -198,11 +198,11 @@ public class Counter extends InstanceFactory {
 				}
 			} else if (ld) { // trigger, !(newbehavior && count), load = 1: should load
 				Value in = state.getPort(IN);
-				newVal = in.isFullyDefined() ? in.toIntValue() : 0;
-				if (newVal > max)
+				newVal = in.isFullyDefined() ? in.toLongValue() : 0;
+				if (Long.compareUnsigned(newVal, max) > 0)
 					newVal &= max;
 			} else if (newbehavior) { // ld = 0, newbehavior
-				int goal = ct ? 0 : max;
+				long goal = ct ? 0 : max;
 				if (oldVal == goal) {
 					Object onGoal = state.getAttributeValue(ATTR_ON_GOAL);
 					if (onGoal == ON_GOAL_WRAP) {
@@ -211,8 +211,8 @@ public class Counter extends InstanceFactory {
 						newVal = oldVal;
 					} else if (onGoal == ON_GOAL_LOAD) {
 						Value in = state.getPort(IN);
-						newVal = in.isFullyDefined() ? in.toIntValue() : 0;
-						if (newVal > max)
+						newVal = in.isFullyDefined() ? in.toLongValue() : 0;
+						if (Long.compareUnsigned(newVal, max) > 0)
 							newVal &= max;
 					} else if (onGoal == ON_GOAL_CONT) { // decrement or increment
 						newVal = ct ? oldVal - 1 : oldVal + 1;
@@ -227,7 +227,7 @@ public class Counter extends InstanceFactory {
 				newVal = oldVal;
 			}
 			newValue = Value.createKnown(dataWidth, newVal);
-			newVal = newValue.toIntValue();
+			newVal = newValue.toLongValue();
 			carry = newVal == ((!newbehavior && ld && ct) || (newbehavior && ct) ? 0 : max);
 			/*
 			 * I would want this if I were worried about the carry signal outrunning the
@@ -237,7 +237,7 @@ public class Counter extends InstanceFactory {
 			 */
 		}
 
-		data.value = newValue.toIntValue();
+		data.value = newValue.toLongValue();
 		state.setPort(OUT, newValue, DELAY);
 		state.setPort(CARRY, carry ? Value.TRUE : Value.FALSE, DELAY);
 	}
@@ -20,7 +20,7 @@ class CounterAttributes extends AbstractAttributeSet {
 		base = AttributeSets.fixedSet(
 				new Attribute<?>[] { StdAttr.WIDTH, Counter.ATTR_MAX, Counter.ATTR_ON_GOAL, StdAttr.EDGE_TRIGGER,
 						Counter.BEHAVIOR, StdAttr.LABEL, StdAttr.LABEL_FONT, StdAttr.ATTR_LABEL_COLOR },
-				new Object[] { BitWidth.create(8), Integer.valueOf(0xFF), Counter.ON_GOAL_WRAP, StdAttr.TRIG_RISING,
+				new Object[] { BitWidth.create(8), Long.valueOf(0xFF), Counter.ON_GOAL_WRAP, StdAttr.TRIG_RISING,
 						Counter.NEW_BEHAVIOR, "", StdAttr.DEFAULT_LABEL_FONT, Color.BLACK });
 	}
 
@@ -65,32 +65,32 @@ class CounterAttributes extends AbstractAttributeSet {
 		if (oldValue == null ? value == null : oldValue.equals(value))
 			return;
 
-		Integer newMax = null;
+		Long newMax = null;
 		if (attr == StdAttr.WIDTH) {
 			BitWidth oldWidth = base.getValue(StdAttr.WIDTH);
 			BitWidth newWidth = (BitWidth) value;
 			int oldW = oldWidth.getWidth();
 			int newW = newWidth.getWidth();
-			Integer oldValObj = base.getValue(Counter.ATTR_MAX);
-			int oldVal = oldValObj.intValue();
+			Long oldValObj = base.getValue(Counter.ATTR_MAX);
+			long oldVal = oldValObj.longValue();
 			base.setValue(StdAttr.WIDTH, newWidth);
 			if (newW > oldW) {
-				newMax = Integer.valueOf(newWidth.getMask());
+				newMax = Long.valueOf(newWidth.getLongMask());
 			} else {
-				int v = oldVal & newWidth.getMask();
+				long v = oldVal & newWidth.getLongMask();
 				if (v != oldVal) {
-					Integer newValObj = Integer.valueOf(v);
+					Long newValObj = Long.valueOf(v);
 					base.setValue(Counter.ATTR_MAX, newValObj);
 					fireAttributeValueChanged(Counter.ATTR_MAX, newValObj);
 				}
 			}
 			fireAttributeValueChanged(StdAttr.WIDTH, newWidth);
 		} else if (attr == Counter.ATTR_MAX) {
-			int oldVal = base.getValue(Counter.ATTR_MAX).intValue();
+			long oldVal = base.getValue(Counter.ATTR_MAX).longValue();
 			BitWidth width = base.getValue(StdAttr.WIDTH);
-			int newVal = ((Integer) value).intValue() & width.getMask();
+			long newVal = ((Long) value).longValue() & width.getLongMask();
 			if (newVal != oldVal) {
-				V val = (V) Integer.valueOf(newVal);
+				V val = (V) Long.valueOf(newVal);
 				value = val;
 			}
 		}
@@ -20,6 +20,7 @@ import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.hex.HexFormat;
 import com.cburch.logisim.gui.hex.HexFrame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
@@ -69,7 +70,7 @@ abstract class Mem extends InstanceFactory {
 			Strings.getter("ramAddrWidthAttr"), 2, 24);
 
 	public static final Attribute<BitWidth> DATA_ATTR = Attributes.forBitWidth("dataWidth",
-			Strings.getter("ramDataWidthAttr"));
+			Strings.getter("ramDataWidthAttr"), 1, 32);
 	static final AttributeOption SEL_HIGH = new AttributeOption("high", Strings.getter("stdTriggerHigh"));
 
 	static final AttributeOption SEL_LOW = new AttributeOption("low", Strings.getter("stdTriggerLow"));
@@ -139,8 +140,13 @@ abstract class Mem extends InstanceFactory {
 	abstract MemState getState(InstanceState state);
 
 	public void loadImage(InstanceState instanceState, File imageFile) throws IOException {
+		loadImage(instanceState, imageFile, null);
+	}
+
+	/** Loads an image in the given format, or one detected from the file if null. */
+	public void loadImage(InstanceState instanceState, File imageFile, HexFormat format) throws IOException {
 		MemState s = this.getState(instanceState);
-		HexFile.open(s.getContents(), imageFile);
+		HexFile.open(s.getContents(), imageFile, format);
 		this.setCurrentImage(instanceState.getInstance(), imageFile);
 	}
 
@@ -3,6 +3,7 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.cburch.hex.HexModel;
@@ -14,16 +15,38 @@ class MemContents implements Cloneable, HexModel {
 	private static final int PAGE_SIZE = 1 << PAGE_SIZE_BITS;
 	private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+	// memories with at least this many address bits keep their pages in a
+	// memory-mapped file rather than on the heap
+	private static final int MAPPED_MIN_BITS = 20;
+
 	static MemContents create(int addrBits, int width) {
 		return new MemContents(addrBits, width);
 	}
 
+	/**
+	 * Returns contents that will be decoded from the text of a project file
+	 * when first used.
+	 */
+	static MemContents create(int addrBits, int width, String image, boolean compressed) {
+		MemContents ret = new MemContents(addrBits, width);
+		ret.image = image;
+		ret.imageCompressed = compressed;
+		ret.imageDecoded = false;
+		return ret;
+	}
+
 	private EventSourceWeakSupport<HexModelListener> listeners = null;
 	private int width;
 	private int addrBits;
 	private int mask;
 	private MemContentsSub.ContentsInterface[] pages;
 
+	// the contents as text for a project file, kept until they change; until
+	// imageDecoded is set, the pages are empty and the image is all there is
+	private String image = null;
+	private boolean imageCompressed = false;
+	private volatile boolean imageDecoded = true;
+
 	private MemContents(int addrBits, int width) {
 		listeners = null;
 		setDimensions(addrBits, width);
@@ -40,6 +63,8 @@ class MemContents implements Cloneable, HexModel {
 	}
 
 	public void clear() {
+		if (!imageDecoded)
+			decode();
 		for (int i = 0; i < pages.length; i++) {
 			if (pages[i] != null) {
 				if (pages[i] != null)
@@ -59,7 +84,7 @@ class MemContents implements Cloneable, HexModel {
 				changed = true;
 		}
 		if (changed) {
-			pages[index] = null;
+			dropPage(index);
 			fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
 		}
 	}
@@ -75,7 +100,7 @@ class MemContents implements Cloneable, HexModel {
 			ret.pages = new MemContentsSub.ContentsInterface[this.pages.length];
 			for (int i = 0; i < ret.pages.length; i++) {
 				if (this.pages[i] != null) {
-					ret.pages[i] = this.pages[i].clone();
+					ret.pages[i] = this.pages[i].share();
 				}
 			}
 			return ret;
@@ -84,16 +109,51 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
-	private void ensurePage(int index) {
-		if (pages[index] == null) {
-			pages[index] = MemContentsSub.createContents(PAGE_SIZE, width);
+	private synchronized void decode() {
+		if (imageDecoded)
+			return;
+		MemContents decoded = create(addrBits, width);
+		try {
+			RomContentsCodec.decode(decoded, image, imageCompressed);
+		} catch (IOException e) {
+			// keep whatever was decoded before the error, as loading did
+			// when this was done as the file was read
+		}
+		pages = decoded.pages;
+		imageDecoded = true;
+	}
+
+	private void dropPage(int index) {
+		if (pages[index] != null) {
+			pages[index].release();
+			pages[index] = null;
+		}
+	}
+
+	/**
+	 * Returns a page that may be written, creating it if it is clear and
+	 * copying it if it is shared with a clone.
+	 */
+	private MemContentsSub.ContentsInterface ensurePage(int index) {
+		MemContentsSub.ContentsInterface page = pages[index];
+		if (page == null) {
+			page = MemContentsSub.createContents(PAGE_SIZE, width, addrBits >= MAPPED_MIN_BITS);
+			pages[index] = page;
+		} else if (page.isShared()) {
+			MemContentsSub.ContentsInterface copy = page.clone();
+			page.release();
+			page = copy;
+			pages[index] = page;
 		}
+		return page;
 	}
 
 	@Override
 	public void fill(long start, long len, int value) {
 		if (len == 0)
 			return;
+		if (!imageDecoded)
+			decode();
 
 		int pageStart = (int) (start >>> PAGE_SIZE_BITS);
 		int startOffs = (int) (start & PAGE_MASK);
@@ -110,7 +170,7 @@ class MemContents implements Cloneable, HexModel {
 				int[] oldValues = page.get(startOffs, (int) len);
 				page.load(startOffs, vals, mask);
 				if (value == 0 && page.isClear())
-					pages[pageStart] = null;
+					dropPage(pageStart);
 				fireBytesChanged(start, len, oldValues);
 			}
 		} else {
@@ -128,7 +188,7 @@ class MemContents implements Cloneable, HexModel {
 						int[] oldValues = page.get(startOffs, vals.length);
 						page.load(startOffs, vals, mask);
 						if (value == 0 && page.isClear())
-							pages[pageStart] = null;
+							dropPage(pageStart);
 						fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
 					}
 				}
@@ -156,14 +216,14 @@ class MemContents implements Cloneable, HexModel {
 				if (value == 0 && page == null) {
 					// nothing to do
 				} else {
-					ensurePage(pageEnd);
+					page = ensurePage(pageEnd);
 					int[] vals = new int[endOffs + 1];
 					Arrays.fill(vals, value);
 					if (!page.matches(vals, 0, mask)) {
 						int[] oldValues = page.get(0, endOffs + 1);
 						page.load(0, vals, mask);
 						if (value == 0 && page.isClear())
-							pages[pageEnd] = null;
+							dropPage(pageEnd);
 						fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
 					}
 				}
@@ -172,6 +232,7 @@ class MemContents implements Cloneable, HexModel {
 	}
 
 	private void fireBytesChanged(long start, long numBytes, int[] oldValues) {
+		image = null;
 		if (listeners == null)
 			return;
 		boolean found = false;
@@ -197,6 +258,8 @@ class MemContents implements Cloneable, HexModel {
 
 	@Override
 	public int get(long addr) {
+		if (!imageDecoded)
+			decode();
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
 		if (page < 0 || page >= pages.length || pages[page] == null)
@@ -214,6 +277,20 @@ class MemContents implements Cloneable, HexModel {
 		return (1L << addrBits) - 1;
 	}
 
+	/**
+	 * Returns the contents as text for a project file, encoding them only if
+	 * they have changed since they were last read or written.
+	 */
+	String getImage(boolean compressed) {
+		if (image == null || imageCompressed != compressed) {
+			if (!imageDecoded)
+				decode();
+			image = RomContentsCodec.encode(this, compressed);
+			imageCompressed = compressed;
+		}
+		return image;
+	}
+
 	public int getLogLength() {
 		return addrBits;
 	}
@@ -228,6 +305,8 @@ class MemContents implements Cloneable, HexModel {
 	}
 
 	public boolean isClear() {
+		if (!imageDecoded)
+			decode();
 		for (int i = 0; i < pages.length; i++) {
 			MemContentsSub.ContentsInterface page = pages[i];
 			if (page != null) {
@@ -251,15 +330,14 @@ class MemContents implements Cloneable, HexModel {
 
 	@Override
 	public void set(long addr, int value) {
+		if (!imageDecoded)
+			decode();
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
 		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
 		int val = value & mask;
 		if (old != val) {
-			if (pages[page] == null) {
-				pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
-			}
-			pages[page].set(offs, val);
+			ensurePage(page).set(offs, val);
 			fireBytesChanged(addr, 1, new int[] { old });
 		}
 	}
@@ -268,6 +346,8 @@ class MemContents implements Cloneable, HexModel {
 	public void set(long start, int[] values) {
 		if (values.length == 0)
 			return;
+		if (!imageDecoded)
+			decode();
 
 		int pageStart = (int) (start >>> PAGE_SIZE_BITS);
 		int startOffs = (int) (start & PAGE_MASK);
@@ -281,7 +361,7 @@ class MemContents implements Cloneable, HexModel {
 				int[] oldValues = page.get(startOffs, values.length);
 				page.load(startOffs, values, mask);
 				if (page.isClear())
-					pages[pageStart] = null;
+					dropPage(pageStart);
 				fireBytesChanged(start, values.length, oldValues);
 			}
 		} else {
@@ -298,7 +378,7 @@ class MemContents implements Cloneable, HexModel {
 					int[] oldValues = page.get(startOffs, vals.length);
 					page.load(startOffs, vals, mask);
 					if (page.isClear())
-						pages[pageStart] = null;
+						dropPage(pageStart);
 					fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
 				}
 				nextOffs = vals.length;
@@ -316,17 +396,18 @@ class MemContents implements Cloneable, HexModel {
 						}
 					}
 					if (!allZeroes) {
-						page = MemContentsSub.createContents(PAGE_SIZE, width);
-						pages[i] = page;
+						page = ensurePage(i);
 					}
+				} else {
+					page = ensurePage(i);
 				}
 				if (page != null) {
 					System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-					if (!page.matches(vals, startOffs, mask)) {
+					if (!page.matches(vals, 0, mask)) {
 						int[] oldValues = page.get(0, PAGE_SIZE);
 						page.load(0, vals, mask);
 						if (page.isClear())
-							pages[i] = null;
+							dropPage(i);
 						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
 					}
 				}
@@ -336,11 +417,11 @@ class MemContents implements Cloneable, HexModel {
 				vals = new int[endOffs + 1];
 				System.arraycopy(values, offs, vals, 0, endOffs + 1);
 				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (!page.matches(vals, startOffs, mask)) {
+				if (!page.matches(vals, 0, mask)) {
 					int[] oldValues = page.get(0, endOffs + 1);
 					page.load(0, vals, mask);
 					if (page.isClear())
-						pages[pageEnd] = null;
+						dropPage(pageEnd);
 					fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
 				}
 			}
@@ -350,6 +431,9 @@ class MemContents implements Cloneable, HexModel {
 	public void setDimensions(int addrBits, int width) {
 		if (addrBits == this.addrBits && width == this.width)
 			return;
+		if (!imageDecoded)
+			decode();
+		image = null;
 		this.addrBits = addrBits;
 		this.width = width;
 		this.mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
@@ -369,7 +453,7 @@ class MemContents implements Cloneable, HexModel {
 			int n = Math.min(oldPages.length, pages.length);
 			for (int i = 0; i < n; i++) {
 				if (oldPages[i] != null) {
-					pages[i] = MemContentsSub.createContents(pageLength, width);
+					pages[i] = MemContentsSub.createContents(pageLength, width, addrBits >= MAPPED_MIN_BITS);
 					int m = Math.max(oldPages[i].getLength(), pageLength);
 					for (int j = 0; j < m; j++) {
 						pages[i].set(j, oldPages[i].get(j));
@@ -377,8 +461,14 @@ class MemContents implements Cloneable, HexModel {
 				}
 			}
 		}
+		if (oldPages != null) {
+			for (int i = 0; i < oldPages.length; i++) {
+				if (oldPages[i] != null)
+					oldPages[i].release();
+			}
+		}
 		if (pageCount == 0 && pages[0] == null) {
-			pages[0] = MemContentsSub.createContents(pageLength, width);
+			pages[0] = MemContentsSub.createContents(pageLength, width, false);
 		}
 		fireMetainfoChanged();
 	}
@@ -3,9 +3,117 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class MemContentsSub {
+	/**
+	 * Holds a page in a slot of the shared PageStore file rather than on the
+	 * heap, with one, two or four bytes per entry.
+	 */
+	private static class BufferContents extends ContentsInterface {
+		static BufferContents create(int size, int bits) {
+			int bytes = bits <= 8 ? 1 : bits <= 16 ? 2 : 4;
+			if (size * bytes > PageStore.SLOT_BYTES)
+				return null;
+			BufferContents ret = new BufferContents(size, bytes);
+			return ret.allocate() ? ret : null;
+		}
+
+		private int length;
+		private int bytes;
+		private ByteBuffer buffer;
+		private int base;
+
+		private BufferContents(int length, int bytes) {
+			this.length = length;
+			this.bytes = bytes;
+		}
+
+		private boolean allocate() {
+			int slot = PageStore.allocate(this);
+			if (slot < 0)
+				return false;
+			buffer = PageStore.getBuffer(slot);
+			base = PageStore.getOffset(slot);
+			return true;
+		}
+
+		@Override
+		void clear() {
+			for (int i = 0, n = length * bytes; i < n; i++)
+				buffer.put(base + i, (byte) 0);
+		}
+
+		@Override
+		public ContentsInterface clone() {
+			BufferContents ret = (BufferContents) super.clone();
+			if (!ret.allocate()) {
+				ContentsInterface copy = createContents(length, 8 * bytes, false);
+				copy.load(0, get(0, length), -1);
+				return copy;
+			}
+			ByteBuffer src = buffer.duplicate();
+			src.limit(base + length * bytes).position(base);
+			ByteBuffer dest = ret.buffer.duplicate();
+			dest.position(ret.base);
+			dest.put(src);
+			return ret;
+		}
+
+		@Override
+		int get(int addr) {
+			if (addr < 0 || addr >= length)
+				return 0;
+			switch (bytes) {
+			case 1:
+				return buffer.get(base + addr);
+			case 2:
+				return buffer.getShort(base + 2 * addr);
+			default:
+				return buffer.getInt(base + 4 * addr);
+			}
+		}
+
+		@Override
+		int getLength() {
+			return length;
+		}
+
+		@Override
+		void load(int start, int[] values, int mask) {
+			int n = Math.min(values.length, length - start);
+			for (int i = 0; i < n; i++)
+				set(start + i, values[i] & mask);
+		}
+
+		@Override
+		void set(int addr, int value) {
+			if (addr < 0 || addr >= length)
+				return;
+			switch (bytes) {
+			case 1:
+				buffer.put(base + addr, (byte) value);
+				break;
+			case 2:
+				buffer.putShort(base + 2 * addr, (short) value);
+				break;
+			default:
+				buffer.putInt(base + 4 * addr, value);
+			}
+		}
+	}
+
 	private static class ByteContents extends ContentsInterface {
 		private byte[] data;
 
@@ -58,13 +166,24 @@ class MemContentsSub {
 		}
 	}
 
+	/**
+	 * Holds one page of a memory. Pages are shared between a MemContents and
+	 * its clones until one of them writes; owners counts the MemContents
+	 * holding a page, and one that finds it above 1 writes to a copy instead.
+	 * A clone that is discarded without releasing its pages only costs its
+	 * original an unneeded copy.
+	 */
 	static abstract class ContentsInterface implements Cloneable {
+		private AtomicInteger owners = new AtomicInteger(1);
+
 		abstract void clear();
 
 		@Override
 		public ContentsInterface clone() {
 			try {
-				return (ContentsInterface) super.clone();
+				ContentsInterface ret = (ContentsInterface) super.clone();
+				ret.owners = new AtomicInteger(1);
+				return ret;
 			} catch (CloneNotSupportedException e) {
 				return this;
 			}
@@ -81,6 +200,10 @@ class MemContentsSub {
 
 		abstract int getLength();
 
+		boolean isShared() {
+			return owners.get() > 1;
+		}
+
 		boolean isClear() {
 			for (int i = 0, n = getLength(); i < n; i++) {
 				if (get(i) != 0)
@@ -99,7 +222,16 @@ class MemContentsSub {
 			return true;
 		}
 
+		void release() {
+			owners.decrementAndGet();
+		}
+
 		abstract void set(int addr, int value);
+
+		ContentsInterface share() {
+			owners.incrementAndGet();
+			return this;
+		}
 	}
 
 	private static class IntContents extends ContentsInterface {
@@ -139,7 +271,7 @@ class MemContentsSub {
 		void load(int start, int[] values, int mask) {
 			int n = Math.min(values.length, data.length - start);
 			for (int i = 0; i < n; i++) {
-				data[i] = values[i] & mask;
+				data[start + i] = values[i] & mask;
 			}
 		}
 
@@ -154,6 +286,90 @@ class MemContentsSub {
 		}
 	}
 
+	/**
+	 * Hands out fixed-size slots of a temporary file that is mapped into
+	 * memory a segment at a time, so large memories live outside the heap.
+	 * A slot returns to the free list once the page using it has been
+	 * garbage collected.
+	 */
+	private static class PageStore {
+		private static class SlotReference extends PhantomReference<BufferContents> {
+			private int slot;
+
+			SlotReference(BufferContents page, int slot) {
+				super(page, queue);
+				this.slot = slot;
+			}
+		}
+
+		// enough for a page of 4096 four-byte entries
+		static final int SLOT_BYTES = 1 << 14;
+		private static final int SEGMENT_SLOTS = 1024;
+
+		private static ReferenceQueue<BufferContents> queue = new ReferenceQueue<BufferContents>();
+		private static HashSet<SlotReference> live = new HashSet<SlotReference>();
+		private static ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+		private static int[] free = new int[0];
+		private static int freeCount = 0;
+		private static FileChannel channel = null;
+		private static boolean failed = false;
+
+		/** Returns a zeroed slot for the page, or -1 if none can be had. */
+		static synchronized int allocate(BufferContents page) {
+			Reference<? extends BufferContents> ref;
+			while ((ref = queue.poll()) != null) {
+				SlotReference dead = (SlotReference) ref;
+				live.remove(dead);
+				addFree(dead.slot);
+			}
+			if (freeCount == 0 && !grow())
+				return -1;
+			int slot = free[--freeCount];
+			ByteBuffer buffer = getBuffer(slot);
+			int base = getOffset(slot);
+			for (int i = 0; i < SLOT_BYTES; i += 8)
+				buffer.putLong(base + i, 0L);
+			live.add(new SlotReference(page, slot));
+			return slot;
+		}
+
+		private static void addFree(int slot) {
+			if (freeCount == free.length)
+				free = Arrays.copyOf(free, Math.max(SEGMENT_SLOTS, 2 * free.length));
+			free[freeCount++] = slot;
+		}
+
+		static synchronized ByteBuffer getBuffer(int slot) {
+			return segments.get(slot / SEGMENT_SLOTS);
+		}
+
+		static int getOffset(int slot) {
+			return (slot % SEGMENT_SLOTS) * SLOT_BYTES;
+		}
+
+		private static boolean grow() {
+			if (failed)
+				return false;
+			try {
+				if (channel == null) {
+					File file = File.createTempFile("logisim-mem", ".tmp");
+					file.deleteOnExit();
+					channel = new RandomAccessFile(file, "rw").getChannel();
+				}
+				long size = (long) SEGMENT_SLOTS * SLOT_BYTES;
+				ByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * size, size);
+				int first = segments.size() * SEGMENT_SLOTS;
+				segments.add(segment);
+				for (int i = SEGMENT_SLOTS - 1; i >= 0; i--)
+					addFree(first + i);
+				return true;
+			} catch (IOException e) {
+				failed = true;
+				return false;
+			}
+		}
+	}
+
 	private static class ShortContents extends ContentsInterface {
 		private short[] data;
 
@@ -206,7 +422,12 @@ class MemContentsSub {
 		}
 	}
 
-	static ContentsInterface createContents(int size, int bits) {
+	static ContentsInterface createContents(int size, int bits, boolean mapped) {
+		if (mapped) {
+			ContentsInterface ret = BufferContents.create(size, bits);
+			if (ret != null)
+				return ret;
+		}
 		if (bits <= 8)
 			return new ByteContents(size);
 		else if (bits <= 16)
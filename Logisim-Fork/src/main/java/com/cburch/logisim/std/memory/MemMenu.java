@@ -16,6 +16,7 @@ import javax.swing.JPopupMenu;
 
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.hex.HexFormat;
 import com.cburch.logisim.gui.hex.HexFrame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.proj.Project;
@@ -126,7 +127,10 @@ class MemMenu implements ActionListener, MenuExtender {
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
 			try {
-				factory.loadImage(circState.getInstanceState(instance), f);
+				HexFormat format = HexFormat.ask(frame, HexFormat.detect(f), chooser.getDialogTitle());
+				if (format == null)
+					return;
+				factory.loadImage(circState.getInstanceState(instance), f, format);
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(), Strings.get("ramLoadErrorTitle"),
 						JOptionPane.ERROR_MESSAGE);
@@ -148,8 +152,11 @@ class MemMenu implements ActionListener, MenuExtender {
 		int choice = chooser.showSaveDialog(frame);
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
+			HexFormat format = HexFormat.ask(frame, HexFormat.DEFAULT, chooser.getDialogTitle());
+			if (format == null)
+				return;
 			try {
-				HexFile.save(f, s.getContents());
+				HexFile.save(f, s.getContents(), format);
 				factory.setCurrentImage(instance, f);
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(), Strings.get("ramSaveErrorTitle"),
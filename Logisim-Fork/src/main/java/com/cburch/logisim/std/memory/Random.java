@@ -51,7 +51,7 @@ public class Random extends InstanceFactory {
 
 		private long initSeed;
 		private long curSeed;
-		private int value;
+		private long value;
 
 		public StateData(Object seed) {
 			reset(seed);
@@ -70,14 +70,16 @@ public class Random extends InstanceFactory {
 			}
 			this.initSeed = start;
 			this.curSeed = start;
-			this.value = (int) start;
+			this.value = start;
 		}
 
 		void step() {
 			long v = curSeed;
 			v = (v * multiplier + addend) & mask;
 			curSeed = v;
-			value = (int) (v >> 12);
+			// the low 32 bits match earlier versions; wider buses take the top of the next seed
+			long next = (v * multiplier + addend) & mask;
+			value = ((v >> 12) & 0xFFFFFFFFL) | ((next >> 16) << 32);
 		}
 	}
 
@@ -141,7 +143,7 @@ public class Random extends InstanceFactory {
 
 		// draw contents
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				GraphicsUtil.drawText(g, str, bds.getX() + 15, bds.getY() + 4, GraphicsUtil.H_CENTER,
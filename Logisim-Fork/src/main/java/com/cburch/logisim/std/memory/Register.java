@@ -97,7 +97,7 @@ public class Register extends InstanceFactory {
 		String a;
 		String b = null;
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				a = str;
@@ -165,7 +165,7 @@ public class Register extends InstanceFactory {
 		} else if (triggered && state.getPort(EN) != Value.FALSE) {
 			Value in = state.getPort(IN);
 			if (in.isFullyDefined())
-				data.value = in.toIntValue();
+				data.value = in.toLongValue();
 		}
 
 		state.setPort(OUT, Value.createKnown(dataWidth, data.value), DELAY);
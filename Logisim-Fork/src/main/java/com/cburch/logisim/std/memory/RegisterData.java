@@ -6,17 +6,17 @@ package com.cburch.logisim.std.memory;
 import com.cburch.logisim.instance.InstanceData;
 
 class RegisterData extends ClockState implements InstanceData {
-	int value;
+	long value;
 
 	public RegisterData() {
 		value = 0;
 	}
 
-	public int getValue() {
+	public long getValue() {
 		return value;
 	}
 
-	public void setValue(int value) {
+	public void setValue(long value) {
 		this.value = value;
 	}
 }
\ No newline at end of file
@@ -6,9 +6,6 @@ package com.cburch.logisim.std.memory;
 import java.awt.Window;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
 import java.util.WeakHashMap;
@@ -20,13 +17,13 @@ import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.gui.hex.HexFile;
 import com.cburch.logisim.gui.hex.HexFrame;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.Port;
 import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
 
 public class Rom extends Mem {
@@ -58,11 +55,14 @@ public class Rom extends Mem {
 					return null;
 				int addr = Integer.parseInt(toks.nextToken());
 				int data = Integer.parseInt(toks.nextToken());
-				MemContents ret = MemContents.create(addr, data);
-				HexFile.open(ret, new StringReader(rest));
-				return ret;
-			} catch (IOException e) {
-				return null;
+				boolean compressed = false;
+				if (toks.hasMoreTokens()) {
+					if (!toks.nextToken().equals(RomContentsCodec.COMPRESSED) || toks.hasMoreTokens())
+						return null;
+					compressed = true;
+				}
+				// decoding waits until the contents are first used
+				return MemContents.create(addr, data, rest, compressed);
 			} catch (NumberFormatException e) {
 				return null;
 			} catch (NoSuchElementException e) {
@@ -79,13 +79,9 @@ public class Rom extends Mem {
 		public String toStandardString(MemContents state) {
 			int addr = state.getLogLength();
 			int data = state.getWidth();
-			StringWriter ret = new StringWriter();
-			ret.write("addr/data: " + addr + " " + data + "\n");
-			try {
-				HexFile.save(ret, state);
-			} catch (IOException e) {
-			}
-			return ret.toString();
+			boolean compress = AppPreferences.COMPRESS_ROM_CONTENTS.getBoolean();
+			String header = "addr/data: " + addr + " " + data + (compress ? " " + RomContentsCodec.COMPRESSED : "");
+			return header + "\n" + state.getImage(compress);
 		}
 	}
 
@@ -0,0 +1,119 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.std.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.cburch.logisim.gui.hex.HexFile;
+
+/**
+ * Converts ROM contents to and from the text stored in a project file. The
+ * legacy form is HexFile's text format. The compressed form holds the values
+ * as little-endian words of one, two or four bytes, up to the last nonzero
+ * value, deflated and then encoded in base 64 with line breaks.
+ */
+class RomContentsCodec {
+	static final String COMPRESSED = "deflate";
+
+	private static final int CHUNK_SIZE = 4096;
+
+	static void decode(MemContents dst, String text, boolean compressed) throws IOException {
+		if (!compressed) {
+			HexFile.open(dst, new StringReader(text));
+			return;
+		}
+
+		byte[] packed;
+		try {
+			packed = Base64.getMimeDecoder().decode(text);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+		int wordBytes = getWordBytes(dst.getWidth());
+		InputStream in = new InflaterInputStream(new ByteArrayInputStream(packed));
+		try {
+			byte[] buf = new byte[CHUNK_SIZE * wordBytes];
+			int[] words = new int[CHUNK_SIZE];
+			long offs = 0;
+			while (true) {
+				int n = 0;
+				while (n < buf.length) {
+					int k = in.read(buf, n, buf.length - n);
+					if (k < 0)
+						break;
+					n += k;
+				}
+				int count = (n + wordBytes - 1) / wordBytes;
+				if (count == 0)
+					break;
+				if (offs + count - 1 > dst.getLastOffset())
+					throw new IOException("too much data");
+				Arrays.fill(buf, n, count * wordBytes, (byte) 0);
+				for (int i = 0; i < count; i++) {
+					int word = 0;
+					for (int j = 0; j < wordBytes; j++)
+						word |= (buf[i * wordBytes + j] & 0xFF) << (8 * j);
+					words[i] = word;
+				}
+				dst.set(offs, count == CHUNK_SIZE ? words : Arrays.copyOf(words, count));
+				offs += count;
+				if (n < buf.length)
+					break;
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	static String encode(MemContents src, boolean compressed) {
+		if (!compressed) {
+			StringWriter ret = new StringWriter();
+			try {
+				HexFile.save(ret, src);
+			} catch (IOException e) {
+			}
+			return ret.toString();
+		}
+
+		int wordBytes = getWordBytes(src.getWidth());
+		long last = src.getLastOffset();
+		while (last >= 0 && src.get(last) == 0)
+			last--;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED), CHUNK_SIZE);
+		try {
+			byte[] buf = new byte[CHUNK_SIZE * wordBytes];
+			for (long start = 0; start <= last; start += CHUNK_SIZE) {
+				int count = (int) Math.min(CHUNK_SIZE, last - start + 1);
+				for (int i = 0; i < count; i++) {
+					int word = src.get(start + i);
+					for (int j = 0; j < wordBytes; j++)
+						buf[i * wordBytes + j] = (byte) (word >>> (8 * j));
+				}
+				out.write(buf, 0, count * wordBytes);
+			}
+			out.close();
+		} catch (IOException e) {
+			// not possible when writing to memory
+		}
+		return Base64.getMimeEncoder(76, new byte[] { '\n' }).encodeToString(bytes.toByteArray()) + "\n";
+	}
+
+	private static int getWordBytes(int width) {
+		return width <= 8 ? 1 : width <= 16 ? 2 : 4;
+	}
+
+	private RomContentsCodec() {
+	}
+}
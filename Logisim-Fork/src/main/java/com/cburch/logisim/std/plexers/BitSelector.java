@@ -30,6 +30,7 @@ public class BitSelector extends InstanceFactory {
 
 	public BitSelector() {
 		super("BitSelector", Strings.getter("bitSelectorComponent"));
+		setCombinational(true);
 		setAttributes(new Attribute[] { StdAttr.FACING, Plexers.ATTR_SELECT_LOC, StdAttr.WIDTH, GROUP_ATTR },
 				new Object[] { Direction.EAST, Plexers.SELECT_BOTTOM_LEFT, BitWidth.create(8), BitWidth.ONE });
 		setKeyConfigurator(JoinedConfigurator.create(new BitWidthConfigurator(GROUP_ATTR, 1, Value.MAX_WIDTH, 0),
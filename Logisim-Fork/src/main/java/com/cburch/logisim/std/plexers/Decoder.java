@@ -26,6 +26,7 @@ import com.cburch.logisim.util.GraphicsUtil;
 public class Decoder extends InstanceFactory {
 	public Decoder() {
 		super("Decoder", Strings.getter("decoderComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, Plexers.ATTR_SELECT_LOC, Plexers.ATTR_SELECT, Plexers.ATTR_TRISTATE,
 						Plexers.ATTR_DISABLED, Plexers.ATTR_ENABLE },
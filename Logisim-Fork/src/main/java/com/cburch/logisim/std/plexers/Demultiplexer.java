@@ -27,6 +27,7 @@ import com.cburch.logisim.util.GraphicsUtil;
 public class Demultiplexer extends InstanceFactory {
 	public Demultiplexer() {
 		super("Demultiplexer", Strings.getter("demultiplexerComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, Plexers.ATTR_SELECT_LOC, Plexers.ATTR_SELECT, StdAttr.WIDTH,
 						Plexers.ATTR_TRISTATE, Plexers.ATTR_DISABLED, Plexers.ATTR_ENABLE },
@@ -47,6 +47,7 @@ public class Multiplexer extends InstanceFactory {
 
 	public Multiplexer() {
 		super("Multiplexer", Strings.getter("multiplexerComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, Plexers.ATTR_SELECT_LOC, Plexers.ATTR_SELECT, StdAttr.WIDTH,
 						Plexers.ATTR_DISABLED, Plexers.ATTR_ENABLE },
@@ -29,6 +29,7 @@ public class PriorityEncoder extends InstanceFactory {
 
 	public PriorityEncoder() {
 		super("Priority Encoder", Strings.getter("priorityEncoderComponent"));
+		setCombinational(true);
 		setAttributes(
 				new Attribute[] { StdAttr.FACING, Plexers.ATTR_SELECT, Plexers.ATTR_DISABLED, Plexers.ATTR_NO_INPUT },
 				new Object[] { Direction.EAST, BitWidth.create(3), Plexers.DISABLED_FLOATING,
@@ -57,7 +57,7 @@ public class Constant extends InstanceFactory {
 			if (attr == StdAttr.WIDTH)
 				return (V) width;
 			if (attr == ATTR_VALUE)
-				return (V) Integer.valueOf(value.toIntValue());
+				return (V) Long.valueOf(value.toLongValue());
 			return null;
 		}
 
@@ -69,7 +69,7 @@ public class Constant extends InstanceFactory {
 				width = (BitWidth) value;
 				this.value = this.value.extendWidth(width.getWidth(), this.value.get(this.value.getWidth() - 1));
 			} else if (attr == ATTR_VALUE) {
-				int val = ((Integer) value).intValue();
+				long val = ((Long) value).longValue();
 				this.value = Value.createKnown(width, val);
 			} else {
 				throw new IllegalArgumentException("unknown attribute " + attr);
@@ -88,13 +88,13 @@ public class Constant extends InstanceFactory {
 		@Override
 		public void computeExpression(Map<Location, Expression> expressionMap) {
 			AttributeSet attrs = instance.getAttributeSet();
-			int intValue = attrs.getValue(ATTR_VALUE).intValue();
+			int intValue = (int) attrs.getValue(ATTR_VALUE).longValue();
 
 			expressionMap.put(instance.getLocation(), Expressions.constant(intValue));
 		}
 	}
 
-	public static final Attribute<Integer> ATTR_VALUE = Attributes.forHexInteger("value",
+	public static final Attribute<Long> ATTR_VALUE = Attributes.forHexLong("value",
 			Strings.getter("constantValueAttr"));
 
 	public static InstanceFactory FACTORY = new Constant();
@@ -134,6 +134,7 @@ public class Constant extends InstanceFactory {
 		Direction facing = attrs.getValue(StdAttr.FACING);
 		BitWidth width = attrs.getValue(StdAttr.WIDTH);
 		int chars = (width.getWidth() + 3) / 4;
+		int len = 10 * chars - 4; // used beyond eight hex digits
 
 		Bounds ret = null;
 		if (facing == Direction.EAST) {
@@ -162,6 +163,9 @@ public class Constant extends InstanceFactory {
 			case 8:
 				ret = Bounds.create(-76, -8, 76, 16);
 				break;
+			default:
+				ret = Bounds.create(-len, -8, len, 16);
+				break;
 			}
 		} else if (facing == Direction.WEST) {
 			switch (chars) {
@@ -189,6 +193,9 @@ public class Constant extends InstanceFactory {
 			case 8:
 				ret = Bounds.create(0, -8, 76, 16);
 				break;
+			default:
+				ret = Bounds.create(0, -8, len, 16);
+				break;
 			}
 		} else if (facing == Direction.SOUTH) {
 			switch (chars) {
@@ -216,6 +223,9 @@ public class Constant extends InstanceFactory {
 			case 8:
 				ret = Bounds.create(-38, -16, 76, 16);
 				break;
+			default:
+				ret = Bounds.create(-len / 2, -16, len, 16);
+				break;
 			}
 		} else if (facing == Direction.NORTH) {
 			switch (chars) {
@@ -243,6 +253,9 @@ public class Constant extends InstanceFactory {
 			case 8:
 				ret = Bounds.create(-38, 0, 76, 16);
 				break;
+			default:
+				ret = Bounds.create(-len / 2, 0, len, 16);
+				break;
 			}
 		}
 		if (ret == null) {
@@ -265,8 +278,8 @@ public class Constant extends InstanceFactory {
 
 	@Override
 	public void paintGhost(InstancePainter painter) {
-		int v = painter.getAttributeValue(ATTR_VALUE).intValue();
-		String vStr = Integer.toHexString(v);
+		long v = painter.getAttributeValue(ATTR_VALUE).longValue();
+		String vStr = Long.toHexString(v);
 		Bounds bds = getOffsetBounds(painter.getAttributeSet());
 
 		Graphics g = painter.getGraphics();
@@ -301,7 +314,7 @@ public class Constant extends InstanceFactory {
 		g.fillRoundRect(2, 3, 16, 14, 3, 3);
 		g.setColor(Color.BLACK);
 		if (w == 1) {
-			int v = painter.getAttributeValue(ATTR_VALUE).intValue();
+			long v = painter.getAttributeValue(ATTR_VALUE).longValue();
 			Value val = v == 1 ? Value.TRUE : Value.FALSE;
 			g.setColor(val.getColor());
 			GraphicsUtil.drawCenteredText(g, "" + v, 11, 8);
@@ -316,8 +329,8 @@ public class Constant extends InstanceFactory {
 	public void paintInstance(InstancePainter painter) {
 		Bounds bds = painter.getOffsetBounds();
 		BitWidth width = painter.getAttributeValue(StdAttr.WIDTH);
-		int intValue = painter.getAttributeValue(ATTR_VALUE).intValue();
-		Value v = Value.createKnown(width, intValue);
+		long value = painter.getAttributeValue(ATTR_VALUE).longValue();
+		Value v = Value.createKnown(width, value);
 		Location loc = painter.getLocation();
 		int x = loc.getX();
 		int y = loc.getY();
@@ -343,7 +356,7 @@ public class Constant extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
-		int value = state.getAttributeValue(ATTR_VALUE).intValue();
+		long value = state.getAttributeValue(ATTR_VALUE).longValue();
 		state.setPort(0, Value.createKnown(width, value), 1);
 	}
 
@@ -6,13 +6,18 @@ package com.cburch.logisim.std.wiring;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.instance.StdAttr;
-import com.cburch.logisim.tools.key.IntegerConfigurator;
+import com.cburch.logisim.tools.key.NumericConfigurator;
 
-class ConstantConfigurator extends IntegerConfigurator {
+class ConstantConfigurator extends NumericConfigurator<Long> {
 	public ConstantConfigurator() {
 		super(Constant.ATTR_VALUE, 0, 0, 0, 16);
 	}
 
+	@Override
+	protected Long createValue(int value) {
+		return Long.valueOf(value);
+	}
+
 	@Override
 	public int getMaximumValue(AttributeSet attrs) {
 		BitWidth width = attrs.getValue(StdAttr.WIDTH);
@@ -10,6 +10,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
+import java.math.BigInteger;
 
 import javax.swing.Icon;
 import javax.swing.JMenuItem;
@@ -82,44 +83,35 @@ public class Pin extends InstanceFactory {
 		public void actionPerformed(ActionEvent evt) {
 			if (evt.getSource() == edit) {
 				PinState data = Pin.getState(instance, circState);
-				int CurrentValue = data.sending.toIntValue();
+				Value current = data.sending;
 				// pop up input dialog
 				String input = (String) JOptionPane.showInputDialog(null, Strings.get("constantValueAttr"),
 						Strings.get("constantValueAttr"), JOptionPane.PLAIN_MESSAGE, null, null,
-						CurrentValue & 0xffffffffL);
+						current.isFullyDefined() ? current.toDecimalString(false) : "0");
 				// something typed
 				if (input != null && !input.equals("")) {
-					byte CurrentWidth = (byte) data.sending.getWidth();
-					double MaxValue = Math.pow(2, CurrentWidth);
-					long TypedValue;
-					// should avoid some problem
-					if (input.length() > 10 && input.charAt(0) != '-') {
-						// set max number
-						TypedValue = (long) MaxValue - 1;
-					} else if (input.length() > 11 && input.charAt(0) == '-') {
-						// set minimum negative number
-						TypedValue = 1 << CurrentWidth - 1;
-					} else {
-						try {
-							// get value from input text
-							TypedValue = Long.parseLong(input);
-						} catch (Exception ex) {
-							JOptionPane.showMessageDialog(null,
-									new LocaleManager("resources/logisim", "menu").get("FrequencyNumberNotAccepted"));
-							return;
-						}
+					int currentWidth = current.getWidth();
+					BigInteger max = BigInteger.ONE.shiftLeft(currentWidth).subtract(BigInteger.ONE);
+					BigInteger min = BigInteger.ONE.shiftLeft(currentWidth - 1).negate();
+					BigInteger typedValue;
+					try {
+						// get value from input text
+						typedValue = new BigInteger(input.trim());
+					} catch (NumberFormatException ex) {
+						JOptionPane.showMessageDialog(null,
+								new LocaleManager("resources/logisim", "menu").get("FrequencyNumberNotAccepted"));
+						return;
 					}
-					// check if bigger or equal to than max - 1
-					if (TypedValue >= MaxValue) {
-						TypedValue = (long) MaxValue - 1;
-					} // check if smaller than -max/2
-					else if (TypedValue < -MaxValue / 2) {
-						// minimum negative number
-						TypedValue = 1 << CurrentWidth - 1;
+					// clamp to the largest unsigned or smallest signed number
+					if (typedValue.compareTo(max) > 0) {
+						typedValue = max;
+					} else if (typedValue.compareTo(min) < 0) {
+						typedValue = min;
 					}
+					Value newValue = Value.createKnown(BitWidth.create(currentWidth), typedValue.longValue());
 					// if different from old value
-					if (TypedValue != (CurrentValue & 0xffffffffL)) {
-						data.sending = Value.createKnown(BitWidth.create(CurrentWidth), (int) TypedValue);
+					if (!newValue.equals(current)) {
+						data.sending = newValue;
 						instance.fireInvalidated();
 					}
 				}
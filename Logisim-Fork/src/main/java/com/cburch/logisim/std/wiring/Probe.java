@@ -109,6 +109,7 @@ public class Probe extends InstanceFactory {
 	static Bounds getOffsetBounds(Direction dir, BitWidth width, RadixOption radix) {
 		Bounds ret = null;
 		int len = radix == null || radix == RadixOption.RADIX_2 ? width.getWidth() : radix.getMaxLength(width);
+		int rows = (len + 7) / 8; // used past 32 characters, eight to a row
 		if (dir == Direction.EAST) {
 			switch (len) {
 			case 0:
@@ -166,6 +167,9 @@ public class Probe extends InstanceFactory {
 			case 32:
 				ret = Bounds.create(-80, -40, 80, 80);
 				break;
+			default:
+				ret = Bounds.create(-80, -10 * rows, 80, 20 * rows);
+				break;
 			}
 		} else if (dir == Direction.WEST) {
 			switch (len) {
@@ -224,6 +228,9 @@ public class Probe extends InstanceFactory {
 			case 32:
 				ret = Bounds.create(0, -40, 80, 80);
 				break;
+			default:
+				ret = Bounds.create(0, -10 * rows, 80, 20 * rows);
+				break;
 			}
 		} else if (dir == Direction.SOUTH) {
 			switch (len) {
@@ -282,6 +289,9 @@ public class Probe extends InstanceFactory {
 			case 32:
 				ret = Bounds.create(-40, -80, 80, 80);
 				break;
+			default:
+				ret = Bounds.create(-40, -20 * rows, 80, 20 * rows);
+				break;
 			}
 		} else if (dir == Direction.NORTH) {
 			switch (len) {
@@ -340,6 +350,9 @@ public class Probe extends InstanceFactory {
 			case 32:
 				ret = Bounds.create(-40, 0, 80, 80);
 				break;
+			default:
+				ret = Bounds.create(-40, 0, 80, 20 * rows);
+				break;
 			}
 		}
 		if (ret == null) {
@@ -0,0 +1,76 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Records the state of a Graphics that drawing code commonly changes, so that
+ * a caller drawing many things with one Graphics can tell whether one of them
+ * left it changed, instead of handing each a fresh copy from create().
+ */
+public class GraphicsState {
+	private Color color;
+	private Color background;
+	private Font font;
+	private Paint paint;
+	private Stroke stroke;
+	private Composite composite;
+	private AffineTransform transform;
+	private Object antialiasing;
+	private Object textAntialiasing;
+	private Rectangle clip;
+	private Rectangle clipCheck = new Rectangle();
+
+	public GraphicsState(Graphics g) {
+		color = g.getColor();
+		font = g.getFont();
+		clip = g.getClipBounds();
+		if (g instanceof Graphics2D) {
+			Graphics2D g2 = (Graphics2D) g;
+			background = g2.getBackground();
+			paint = g2.getPaint();
+			stroke = g2.getStroke();
+			composite = g2.getComposite();
+			transform = g2.getTransform();
+			antialiasing = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+			textAntialiasing = g2.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+		}
+	}
+
+	/**
+	 * Returns whether g is in the recorded state. It is meant for the same
+	 * Graphics the state was recorded from, and only ever errs by reporting
+	 * a change, which it always does for a Graphics that isn't a Graphics2D.
+	 */
+	public boolean matches(Graphics g) {
+		if (transform == null || !(g instanceof Graphics2D))
+			return false;
+		if (g.getColor() != color || g.getFont() != font)
+			return false;
+		if (clip == null) {
+			if (g.getClip() != null)
+				return false;
+		} else {
+			clipCheck.width = -1; // left alone if g has no clip
+			if (!clip.equals(g.getClipBounds(clipCheck)))
+				return false;
+		}
+		Graphics2D g2 = (Graphics2D) g;
+		return g2.getBackground() == background && g2.getPaint() == paint
+				&& g2.getStroke() == stroke && g2.getComposite() == composite
+				&& g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == antialiasing
+				&& g2.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING) == textAntialiasing
+				&& transform.equals(g2.getTransform());
+	}
+}
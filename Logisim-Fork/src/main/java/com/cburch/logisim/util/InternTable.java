@@ -0,0 +1,124 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+/**
+ * An open-addressed table for interning immutable objects. Unlike
+ * {@link Cache}, colliding entries are kept in neighboring slots, and the
+ * table grows with the number of distinct objects until it reaches its
+ * maximum capacity, after which new entries evict old ones.
+ *
+ * Callers look up an object by walking its probe sequence:
+ *
+ * <pre>
+ * for (int probe = 0;; probe++) {
+ * 	Object o = table.get(hashCode, probe);
+ * 	if (o == null)
+ * 		break;
+ * 	if (matches(o))
+ * 		return o;
+ * }
+ * table.put(hashCode, created);
+ * </pre>
+ *
+ * Each object's hashCode() must equal the code it was put with, since the
+ * table rehashes its entries as it grows. Lookups don't lock, so the table
+ * may be shared between simulation threads; the worst a race can do is intern
+ * an object twice. The hit and miss counts are approximate in that case.
+ */
+public class InternTable {
+	private static final int MAX_PROBES = 8;
+
+	private volatile Object[] data;
+	private final int maxLogSize;
+	private int size = 0;
+	private int evictions = 0;
+	private long lookups = 0;
+	private long misses = 0;
+
+	public InternTable(int logSize, int maxLogSize) {
+		this.maxLogSize = Math.max(logSize, Math.min(maxLogSize, 30));
+		this.data = new Object[1 << logSize];
+	}
+
+	public Object get(int hashCode, int probe) {
+		if (probe >= MAX_PROBES)
+			return null;
+		if (probe == 0)
+			lookups++;
+		Object[] d = data;
+		return d[(home(hashCode, d.length) + probe) & (d.length - 1)];
+	}
+
+	public int getCapacity() {
+		return data.length;
+	}
+
+	public long getHitCount() {
+		return lookups - misses;
+	}
+
+	public long getMissCount() {
+		return misses;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	private int home(int hashCode, int length) {
+		// Fibonacci hashing spreads the coordinate-like hash codes of
+		// neighboring objects across the table
+		return (hashCode * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(length));
+	}
+
+	private boolean insert(Object[] d, int hashCode, Object value) {
+		int mask = d.length - 1;
+		int start = home(hashCode, d.length);
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int i = (start + probe) & mask;
+			if (d[i] == null) {
+				d[i] = value;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized void put(int hashCode, Object value) {
+		if (value == null)
+			return;
+		misses++;
+		Object[] d = data;
+		if (2 * (size + 1) > d.length && Integer.numberOfTrailingZeros(d.length) < maxLogSize) {
+			d = resize(2 * d.length);
+		}
+		if (insert(d, hashCode, value)) {
+			size++;
+		} else {
+			// the probe window is full: replace an entry in it, rotating
+			// through the window so recent entries survive a while
+			int i = (home(hashCode, d.length) + (evictions++ & (MAX_PROBES - 1))) & (d.length - 1);
+			d[i] = value;
+		}
+	}
+
+	private Object[] resize(int newLength) {
+		Object[] old = data;
+		Object[] d = new Object[newLength];
+		int n = 0;
+		for (Object o : old) {
+			if (o != null && insert(d, o.hashCode(), o))
+				n++;
+		}
+		size = n;
+		data = d;
+		return d;
+	}
+
+	@Override
+	public String toString() {
+		return size + "/" + data.length + " entries, " + getHitCount() + " hits, " + misses + " misses";
+	}
+}